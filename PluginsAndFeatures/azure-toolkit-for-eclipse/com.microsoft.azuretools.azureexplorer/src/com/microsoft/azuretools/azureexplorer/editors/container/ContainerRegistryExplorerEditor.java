@@ -359,7 +359,7 @@ public class ContainerRegistryExplorerEditor extends EditorPart implements Conta
                 }
                 currentRepo = selectedRepo;
                 disableWidgets(false, true);
-                containerExplorerPresenter.onListTags(subscriptionId, registryId, currentRepo, true /* isNextPage */);
+                containerExplorerPresenter.onRefreshTags(subscriptionId, registryId, currentRepo);
             }
         });
 
@@ -413,7 +413,7 @@ public class ContainerRegistryExplorerEditor extends EditorPart implements Conta
                     return;
                 }
                 disableWidgets(false, true);
-                containerExplorerPresenter.onListTags(subscriptionId, registryId, currentRepo, true /* isNextPage */);
+                containerExplorerPresenter.onRefreshTags(subscriptionId, registryId, currentRepo);
             }
         });
 
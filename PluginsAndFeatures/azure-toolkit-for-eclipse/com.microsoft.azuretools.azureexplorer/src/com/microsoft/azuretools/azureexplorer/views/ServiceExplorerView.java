@@ -105,6 +105,7 @@ public class ServiceExplorerView extends ViewPart implements PropertyChangeListe
         private TreeViewer viewer;
         private TreeNode azureNode;
         private AzureTreeNode[] azureModules;
+        private HDInsightRootModuleImpl hdInsightRootModule;
 
         public ViewContentProvider(TreeViewer viewer) {
             super();
@@ -117,6 +118,9 @@ public class ServiceExplorerView extends ViewPart implements PropertyChangeListe
 
         @Override
         public void dispose() {
+            if (hdInsightRootModule != null) {
+                hdInsightRootModule.dispose();
+            }
         }
 
         @Override
@@ -163,7 +167,7 @@ public class ServiceExplorerView extends ViewPart implements PropertyChangeListe
         }
 
         private void setHDInsightRootModule(@NotNull AzureModule azureModule) {
-            HDInsightRootModuleImpl hdInsightRootModule = new HDInsightRootModuleImpl(azureModule);
+            hdInsightRootModule = new HDInsightRootModuleImpl(azureModule);
             azureModule.setHdInsightModule(hdInsightRootModule);
 
             // Enable HDInsight new SDK for Eclipse
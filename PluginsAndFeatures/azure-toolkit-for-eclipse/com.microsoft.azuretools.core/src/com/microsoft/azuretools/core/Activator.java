@@ -66,6 +66,8 @@ import com.microsoft.azuretools.core.store.EclipseSecureStore;
 import com.microsoft.azuretools.core.store.EclipseStore;
 import com.microsoft.azuretools.core.ui.views.Messages;
 import com.microsoft.azuretools.core.utils.PluginUtil;
+import com.microsoft.azuretools.telemetry.AppInsightsClient;
+import com.microsoft.azuretools.telemetrywrapper.CommonUtil;
 import com.microsoft.tooling.msservices.components.DefaultLoader;
 import com.microsoft.tooling.msservices.components.PluginComponent;
 import com.microsoft.tooling.msservices.components.PluginSettings;
@@ -85,6 +87,7 @@ public class Activator extends AbstractUIPlugin implements PluginComponent {
     public static final String USER_AGENT = "Azure Toolkit for Eclipse, v%s, machineid:%s";
     private static final String AZURE_TOOLS_FOLDER = ".AzureToolsForEclipse";
     private static final String AZURE_TOOLS_FOLDER_DEPRECATED = "AzureToolsForEclipse";
+    private static final long TELEMETRY_FLUSH_TIMEOUT_MILLIS = 3000;
 
     private String pluginInstLoc;
     private String dataFile;
@@ -242,6 +245,8 @@ public class Activator extends AbstractUIPlugin implements PluginComponent {
      */
     @Override
     public void stop(BundleContext context) throws Exception {
+        AppInsightsClient.stop(TELEMETRY_FLUSH_TIMEOUT_MILLIS);
+        CommonUtil.stopEvents(TELEMETRY_FLUSH_TIMEOUT_MILLIS);
         plugin = null;
         super.stop(context);
     }
@@ -16,7 +16,9 @@ import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
@@ -24,14 +26,13 @@ import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import com.google.common.base.Joiner;
-import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
 import com.jcraft.jsch.SftpException;
+import com.microsoft.azure.hdinsight.common.JobStatusManager;
 import com.microsoft.azure.hdinsight.common.StreamUtil;
 import com.microsoft.azure.hdinsight.sdk.cluster.EmulatorClusterDetail;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
@@ -41,7 +42,7 @@ import com.microsoft.azure.hdinsight.sdk.storage.HDStorageAccount;
 import com.microsoft.azure.hdinsight.sdk.storage.IHDIStorageAccount;
 import com.microsoft.azure.hdinsight.sdk.storage.StorageAccountType;
 import com.microsoft.azure.hdinsight.spark.common.SparkBatchSubmission;
-import com.microsoft.azure.hdinsight.spark.common.SparkJobLog;
+import com.microsoft.azure.hdinsight.spark.common.SparkBatchLogReader;
 import com.microsoft.azure.hdinsight.spark.common.SparkSubmitResponse;
 import com.microsoft.azure.hdinsight.spark.jobs.JobUtils;
 import com.microsoft.tooling.msservices.helpers.CallableSingleArg;
@@ -61,13 +62,15 @@ public class SparkSubmitHelper {
     private static SparkSubmitHelper ourInstance = new SparkSubmitHelper();
 
     private static final int MAX_INTERVAL_TIME = 5000;
-    private static final int MIN_INTERVAL_TIME = 1000;
-    private static final int INC_TIME = 100;
+    private static final int MIN_INTERVAL_TIME = 500;
 
-    private static final String APPLICATION_ID_PATTERN = "Application report for ([^ ]*) \\(state: ACCEPTED\\)";
+    private static final Pattern APPLICATION_ID_PATTERN = Pattern.compile("Application report for ([^ ]*) \\(state: ACCEPTED\\)");
     public static final String HELP_LINK = "http://go.microsoft.com/fwlink/?LinkID=722349&clcid=0x409";
 
-    private SparkJobLog sparkJobLog;
+    private static final Gson gson = new Gson();
+
+    // Log lines of the running job printed so far, kept for writing them to local file
+    private volatile List<String> jobLogLines;
 
     public static SparkSubmitHelper getInstance() {
         return ourInstance;
@@ -79,7 +82,8 @@ public class SparkSubmitHelper {
     private String JobLogFolderName = "SparkJobLog";
 
     public String writeLogToLocalFile(/* @NotNull Project project */) throws IOException {
-        if (sparkJobLog == null) {
+        List<String> logLines = jobLogLines;
+        if (logLines == null) {
             return null;
         }
 
@@ -101,7 +105,12 @@ public class SparkSubmitHelper {
 
             logFileWrite = new FileWriter(fullFileName);
             bufferedWriter = new BufferedWriter(logFileWrite);
-            for (String str : sparkJobLog.getLog()) {
+            List<String> snapshot;
+            synchronized (logLines) {
+                snapshot = new ArrayList<>(logLines);
+            }
+
+            for (String str : snapshot) {
                 bufferedWriter.write(str);
                 bufferedWriter.newLine();
             }
@@ -125,37 +134,37 @@ public class SparkSubmitHelper {
             boolean isFailedJob = false;
             boolean isKilledJob = false;
 
-            int from_index = 0;
-            int pre_index;
-            int times = 0;
+            JobStatusManager jobStatusManager = HDInsightUtil.getSparkSubmissionToolWindowView().getJobStatusManager();
+            String livyBatchesUrl = clusterDetail.getConnectionUrl() + "/livy/batches";
+            SparkBatchLogReader logReader = new SparkBatchLogReader(SparkBatchSubmission.getInstance(), livyBatchesUrl, id);
+            jobLogLines = Collections.synchronizedList(new ArrayList<>());
+
+            int interval = MIN_INTERVAL_TIME;
             HDInsightUtil.getSparkSubmissionToolWindowView()
                     .setInfo("======================Begin printing out spark job log.=======================");
             while (true) {
-                pre_index = from_index;
-                if (HDInsightUtil.getSparkSubmissionToolWindowView().getJobStatusManager().isJobKilled()) {
+                if (jobStatusManager.isJobKilled()) {
                     isKilledJob = true;
                     break;
                 }
 
-                from_index = printoutJobLog(/* project, */id, from_index, clusterDetail);
-                HttpResponse statusHttpResponse = SparkBatchSubmission.getInstance()
-                        .getBatchSparkJobStatus(clusterDetail.getConnectionUrl() + "/livy/batches", id);
-
-                SparkSubmitResponse status = new Gson().fromJson(statusHttpResponse.getMessage(),
-                        new TypeToken<SparkSubmitResponse>() {
-                        }.getType());
+                if (printoutJobLog(logReader)) {
+                    // keep up with a busy job
+                    interval = MIN_INTERVAL_TIME;
+                } else {
+                    // only the log is idle, we try to get the job status
+                    HttpResponse statusHttpResponse = SparkBatchSubmission.getInstance()
+                            .getBatchSparkJobStatus(livyBatchesUrl, id);
+                    SparkSubmitResponse status = gson.fromJson(statusHttpResponse.getMessage(), SparkSubmitResponse.class);
 
-                // only the lines of the log are same between two http requests,
-                // we try to get the job status
-                if (from_index == pre_index) {
                     String finalStatus = status.getState().toLowerCase();
                     if (finalStatus.equals("error") || finalStatus.equals("success") || finalStatus.equals("dead")) {
                         if (finalStatus.equals("error") || finalStatus.equals("dead")) {
                             isFailedJob = true;
                         }
 
-                        if (!HDInsightUtil.getSparkSubmissionToolWindowView().getJobStatusManager().isJobKilled()) {
-                            printoutJobLog(id, from_index, clusterDetail);
+                        if (!jobStatusManager.isJobKilled()) {
+                            printoutJobLog(logReader);
                             HDInsightUtil.getSparkSubmissionToolWindowView().setInfo(
                                     "======================Finish printing out spark job log.=======================");
                         } else {
@@ -163,10 +172,15 @@ public class SparkSubmitHelper {
                         }
                         break;
                     }
+
+                    interval = Math.min(interval * 2, MAX_INTERVAL_TIME);
                 }
 
-                Thread.sleep(getIntervalTime(times));
-                times++;
+                // wake up at once when the job is killed from the tool window
+                if (jobStatusManager.awaitJobKilled(interval)) {
+                    isKilledJob = true;
+                    break;
+                }
             }
 
             if (isKilledJob) {
@@ -179,14 +193,12 @@ public class SparkSubmitHelper {
 
             if (isFailedJob) {
                 postEventProperty.put("IsRunningSucceed", "false");
-                HttpResponse httpResponse = SparkBatchSubmission.getInstance()
-                        .getBatchJobFullLog(clusterDetail.getConnectionUrl() + "/livy/batches", id);
-                SparkSubmitResponse submitStatus = new Gson().fromJson(httpResponse.getMessage(),
-                        new TypeToken<SparkSubmitResponse>() {
-                        }.getType());
-                if (submitStatus != null && submitStatus.getLog() != null && submitStatus.getLog().size() > 0) {
-                    List<String> logs = submitStatus.getLog();
-                    postEventProperty.put("SubmitFailedReason", truncateTelemetryMessage(logs.get(logs.size() - 1)));
+                // the log has been read up to the end, no need to get the full log again
+                List<String> logs = jobLogLines;
+                synchronized (logs) {
+                    if (!logs.isEmpty()) {
+                        postEventProperty.put("SubmitFailedReason", truncateTelemetryMessage(logs.get(logs.size() - 1)));
+                    }
                 }
 
                 HDInsightUtil.getSparkSubmissionToolWindowView().setError("Error : Your submitted job run failed");
@@ -267,35 +279,38 @@ public class SparkSubmitHelper {
         return len < 50 ? message : message.substring(0, 50);
     }
 
-    private int printoutJobLog(/* Project project, */ int id, int from_index, IClusterDetail clusterDetail)
-            throws IOException {
-        HttpResponse httpResponse = SparkBatchSubmission.getInstance()
-                .getBatchJobFullLog(clusterDetail.getConnectionUrl() + "/livy/batches", id);
-        sparkJobLog = new Gson().fromJson(httpResponse.getMessage(), new TypeToken<SparkJobLog>() {
-        }.getType());
+    /**
+     * Print the log lines appended since last printed to the tool window in a batch
+     *
+     * @return whether there are new log lines
+     */
+    private boolean printoutJobLog(/* Project project, */ SparkBatchLogReader logReader) throws IOException {
+        List<String> newLines = logReader.readNewLines();
+        if (newLines.isEmpty()) {
+            return false;
+        }
+
+        jobLogLines.addAll(newLines);
 
-        if (!HDInsightUtil.getSparkSubmissionToolWindowView().getJobStatusManager().isApplicationGenerated()) {
-            String sparkLogs = Joiner.on("").join(sparkJobLog.getLog());
-            String applicationId = getApplicationIdFromYarnLog(sparkLogs);
+        JobStatusManager jobStatusManager = HDInsightUtil.getSparkSubmissionToolWindowView().getJobStatusManager();
+        if (!jobStatusManager.isApplicationGenerated()) {
+            String applicationId = getApplicationIdFromYarnLog(String.join("", newLines));
             if (applicationId != null) {
                 HDInsightUtil.getSparkSubmissionToolWindowView().setBrowserButtonState(true);
-                HDInsightUtil.getSparkSubmissionToolWindowView().getJobStatusManager().setApplicationIdGenerated();
-                HDInsightUtil.getSparkSubmissionToolWindowView().getJobStatusManager().setApplicationId(applicationId);
+                jobStatusManager.setApplicationIdGenerated();
+                jobStatusManager.setApplicationId(applicationId);
             }
         }
 
-        int counter = 0;
-        if (sparkJobLog.getLog().size() > 0) {
-            for (String line : sparkJobLog.getLog()) {
-                if (counter >= from_index && !StringHelper.isNullOrWhiteSpace(line)) {
-                    HDInsightUtil.getSparkSubmissionToolWindowView().setInfo(line, true);
-                }
-
-                counter++;
+        List<String> linesToPrint = new ArrayList<>(newLines.size());
+        for (String line : newLines) {
+            if (!StringHelper.isNullOrWhiteSpace(line)) {
+                linesToPrint.add(line);
             }
         }
 
-        return sparkJobLog.getTotal();
+        HDInsightUtil.getSparkSubmissionToolWindowView().setInfo(linesToPrint, true);
+        return true;
     }
 
     private BlobContainer getSparkClusterDefaultContainer(ClientStorageAccount storageAccount,
@@ -311,14 +326,8 @@ public class SparkSubmitHelper {
         return null;
     }
 
-    private int getIntervalTime(int times) {
-        int interval = MIN_INTERVAL_TIME + times * INC_TIME;
-        return interval > MAX_INTERVAL_TIME ? MAX_INTERVAL_TIME : interval;
-    }
-
     private String getApplicationIdFromYarnLog(String yarnLog) {
-        Pattern r = Pattern.compile(APPLICATION_ID_PATTERN);
-        Matcher m = r.matcher(yarnLog);
+        Matcher m = APPLICATION_ID_PATTERN.matcher(yarnLog);
         if (m.find()) {
             return m.group(1);
         }
@@ -5,11 +5,14 @@
 
 package com.microsoft.azure.toolkit.intellij.legacy.appservice.action;
 
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogWrapper;
 import com.intellij.util.PlatformUtils;
 import com.microsoft.azure.toolkit.intellij.legacy.appservice.jfr.RunFlightRecorderDialog;
 import com.microsoft.azure.toolkit.lib.appservice.AppServiceAppBase;
+import com.microsoft.azure.toolkit.lib.appservice.model.AppServiceFile;
 import com.microsoft.azure.toolkit.lib.appservice.model.OperatingSystem;
 import com.microsoft.azure.toolkit.lib.common.bundle.AzureString;
 import com.microsoft.azure.toolkit.lib.common.exception.AzureToolkitRuntimeException;
@@ -27,7 +30,11 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
 import java.util.logging.Logger;
 
 import static com.microsoft.azure.toolkit.intellij.common.AzureBundle.message;
@@ -35,7 +42,8 @@ import static com.microsoft.azure.toolkit.intellij.common.AzureBundle.message;
 public class ProfileFlightRecordAction {
     private static final Logger logger = Logger.getLogger(ProfileFlightRecordAction.class.getName());
     private static final int ONE_SECOND = 1000;
-    private static final int TWO_SECONDS = 2000;
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(2);
+    private static final Duration FINALIZE_TIMEOUT = Duration.ofMinutes(5);
     private final Project project;
     private final AppServiceAppBase<?, ?, ?> appService;
 
@@ -70,7 +78,8 @@ public class ProfileFlightRecordAction {
                 if (config.getDuration() <= 0) {
                     throw new AzureToolkitRuntimeException(message("webapp.flightRecord.error.invalidDuration.title"), message("webapp.flightRecord.error.invalidDuration.message"));
                 } else {
-                    AzureTaskManager.getInstance().runInBackground(AzureString.format("Run flight record on %s", appService.getName()), () -> doProfileFlightRecorder(config));
+                    final AzureString title = AzureString.format("Run flight record on %s", appService.getName());
+                    AzureTaskManager.getInstance().runInBackground(new AzureTask<>(project, title, true, () -> doProfileFlightRecorder(config)));
                 }
             }, AzureTask.Modality.NONE);
         } catch (final Exception ex) {
@@ -97,27 +106,46 @@ public class ProfileFlightRecordAction {
             final FlightRecorderStarterBase starter = FlightRecorderManager.getFlightRecorderStarter(appService);
             starter.startFlightRecorder(config.getPid(), config.getDuration(), file.getName());
             AzureMessager.getMessager().info(message("webapp.flightRecord.hint.recording", config.getDuration()));
-            try {
-                Thread.sleep(ONE_SECOND * config.getDuration() + TWO_SECONDS);
-            } catch (final InterruptedException e) {
-                // ignore
-            }
+            final ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+            final BooleanSupplier cancelled = () -> Objects.nonNull(indicator) && indicator.isCanceled();
+            // the recording can't be finalized before its duration, poll for the file afterwards
+            waitForRecording(config.getDuration(), indicator, cancelled);
+            Optional.ofNullable(indicator).ifPresent(i -> i.setText2("Waiting for the recording to be written"));
+            final AppServiceFile jfrFile = starter.waitForJfrFile(file.getName(),
+                Duration.ofSeconds(config.getDuration()).plus(FINALIZE_TIMEOUT), POLL_INTERVAL, cancelled);
             AzureMessager.getMessager().info(message("webapp.flightRecord.hint.profileCompletedOnAzure"));
             AzureMessager.getMessager().info(message("webapp.flightRecord.hint.downloadingJfr"));
-            final byte[] content = starter.downloadJFRFile(file.getName());
-            if (content != null) {
-                FileUtils.writeByteArrayToFile(file, content);
-                AzureMessager.getMessager().info(message("webapp.flightRecord.hint.downloadingJfrDone"));
-                AzureMessager.getMessager().info(getActionOnJfrFile(file.getAbsolutePath()), message("webapp.flightRecord.hint.profileRecorderComplete"));
-            } else {
-                throw new AzureToolkitRuntimeException(message("webapp.flightRecord.error.jfrDownload.title"), message("webapp.flightRecord.error.jfrDownload.message"));
-            }
-
+            Optional.ofNullable(indicator).ifPresent(i -> {
+                i.setIndeterminate(false);
+                i.setText2("Downloading " + jfrFile.getName());
+            });
+            starter.downloadJFRFile(file.getName(), file,
+                written -> Optional.ofNullable(indicator).ifPresent(i -> i.setFraction(Math.min(1.0, (double) written / jfrFile.getSize()))), cancelled);
+            AzureMessager.getMessager().info(message("webapp.flightRecord.hint.downloadingJfrDone"));
+            AzureMessager.getMessager().info(getActionOnJfrFile(file.getAbsolutePath()), message("webapp.flightRecord.hint.profileRecorderComplete"));
+        } catch (final CancellationException e) {
+            AzureMessager.getMessager().warning(message("webapp.flightRecord.error.cancelled.message"), message("webapp.flightRecord.error.cancelled.title"));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            AzureMessager.getMessager().warning(message("webapp.flightRecord.error.cancelled.message"), message("webapp.flightRecord.error.cancelled.title"));
         } catch (final IOException e) {
             throw new AzureToolkitRuntimeException(message("webapp.flightRecord.error.profileFlightRecorderFailed.title"), e);
         }
     }
 
+    private static void waitForRecording(int durationInSeconds, @Nullable ProgressIndicator indicator, BooleanSupplier cancelled) throws InterruptedException {
+        Optional.ofNullable(indicator).ifPresent(i -> i.setIndeterminate(false));
+        for (int elapsed = 0; elapsed < durationInSeconds; elapsed++) {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            final double fraction = (double) elapsed / durationInSeconds;
+            Optional.ofNullable(indicator).ifPresent(i -> i.setFraction(fraction));
+            Thread.sleep(ONE_SECOND);
+        }
+        Optional.ofNullable(indicator).ifPresent(i -> i.setIndeterminate(true));
+    }
+
     private String getActionOnJfrFile(String filePath) {
         if (PlatformUtils.isIdeaUltimate()) {
             return String.format(message("webapp.flightRecord.hint.openJfrIntelliJ"), filePath);
@@ -8,6 +8,7 @@ package com.microsoft.azure.toolkit.intellij.legacy.docker.pushimage;
 import com.intellij.execution.process.ProcessOutputTypes;
 import com.intellij.openapi.project.Project;
 import com.microsoft.azure.toolkit.intellij.legacy.docker.utils.Constant;
+import com.microsoft.azure.toolkit.intellij.legacy.docker.utils.DockerBuildContext;
 import com.microsoft.azure.toolkit.intellij.legacy.docker.utils.DockerProgressHandler;
 import com.microsoft.azure.toolkit.intellij.legacy.docker.utils.DockerUtil;
 import com.microsoft.azuretools.core.mvp.model.container.pojo.PushImageRunModel;
@@ -57,12 +58,14 @@ public class PushImageRunState extends AzureRunProfileState<String> {
         if (!targetDockerfile.toFile().exists()) {
             throw new FileNotFoundException("Dockerfile not found.");
         }
-        // replace placeholder if exists
+        // replace placeholder if exists, the dockerfile itself is left untouched
         String content = new String(Files.readAllBytes(targetDockerfile));
         content = content.replaceAll(Constant.DOCKERFILE_ARTIFACT_PLACEHOLDER,
                 Paths.get(basePath).toUri().relativize(Paths.get(targetFilePath).toUri()).getPath()
         );
-        Files.write(targetDockerfile, content.getBytes());
+        // only the artifact and the files referenced by dockerfile are sent to docker
+        DockerBuildContext context = DockerBuildContext.create(targetDockerfile.getParent(),
+                targetDockerfile.getFileName().toString(), content, Paths.get(targetFilePath));
 
         // build image
         PrivateRegistryImageSetting acrInfo = dataModel.getPrivateRegistryImageSetting();
@@ -71,8 +74,7 @@ public class PushImageRunState extends AzureRunProfileState<String> {
         DockerUtil.ping(docker);
         String image = DockerUtil.buildImage(docker,
                 acrInfo.getImageTagWithServerUrl(),
-                targetDockerfile.getParent(),
-                targetDockerfile.getFileName().toString(),
+                context,
                 new DockerProgressHandler(processHandler)
         );
 
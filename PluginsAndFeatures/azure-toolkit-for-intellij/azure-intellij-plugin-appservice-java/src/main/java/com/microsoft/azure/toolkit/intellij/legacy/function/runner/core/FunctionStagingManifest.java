@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.legacy.function.runner.core;
+
+import com.microsoft.azure.toolkit.lib.common.logging.Log;
+import com.microsoft.azure.toolkit.lib.common.utils.JsonUtils;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Records what has been staged into a function staging folder (relative path -> source fingerprint), so that
+ * the next staging only copies changed files and deletes stale ones instead of cleaning the whole folder.
+ * The manifest is saved next to the staging folder, so that it won't be deployed with the staged files.
+ */
+public class FunctionStagingManifest {
+    public static final String MANIFEST_SUFFIX = ".staging-manifest.json";
+
+    private final Path stagingFolder;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new HashMap<>();
+    @Nullable
+    private Runnable beforeArtifactsChange;
+
+    private FunctionStagingManifest(@Nonnull final Path stagingFolder, @Nonnull final Map<String, Entry> previous) {
+        this.stagingFolder = stagingFolder;
+        this.previous = previous;
+    }
+
+    /**
+     * load manifest of the staging folder, the folder will be cleaned if it has not been staged with manifest before
+     */
+    @Nonnull
+    public static FunctionStagingManifest load(@Nonnull final Path stagingFolder) throws IOException {
+        final File manifestFile = getManifestPath(stagingFolder).toFile();
+        Map<String, Entry> entries = new HashMap<>();
+        if (!manifestFile.isFile() && stagingFolder.toFile().isDirectory()) {
+            FileUtils.cleanDirectory(stagingFolder.toFile());
+        } else if (manifestFile.isFile()) {
+            try {
+                final Manifest manifest = JsonUtils.readFromJsonFile(manifestFile, Manifest.class);
+                entries = Optional.ofNullable(manifest).map(Manifest::getEntries).map(HashMap::new).orElseGet(HashMap::new);
+            } catch (final RuntimeException e) {
+                // corrupted manifest, treat all files as changed
+                Log.debug(String.format("Failed to read staging manifest %s: %s", manifestFile, e.getMessage()));
+            }
+        }
+        return new FunctionStagingManifest(stagingFolder, entries);
+    }
+
+    /**
+     * {@code callback} is run once before any staged artifact (module jar or library) is overwritten or deleted, e.g. to
+     * stop a host which is still running with the staging folder and holding the files
+     */
+    public void setBeforeArtifactsChange(@Nullable final Runnable callback) {
+        this.beforeArtifactsChange = callback;
+    }
+
+    /**
+     * notify that a staged artifact is going to be overwritten or deleted
+     */
+    public void notifyArtifactsChange() {
+        final Runnable callback = this.beforeArtifactsChange;
+        this.beforeArtifactsChange = null;
+        if (callback != null) {
+            callback.run();
+        }
+    }
+
+    /**
+     * stage {@code source} to {@code relativePath}, the file is copied only when the source changed since last staging.
+     * the file is not hard-linked, otherwise rebuilding the source would modify the staged file in place.
+     */
+    public void syncFile(@Nonnull final File source, @Nonnull final String relativePath) throws IOException {
+        final Entry entry = new Entry(source.getAbsolutePath(), source.length(), source.lastModified(), null);
+        final File target = stagingFolder.resolve(relativePath).toFile();
+        if (!target.exists() || !Objects.equals(previous.get(relativePath), entry)) {
+            notifyArtifactsChange();
+            FileUtils.forceMkdirParent(target);
+            // copy to a temp file then replace the target, so that the staged file is never seen half written
+            final Path temp = target.toPath().resolveSibling(target.getName() + ".tmp");
+            FileUtils.copyFile(source, temp.toFile());
+            try {
+                Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        current.put(relativePath, entry);
+    }
+
+    /**
+     * @return whether the file generated from {@code sourceDirectory} is missing or the directory changed since last staging,
+     * the directory fingerprint is recorded either way.
+     */
+    public boolean isDirectoryChanged(@Nonnull final File sourceDirectory, @Nonnull final String relativePath) throws IOException {
+        final Entry entry = fingerprint(sourceDirectory);
+        current.put(relativePath, entry);
+        return !stagingFolder.resolve(relativePath).toFile().exists() || !Objects.equals(previous.get(relativePath), entry);
+    }
+
+    /**
+     * @return whether content with hash {@code hash} needs to be (re)written to {@code relativePath}
+     */
+    public boolean isContentChanged(@Nonnull final String relativePath, @Nonnull final String hash) {
+        final Entry entry = new Entry(null, 0, 0, hash);
+        current.put(relativePath, entry);
+        return !stagingFolder.resolve(relativePath).toFile().exists() || !Objects.equals(previous.get(relativePath), entry);
+    }
+
+    /**
+     * record {@code stagedFile} which has been built into the staging folder by caller, it is fingerprinted by its size
+     * and modification time, so that rebuilding it changes the artifacts fingerprint
+     */
+    public void record(@Nonnull final File stagedFile) {
+        final String relativePath = stagingFolder.relativize(stagedFile.toPath()).toString().replace(File.separatorChar, '/');
+        current.put(relativePath, new Entry(stagedFile.getAbsolutePath(), stagedFile.length(), stagedFile.lastModified(), null));
+    }
+
+    /**
+     * mark {@code relativePath} as a staged file which is maintained by caller, so that it won't be treated as stale
+     */
+    public void keep(@Nonnull final String relativePath) {
+        current.put(relativePath, Optional.ofNullable(previous.get(relativePath)).orElseGet(Entry::new));
+    }
+
+    /**
+     * delete files which were staged last time but not in this round and persist the manifest, files not created by
+     * staging (e.g. extensions installed by function core tools) are kept
+     */
+    public void save() throws IOException {
+        final Path manifestPath = getManifestPath(stagingFolder);
+        for (final String stale : previous.keySet()) {
+            if (!current.containsKey(stale)) {
+                notifyArtifactsChange();
+                Files.deleteIfExists(stagingFolder.resolve(stale));
+            }
+        }
+        try (final Stream<Path> folders = Files.walk(stagingFolder)) {
+            final List<Path> emptyFolders = folders.filter(Files::isDirectory)
+                    .filter(path -> !path.equals(stagingFolder))
+                    .sorted(Comparator.reverseOrder())
+                    .collect(Collectors.toList());
+            for (final Path folder : emptyFolders) {
+                final String[] children = folder.toFile().list();
+                if (children != null && children.length == 0) {
+                    Files.deleteIfExists(folder);
+                }
+            }
+        }
+        JsonUtils.writeToJsonFile(manifestPath.toFile(), new Manifest(new HashMap<>(current)));
+    }
+
+    /**
+     * @return fingerprint of the artifacts (module jar and libraries) recorded by the last staging of {@code stagingFolder},
+     * which changes whenever any of them is re-staged.
+     */
+    @Nonnull
+    public static String getArtifactsFingerprint(@Nonnull final Path stagingFolder) {
+        final File manifestFile = getManifestPath(stagingFolder).toFile();
+        final Map<String, Entry> entries = manifestFile.isFile() ? Optional.ofNullable(JsonUtils.readFromJsonFile(manifestFile, Manifest.class))
+                .map(Manifest::getEntries).orElse(Collections.emptyMap()) : Collections.emptyMap();
+        // artifacts are staged from source files/folders, while generated/kept files (e.g. function.json) have no source
+        final String artifacts = new TreeMap<>(entries).entrySet().stream()
+                .filter(entry -> entry.getValue() != null && entry.getValue().getSource() != null)
+                .map(entry -> entry.getKey() + "=" + entry.getValue())
+                .collect(Collectors.joining("\n"));
+        return DigestUtils.md5Hex(artifacts);
+    }
+
+    @Nonnull
+    private static Path getManifestPath(@Nonnull final Path stagingFolder) {
+        return stagingFolder.resolveSibling(stagingFolder.getFileName() + MANIFEST_SUFFIX);
+    }
+
+    @Nonnull
+    private static Entry fingerprint(@Nonnull final File directory) throws IOException {
+        final AtomicLong size = new AtomicLong();
+        final AtomicLong lastModified = new AtomicLong();
+        if (directory.isDirectory()) {
+            // directory mtime changes on add/delete/rename of children, file mtime changes on modification
+            try (final Stream<Path> paths = Files.walk(directory.toPath())) {
+                paths.forEach(path -> {
+                    try {
+                        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                        size.addAndGet(attributes.isRegularFile() ? attributes.size() : 0);
+                        lastModified.accumulateAndGet(attributes.lastModifiedTime().toMillis(), Math::max);
+                    } catch (final IOException e) {
+                        lastModified.set(System.currentTimeMillis());
+                    }
+                });
+            }
+        }
+        return new Entry(directory.getAbsolutePath(), size.get(), lastModified.get(), null);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Manifest {
+        private Map<String, Entry> entries;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+        @Nullable
+        private String source;
+        private long size;
+        private long lastModified;
+        @Nullable
+        private String hash;
+    }
+}
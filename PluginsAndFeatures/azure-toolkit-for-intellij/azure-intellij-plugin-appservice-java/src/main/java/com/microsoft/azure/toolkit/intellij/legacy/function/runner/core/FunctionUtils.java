@@ -9,7 +9,9 @@ import com.intellij.codeInsight.AnnotationUtil;
 import com.intellij.codeInsight.MetaAnnotationUtil;
 import com.intellij.lang.jvm.JvmAnnotation;
 import com.intellij.lang.jvm.JvmParameter;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.compiler.CompilerPaths;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.module.ModuleUtil;
@@ -20,17 +22,25 @@ import com.intellij.openapi.roots.ModuleOrderEntry;
 import com.intellij.openapi.roots.OrderEnumerator;
 import com.intellij.openapi.roots.OrderRootType;
 import com.intellij.openapi.roots.libraries.Library;
+import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.JavaPsiFacade;
 import com.intellij.psi.PsiAnnotation;
 import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiJavaCodeReferenceElement;
 import com.intellij.psi.PsiMethod;
 import com.intellij.psi.PsiModifierListOwner;
+import com.intellij.psi.PsiParameter;
 import com.intellij.psi.search.FilenameIndex;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.search.searches.AnnotatedElementsSearch;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.containers.ContainerUtil;
 import com.microsoft.azure.toolkit.intellij.common.AzureArtifact;
 import com.microsoft.azure.toolkit.intellij.common.AzureArtifactManager;
@@ -50,6 +60,7 @@ import com.microsoft.azure.toolkit.lib.common.utils.JsonUtils;
 import com.microsoft.azure.toolkit.lib.legacy.function.bindings.Binding;
 import com.microsoft.azure.toolkit.lib.legacy.function.bindings.BindingEnum;
 import com.microsoft.azure.toolkit.lib.legacy.function.configurations.FunctionConfiguration;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.ArrayUtils;
@@ -67,19 +78,27 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -93,6 +112,7 @@ public class FunctionUtils {
     private static final String AZURE_FUNCTION_ANNOTATION_CLASS =
             "com.microsoft.azure.functions.annotation.FunctionName";
     private static final String FUNCTION_JSON = "function.json";
+    private static final String LOCAL_SETTINGS_JSON = "local.settings.json";
     private static final String HTTP_OUTPUT_DEFAULT_NAME = "$return";
     private static final String DEFAULT_HOST_JSON = "{\"version\":\"2.0\",\"extensionBundle\":" +
             "{\"id\":\"Microsoft.Azure.Functions.ExtensionBundle\",\"version\":\"[4.*, 5.0.0)\"}}\n";
@@ -102,6 +122,9 @@ public class FunctionUtils {
     private static final String AZURE_FUNCTION_CUSTOM_BINDING_CLASS =
             "com.microsoft.azure.functions.annotation.CustomBinding";
     private static final Map<BindingEnum, List<String>> REQUIRED_ATTRIBUTE_MAP = new HashMap<>();
+    private static final Map<String, Optional<BindingEnum>> BINDING_ENUMS = new ConcurrentHashMap<>();
+    private static final ExecutorService BINDING_EXECUTOR = AppExecutorUtil.createBoundedApplicationPoolExecutor(
+            "Azure Functions Configuration", Runtime.getRuntime().availableProcessors());
     private static final List<String> CUSTOM_BINDING_RESERVED_PROPERTIES = Arrays.asList("type", "name", "direction");
     private static final String AZURE_FUNCTIONS_APP_SETTINGS = "Azure Functions App Settings";
     private static final String AZURE_FUNCTIONS_JAVA_LIBRARY = "azure-functions-java-library";
@@ -141,6 +164,22 @@ public class FunctionUtils {
         }
     }
 
+    /**
+     * get a stable staging folder of {@code module}, which is reused by the following staging of the same {@code name}
+     * so that only changed files need to be staged again.
+     */
+    public static File getStagingFolder(@Nonnull final Module module, @Nonnull final String name) {
+        final Project project = module.getProject();
+        final File result = Paths.get(FileUtil.getTempDirectory(), AZURE_FUNCTIONS, project.getLocationHash(),
+                FileUtil.sanitizeFileName(module.getName()), FileUtil.sanitizeFileName(name)).toFile();
+        try {
+            FileUtils.forceMkdir(result);
+        } catch (final IOException e) {
+            throw new AzureToolkitRuntimeException("failed to get staging folder", e);
+        }
+        return result;
+    }
+
     @AzureOperation(name = "boundary/function.clean_staging_folder.folder", params = {"stagingFolder.getName()"})
     public static void cleanUpStagingFolder(File stagingFolder) {
         try {
@@ -226,49 +265,76 @@ public class FunctionUtils {
     public static void copyLocalSettingsToStagingFolder(@Nonnull final Path stagingFolder,
                                                         @Nullable final Path localSettingJson,
                                                         @Nullable Map<String, String> appSettings, boolean useLocalSettings) throws IOException {
-        final File localSettingsFile = new File(stagingFolder.toFile(), "local.settings.json");
+        final File localSettingsFile = new File(stagingFolder.toFile(), LOCAL_SETTINGS_JSON);
         copyFilesWithDefaultContent(localSettingJson, localSettingsFile, DEFAULT_LOCAL_SETTINGS_JSON);
         if (MapUtils.isNotEmpty(appSettings)) {
             updateLocalSettingValues(localSettingsFile, appSettings, useLocalSettings);
         }
     }
 
-    @AzureOperation(name = "boundary/function.prepare_staging_folder")
     public static Map<String, FunctionConfiguration> prepareStagingFolder(@Nonnull final Path stagingFolder, @Nullable final Path hostJson,
                                                                           @Nonnull final Project project, @Nonnull final Module module, PsiMethod[] methods)
             throws AzureExecutionException, IOException {
-        final Map<String, FunctionConfiguration> configMap = ReadAction.compute(() -> generateConfigurations(methods));
-        if (stagingFolder.toFile().isDirectory()) {
-            FileUtils.cleanDirectory(stagingFolder.toFile());
-        }
+        return prepareStagingFolder(stagingFolder, hostJson, project, module, methods, null);
+    }
+
+    /**
+     * @param beforeArtifactsChange run before the staged jar or libraries are overwritten or deleted, see
+     *                              {@link FunctionStagingManifest#setBeforeArtifactsChange(Runnable)}
+     */
+    @AzureOperation(name = "boundary/function.prepare_staging_folder")
+    public static Map<String, FunctionConfiguration> prepareStagingFolder(@Nonnull final Path stagingFolder, @Nullable final Path hostJson,
+                                                                          @Nonnull final Project project, @Nonnull final Module module, PsiMethod[] methods,
+                                                                          @Nullable final Runnable beforeArtifactsChange)
+            throws AzureExecutionException, IOException {
+        final Map<String, FunctionConfiguration> configMap = generateConfigurations(methods);
+        final FunctionStagingManifest manifest = FunctionStagingManifest.load(stagingFolder);
+        manifest.setBeforeArtifactsChange(beforeArtifactsChange);
 
         final Path jarFile;
         // test if it is gradle project
         final IntellijGradleFunctionProject gradleProject = new IntellijGradleFunctionProject(project, module);
         if (gradleProject.isValid() && gradleProject.getArtifactFile() != null) {
-            jarFile = gradleProject.getArtifactFile().toPath();
+            jarFile = stagingFolder.resolve(gradleProject.getArtifactFile().getName());
             gradleProject.packageJar();
             if (!gradleProject.getArtifactFile().exists()) {
                 final String error = String.format("Failed generate jar file for project(%s)", gradleProject.getName());
                 throw new AzureToolkitRuntimeException(error);
             }
-            FileUtils.copyFileToDirectory(gradleProject.getArtifactFile(), stagingFolder.toFile());
+            manifest.syncFile(gradleProject.getArtifactFile(), jarFile.getFileName().toString());
         } else {
-            jarFile = JarUtils.buildJarFileToStagingPath(stagingFolder.toString(), module);
+            final String jarName = module.getName() + ".jar";
+            final String outputPath = CompilerPaths.getModuleOutputPath(module, false);
+            if (StringUtils.isEmpty(outputPath)) {
+                manifest.notifyArtifactsChange();
+                jarFile = buildModuleJar(stagingFolder, module);
+                manifest.record(jarFile.toFile());
+            } else if (manifest.isDirectoryChanged(new File(outputPath), jarName)) {
+                // only rebuild module jar when compiler output changes
+                manifest.notifyArtifactsChange();
+                jarFile = buildModuleJar(stagingFolder, module);
+            } else {
+                jarFile = stagingFolder.resolve(jarName);
+            }
         }
 
         final String scriptFilePath = "../" + jarFile.getFileName().toString();
         configMap.values().forEach(config -> config.setScriptFile(scriptFilePath));
         for (final Map.Entry<String, FunctionConfiguration> config : configMap.entrySet()) {
             if (StringUtils.isNotBlank(config.getKey())) {
-                final File functionJsonFile = Paths.get(stagingFolder.toString(), config.getKey(), FUNCTION_JSON)
-                                                   .toFile();
-                writeFunctionJsonFile(functionJsonFile, config.getValue());
+                final String functionJsonPath = config.getKey() + "/" + FUNCTION_JSON;
+                final Map<String, Object> functionJson = toFunctionJson(config.getValue());
+                if (manifest.isContentChanged(functionJsonPath, DigestUtils.md5Hex(JsonUtils.toJson(functionJson)))) {
+                    writeFunctionJsonFile(stagingFolder.resolve(functionJsonPath).toFile(), functionJson);
+                }
             }
         }
 
         final File hostJsonFile = new File(stagingFolder.toFile(), "host.json");
         copyFilesWithDefaultContent(hostJson, hostJsonFile, DEFAULT_HOST_JSON);
+        manifest.keep(hostJsonFile.getName());
+        // local.settings.json will be updated by copyLocalSettingsToStagingFolder
+        manifest.keep(LOCAL_SETTINGS_JSON);
 
         final List<File> dependencies = new ArrayList<>();
         if (gradleProject.isValid()) {
@@ -290,18 +356,39 @@ public class FunctionUtils {
                 .filter(name -> StringUtils.equalsAnyIgnoreCase(name, AZURE_FUNCTIONS_JAVA_CORE_LIBRARY))
                 .findFirst().orElse(AZURE_FUNCTIONS_JAVA_LIBRARY);
 
-        final File libFolder = new File(stagingFolder.toFile(), "lib");
         for (final File file : dependencies) {
             if (!StringUtils.equalsIgnoreCase(getArtifactIdFromFile(file), libraryToExclude)) {
                 if (!file.exists()) {
                     throw new AzureToolkitRuntimeException(String.format("Dependency artifact (%s) not found, please correct the dependency and try again", file.getAbsolutePath()));
                 }
-                FileUtils.copyFileToDirectory(file, libFolder);
+                manifest.syncFile(file, "lib/" + file.getName());
             }
         }
+        // remove files staged by previous run but no longer needed, e.g. removed dependencies or functions
+        manifest.save();
         return configMap;
     }
 
+    /**
+     * the jar is built aside and then moved into the staging folder, so that a host which is still running with the
+     * staging folder never sees the jar rewritten in place.
+     */
+    private static Path buildModuleJar(@Nonnull final Path stagingFolder, @Nonnull final Module module) throws IOException {
+        final Path buildFolder = Files.createTempDirectory(stagingFolder.getParent(), "jar");
+        try {
+            final Path builtJar = JarUtils.buildJarFileToStagingPath(buildFolder.toString(), module);
+            final Path jarFile = stagingFolder.resolve(builtJar.getFileName());
+            try {
+                Files.move(builtJar, jarFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(builtJar, jarFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return jarFile;
+        } finally {
+            FileUtils.deleteQuietly(buildFolder.toFile());
+        }
+    }
+
     // get artifact based on module
     @Nullable
     private static File getArtifactFromModule(final Module module) {
@@ -372,7 +459,7 @@ public class FunctionUtils {
                         .collect(Collectors.toList());
     }
 
-    private static void writeFunctionJsonFile(File file, FunctionConfiguration config) throws IOException {
+    private static Map<String, Object> toFunctionJson(FunctionConfiguration config) {
         final Map<String, Object> json = new LinkedHashMap<>();
         json.put("scriptFile", config.getScriptFile());
         json.put("entryPoint", config.getEntryPoint());
@@ -395,6 +482,10 @@ public class FunctionUtils {
             }
             json.put("bindings", lists.toArray());
         }
+        return json;
+    }
+
+    private static void writeFunctionJsonFile(File file, Map<String, Object> json) throws IOException {
         file.getParentFile().mkdirs();
         JsonUtils.writeToJsonFile(file, json);
     }
@@ -408,25 +499,78 @@ public class FunctionUtils {
     private static Map<String, FunctionConfiguration> generateConfigurations(final PsiMethod[] methods)
             throws AzureExecutionException {
         final Map<String, FunctionConfiguration> configMap = new HashMap<>();
-        for (final PsiMethod method : methods) {
-            final PsiAnnotation annotation = AnnotationUtil.findAnnotation(method,
-                                                                           FunctionUtils.AZURE_FUNCTION_ANNOTATION_CLASS);
-            final String functionName = AnnotationUtil.getDeclaredStringAttributeValue(annotation, "value");
-            configMap.put(functionName, generateConfiguration(method));
+        if (ApplicationManager.getApplication().isReadAccessAllowed()) {
+            // waiting for non-blocking read actions while holding read lock may dead lock with pending write action
+            for (final PsiMethod method : methods) {
+                configMap.put(getFunctionName(method), getConfiguration(method));
+            }
+            return configMap;
+        }
+        final List<Future<Pair<String, FunctionConfiguration>>> futures = Arrays.stream(methods)
+                .map(method -> ReadAction.nonBlocking(() -> Pair.create(getFunctionName(method), getConfiguration(method)))
+                        .submit(BINDING_EXECUTOR))
+                .collect(Collectors.toList());
+        try {
+            for (final Future<Pair<String, FunctionConfiguration>> future : futures) {
+                final Pair<String, FunctionConfiguration> pair = future.get();
+                configMap.put(pair.getFirst(), pair.getSecond());
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AzureExecutionException("Interrupted while generating function configurations", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof AzureExecutionException) {
+                throw (AzureExecutionException) e.getCause();
+            }
+            throw new AzureExecutionException("Failed to generate function configurations", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
         }
         return configMap;
     }
 
-    private static FunctionConfiguration generateConfiguration(PsiMethod method) throws AzureExecutionException {
-        final FunctionConfiguration config = new FunctionConfiguration();
-        final List<Binding> bindings = new ArrayList<>();
-        processParameterAnnotations(method, bindings);
-        processMethodAnnotations(method, bindings);
-        patchStorageBinding(method, bindings);
-        config.setEntryPoint(method.getContainingClass().getQualifiedName() + "." + method.getName());
-        // Todo: add set bindings method in tools-common
-        config.setBindings(bindings);
-        return config;
+    private static String getFunctionName(final PsiMethod method) {
+        final PsiAnnotation annotation = AnnotationUtil.findAnnotation(method, FunctionUtils.AZURE_FUNCTION_ANNOTATION_CLASS);
+        return AnnotationUtil.getDeclaredStringAttributeValue(annotation, "value");
+    }
+
+    /**
+     * get function configuration of method, which is cached until the file of the method or the files declaring its
+     * annotations (e.g. custom bindings) are modified
+     */
+    private static FunctionConfiguration getConfiguration(final PsiMethod method) throws AzureExecutionException {
+        final Pair<FunctionConfiguration, AzureExecutionException> cached = CachedValuesManager.getCachedValue(method, () -> {
+            Pair<FunctionConfiguration, AzureExecutionException> value;
+            try {
+                value = Pair.create(generateConfiguration(method), null);
+            } catch (final AzureExecutionException e) {
+                value = Pair.create(null, e);
+            }
+            return CachedValueProvider.Result.create(value, getConfigurationDependencies(method));
+        });
+        if (cached.getSecond() != null) {
+            throw cached.getSecond();
+        }
+        // return a copy as script file will be updated by caller
+        final FunctionConfiguration result = new FunctionConfiguration();
+        result.setEntryPoint(cached.getFirst().getEntryPoint());
+        result.setBindings(new ArrayList<>(cached.getFirst().getBindings()));
+        return result;
+    }
+
+    private static Object[] getConfigurationDependencies(final PsiMethod method) {
+        final Set<Object> dependencies = new LinkedHashSet<>();
+        Optional.ofNullable(method.getContainingFile()).ifPresent(dependencies::add);
+        final List<PsiAnnotation> annotations = new ArrayList<>(Arrays.asList(method.getAnnotations()));
+        for (final PsiParameter parameter : method.getParameterList().getParameters()) {
+            annotations.addAll(Arrays.asList(parameter.getAnnotations()));
+        }
+        for (final PsiAnnotation annotation : annotations) {
+            final PsiFile file = Optional.ofNullable(annotation.resolveAnnotationType()).map(PsiClass::getContainingFile).orElse(null);
+            // the binding of an unresolved annotation may be resolved once the annotation class is added anywhere
+            dependencies.add(file == null ? PsiModificationTracker.MODIFICATION_COUNT : file);
+        }
+        return dependencies.toArray();
     }
 
     private static void processParameterAnnotations(final PsiMethod method, final List<Binding> bindings)
@@ -462,12 +606,12 @@ public class FunctionUtils {
                         annotation.getClass().getCanonicalName()));
         }
 
-        final BindingEnum annotationEnum =
+        final String qualifiedName = StringUtils.defaultString(annotation.getQualifiedName());
+        final BindingEnum annotationEnum = BINDING_ENUMS.computeIfAbsent(qualifiedName, name ->
                 Arrays.stream(BindingEnum.values())
-                      .filter(bindingEnum -> StringUtils.equalsIgnoreCase(bindingEnum.name(),
-                              ClassUtils.getShortClassName(annotation.getQualifiedName())))
-                      .findFirst()
-                      .orElse(null);
+                      .filter(bindingEnum -> StringUtils.equalsIgnoreCase(bindingEnum.name(), ClassUtils.getShortClassName(name)))
+                      .findFirst())
+                .orElse(null);
         return annotationEnum == null ? getUserDefinedBinding(project, (PsiAnnotation) annotation)
                                       : createBinding(project, annotationEnum, (PsiAnnotation) annotation);
     }
@@ -72,7 +72,12 @@ public class FunctionDeploymentState extends AzureRunProfileState<FunctionAppBas
         OperationContext.current().setMessager(messenger);
         applyResourceConnection();
         final FunctionAppBase<?, ?, ?> target = FunctionAppService.getInstance().createOrUpdateFunctionApp(deployModel.getFunctionAppConfig());
-        stagingFolder = FunctionUtils.getTempStagingFolder();
+        final Module module = functionDeployConfiguration.getModule();
+        if (module == null) {
+            throw new AzureToolkitRuntimeException("Cannot find a valid module in function deploy configuration.");
+        }
+        // staging folder is kept for following deployments, so that only changed files are staged
+        stagingFolder = FunctionUtils.getStagingFolder(module, "deploy-" + functionDeployConfiguration.getName());
         prepareStagingFolder(stagingFolder, processHandler, operation);
         // deploy function to Azure
         FunctionAppService.getInstance().deployFunctionApp(target, stagingFolder);
@@ -125,13 +130,11 @@ public class FunctionDeploymentState extends AzureRunProfileState<FunctionAppBas
         processHandler.setText(message("appService.deploy.hint.succeed"));
         processHandler.notifyComplete();
         functionDeployConfiguration.setAppSettings(result.getAppSettings());
-        FunctionUtils.cleanUpStagingFolder(stagingFolder);
     }
 
     @Override
     protected void onFail(@NotNull Throwable error, @NotNull RunProcessHandler processHandler) {
         super.onFail(error, processHandler);
-        FunctionUtils.cleanUpStagingFolder(stagingFolder);
     }
 
     @Override
@@ -202,6 +202,14 @@ public class FunctionRunConfiguration extends AzureRunConfigurationBase<Function
         this.functionRunModel.setFunctionHostArguments(arguments);
     }
 
+    public boolean isKeepHostRunning() {
+        return this.functionRunModel.isKeepHostRunning();
+    }
+
+    public void setKeepHostRunning(final boolean keepHostRunning) {
+        this.functionRunModel.setKeepHostRunning(keepHostRunning);
+    }
+
     public void initializeDefaults(Module module) {
         if (module == null) {
             return;
@@ -21,4 +21,5 @@ public class FunctionRunModel extends IntelliJFunctionContext {
     private String hostJsonPath;
     private String localSettingsJsonPath;
     private String functionHostArguments;
+    private boolean keepHostRunning;
 }
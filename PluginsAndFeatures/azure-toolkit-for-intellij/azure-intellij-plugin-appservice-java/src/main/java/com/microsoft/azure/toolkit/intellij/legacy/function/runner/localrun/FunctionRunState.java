@@ -27,6 +27,7 @@ import com.microsoft.azure.toolkit.intellij.common.RunProcessHandlerMessenger;
 import com.microsoft.azure.toolkit.intellij.connector.Connection;
 import com.microsoft.azure.toolkit.intellij.connector.function.FunctionSupported;
 import com.microsoft.azure.toolkit.intellij.legacy.common.AzureRunProfileState;
+import com.microsoft.azure.toolkit.intellij.legacy.function.runner.core.FunctionStagingManifest;
 import com.microsoft.azure.toolkit.intellij.legacy.function.runner.core.FunctionUtils;
 import com.microsoft.azure.toolkit.lib.Azure;
 import com.microsoft.azure.toolkit.lib.common.bundle.AzureString;
@@ -50,7 +51,6 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.collections4.CollectionUtils;
-import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.artifact.versioning.ComparableVersion;
@@ -132,14 +132,56 @@ public class FunctionRunState extends AzureRunProfileState<Boolean> {
         // Prepare staging Folder
         OperationContext.current().setMessager(getProcessHandlerMessenger());
         validateFunctionRuntime();
-        stagingFolder = FunctionUtils.getTempStagingFolder();
+        final String hostKey = String.format("%s/%s", project.getLocationHash(), functionRunConfiguration.getName());
+        // debugger could not be re-attached to a warm host, so always start a new host in debug mode
+        final boolean keepHostRunning = functionRunConfiguration.isKeepHostRunning() && !isDebugMode();
+        if (!keepHostRunning) {
+            WarmFunctionHost.stop(hostKey);
+        }
+        // staging folder is kept for following runs, so that only changed files are staged
+        stagingFolder = FunctionUtils.getStagingFolder(functionRunConfiguration.getModule(), "run-" + functionRunConfiguration.getName());
         addProcessTerminatedListener(processHandler);
-        prepareStagingFolder(stagingFolder, processHandler, operation);
+        // the warm host holds the staged jar and libraries (locked on Windows), so it is stopped before they are
+        // re-staged, in which case it would be restarted anyway
+        final Runnable beforeArtifactsChange = keepHostRunning ? () -> WarmFunctionHost.stop(hostKey) : null;
+        final Map<String, FunctionConfiguration> configMap = prepareStagingFolder(stagingFolder, processHandler, operation, beforeArtifactsChange);
         // Run Function Host
-        runFunctionCli(processHandler, stagingFolder);
+        if (keepHostRunning) {
+            // host is restarted when bindings or artifacts change, as the running worker won't reload classes
+            final String signature = String.join(",", FunctionUtils.getFunctionBindingList(configMap)) + "|" +
+                    FunctionStagingManifest.getArtifactsFingerprint(stagingFolder.toPath());
+            runWarmFunctionCli(processHandler, stagingFolder, hostKey, signature);
+        } else {
+            runFunctionCli(processHandler, stagingFolder);
+        }
         return true;
     }
 
+    /**
+     * files in staging folder have been updated incrementally, the running host will detect the changes of host.json
+     * and function.json and restart itself in-process, so a new host process is only required when bindings changed
+     * (which may require extension installation), the jar or libraries changed (the java worker keeps the loaded
+     * classes), or the previous host exited.
+     */
+    @AzureOperation(name = "boundary/function.run_cli.folder", params = {"stagingFolder.getName()"})
+    private int runWarmFunctionCli(RunProcessHandler processHandler, File stagingFolder, String hostKey, String signature)
+            throws IOException, InterruptedException {
+        WarmFunctionHost host = WarmFunctionHost.get(hostKey, stagingFolder, signature);
+        if (host == null) {
+            // stop the previous host first, otherwise both hosts are alive and listening on the same port for a moment
+            WarmFunctionHost.stop(hostKey);
+            final Process hostProcess = getRunFunctionCliProcessBuilder(stagingFolder, FunctionUtils.findFreePort(DEFAULT_DEBUG_PORT)).start();
+            host = WarmFunctionHost.start(project, hostKey, hostProcess, stagingFolder, signature);
+        } else {
+            processHandler.setText(message("function.run.hint.reuseHost"));
+        }
+        final int result = host.attach(processHandler);
+        if (result != 0) {
+            throw new AzureToolkitRuntimeException(host.getLastError());
+        }
+        return result;
+    }
+
     private void applyResourceConnection(Map<String, String> appSettings) {
         if (CollectionUtils.isEmpty(functionRunConfiguration.getConnections())) {
             return;
@@ -291,9 +333,10 @@ public class FunctionRunState extends AzureRunProfileState<Boolean> {
     }
 
     @AzureOperation(name = "boundary/function.prepare_staging_folder.folder|app", params = {"stagingFolder.getName()", "this.functionRunConfiguration.getFuncPath()"})
-    private void prepareStagingFolder(File stagingFolder,
-                                      RunProcessHandler processHandler,
-                                      final @NotNull Operation operation) throws Exception {
+    private Map<String, FunctionConfiguration> prepareStagingFolder(File stagingFolder,
+                                                                    RunProcessHandler processHandler,
+                                                                    final @NotNull Operation operation,
+                                                                    @Nullable Runnable beforeArtifactsChange) throws Exception {
         final RunProcessHandlerMessenger messenger = new RunProcessHandlerMessenger(processHandler);
         OperationContext.current().setMessager(messenger);
         final Path hostJsonPath = Optional.ofNullable(functionRunConfiguration.getHostJsonPath())
@@ -301,9 +344,11 @@ public class FunctionRunState extends AzureRunProfileState<Boolean> {
                 .orElseGet(() -> Paths.get(FunctionUtils.getDefaultHostJsonPath(functionRunConfiguration.getModule())));
         final PsiMethod[] methods = ReadAction.compute(() -> FunctionUtils.findFunctionsByAnnotation(functionRunConfiguration.getModule()));
         final Path folder = stagingFolder.toPath();
+        final Map<String, FunctionConfiguration> configMap;
         try {
-            final Map<String, FunctionConfiguration> configMap =
-                    FunctionUtils.prepareStagingFolder(folder, hostJsonPath, project, functionRunConfiguration.getModule(), methods);
+            configMap =
+                    FunctionUtils.prepareStagingFolder(folder, hostJsonPath, project, functionRunConfiguration.getModule(), methods,
+                            beforeArtifactsChange);
             operation.trackProperty(TelemetryConstants.TRIGGER_TYPE, StringUtils.join(FunctionUtils.getFunctionBindingList(configMap), ","));
             final Map<String, String> appSettings = FunctionUtils.loadAppSettingsFromSecurityStorage(functionRunConfiguration.getAppSettingsKey());
             // Do not copy local settings if user have already set it in configuration
@@ -338,6 +383,7 @@ public class FunctionRunState extends AzureRunProfileState<Boolean> {
                 throw new AzureExecutionException(message("function.run.error.installFuncFailed"));
             }
         }
+        return configMap;
     }
 
     private boolean isDebugMode() {
@@ -363,14 +409,12 @@ public class FunctionRunState extends AzureRunProfileState<Boolean> {
             processHandler.setText(message("function.run.hint.succeed"));
             processHandler.notifyComplete();
         }
-        FunctionUtils.cleanUpStagingFolder(stagingFolder);
     }
 
     @Override
     protected void onFail(@NotNull Throwable error, @NotNull RunProcessHandler processHandler) {
         super.onFail(error, processHandler);
         stopProcessIfAlive(process);
-        FunctionUtils.cleanUpStagingFolder(stagingFolder);
     }
 
     private boolean isInstallingExtensionNeeded(Set<BindingEnum> bindingTypes, RunProcessHandler processHandler) {
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.legacy.function.runner.localrun;
+
+import com.intellij.execution.process.OSProcessUtil;
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.microsoft.azure.toolkit.intellij.common.ReadStreamLineThread;
+import com.microsoft.azure.toolkit.intellij.common.RunProcessHandler;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A local functions host which is kept alive between runs of the same run configuration, the run console is attached
+ * to the host while running and detached (without killing the host) when user stops the run.
+ */
+public class WarmFunctionHost {
+    private static final Map<String, WarmFunctionHost> HOSTS = new ConcurrentHashMap<>();
+    // keys of hosts which will be stopped when their project is closed
+    private static final Set<String> DISPOSABLE_KEYS = ConcurrentHashMap.newKeySet();
+
+    @Getter
+    private final Process process;
+    @Getter
+    private final File stagingFolder;
+    /**
+     * signature of the bindings and artifacts the host is started with
+     */
+    @Getter
+    private final String signature;
+    @Nullable
+    private volatile RunProcessHandler handler;
+    @Nullable
+    private volatile String lastError;
+
+    private WarmFunctionHost(@Nonnull final Process process, @Nonnull final File stagingFolder, @Nonnull final String signature) {
+        this.process = process;
+        this.stagingFolder = stagingFolder;
+        this.signature = signature;
+        new ReadStreamLineThread(process.getInputStream(), line -> {
+            final RunProcessHandler current = this.handler;
+            if (current != null && current.isProcessRunning()) {
+                current.setText(line);
+            }
+        }).start();
+        new ReadStreamLineThread(process.getErrorStream(), line -> {
+            this.lastError = line;
+            final RunProcessHandler current = this.handler;
+            if (current != null && current.isProcessRunning()) {
+                current.println(line, ProcessOutputTypes.STDERR);
+            }
+        }).start();
+    }
+
+    @Nonnull
+    public static WarmFunctionHost start(@Nonnull final Project project, @Nonnull final String key, @Nonnull final Process process,
+                                         @Nonnull final File stagingFolder, @Nonnull final String signature) {
+        stop(key);
+        final WarmFunctionHost host = new WarmFunctionHost(process, stagingFolder, signature);
+        HOSTS.put(key, host);
+        // kill warm host when project is closed, registered only once for each key
+        if (DISPOSABLE_KEYS.add(key)) {
+            Disposer.register(project, () -> {
+                DISPOSABLE_KEYS.remove(key);
+                stop(key);
+            });
+        }
+        return host;
+    }
+
+    /**
+     * @return the warm host of {@code key} if it is still alive and could serve the staging folder with same bindings
+     * and artifacts
+     */
+    @Nullable
+    public static WarmFunctionHost get(@Nonnull final String key, @Nonnull final File stagingFolder, @Nonnull final String signature) {
+        final WarmFunctionHost host = HOSTS.get(key);
+        if (host == null || !host.process.isAlive() || !Objects.equals(host.stagingFolder, stagingFolder) ||
+                !StringUtils.equals(host.signature, signature)) {
+            return null;
+        }
+        return host;
+    }
+
+    public static void stop(@Nonnull final String key) {
+        final WarmFunctionHost host = HOSTS.remove(key);
+        if (host != null && host.process.isAlive()) {
+            OSProcessUtil.killProcessTree(host.process);
+        }
+    }
+
+    /**
+     * redirect host output to {@code processHandler} and wait until either the host exits or the run is stopped,
+     * stopping the run only detaches the console from the host.
+     *
+     * @return exit code of the host, or 0 if the run is stopped while host is still alive
+     */
+    public int attach(@Nonnull final RunProcessHandler processHandler) throws InterruptedException {
+        final CompletableFuture<Void> detached = new CompletableFuture<>();
+        processHandler.addProcessListener(new ProcessAdapter() {
+            @Override
+            public void processTerminated(@NotNull ProcessEvent event) {
+                detached.complete(null);
+            }
+        });
+        this.handler = processHandler;
+        try {
+            CompletableFuture.anyOf(process.onExit(), detached).join();
+        } finally {
+            if (this.handler == processHandler) {
+                this.handler = null;
+            }
+        }
+        return process.isAlive() ? 0 : process.waitFor();
+    }
+
+    @Nullable
+    public String getLastError() {
+        return lastError;
+    }
+}
@@ -54,6 +54,7 @@ public class FunctionRunPanel extends AzureSettingPanel<FunctionRunConfiguration
     private JLabel lblAppSettings;
     private ModuleFileComboBox cbHostJson;
     private AzureTextInput txtFuncArguments;
+    private JCheckBox chkKeepHostRunning;
     private FunctionAppSettingsTable appSettingsTable;
     private String appSettingsKey = UUID.randomUUID().toString();
 
@@ -126,6 +127,7 @@ public class FunctionRunPanel extends AzureSettingPanel<FunctionRunConfiguration
         if (StringUtils.isNotEmpty(configuration.getFunctionHostArguments())) {
             txtFuncArguments.setValue(configuration.getFunctionHostArguments());
         }
+        chkKeepHostRunning.setSelected(configuration.isKeepHostRunning());
         if (StringUtils.isNotEmpty(configuration.getHostJsonPath())) {
             cbHostJson.setValue(LocalFileSystem.getInstance().findFileByIoFile(new File(configuration.getHostJsonPath())));
         }
@@ -146,6 +148,7 @@ public class FunctionRunPanel extends AzureSettingPanel<FunctionRunConfiguration
         configuration.setAppSettingsKey(appSettingsKey);
         configuration.setHostJsonPath(Optional.ofNullable(cbHostJson.getValue()).map(VirtualFile::getCanonicalPath).orElse(null));
         configuration.setFunctionHostArguments(txtFuncArguments.getValue());
+        configuration.setKeepHostRunning(chkKeepHostRunning.isSelected());
     }
 
     @NotNull
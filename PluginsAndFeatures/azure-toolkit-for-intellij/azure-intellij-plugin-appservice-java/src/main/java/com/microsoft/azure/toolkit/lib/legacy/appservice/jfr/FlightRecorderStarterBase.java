@@ -5,17 +5,30 @@
 
 package com.microsoft.azure.toolkit.lib.legacy.appservice.jfr;
 
-import com.azure.core.util.FluxUtil;
 import com.microsoft.azure.toolkit.lib.appservice.AppServiceAppBase;
+import com.microsoft.azure.toolkit.lib.appservice.model.AppServiceFile;
 import com.microsoft.azure.toolkit.lib.appservice.model.ProcessInfo;
 import com.microsoft.azure.toolkit.lib.appservice.model.CommandOutput;
 import com.microsoft.azure.toolkit.lib.common.exception.AzureToolkitRuntimeException;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
 
 public abstract class FlightRecorderStarterBase {
+    private static final int MAX_DOWNLOAD_ATTEMPTS = 3;
     protected AppServiceAppBase<?, ?, ?> appService;
 
     public FlightRecorderStarterBase(@NotNull AppServiceAppBase<?, ?, ?> appService) {
@@ -26,6 +39,13 @@ public abstract class FlightRecorderStarterBase {
 
     abstract String getFinalJfrPath(String fileName);
 
+    /**
+     * path of the recording for kudu vfs api
+     */
+    protected String getJfrDownloadPath(String fileName) {
+        return getFinalJfrPath(fileName);
+    }
+
     protected String constructJcmdCommand(int pid, int timeInSeconds, String fileName) {
         return String.format("jcmd %d JFR.start name=TimedRecording settings=profile duration=%ds filename=%s", pid,
                              timeInSeconds, getFinalJfrPath(fileName));
@@ -33,8 +53,82 @@ public abstract class FlightRecorderStarterBase {
 
     public abstract CommandOutput startFlightRecorder(int pid, int timeInSeconds, String fileName) throws IOException;
 
-    public byte[] downloadJFRFile(String fileName) {
-        return FluxUtil.collectBytesInByteBufferStream(appService.getFileContent(getFinalJfrPath(fileName))).blockOptional()
-                .orElseThrow(() -> new AzureToolkitRuntimeException(String.format("Failed to download JFR file %s from %s", fileName, appService.name())));
+    /**
+     * poll until the recording is dumped and its size stays unchanged between two polls, JFR writes the file only when
+     * the recording stops and large recordings take a while to finalize.
+     *
+     * @return the finalized recording file on app service
+     */
+    @NotNull
+    public AppServiceFile waitForJfrFile(String fileName, @NotNull Duration timeout, @NotNull Duration interval,
+                                         @NotNull BooleanSupplier cancelled) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeout.toMillis();
+        long lastSize = -1;
+        while (System.currentTimeMillis() < deadline) {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException(String.format("Waiting for JFR file %s is cancelled", fileName));
+            }
+            final AppServiceFile file = appService.getFileByPath(getJfrDownloadPath(fileName));
+            if (Objects.nonNull(file) && file.getSize() > 0) {
+                if (file.getSize() == lastSize) {
+                    return file;
+                }
+                lastSize = file.getSize();
+            }
+            Thread.sleep(interval.toMillis());
+        }
+        throw new AzureToolkitRuntimeException(String.format("JFR file %s is not finalized on %s in %d seconds", fileName, appService.name(), timeout.getSeconds()));
+    }
+
+    /**
+     * stream the recording into {@code target} chunk by chunk rather than holding it in memory. An interrupted download
+     * is retried and resumes after the bytes already written to {@code target} by previous attempts; since kudu vfs api
+     * doesn't serve ranges, the bytes before are skipped from the stream instead of written again.
+     *
+     * @param onProgress consumer of the bytes written so far
+     */
+    public void downloadJFRFile(String fileName, @NotNull File target, @Nullable LongConsumer onProgress,
+                                @NotNull BooleanSupplier cancelled) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            // an existing target is overwritten, only the bytes of the failed attempts are kept
+            final long resumeAt = attempt > 1 && target.exists() ? target.length() : 0;
+            try (final FileChannel channel = attempt > 1 ?
+                FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE) :
+                FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.position(resumeAt);
+                final AtomicLong offset = new AtomicLong();
+                appService.getFileContent(getJfrDownloadPath(fileName))
+                    .takeWhile(ignore -> !cancelled.getAsBoolean())
+                    .doOnNext(buffer -> {
+                        final long start = offset.getAndAdd(buffer.remaining());
+                        if (start + buffer.remaining() <= resumeAt) {
+                            return; // downloaded in previous attempts
+                        }
+                        final ByteBuffer remaining = buffer.duplicate();
+                        remaining.position(remaining.position() + (int) Math.max(0, resumeAt - start));
+                        try {
+                            while (remaining.hasRemaining()) {
+                                channel.write(remaining);
+                            }
+                        } catch (final IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        if (Objects.nonNull(onProgress)) {
+                            onProgress.accept(offset.get());
+                        }
+                    })
+                    .blockLast();
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException(String.format("Downloading JFR file %s is cancelled", fileName));
+                }
+                return;
+            } catch (final UncheckedIOException e) {
+                throw e.getCause();
+            } catch (final RuntimeException e) {
+                if (e instanceof CancellationException || attempt >= MAX_DOWNLOAD_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
     }
 }
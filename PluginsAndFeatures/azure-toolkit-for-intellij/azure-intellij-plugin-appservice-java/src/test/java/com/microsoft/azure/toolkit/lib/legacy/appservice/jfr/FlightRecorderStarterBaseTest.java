@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.lib.legacy.appservice.jfr;
+
+import com.microsoft.azure.toolkit.lib.appservice.AppServiceAppBase;
+import com.microsoft.azure.toolkit.lib.appservice.model.AppServiceFile;
+import com.microsoft.azure.toolkit.lib.common.exception.AzureToolkitRuntimeException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import reactor.core.publisher.Flux;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FlightRecorderStarterBaseTest {
+    private static final String JFR_FILE = "recording.jfr";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private AppServiceAppBase<?, ?, ?> appService;
+    private FlightRecorderStarterBase starter;
+
+    @Before
+    public void setUp() {
+        appService = mock(AppServiceAppBase.class);
+        starter = new WindowFlightRecorderStarter(appService);
+    }
+
+    @Test
+    public void waitForJfrFileReturnsOnceSizeIsStable() throws InterruptedException {
+        final AppServiceFile growing = file(10);
+        final AppServiceFile finalized = file(20);
+        when(appService.getFileByPath(anyString())).thenReturn(null, growing, finalized, finalized);
+
+        final AppServiceFile result = starter.waitForJfrFile(JFR_FILE, Duration.ofSeconds(10), Duration.ZERO, () -> false);
+
+        Assert.assertSame(finalized, result);
+        verify(appService, times(4)).getFileByPath(anyString());
+    }
+
+    @Test
+    public void waitForJfrFileTimesOutIfSizeKeepsChanging() {
+        final AtomicInteger size = new AtomicInteger();
+        when(appService.getFileByPath(anyString())).thenAnswer(ignore -> file(size.incrementAndGet()));
+
+        Assert.assertThrows(AzureToolkitRuntimeException.class,
+            () -> starter.waitForJfrFile(JFR_FILE, Duration.ofMillis(200), Duration.ofMillis(10), () -> false));
+    }
+
+    @Test
+    public void waitForJfrFileStopsWhenCancelled() {
+        when(appService.getFileByPath(anyString())).thenReturn(null);
+
+        Assert.assertThrows(CancellationException.class,
+            () -> starter.waitForJfrFile(JFR_FILE, Duration.ofSeconds(10), Duration.ZERO, () -> true));
+    }
+
+    @Test
+    public void downloadJFRFileStreamsChunksToTarget() throws IOException {
+        when(appService.getFileContent(anyString())).thenReturn(Flux.just(bytes("abc"), bytes("def")));
+        final File target = temporaryFolder.newFile(JFR_FILE);
+        Files.write(target.toPath(), "stale content of the previous recording".getBytes(StandardCharsets.UTF_8));
+        final List<Long> progress = new ArrayList<>();
+
+        starter.downloadJFRFile(JFR_FILE, target, progress::add, () -> false);
+
+        Assert.assertEquals("abcdef", new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+        Assert.assertEquals(List.of(3L, 6L), progress);
+    }
+
+    @Test
+    public void downloadJFRFileResumesAfterFailedAttempt() throws IOException {
+        when(appService.getFileContent(anyString())).thenReturn(
+            Flux.concat(Flux.just(bytes("abc")), Flux.error(new IllegalStateException("connection reset"))),
+            Flux.just(bytes("abc"), bytes("def")));
+        final File target = new File(temporaryFolder.getRoot(), JFR_FILE);
+
+        starter.downloadJFRFile(JFR_FILE, target, null, () -> false);
+
+        Assert.assertEquals("abcdef", new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+        verify(appService, times(2)).getFileContent(anyString());
+    }
+
+    @Test
+    public void downloadJFRFileGivesUpAfterMaxAttempts() {
+        when(appService.getFileContent(anyString())).thenReturn(Flux.error(new IllegalStateException("connection reset")));
+        final File target = new File(temporaryFolder.getRoot(), JFR_FILE);
+
+        Assert.assertThrows(IllegalStateException.class, () -> starter.downloadJFRFile(JFR_FILE, target, null, () -> false));
+        verify(appService, times(3)).getFileContent(anyString());
+    }
+
+    @Test
+    public void downloadJFRFileStopsWhenCancelled() {
+        when(appService.getFileContent(anyString())).thenReturn(Flux.just(bytes("abc"), bytes("def")));
+        final File target = new File(temporaryFolder.getRoot(), JFR_FILE);
+
+        Assert.assertThrows(CancellationException.class, () -> starter.downloadJFRFile(JFR_FILE, target, null, () -> true));
+        verify(appService, times(1)).getFileContent(anyString());
+    }
+
+    private static AppServiceFile file(long size) {
+        final AppServiceFile file = mock(AppServiceFile.class);
+        when(file.getSize()).thenReturn(size);
+        return file;
+    }
+
+    private static ByteBuffer bytes(String content) {
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
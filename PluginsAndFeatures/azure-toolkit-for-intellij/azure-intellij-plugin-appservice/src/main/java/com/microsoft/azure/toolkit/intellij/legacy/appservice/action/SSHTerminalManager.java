@@ -5,17 +5,22 @@
 
 package com.microsoft.azure.toolkit.intellij.legacy.appservice.action;
 
-import com.jediterm.terminal.TerminalDataStream;
-import com.jediterm.terminal.emulator.Emulator;
+import com.jediterm.terminal.model.TerminalModelListener;
+import com.jediterm.terminal.model.TerminalTextBuffer;
 import com.microsoft.azure.toolkit.lib.common.exception.AzureToolkitRuntimeException;
 import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
 import com.microsoft.azure.toolkit.lib.common.operation.AzureOperation;
 import lombok.Data;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.reflect.FieldUtils;
 import org.jetbrains.plugins.terminal.ShellTerminalWidget;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
 import java.util.logging.Logger;
 
 import static com.microsoft.azure.toolkit.intellij.common.AzureBundle.message;
@@ -33,6 +38,8 @@ public enum SSHTerminalManager {
     private static final String WEB_APP_DOCKER_PREFIX = "DOCKER|";
     private static final String CMD_SSH_TO_LOCAL_PROXY =
             "ssh -o StrictHostKeyChecking=no -o \"UserKnownHostsFile /dev/null\" -o \"LogLevel ERROR\" %s@127.0.0.1 -p %d";
+    private static final String PASSWORD_PROMPT = "password:";
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(60);
 
     /**
      * ssh to connect to local proxy and open the terminal for remote container.
@@ -41,50 +48,136 @@ public enum SSHTerminalManager {
      * @param connectionInfo
      */
     public void openConnectionInTerminal(ShellTerminalWidget shellTerminalWidget, CreateRemoteConnectionInfo connectionInfo) {
+        openConnectionInTerminal(shellTerminalWidget, connectionInfo, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * ssh to connect to local proxy and open the terminal for remote container.
+     *
+     * @param shellTerminalWidget
+     * @param connectionInfo
+     * @param timeout             overall timeout of waiting for the terminal and the password prompt
+     */
+    @AzureOperation(name = "boundary/appservice.open_ssh_terminal")
+    public void openConnectionInTerminal(ShellTerminalWidget shellTerminalWidget, CreateRemoteConnectionInfo connectionInfo, Duration timeout) {
         if (connectionInfo == null || connectionInfo.getPort() <= 0 ||
                 StringUtils.isAnyBlank(connectionInfo.getUsername(), connectionInfo.getPassword())) {
             AzureMessager.getMessager().error(SSH_INTO_WEB_APP_ERROR_MESSAGE, SSH_INTO_WEB_APP_ERROR_DIALOG_TITLE);
             return;
         }
-        try {
-            int count = 0;
-            while ((shellTerminalWidget.getTtyConnector() == null) && count++ < 200) {
-                Thread.sleep(100);
-            }
+        openConnection(SSHTerminal.of(shellTerminalWidget), connectionInfo, timeout);
+    }
 
-            while ((shellTerminalWidget.getTerminalStarter() == null) && count++ < 200) {
-                Thread.sleep(100);
-            }
-            doOpenTerminal(shellTerminalWidget, connectionInfo);
-        } catch (IOException | InterruptedException | IllegalAccessException e) {
+    void openConnection(SSHTerminal terminal, CreateRemoteConnectionInfo connectionInfo, Duration timeout) {
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            // the shell writes its prompt once both tty connector and terminal starter are ready
+            awaitOutput(terminal, SSHTerminal::isConnected, deadline);
+            doOpenTerminal(terminal, connectionInfo, deadline);
+        } catch (TimeoutException e) {
+            throw new AzureToolkitRuntimeException(SSH_INTO_WEB_APP_ERROR_MESSAGE, e);
+        } catch (IOException | InterruptedException e) {
             throw new AzureToolkitRuntimeException(e);
         }
     }
 
-    @AzureOperation(name = "boundary/appservice.open_ssh_terminal")
-    private void doOpenTerminal(ShellTerminalWidget shellTerminalWidget, CreateRemoteConnectionInfo connectionInfo) throws IOException, IllegalAccessException {
-        shellTerminalWidget.executeCommand(String.format(CMD_SSH_TO_LOCAL_PROXY, connectionInfo.getUsername(), connectionInfo.getPort()));
-        waitForInputPassword(shellTerminalWidget, 30000);
-        shellTerminalWidget.executeCommand(connectionInfo.getPassword());
+    private void doOpenTerminal(SSHTerminal terminal, CreateRemoteConnectionInfo connectionInfo, long deadline)
+            throws IOException, InterruptedException {
+        // listens before executing the command, so that the prompt won't be missed
+        final CompletableFuture<Void> passwordPrompt = whenOutput(terminal,
+                t -> StringUtils.containsIgnoreCase(t.getScreenLines(), PASSWORD_PROMPT));
+        terminal.executeCommand(String.format(CMD_SSH_TO_LOCAL_PROXY, connectionInfo.getUsername(), connectionInfo.getPort()));
+        try {
+            await(passwordPrompt, deadline);
+        } catch (TimeoutException e) {
+            logger.info(message("webapp.ssh.hint.passwordNotReady"));
+        }
+        terminal.executeCommand(connectionInfo.getPassword());
     }
 
-    private void waitForInputPassword(ShellTerminalWidget shellTerminalWidget, int timeout) throws IllegalAccessException {
-        final Emulator emulator = (Emulator) FieldUtils.readField(shellTerminalWidget.getTerminalStarter(), "myEmulator", true);
-        final TerminalDataStream terminalDataStream = (TerminalDataStream) FieldUtils.readField(emulator, "myDataStream", true);
-        char[] myBuf = (char[]) FieldUtils.readField(terminalDataStream, "myBuf", true);
-        int count = 0;
-        int interval = 100;
-        int countMax = timeout / interval;
-        try {
-            while (count++ < countMax) {
-                if (myBuf != null && String.valueOf(myBuf).contains("password:")) {
-                    return;
+    private static void awaitOutput(SSHTerminal terminal, Predicate<SSHTerminal> condition, long deadline)
+            throws InterruptedException, TimeoutException {
+        await(whenOutput(terminal, condition), deadline);
+    }
+
+    /**
+     * @return future which completes once the condition holds, it's checked immediately and whenever the terminal outputs.
+     */
+    private static CompletableFuture<Void> whenOutput(SSHTerminal terminal, Predicate<SSHTerminal> condition) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        final TerminalModelListener listener = () -> {
+            try {
+                if (!future.isDone() && condition.test(terminal)) {
+                    future.complete(null);
                 }
-                Thread.sleep(interval);
+            } catch (RuntimeException e) {
+                // never break the emulator which notifies the listener
+                future.completeExceptionally(e);
             }
-        } catch (InterruptedException e) {
+        };
+        terminal.addModelListener(listener);
+        future.whenComplete((result, error) -> terminal.removeModelListener(listener));
+        listener.modelChanged();
+        return future;
+    }
+
+    private static void await(CompletableFuture<Void> future, long deadline) throws InterruptedException, TimeoutException {
+        try {
+            future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            throw new AzureToolkitRuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * The terminal which the ssh connection is opened in.
+     */
+    interface SSHTerminal {
+        /**
+         * @return whether both tty connector and terminal starter are ready
+         */
+        boolean isConnected();
+
+        String getScreenLines();
+
+        void addModelListener(TerminalModelListener listener);
+
+        void removeModelListener(TerminalModelListener listener);
+
+        void executeCommand(String command) throws IOException;
+
+        static SSHTerminal of(ShellTerminalWidget widget) {
+            final TerminalTextBuffer buffer = widget.getTerminalTextBuffer();
+            return new SSHTerminal() {
+                @Override
+                public boolean isConnected() {
+                    return widget.getTtyConnector() != null && widget.getTerminalStarter() != null;
+                }
+
+                @Override
+                public String getScreenLines() {
+                    return buffer.getScreenLines();
+                }
+
+                @Override
+                public void addModelListener(TerminalModelListener listener) {
+                    buffer.addModelListener(listener);
+                }
+
+                @Override
+                public void removeModelListener(TerminalModelListener listener) {
+                    buffer.removeModelListener(listener);
+                }
+
+                @Override
+                public void executeCommand(String command) throws IOException {
+                    widget.executeCommand(command);
+                }
+            };
         }
-        logger.info(message("webapp.ssh.hint.passwordNotReady"));
     }
 
     @Data
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.legacy.appservice.action;
+
+import com.jediterm.terminal.model.TerminalModelListener;
+import com.microsoft.azure.toolkit.lib.common.exception.AzureToolkitRuntimeException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SSHTerminalManagerTest {
+    private static final String USERNAME = "root";
+    private static final String PASSWORD = "Docker!";
+    private static final int PORT = 2222;
+    private static final String SSH_COMMAND =
+            "ssh -o StrictHostKeyChecking=no -o \"UserKnownHostsFile /dev/null\" -o \"LogLevel ERROR\" root@127.0.0.1 -p 2222";
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testSendPasswordOnceThePromptIsShown() {
+        for (final long startupDelay : new long[]{0, 20, 150, 600}) {
+            final FakeTerminal terminal = new FakeTerminal(scheduler, 100);
+            terminal.startAfter(startupDelay);
+
+            final long start = System.nanoTime();
+            SSHTerminalManager.INSTANCE.openConnection(terminal, connectionInfo(), TIMEOUT);
+            final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals(Arrays.asList(SSH_COMMAND, PASSWORD), terminal.commands);
+            assertTrue(terminal.isPasswordSentAfterPrompt);
+            // completes as soon as the terminal is ready and prompts, rather than at a polling interval
+            assertTrue("startup delay " + startupDelay + "ms took " + elapsedMillis + "ms", elapsedMillis < startupDelay + 100 + 1000);
+            assertTrue(terminal.listeners.isEmpty());
+        }
+    }
+
+    @Test
+    public void testPromptShownBeforeWaitingIsNotMissed() {
+        final FakeTerminal terminal = new FakeTerminal(scheduler, 0);
+        terminal.startAfter(0);
+
+        SSHTerminalManager.INSTANCE.openConnection(terminal, connectionInfo(), TIMEOUT);
+
+        assertEquals(Arrays.asList(SSH_COMMAND, PASSWORD), terminal.commands);
+        assertTrue(terminal.isPasswordSentAfterPrompt);
+    }
+
+    @Test
+    public void testTimeoutIfTerminalIsNeverReady() {
+        final FakeTerminal terminal = new FakeTerminal(scheduler, 0);
+
+        final long start = System.nanoTime();
+        try {
+            SSHTerminalManager.INSTANCE.openConnection(terminal, connectionInfo(), Duration.ofMillis(200));
+            fail("Expect timeout when the terminal is never ready");
+        } catch (AzureToolkitRuntimeException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis >= 200 && elapsedMillis < 2000);
+        assertEquals(Collections.emptyList(), terminal.commands);
+        assertTrue(terminal.listeners.isEmpty());
+    }
+
+    @Test
+    public void testTimeoutCoversStartupAndPasswordPrompt() {
+        // ready in time, but the password prompt doesn't show up before the overall deadline
+        final FakeTerminal terminal = new FakeTerminal(scheduler, -1);
+        terminal.startAfter(100);
+
+        final long start = System.nanoTime();
+        SSHTerminalManager.INSTANCE.openConnection(terminal, connectionInfo(), Duration.ofMillis(400));
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // the password is still sent, in case the prompt is not recognized
+        assertEquals(Arrays.asList(SSH_COMMAND, PASSWORD), terminal.commands);
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis >= 400 && elapsedMillis < 2000);
+        assertTrue(terminal.listeners.isEmpty());
+    }
+
+    private static SSHTerminalManager.CreateRemoteConnectionInfo connectionInfo() {
+        final SSHTerminalManager.CreateRemoteConnectionInfo info = new SSHTerminalManager.CreateRemoteConnectionInfo();
+        info.setUsername(USERNAME);
+        info.setPassword(PASSWORD);
+        info.setPort(PORT);
+        return info;
+    }
+
+    /**
+     * Terminal whose connector starts up with a delay, and which prompts for the password with a delay after the ssh
+     * command is executed. The listeners are notified on every output like the terminal text buffer does.
+     */
+    private static class FakeTerminal implements SSHTerminalManager.SSHTerminal {
+        private final ScheduledExecutorService scheduler;
+        // negative for never prompting
+        private final long promptDelayMillis;
+        private final List<TerminalModelListener> listeners = new CopyOnWriteArrayList<>();
+        private final List<String> commands = new CopyOnWriteArrayList<>();
+        private volatile boolean connected;
+        private volatile String screen = "";
+        private volatile boolean isPasswordSentAfterPrompt;
+
+        private FakeTerminal(ScheduledExecutorService scheduler, long promptDelayMillis) {
+            this.scheduler = scheduler;
+            this.promptDelayMillis = promptDelayMillis;
+        }
+
+        void startAfter(long delayMillis) {
+            final Runnable start = () -> {
+                connected = true;
+                print("~ $ ");
+            };
+            if (delayMillis == 0) {
+                start.run();
+            } else {
+                scheduler.schedule(start, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private synchronized void print(String output) {
+            screen = screen + output;
+            listeners.forEach(TerminalModelListener::modelChanged);
+        }
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+
+        @Override
+        public String getScreenLines() {
+            return screen;
+        }
+
+        @Override
+        public void addModelListener(TerminalModelListener listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public void removeModelListener(TerminalModelListener listener) {
+            listeners.remove(listener);
+        }
+
+        @Override
+        public void executeCommand(String command) {
+            if (!connected) {
+                throw new IllegalStateException("terminal is not ready");
+            }
+            commands.add(command);
+            if (command.startsWith("ssh ")) {
+                final Runnable prompt = () -> print(command + "\nroot@127.0.0.1's password: ");
+                if (promptDelayMillis == 0) {
+                    prompt.run();
+                } else if (promptDelayMillis > 0) {
+                    scheduler.schedule(prompt, promptDelayMillis, TimeUnit.MILLISECONDS);
+                }
+            } else if (command.equals(PASSWORD)) {
+                isPasswordSentAfterPrompt = screen.contains("password:");
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package org.wso2.lsp4intellij.contributors.annotator;
+
+import com.intellij.openapi.util.TextRange;
+import org.eclipse.lsp4j.CodeAction;
+import org.eclipse.lsp4j.Command;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Code actions of an editor resolved by diagnostic range, they are kept until the document or the diagnostics change.
+ * Only one request is in flight at a time, a new request supersedes and cancels the previous one, and the responses of
+ * the superseded requests are dropped.
+ */
+class CodeActionCache {
+    private final long timeoutMillis;
+    private final Map<TextRange, List<Either<Command, CodeAction>>> resolved = new HashMap<>();
+    private int resolvedVersion = -1;
+    private int resolvedStamp = -1;
+    private Key requestedKey;
+    private CompletableFuture<?> pendingRequest;
+
+    CodeActionCache(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @return The resolved code actions by diagnostic range of the given document version and diagnostics
+     */
+    @NotNull
+    synchronized Map<TextRange, List<Either<Command, CodeAction>>> getResolved(int version, int stamp) {
+        if (version != resolvedVersion || stamp != resolvedStamp) {
+            return Collections.emptyMap();
+        }
+        return new HashMap<>(resolved);
+    }
+
+    /**
+     * Requests the code actions of the key in background, unless they have been resolved or are being requested.
+     *
+     * @param server Sends the request to the language server, returns null if it can't be sent
+     * @return null if no request is sent, otherwise a future which completes with whether new code actions are
+     * resolved, or exceptionally with the cause of the failure. The failed or timed out request is resolved with no
+     * code actions, so that it's not sent again and again.
+     */
+    @Nullable
+    CompletableFuture<Boolean> request(@NotNull Key key,
+                                       @NotNull Supplier<CompletableFuture<List<Either<Command, CodeAction>>>> server) {
+        final CompletableFuture<?> superseded;
+        synchronized (this) {
+            if (isResolved(key) || key.equals(requestedKey)) {
+                return null;
+            }
+            superseded = pendingRequest;
+            requestedKey = key;
+            pendingRequest = null;
+        }
+        if (superseded != null) {
+            // cancels it at the language server too
+            superseded.cancel(true);
+        }
+
+        final CompletableFuture<List<Either<Command, CodeAction>>> future = server.get();
+        if (future == null) {
+            resolve(key, Collections.emptyList());
+            return null;
+        }
+        synchronized (this) {
+            if (!key.equals(requestedKey)) {
+                future.cancel(true);
+                return null;
+            }
+            pendingRequest = future;
+        }
+
+        return future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).handle((res, e) -> {
+            final Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof CancellationException) {
+                synchronized (this) {
+                    // allows to request again if it's not cancelled as a superseded one
+                    if (key.equals(requestedKey)) {
+                        requestedKey = null;
+                        pendingRequest = null;
+                    }
+                }
+                throw (CancellationException) cause;
+            }
+
+            final List<Either<Command, CodeAction>> actions = res == null ? Collections.emptyList() :
+                    res.stream().filter(Objects::nonNull).collect(Collectors.toList());
+            final boolean updated = resolve(key, cause == null ? actions : Collections.emptyList());
+            if (cause != null) {
+                throw new CompletionException(cause);
+            }
+            return updated && !actions.isEmpty();
+        });
+    }
+
+    /**
+     * @return whether the code actions are still the ones being requested, false if they are stale and dropped
+     */
+    private synchronized boolean resolve(Key key, List<Either<Command, CodeAction>> actions) {
+        if (!key.equals(requestedKey)) {
+            return false;
+        }
+        requestedKey = null;
+        pendingRequest = null;
+        if (key.version != resolvedVersion || key.stamp != resolvedStamp) {
+            resolved.clear();
+            resolvedVersion = key.version;
+            resolvedStamp = key.stamp;
+        }
+        resolved.put(key.range, actions);
+        return true;
+    }
+
+    private boolean isResolved(Key key) {
+        return key.version == resolvedVersion && key.stamp == resolvedStamp && resolved.containsKey(key.range);
+    }
+
+    /**
+     * Identifies the code actions of a diagnostic range in a document version and diagnostics.
+     */
+    static class Key {
+        private final int version;
+        private final int stamp;
+        private final TextRange range;
+
+        Key(int version, int stamp, @NotNull TextRange range) {
+            this.version = version;
+            this.stamp = stamp;
+            this.range = range;
+        }
+
+        @NotNull
+        TextRange getRange() {
+            return range;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key that = (Key) o;
+            return version == that.version && stamp == that.stamp && range.equals(that.range);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(version, stamp, range);
+        }
+    }
+}
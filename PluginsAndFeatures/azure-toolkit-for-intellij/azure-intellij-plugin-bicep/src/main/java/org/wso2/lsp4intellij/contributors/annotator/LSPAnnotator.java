@@ -17,17 +17,17 @@
 package org.wso2.lsp4intellij.contributors.annotator;
 
 import com.intellij.codeInspection.ProblemHighlightType;
-import com.intellij.lang.annotation.Annotation;
 import com.intellij.lang.annotation.AnnotationBuilder;
 import com.intellij.lang.annotation.AnnotationHolder;
 import com.intellij.lang.annotation.ExternalAnnotator;
 import com.intellij.lang.annotation.HighlightSeverity;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.UserDataHolderEx;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
-import com.intellij.util.SmartList;
 import org.apache.commons.collections.CollectionUtils;
 import org.eclipse.lsp4j.CodeAction;
 import org.eclipse.lsp4j.CodeActionContext;
@@ -56,12 +56,15 @@ import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import static org.wso2.lsp4intellij.requests.Timeout.getTimeout;
 import static org.wso2.lsp4intellij.requests.Timeouts.CODEACTION;
@@ -70,6 +73,7 @@ public class LSPAnnotator extends ExternalAnnotator<Object, Object> {
 
     private static final Logger LOG = Logger.getInstance(LSPAnnotator.class);
     private static final Object RESULT = new Object();
+    private static final Key<AnnotatorState> STATE = Key.create("LSPAnnotator.state");
     private static final HashMap<DiagnosticSeverity, HighlightSeverity> lspToIntellijAnnotationsMap = new HashMap<>();
 
     static {
@@ -135,74 +139,167 @@ public class LSPAnnotator extends ExternalAnnotator<Object, Object> {
     }
 
     private void createAnnotations(AnnotationHolder holder, EditorEventManager eventManager) {
-        final List<Diagnostic> diagnostics = eventManager.getDiagnostics();
         final Editor editor = eventManager.editor;
-        diagnostics.forEach(diagnostic -> {
-            final int start = DocumentUtils.LSPPosToOffset(editor, diagnostic.getRange().getStart());
-            final int end = DocumentUtils.LSPPosToOffset(editor, diagnostic.getRange().getEnd());
-            if (start >= end) {
+        final DiagnosticRanges diagnostics = getDiagnosticRanges(eventManager);
+        final int caretPos = editor.getCaretModel().getCurrentCaret().getOffset();
+        final Map<TextRange, List<Either<Command, CodeAction>>> codeActions =
+                getState(editor).codeActions.getResolved(diagnostics.version, diagnostics.stamp);
+        final String uri = FileUtils.editorToURIString(editor);
+        diagnostics.ranges.forEach(diagnosticRange -> {
+            final Diagnostic diagnostic = diagnosticRange.diagnostic;
+            final TextRange range = diagnosticRange.range;
+            if (range.isEmpty()) {
                 return;
             }
-            final TextRange range = new TextRange(start, end);
             final AnnotationBuilder annotationBuilder = holder.newAnnotation(lspToIntellijAnnotationsMap.get(diagnostic.getSeverity()), diagnostic.getMessage())
                     .range(range);
             if (diagnostic.getTags() != null && diagnostic.getTags().contains(DiagnosticTag.Deprecated)) {
                 annotationBuilder.highlightType(ProblemHighlightType.LIKE_DEPRECATED);
             }
+            codeActions.entrySet().stream()
+                    .filter(entry -> entry.getKey().contains(range))
+                    .findFirst()
+                    .ifPresent(entry -> entry.getValue().forEach(element -> annotationBuilder.withFix(element.isLeft() ?
+                            new LSPCommandFix(uri, element.getLeft()) : new LSPCodeActionFix(uri, element.getRight()))));
             annotationBuilder.create();
         });
-        requestAndShowCodeActions(holder, eventManager);
-    }
-
-    private void requestAndShowCodeActions(final AnnotationHolder holder, final EditorEventManager eventManager) {
-        final Editor editor = eventManager.editor;
-        final List<Annotation> diagnostics = (holder instanceof SmartList) ? (List<Annotation>) holder : Collections.emptyList();
-        final int caretPos = editor.getCaretModel().getCurrentCaret().getOffset();
-        final List<Either<Command, CodeAction>> codeActionResp = codeAction(eventManager, caretPos);
-        if (codeActionResp == null || codeActionResp.isEmpty()) {
-            return;
-        }
-        final AtomicBoolean codeActionSyncRequired = new AtomicBoolean(false);
-        codeActionResp.stream().filter(Objects::nonNull).forEach(element -> {
-            if (element.isLeft()) {
-                Command command = element.getLeft();
-                diagnostics.forEach(annotation -> {
-                    int start = annotation.getStartOffset();
-                    int end = annotation.getEndOffset();
-                    if (start <= caretPos && end >= caretPos) {
-                        annotation.registerFix(new LSPCommandFix(FileUtils.editorToURIString(editor), command), new TextRange(start, end));
-                    }
-                    codeActionSyncRequired.set(true);
-                });
-            } else if (element.isRight()) {
-                CodeAction codeAction = element.getRight();
-                List<Diagnostic> diagnosticContext = codeAction.getDiagnostics();
-                diagnostics.forEach(annotation -> {
-                    int start = annotation.getStartOffset();
-                    int end = annotation.getEndOffset();
-                    if (start <= caretPos && end >= caretPos) {
-                        annotation.registerFix(new LSPCodeActionFix(FileUtils.editorToURIString(editor), codeAction), new TextRange(start, end));
-                    }
-                    codeActionSyncRequired.set(true);
-                });
 
-                // If the code actions does not have a diagnostics context, creates an intention action for
-                // the current line.
-                if (CollectionUtils.isEmpty(diagnosticContext) && holder != null) {
+        // If the code actions does not have a diagnostics context, creates an intention action for
+        // the current line.
+        final CodeActionCache.Key caretKey = getCodeActionKey(diagnostics, caretPos);
+        codeActions.getOrDefault(caretKey == null ? null : caretKey.getRange(), Collections.emptyList()).stream()
+                .filter(Either::isRight).map(Either::getRight)
+                .filter(codeAction -> CollectionUtils.isEmpty(codeAction.getDiagnostics()))
+                .forEach(codeAction -> {
                     // Calculates text range of the current line.
                     int line = editor.getCaretModel().getCurrentCaret().getLogicalPosition().line;
                     int startOffset = editor.getDocument().getLineStartOffset(line);
                     int endOffset = editor.getDocument().getLineEndOffset(line);
                     TextRange range = new TextRange(startOffset, endOffset);
                     holder.newAnnotation(HighlightSeverity.INFORMATION, codeAction.getTitle())
-                            .withFix(new LSPCodeActionFix(FileUtils.editorToURIString(editor), codeAction))
+                            .withFix(new LSPCodeActionFix(uri, codeAction))
                             .range(range)
                             .create();
+                });
+
+        // The caret may have been in a diagnostic range before the diagnostics were updated
+        requestCodeActions(eventManager, caretPos);
+    }
+
+    /**
+     * Converts the diagnostics to text ranges of the document, which is done once per document version and
+     * diagnostics update instead of on every annotation pass.
+     */
+    private static DiagnosticRanges getDiagnosticRanges(final EditorEventManager eventManager) {
+        final AnnotatorState state = getState(eventManager.editor);
+        final int version = eventManager.documentEventManager.getDocumentVersion();
+        final int stamp = eventManager.getDiagnosticsStamp();
+        synchronized (state) {
+            if (state.diagnostics != null && state.diagnostics.version == version && state.diagnostics.stamp == stamp) {
+                return state.diagnostics;
+            }
+        }
+
+        final List<Diagnostic> diagnostics;
+        synchronized (eventManager.getDiagnostics()) {
+            diagnostics = new ArrayList<>(eventManager.getDiagnostics());
+        }
+        final Editor editor = eventManager.editor;
+        final List<DiagnosticRange> ranges = new ArrayList<>(diagnostics.size());
+        for (final Diagnostic diagnostic : diagnostics) {
+            final int start = DocumentUtils.LSPPosToOffset(editor, diagnostic.getRange().getStart());
+            final int end = DocumentUtils.LSPPosToOffset(editor, diagnostic.getRange().getEnd());
+            if (start <= end) {
+                ranges.add(new DiagnosticRange(diagnostic, new TextRange(start, end)));
+            }
+        }
+
+        final DiagnosticRanges result = new DiagnosticRanges(version, stamp, ranges);
+        synchronized (state) {
+            state.diagnostics = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return The key of the code actions at the offset, which is the range covering all the diagnostics at the
+     * offset, or null if the offset is not in any diagnostic range
+     */
+    @Nullable
+    private static CodeActionCache.Key getCodeActionKey(final DiagnosticRanges diagnostics, final int offset) {
+        TextRange range = null;
+        for (final DiagnosticRange diagnosticRange : diagnostics.ranges) {
+            if (diagnosticRange.range.containsOffset(offset)) {
+                range = range == null ? diagnosticRange.range : range.union(diagnosticRange.range);
+            }
+        }
+        return range == null ? null : new CodeActionCache.Key(diagnostics.version, diagnostics.stamp, range);
+    }
+
+    /**
+     * Requests the code actions of the diagnostic range at the offset in background if they have not been resolved,
+     * and re-runs the annotator to show them once they are resolved. Nothing is requested if the offset is not in
+     * the range of a diagnostic.
+     *
+     * @param offset The caret position(offset)
+     */
+    public static void requestCodeActions(final EditorEventManager eventManager, final int offset) {
+        if (eventManager.editor.isDisposed() || eventManager.wrapper.getStatus() != ServerStatus.INITIALIZED) {
+            return;
+        }
+        final DiagnosticRanges diagnostics = getDiagnosticRanges(eventManager);
+        final CodeActionCache.Key key = getCodeActionKey(diagnostics, offset);
+        if (key == null) {
+            return;
+        }
+
+        final List<Diagnostic> diagnosticContext = diagnostics.ranges.stream()
+                .filter(diagnosticRange -> key.getRange().contains(diagnosticRange.range))
+                .map(diagnosticRange -> diagnosticRange.diagnostic)
+                .collect(Collectors.toList());
+        final CompletableFuture<Boolean> future = getState(eventManager.editor).codeActions.request(key,
+                () -> requestCodeActions(eventManager, key.getRange(), diagnosticContext));
+        if (future == null) {
+            return;
+        }
+
+        final LanguageServerWrapper wrapper = eventManager.wrapper;
+        future.whenComplete((updated, e) -> {
+            final Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof CancellationException) {
+                return;
+            } else if (cause instanceof TimeoutException) {
+                LOG.warn(cause);
+                wrapper.notifyFailure(CODEACTION);
+            } else if (cause != null) {
+                LOG.warn(cause);
+                wrapper.crashed(cause instanceof Exception ? (Exception) cause : new ExecutionException(cause));
+            } else {
+                wrapper.notifySuccess(CODEACTION);
+                if (updated) {
+                    // Re-runs the annotator to show the fixes.
+                    eventManager.updateErrorAnnotations();
                 }
             }
         });
     }
 
+    private static AnnotatorState getState(final Editor editor) {
+        final AnnotatorState state = editor.getUserData(STATE);
+        if (state != null) {
+            return state;
+        }
+        if (editor instanceof UserDataHolderEx) {
+            return ((UserDataHolderEx) editor).putUserDataIfAbsent(STATE, new AnnotatorState());
+        }
+        synchronized (LSPAnnotator.class) {
+            if (editor.getUserData(STATE) == null) {
+                editor.putUserData(STATE, new AnnotatorState());
+            }
+            return editor.getUserData(STATE);
+        }
+    }
+
     /**
      * Retrieves the commands needed to apply a CodeAction
      *
@@ -211,12 +308,7 @@ public class LSPAnnotator extends ExternalAnnotator<Object, Object> {
      */
     @SuppressWarnings("WeakerAccess")
     public List<Either<Command, CodeAction>> codeAction(final EditorEventManager eventManager, final int offset) {
-        final CodeActionParams params = new CodeActionParams();
         final Editor editor = eventManager.editor;
-        params.setTextDocument(eventManager.getIdentifier());
-        Range range = new Range(DocumentUtils.offsetToLSPPos(editor, offset),
-                DocumentUtils.offsetToLSPPos(editor, offset));
-        params.setRange(range);
 
         // Calculates the diagnostic context.
         List<Diagnostic> diagnosticContext = new ArrayList<>();
@@ -230,10 +322,8 @@ public class LSPAnnotator extends ExternalAnnotator<Object, Object> {
             });
         }
 
-        final CodeActionContext context = new CodeActionContext(diagnosticContext);
-        params.setContext(context);
         final LanguageServerWrapper wrapper = eventManager.wrapper;
-        final CompletableFuture<List<Either<Command, CodeAction>>> future = eventManager.wrapper.getRequestManager().codeAction(params);
+        final CompletableFuture<List<Either<Command, CodeAction>>> future = requestCodeActions(eventManager, new TextRange(offset, offset), diagnosticContext);
         if (future != null) {
             try {
                 List<Either<Command, CodeAction>> res = future.get(getTimeout(CODEACTION), TimeUnit.MILLISECONDS);
@@ -251,4 +341,47 @@ public class LSPAnnotator extends ExternalAnnotator<Object, Object> {
         }
         return null;
     }
+
+    @Nullable
+    private static CompletableFuture<List<Either<Command, CodeAction>>> requestCodeActions(
+            final EditorEventManager eventManager, final TextRange textRange, final List<Diagnostic> diagnosticContext) {
+        final CodeActionParams params = new CodeActionParams();
+        final Editor editor = eventManager.editor;
+        params.setTextDocument(eventManager.getIdentifier());
+        Range range = new Range(DocumentUtils.offsetToLSPPos(editor, textRange.getStartOffset()),
+                DocumentUtils.offsetToLSPPos(editor, textRange.getEndOffset()));
+        params.setRange(range);
+        params.setContext(new CodeActionContext(diagnosticContext));
+        return eventManager.wrapper.getRequestManager().codeAction(params);
+    }
+
+    private static class DiagnosticRange {
+        private final Diagnostic diagnostic;
+        private final TextRange range;
+
+        private DiagnosticRange(Diagnostic diagnostic, TextRange range) {
+            this.diagnostic = diagnostic;
+            this.range = range;
+        }
+    }
+
+    private static class DiagnosticRanges {
+        private final int version;
+        private final int stamp;
+        private final List<DiagnosticRange> ranges;
+
+        private DiagnosticRanges(int version, int stamp, List<DiagnosticRange> ranges) {
+            this.version = version;
+            this.stamp = stamp;
+            this.ranges = ranges;
+        }
+    }
+
+    /**
+     * Annotation state of an editor, guarded by itself.
+     */
+    private static class AnnotatorState {
+        private DiagnosticRanges diagnostics;
+        private final CodeActionCache codeActions = new CodeActionCache(getTimeout(CODEACTION));
+    }
 }
@@ -185,6 +185,7 @@ public class EditorEventManager {
     private Hint currentHint;
 
     private final List<Diagnostic> diagnostics = new ArrayList<>();
+    private volatile int diagnosticsStamp = 0;
 
     private static final long CTRL_THRESH = EditorSettingsExternalizable.getInstance().getTooltipsDelay() * 1000000L;
 
@@ -475,6 +476,13 @@ public class EditorEventManager {
         return this.diagnostics;
     }
 
+    /**
+     * @return The stamp of the current diagnostics, which changes whenever new diagnostics are applied
+     */
+    public int getDiagnosticsStamp() {
+        return this.diagnosticsStamp;
+    }
+
     /**
      * Applies the diagnostics to the document
      *
@@ -491,6 +499,7 @@ public class EditorEventManager {
         synchronized (this.diagnostics) {
             this.diagnostics.clear();
             this.diagnostics.addAll(diagnostics);
+            this.diagnosticsStamp++;
             // Triggers force full DaemonCodeAnalyzer execution.
             updateErrorAnnotations();
         }
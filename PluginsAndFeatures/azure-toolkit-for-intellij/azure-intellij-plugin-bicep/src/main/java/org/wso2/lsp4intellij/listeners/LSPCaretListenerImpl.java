@@ -19,6 +19,7 @@ package org.wso2.lsp4intellij.listeners;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.event.CaretEvent;
 import com.intellij.openapi.editor.event.CaretListener;
+import org.wso2.lsp4intellij.contributors.annotator.LSPAnnotator;
 
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -43,15 +44,23 @@ public class LSPCaretListenerImpl extends LSPListener implements CaretListener {
             if (scheduledFuture != null && !scheduledFuture.isCancelled()) {
                 scheduledFuture.cancel(false);
             }
-            scheduledFuture = scheduler.schedule(this::debouncedCaretPositionChanged, DEBOUNCE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            // reads the offset on EDT, the debounced one runs in background
+            final int offset = e.getCaret() != null ? e.getCaret().getOffset() :
+                    e.getEditor().logicalPositionToOffset(e.getNewPosition());
+            scheduledFuture = scheduler.schedule(() -> debouncedCaretPositionChanged(offset), DEBOUNCE_INTERVAL_MS, TimeUnit.MILLISECONDS);
         } catch (Exception err) {
             LOG.warn("Error occurred when trying to update code actions", err);
         }
     }
 
-    private void debouncedCaretPositionChanged() {
+    private void debouncedCaretPositionChanged(int offset) {
         if (checkEnabled()) {
-            manager.updateErrorAnnotations();
+            try {
+                // the annotator is re-run only if code actions are resolved for the diagnostic at the caret
+                LSPAnnotator.requestCodeActions(manager, offset);
+            } catch (Exception err) {
+                LOG.warn("Error occurred when trying to update code actions", err);
+            }
         }
     }
 }
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package org.wso2.lsp4intellij.contributors.annotator;
+
+import com.intellij.openapi.util.TextRange;
+import org.eclipse.lsp4j.CodeAction;
+import org.eclipse.lsp4j.CodeActionContext;
+import org.eclipse.lsp4j.CodeActionParams;
+import org.eclipse.lsp4j.Command;
+import org.eclipse.lsp4j.DidChangeTextDocumentParams;
+import org.eclipse.lsp4j.DidCloseTextDocumentParams;
+import org.eclipse.lsp4j.DidOpenTextDocumentParams;
+import org.eclipse.lsp4j.DidSaveTextDocumentParams;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+import org.eclipse.lsp4j.services.TextDocumentService;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CodeActionCacheTest {
+    private static final long LATENCY_MILLIS = 200;
+    private static final long WAIT_SECONDS = 5;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final StubTextDocumentService server = new StubTextDocumentService(scheduler, LATENCY_MILLIS);
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testRequestOnceForTheSameDiagnosticRange() throws Exception {
+        final CodeActionCache cache = new CodeActionCache(TimeUnit.SECONDS.toMillis(WAIT_SECONDS));
+        final CodeActionCache.Key key = new CodeActionCache.Key(1, 1, new TextRange(5, 10));
+
+        final CompletableFuture<Boolean> future = cache.request(key, () -> server.codeAction(params(key)));
+        assertNotNull(future);
+        // the caret moves inside the same diagnostic range while the request is in flight
+        assertNull(cache.request(new CodeActionCache.Key(1, 1, new TextRange(5, 10)), () -> server.codeAction(params(key))));
+        assertTrue(cache.getResolved(1, 1).isEmpty());
+
+        assertTrue(future.get(WAIT_SECONDS, TimeUnit.SECONDS));
+        final Map<TextRange, List<Either<Command, CodeAction>>> resolved = cache.getResolved(1, 1);
+        assertEquals(1, resolved.size());
+        assertEquals("fix 5-10", resolved.get(new TextRange(5, 10)).get(0).getRight().getTitle());
+
+        // resolved already
+        assertNull(cache.request(key, () -> server.codeAction(params(key))));
+        assertEquals(1, server.requests.get());
+    }
+
+    @Test
+    public void testKeepResolvedCodeActionsOfEachDiagnosticRange() throws Exception {
+        final CodeActionCache cache = new CodeActionCache(TimeUnit.SECONDS.toMillis(WAIT_SECONDS));
+        final CodeActionCache.Key first = new CodeActionCache.Key(1, 1, new TextRange(5, 10));
+        final CodeActionCache.Key second = new CodeActionCache.Key(1, 1, new TextRange(20, 30));
+
+        assertTrue(cache.request(first, () -> server.codeAction(params(first))).get(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(cache.request(second, () -> server.codeAction(params(second))).get(WAIT_SECONDS, TimeUnit.SECONDS));
+
+        // the caret moves back to the first diagnostic
+        assertNull(cache.request(first, () -> server.codeAction(params(first))));
+        assertEquals(2, cache.getResolved(1, 1).size());
+        assertEquals(2, server.requests.get());
+    }
+
+    @Test
+    public void testSupersededRequestIsCancelledAndDropped() throws Exception {
+        final CodeActionCache cache = new CodeActionCache(TimeUnit.SECONDS.toMillis(WAIT_SECONDS));
+        final CodeActionCache.Key first = new CodeActionCache.Key(1, 1, new TextRange(5, 10));
+        final CodeActionCache.Key second = new CodeActionCache.Key(1, 1, new TextRange(20, 30));
+
+        final CompletableFuture<Boolean> superseded = cache.request(first, () -> server.codeAction(params(first)));
+        final CompletableFuture<Boolean> future = cache.request(second, () -> server.codeAction(params(second)));
+        assertNotNull(superseded);
+        assertNotNull(future);
+
+        assertFailedWith(superseded, CancellationException.class);
+        assertTrue(server.responses.get(0).isCancelled());
+        assertTrue(future.get(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(Collections.singleton(new TextRange(20, 30)), cache.getResolved(1, 1).keySet());
+
+        // the cancelled one is requested again once the caret is back
+        assertNotNull(cache.request(first, () -> server.codeAction(params(first))));
+    }
+
+    @Test
+    public void testStaleResponseOfOutdatedDocumentIsDropped() throws Exception {
+        final CodeActionCache cache = new CodeActionCache(TimeUnit.SECONDS.toMillis(WAIT_SECONDS));
+        final CodeActionCache.Key outdated = new CodeActionCache.Key(1, 1, new TextRange(5, 10));
+        final CodeActionCache.Key key = new CodeActionCache.Key(2, 1, new TextRange(5, 10));
+
+        assertTrue(cache.request(outdated, () -> server.codeAction(params(outdated))).get(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, cache.getResolved(1, 1).size());
+        // neither the document version nor the diagnostics match
+        assertTrue(cache.getResolved(2, 1).isEmpty());
+        assertTrue(cache.getResolved(1, 2).isEmpty());
+
+        // the document changed while the request is in flight
+        final CompletableFuture<Boolean> future = cache.request(key, () -> server.codeAction(params(key)));
+        final CodeActionCache.Key latest = new CodeActionCache.Key(3, 1, new TextRange(5, 12));
+        final CompletableFuture<Boolean> latestFuture = cache.request(latest, () -> server.codeAction(params(latest)));
+        assertFailedWith(future, CancellationException.class);
+        assertTrue(latestFuture.get(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(cache.getResolved(2, 1).isEmpty());
+        assertTrue(cache.getResolved(1, 1).isEmpty());
+        assertEquals(Collections.singleton(new TextRange(5, 12)), cache.getResolved(3, 1).keySet());
+    }
+
+    @Test
+    public void testTimedOutRequestIsResolvedWithoutCodeActions() throws Exception {
+        final CodeActionCache cache = new CodeActionCache(LATENCY_MILLIS / 4);
+        final CodeActionCache.Key key = new CodeActionCache.Key(1, 1, new TextRange(5, 10));
+
+        final CompletableFuture<Boolean> future = cache.request(key, () -> server.codeAction(params(key)));
+        assertNotNull(future);
+        assertFailedWith(future, TimeoutException.class);
+
+        assertEquals(Collections.emptyList(), cache.getResolved(1, 1).get(new TextRange(5, 10)));
+        // not requested again and again for the slow server
+        assertNull(cache.request(key, () -> server.codeAction(params(key))));
+        assertEquals(1, server.requests.get());
+    }
+
+    @Test
+    public void testNoRequestIfServerIsNotAvailable() {
+        final CodeActionCache cache = new CodeActionCache(TimeUnit.SECONDS.toMillis(WAIT_SECONDS));
+        final CodeActionCache.Key key = new CodeActionCache.Key(1, 1, new TextRange(5, 10));
+
+        assertNull(cache.request(key, () -> null));
+        assertEquals(Collections.emptyList(), cache.getResolved(1, 1).get(new TextRange(5, 10)));
+    }
+
+    @Test
+    public void testNoUpdateForEmptyCodeActions() throws Exception {
+        final CodeActionCache cache = new CodeActionCache(TimeUnit.SECONDS.toMillis(WAIT_SECONDS));
+        final CodeActionCache.Key key = new CodeActionCache.Key(1, 1, new TextRange(5, 10));
+        server.noActions = true;
+
+        final CompletableFuture<Boolean> future = cache.request(key, () -> server.codeAction(params(key)));
+        assertNotNull(future);
+        // nothing to show, no need to re-run the annotator
+        assertFalse(future.get(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(Collections.emptyList(), cache.getResolved(1, 1).get(new TextRange(5, 10)));
+    }
+
+    private static void assertFailedWith(CompletableFuture<?> future, Class<? extends Throwable> cause) throws Exception {
+        try {
+            future.get(WAIT_SECONDS, TimeUnit.SECONDS);
+            fail("Expect failure of " + cause.getSimpleName());
+        } catch (ExecutionException e) {
+            assertTrue(String.valueOf(e.getCause()), cause.isInstance(e.getCause()));
+        } catch (CancellationException e) {
+            assertTrue(cause.isInstance(e));
+        }
+    }
+
+    // the document is a single line in tests, so the offset is the character of the position
+    private static CodeActionParams params(CodeActionCache.Key key) {
+        final Range range = new Range(new Position(0, key.getRange().getStartOffset()),
+                new Position(0, key.getRange().getEndOffset()));
+        return new CodeActionParams(new TextDocumentIdentifier("file:///main.bicep"), range,
+                new CodeActionContext(Collections.emptyList()));
+    }
+
+    /**
+     * Language server which responds to code action requests with a latency.
+     */
+    private static class StubTextDocumentService implements TextDocumentService {
+        private final ScheduledExecutorService scheduler;
+        private final long latencyMillis;
+        private final AtomicInteger requests = new AtomicInteger();
+        private final List<CompletableFuture<List<Either<Command, CodeAction>>>> responses =
+                Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean noActions;
+
+        private StubTextDocumentService(ScheduledExecutorService scheduler, long latencyMillis) {
+            this.scheduler = scheduler;
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public CompletableFuture<List<Either<Command, CodeAction>>> codeAction(CodeActionParams params) {
+            requests.incrementAndGet();
+            final CompletableFuture<List<Either<Command, CodeAction>>> response = new CompletableFuture<>();
+            responses.add(response);
+            final String title = String.format("fix %d-%d",
+                    params.getRange().getStart().getCharacter(), params.getRange().getEnd().getCharacter());
+            scheduler.schedule(() -> response.complete(noActions ? Collections.emptyList() :
+                    Collections.singletonList(Either.forRight(new CodeAction(title)))), latencyMillis, TimeUnit.MILLISECONDS);
+            return response;
+        }
+
+        @Override
+        public void didOpen(DidOpenTextDocumentParams params) {
+        }
+
+        @Override
+        public void didChange(DidChangeTextDocumentParams params) {
+        }
+
+        @Override
+        public void didClose(DidCloseTextDocumentParams params) {
+        }
+
+        @Override
+        public void didSave(DidSaveTextDocumentParams params) {
+        }
+    }
+}
@@ -200,7 +200,7 @@ public class ContainerRegistryPropertyView extends BaseEditor implements Contain
             currentRepo = selectedRepo;
             disableWidgets(false, true);
             tblTag.getEmptyText().setText(TABLE_LOADING_MESSAGE);
-            containerPropertyPresenter.onListTags(subscriptionId, registryId, currentRepo, true /*isNextPage*/);
+            containerPropertyPresenter.onRefreshTags(subscriptionId, registryId, currentRepo);
         });
 
         btnRepoRefresh = new AnActionButton(REFRESH, AllIcons.Actions.Refresh) {
@@ -272,7 +272,7 @@ public class ContainerRegistryPropertyView extends BaseEditor implements Contain
                     return;
                 }
                 disableWidgets(false, true);
-                containerPropertyPresenter.onListTags(subscriptionId, registryId, currentRepo, true /*isNextPage*/);
+                containerPropertyPresenter.onRefreshTags(subscriptionId, registryId, currentRepo);
             }
         };
 
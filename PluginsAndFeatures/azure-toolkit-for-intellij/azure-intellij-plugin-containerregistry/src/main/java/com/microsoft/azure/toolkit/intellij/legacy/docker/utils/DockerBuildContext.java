@@ -0,0 +1,425 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.legacy.docker.utils;
+
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Minimal build context of a Dockerfile: only the files referenced by its {@code COPY}/{@code ADD} instructions
+ * (and the artifact), with the paths excluded by {@code .dockerignore} left out. The whole context directory is used
+ * instead if the sources can not be resolved statically, e.g. they contain variables.
+ */
+public class DockerBuildContext {
+    private static final String DOCKER_IGNORE = ".dockerignore";
+    private static final Pattern INSTRUCTION = Pattern.compile("^\\s*(COPY|ADD)\\s+(.*)$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern JSON_ARG = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Nonnull
+    private final Path directory;
+    @Nonnull
+    private final String dockerfileName;
+    @Nonnull
+    private final String dockerfileContent;
+    // relative path in the context (separated by '/') -> local file
+    @Nonnull
+    private final SortedMap<String, Path> files;
+    @Nullable
+    private String hash;
+
+    private DockerBuildContext(@Nonnull Path directory, @Nonnull String dockerfileName, @Nonnull String dockerfileContent,
+                               @Nonnull SortedMap<String, Path> files) {
+        this.directory = directory;
+        this.dockerfileName = dockerfileName;
+        this.dockerfileContent = dockerfileContent;
+        this.files = Collections.unmodifiableSortedMap(files);
+    }
+
+    /**
+     * @param directory         the context directory which the sources of the Dockerfile are relative to
+     * @param dockerfileName    name of the Dockerfile in the context
+     * @param dockerfileContent content of the Dockerfile, it's not required to be saved in the context directory
+     * @param extraFiles        files to include besides the referenced ones, e.g. the artifact
+     */
+    @Nonnull
+    public static DockerBuildContext create(@Nonnull Path directory, @Nonnull String dockerfileName,
+                                            @Nonnull String dockerfileContent, @Nonnull Path... extraFiles)
+            throws IOException {
+        final Path root = directory.toAbsolutePath().normalize();
+        final DockerIgnore ignore = DockerIgnore.load(root.resolve(DOCKER_IGNORE));
+        final SortedMap<String, Path> files = new TreeMap<>();
+        final List<String> sources = parseSources(dockerfileContent);
+        if (sources == null) {
+            addFiles(root, root, ignore, files);
+        } else {
+            for (final String source : sources) {
+                addSource(root, source, ignore, files);
+            }
+        }
+        for (final Path extra : extraFiles) {
+            final Path file = extra.toAbsolutePath().normalize();
+            if (file.startsWith(root) && !file.equals(root)) {
+                addFiles(root, file, ignore, files);
+            }
+        }
+        files.remove(dockerfileName);
+        return new DockerBuildContext(root, dockerfileName, dockerfileContent, files);
+    }
+
+    @Nonnull
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Nonnull
+    public String getDockerfileName() {
+        return dockerfileName;
+    }
+
+    /**
+     * @return relative paths (separated by '/') of the files in the context besides the Dockerfile, sorted
+     */
+    @Nonnull
+    public List<String> getFiles() {
+        return new ArrayList<>(files.keySet());
+    }
+
+    /**
+     * @return SHA-256 of the Dockerfile and the paths and contents of all files in the context, computed once.
+     */
+    @Nonnull
+    public synchronized String getHash() throws IOException {
+        if (hash == null) {
+            final MessageDigest digest = newDigest();
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            update(digest, dockerfileName);
+            update(digest, dockerfileContent);
+            for (final SortedMap.Entry<String, Path> entry : files.entrySet()) {
+                update(digest, entry.getKey());
+                update(digest, Long.toString(Files.size(entry.getValue())));
+                try (InputStream in = Files.newInputStream(entry.getValue())) {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            }
+            hash = HexFormat.of().formatHex(digest.digest());
+        }
+        return hash;
+    }
+
+    /**
+     * Lay out the context in a new temporary directory to build from. Files are linked instead of copied whenever the
+     * file system supports it, the Dockerfile is written with the given content.
+     *
+     * @return the staging directory, which should be deleted by {@link #cleanUp(Path)} after building
+     */
+    @Nonnull
+    public Path stage() throws IOException {
+        final Path staging = Files.createTempDirectory("azure-docker-context-");
+        try {
+            Files.write(staging.resolve(dockerfileName), dockerfileContent.getBytes(StandardCharsets.UTF_8));
+            for (final SortedMap.Entry<String, Path> entry : files.entrySet()) {
+                final Path target = staging.resolve(entry.getKey());
+                Files.createDirectories(target.getParent());
+                link(target, entry.getValue());
+            }
+        } catch (IOException | RuntimeException e) {
+            cleanUp(staging);
+            throw e;
+        }
+        return staging;
+    }
+
+    /**
+     * delete a staging directory created by {@link #stage()}, the linked files are not touched.
+     */
+    public static void cleanUp(@Nullable Path staging) {
+        if (staging == null || !Files.exists(staging)) {
+            return;
+        }
+        // walking doesn't follow the links, so only the links themselves are deleted
+        try (Stream<Path> paths = Files.walk(staging)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException ignored) {
+                    // best effort, it's a temporary directory
+                }
+            });
+        } catch (IOException ignored) {
+            // best effort, it's a temporary directory
+        }
+    }
+
+    private static void link(@Nonnull Path target, @Nonnull Path source) throws IOException {
+        try {
+            Files.createSymbolicLink(target, source);
+        } catch (UnsupportedOperationException | FileSystemException symbolicLinkError) {
+            try {
+                // e.g. symbolic links require privileges on Windows, hard links don't
+                Files.createLink(target, source);
+            } catch (UnsupportedOperationException | FileSystemException hardLinkError) {
+                Files.copy(source, target);
+            }
+        }
+    }
+
+    /**
+     * @return the sources of all {@code COPY}/{@code ADD} instructions which are copied from the context, or null if
+     * any of them can not be resolved statically.
+     */
+    @Nullable
+    static List<String> parseSources(@Nonnull String dockerfileContent) {
+        final List<String> sources = new ArrayList<>();
+        for (final String instruction : joinContinuedLines(dockerfileContent)) {
+            final Matcher matcher = INSTRUCTION.matcher(instruction);
+            if (!matcher.matches()) {
+                continue;
+            }
+            final List<String> args = parseArgs(matcher.group(2).trim());
+            final List<String> paths = new ArrayList<>();
+            boolean fromStage = false;
+            for (final String arg : args) {
+                if (arg.startsWith("--")) {
+                    fromStage |= arg.toLowerCase(Locale.ROOT).startsWith("--from=");
+                } else {
+                    paths.add(arg);
+                }
+            }
+            if (fromStage || paths.size() < 2) {
+                continue;
+            }
+            for (final String source : paths.subList(0, paths.size() - 1)) {
+                if (source.contains("$")) {
+                    return null;
+                }
+                if (!source.contains("://")) {
+                    sources.add(source);
+                }
+            }
+        }
+        return sources;
+    }
+
+    @Nonnull
+    private static List<String> joinContinuedLines(@Nonnull String content) {
+        final List<String> instructions = new ArrayList<>();
+        final StringBuilder current = new StringBuilder();
+        for (final String line : content.split("\\r?\\n")) {
+            final String trimmed = line.trim();
+            if (trimmed.startsWith("#")) {
+                continue;
+            }
+            if (trimmed.endsWith("\\")) {
+                current.append(trimmed, 0, trimmed.length() - 1).append(' ');
+            } else {
+                instructions.add(current.append(trimmed).toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            instructions.add(current.toString());
+        }
+        return instructions;
+    }
+
+    @Nonnull
+    private static List<String> parseArgs(@Nonnull String args) {
+        final List<String> result = new ArrayList<>();
+        final int jsonStart = args.indexOf('[');
+        if (jsonStart >= 0 && args.endsWith("]") && StringUtils.isBlank(args.substring(0, jsonStart).replaceAll("--\\S+", ""))) {
+            // flags followed by the exec form: ["src", ..., "dest"]
+            result.addAll(List.of(StringUtils.split(args.substring(0, jsonStart))));
+            final Matcher matcher = JSON_ARG.matcher(args.substring(jsonStart));
+            while (matcher.find()) {
+                result.add(matcher.group(1).replace("\\\"", "\"").replace("\\\\", "\\"));
+            }
+            return result;
+        }
+        result.addAll(List.of(StringUtils.split(args)));
+        return result;
+    }
+
+    private static void addSource(@Nonnull Path root, @Nonnull String source, @Nonnull DockerIgnore ignore,
+                                  @Nonnull SortedMap<String, Path> files) throws IOException {
+        final String relative = StringUtils.removeStart(source.replace('\\', '/'), "/");
+        if (!StringUtils.containsAny(relative, '*', '?', '[')) {
+            final Path path = root.resolve(relative).normalize();
+            if (path.startsWith(root) && Files.exists(path)) {
+                addFiles(root, path, ignore, files);
+            }
+            return;
+        }
+        // wildcards are matched against the paths in the context
+        final Pattern pattern = Pattern.compile(DockerIgnore.toRegex(StringUtils.removeStart(relative, "./")));
+        try (Stream<Path> paths = Files.walk(root)) {
+            final List<Path> matched = new ArrayList<>();
+            paths.filter(path -> !path.equals(root) && pattern.matcher(toRelative(root, path)).matches()).forEach(matched::add);
+            for (final Path path : matched) {
+                addFiles(root, path, ignore, files);
+            }
+        }
+    }
+
+    /**
+     * add the file, or all files under the directory, which are not excluded by .dockerignore.
+     */
+    private static void addFiles(@Nonnull Path root, @Nonnull Path path, @Nonnull DockerIgnore ignore,
+                                 @Nonnull SortedMap<String, Path> files) throws IOException {
+        if (!Files.isDirectory(path)) {
+            final String relative = toRelative(root, path);
+            if (!ignore.isExcluded(relative)) {
+                files.put(relative, path);
+            }
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.filter(Files::isRegularFile).forEach(file -> {
+                final String relative = toRelative(root, file);
+                if (!ignore.isExcluded(relative)) {
+                    files.put(relative, file);
+                }
+            });
+        }
+    }
+
+    @Nonnull
+    private static String toRelative(@Nonnull Path root, @Nonnull Path path) {
+        return root.relativize(path).toString().replace('\\', '/');
+    }
+
+    @Nonnull
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(@Nonnull MessageDigest digest, @Nonnull String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Patterns of .dockerignore, the last matched one decides whether a path is excluded. A pattern matching a
+     * directory excludes everything under it.
+     */
+    static class DockerIgnore {
+        private final List<Pattern> patterns = new ArrayList<>();
+        private final List<Boolean> exceptions = new ArrayList<>();
+
+        @Nonnull
+        static DockerIgnore load(@Nonnull Path file) throws IOException {
+            final DockerIgnore ignore = new DockerIgnore();
+            if (Files.isRegularFile(file)) {
+                Files.readAllLines(file, StandardCharsets.UTF_8).forEach(ignore::add);
+            }
+            return ignore;
+        }
+
+        void add(@Nonnull String line) {
+            String pattern = line.trim();
+            if (pattern.isEmpty() || pattern.startsWith("#")) {
+                return;
+            }
+            final boolean exception = pattern.startsWith("!");
+            pattern = clean(StringUtils.removeStart(pattern, "!").trim().replace('\\', '/'));
+            if (pattern.isEmpty()) {
+                return;
+            }
+            patterns.add(Pattern.compile(toRegex(pattern) + "(/.*)?"));
+            exceptions.add(exception);
+        }
+
+        /**
+         * cleans the pattern like Go's filepath.Clean, which can't be done by {@link Path} since the wildcards are
+         * invalid path characters on Windows.
+         */
+        @Nonnull
+        private static String clean(@Nonnull String pattern) {
+            final Deque<String> segments = new ArrayDeque<>();
+            for (final String segment : pattern.split("/")) {
+                if (segment.isEmpty() || segment.equals(".")) {
+                    continue;
+                }
+                if (segment.equals("..")) {
+                    segments.pollLast();
+                } else {
+                    segments.addLast(segment);
+                }
+            }
+            return String.join("/", segments);
+        }
+
+        boolean isExcluded(@Nonnull String relativePath) {
+            boolean excluded = false;
+            for (int i = 0; i < patterns.size(); i++) {
+                if (patterns.get(i).matcher(relativePath).matches()) {
+                    excluded = !exceptions.get(i);
+                }
+            }
+            return excluded;
+        }
+
+        /**
+         * converts the pattern of Go's filepath.Match (plus "**") to regex.
+         */
+        @Nonnull
+        static String toRegex(@Nonnull String pattern) {
+            final StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < pattern.length(); i++) {
+                final char c = pattern.charAt(i);
+                if (c == '*' && i + 1 < pattern.length() && pattern.charAt(i + 1) == '*') {
+                    // "**" matches any number of directories, including none
+                    final boolean wholeSegment = i + 2 < pattern.length() && pattern.charAt(i + 2) == '/';
+                    regex.append(wholeSegment ? "(.*/)?" : ".*");
+                    i += wholeSegment ? 2 : 1;
+                } else if (c == '*') {
+                    regex.append("[^/]*");
+                } else if (c == '?') {
+                    regex.append("[^/]");
+                } else if (c == '[' && pattern.indexOf(']', i + 2) > 0) {
+                    final int end = pattern.indexOf(']', i + 2);
+                    final String range = pattern.substring(i + 1, end);
+                    final boolean negated = range.startsWith("^") || range.startsWith("!");
+                    regex.append(negated ? "[^" : "[").append(negated ? range.substring(1) : range).append(']');
+                    i = end;
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            return regex.toString();
+        }
+    }
+}
@@ -14,6 +14,7 @@ import com.spotify.docker.client.DockerClient;
 import com.spotify.docker.client.ProgressHandler;
 import com.spotify.docker.client.exceptions.DockerCertificateException;
 import com.spotify.docker.client.exceptions.DockerException;
+import com.spotify.docker.client.exceptions.ImageNotFoundException;
 import com.spotify.docker.client.messages.Container;
 import com.spotify.docker.client.messages.ContainerConfig;
 import com.spotify.docker.client.messages.ContainerCreation;
@@ -33,10 +34,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 public class DockerUtil {
     private static final String DOCKER_PING_ERROR = "Failed to connect docker host: %s\nIs Docker installed and running?";
+    // image built from each context, keyed by docker host, image name and hash of the context
+    private static final Map<String, String> builtImages = new ConcurrentHashMap<>();
 
     /**
      * create a docker file in specified folder.
@@ -104,6 +108,39 @@ public class DockerUtil {
         return imageId == null ? null : imageNameWithTag;
     }
 
+    /**
+     * build image from a minimal build context. the build is skipped if the image has been built from the same
+     * context and is still there.
+     */
+    @AzureOperation(name = "boundary/docker.build_image.image|dir|host", params = {"imageNameWithTag", "context.getDirectory()", "docker.getHost()"})
+    public static String buildImage(DockerClient docker, String imageNameWithTag, DockerBuildContext context,
+                                    ProgressHandler progressHandler)
+            throws DockerException, InterruptedException, IOException {
+        final String key = String.join("|", docker.getHost(), imageNameWithTag, context.getHash());
+        final String builtImageId = builtImages.get(key);
+        if (builtImageId != null) {
+            try {
+                if (builtImageId.equals(docker.inspectImage(imageNameWithTag).id())) {
+                    return imageNameWithTag;
+                }
+            } catch (ImageNotFoundException ignored) {
+                // removed or re-tagged since built
+            }
+            builtImages.remove(key);
+        }
+        final Path staging = context.stage();
+        try {
+            final String imageId = docker.build(staging, imageNameWithTag, context.getDockerfileName(), progressHandler);
+            if (imageId == null) {
+                return null;
+            }
+            builtImages.put(key, docker.inspectImage(imageNameWithTag).id());
+            return imageNameWithTag;
+        } finally {
+            DockerBuildContext.cleanUp(staging);
+        }
+    }
+
     /**
      * Push image to a private registry.
      */
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.legacy.docker.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DockerBuildContextTest {
+    private static final String DOCKERFILE = "Dockerfile";
+    private static final String DOCKERFILE_CONTENT = "FROM openjdk:17\n" +
+            "COPY target/app.jar /app/\n" +
+            "COPY config/ /app/config/\n" +
+            "ENTRYPOINT [\"java\", \"-jar\", \"/app/app.jar\"]\n";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testParseSourcesOfShellAndExecForms() {
+        final String dockerfile = "FROM openjdk:17\n" +
+                "# COPY commented.txt /\n" +
+                "COPY a.txt b.txt /dest/\n" +
+                "copy --chown=app:app [\"c d.txt\", \"/dest/\"]\n" +
+                "ADD --chmod=644 e.txt /dest/\n" +
+                "RUN cp f.txt /dest/\n" +
+                "WORKDIR /app\n";
+
+        assertEquals(Arrays.asList("a.txt", "b.txt", "c d.txt", "e.txt"), DockerBuildContext.parseSources(dockerfile));
+    }
+
+    @Test
+    public void testParseSourcesOfContinuedLines() {
+        final String dockerfile = "FROM openjdk:17\n" +
+                "COPY a.txt \\\n" +
+                "     b.txt \\\r\n" +
+                "     /dest/\n";
+
+        assertEquals(Arrays.asList("a.txt", "b.txt"), DockerBuildContext.parseSources(dockerfile));
+    }
+
+    @Test
+    public void testParseSourcesSkipsStagesAndUrls() {
+        final String dockerfile = "FROM maven:3 AS build\n" +
+                "COPY pom.xml /build/\n" +
+                "FROM openjdk:17\n" +
+                "COPY --from=build /build/target/app.jar /app/\n" +
+                "ADD https://example.com/agent.jar /app/\n" +
+                "COPY single-argument\n";
+
+        assertEquals(Collections.singletonList("pom.xml"), DockerBuildContext.parseSources(dockerfile));
+    }
+
+    @Test
+    public void testParseSourcesWithVariables() {
+        assertNull(DockerBuildContext.parseSources("FROM openjdk:17\nARG JAR=app.jar\nCOPY target/${JAR} /app/\n"));
+        assertNull(DockerBuildContext.parseSources("FROM openjdk:17\nCOPY [\"$JAR\", \"/app/\"]\n"));
+        // only the sources matter
+        assertEquals(Collections.singletonList("app.jar"), DockerBuildContext.parseSources("FROM openjdk:17\nCOPY app.jar $HOME/\n"));
+    }
+
+    @Test
+    public void testDockerIgnoreMatching() {
+        final DockerBuildContext.DockerIgnore ignore = new DockerBuildContext.DockerIgnore();
+        Arrays.asList("# comment", "", "target", "!target/app.jar", "*.log", "**/node_modules", "/.git/",
+                "docs/**/*.md", "[a-c].tmp", "./build/../out").forEach(ignore::add);
+
+        assertTrue(ignore.isExcluded("target"));
+        assertTrue(ignore.isExcluded("target/classes/App.class"));
+        assertFalse(ignore.isExcluded("target/app.jar"));
+        assertTrue(ignore.isExcluded("server.log"));
+        // "*" doesn't cross directories
+        assertFalse(ignore.isExcluded("logs/server.log"));
+        assertTrue(ignore.isExcluded("node_modules/lib/index.js"));
+        assertTrue(ignore.isExcluded("web/node_modules/lib/index.js"));
+        assertTrue(ignore.isExcluded(".git/HEAD"));
+        assertTrue(ignore.isExcluded("docs/README.md"));
+        assertTrue(ignore.isExcluded("docs/api/v1/README.md"));
+        assertFalse(ignore.isExcluded("docs/README.txt"));
+        assertTrue(ignore.isExcluded("b.tmp"));
+        assertFalse(ignore.isExcluded("d.tmp"));
+        assertTrue(ignore.isExcluded("out/app.jar"));
+        assertFalse(ignore.isExcluded("build/app.jar"));
+        assertFalse(ignore.isExcluded("src/Main.java"));
+        // "#" starts a comment only at the beginning of a line
+        assertFalse(ignore.isExcluded("comment"));
+    }
+
+    @Test
+    public void testDockerIgnoreLastMatchedPatternWins() {
+        final DockerBuildContext.DockerIgnore ignore = new DockerBuildContext.DockerIgnore();
+        Arrays.asList("*.md", "!README*.md", "README-secret.md").forEach(ignore::add);
+
+        assertTrue(ignore.isExcluded("CHANGELOG.md"));
+        assertFalse(ignore.isExcluded("README.md"));
+        assertTrue(ignore.isExcluded("README-secret.md"));
+    }
+
+    @Test
+    public void testCreateContextOfReferencedFilesOnly() throws IOException {
+        final Path project = createProject(temp.newFolder("project").toPath());
+        final Path artifact = write(project, "target/extra/agent.jar", "agent");
+
+        final DockerBuildContext context = DockerBuildContext.create(project, DOCKERFILE, DOCKERFILE_CONTENT, artifact);
+
+        assertEquals(Arrays.asList("config/app.properties", "target/app.jar", "target/extra/agent.jar"), context.getFiles());
+        assertEquals(project.toAbsolutePath().normalize(), context.getDirectory());
+    }
+
+    @Test
+    public void testCreateContextOfWildcardSources() throws IOException {
+        final Path project = createProject(temp.newFolder("project").toPath());
+        write(project, "lib/a.jar", "a");
+        write(project, "lib/b.jar", "b");
+        write(project, "lib/readme.txt", "readme");
+        write(project, "lib/ignored.jar", "ignored");
+
+        final String dockerfile = "FROM openjdk:17\nCOPY lib/*.jar /app/lib/\n";
+        final DockerBuildContext context = DockerBuildContext.create(project, DOCKERFILE, dockerfile);
+
+        assertEquals(Arrays.asList("lib/a.jar", "lib/b.jar"), context.getFiles());
+    }
+
+    @Test
+    public void testCreateContextOfWholeDirectoryForVariables() throws IOException {
+        final Path project = createProject(temp.newFolder("project").toPath());
+
+        final String dockerfile = "FROM openjdk:17\nARG JAR=app.jar\nCOPY target/${JAR} /app/\n";
+        final DockerBuildContext context = DockerBuildContext.create(project, DOCKERFILE, dockerfile);
+
+        // everything but the Dockerfile and the ignored ones
+        assertEquals(Arrays.asList(".dockerignore", "config/app.properties", "src/Main.java", "target/app.jar"),
+                context.getFiles());
+    }
+
+    @Test
+    public void testHashIsStableForTheSameContent() throws IOException {
+        final Path project = createProject(temp.newFolder("project").toPath());
+        final Path copy = createProject(temp.newFolder("copy").toPath());
+        final String hash = DockerBuildContext.create(project, DOCKERFILE, DOCKERFILE_CONTENT).getHash();
+
+        assertEquals(64, hash.length());
+        assertEquals(hash, DockerBuildContext.create(project, DOCKERFILE, DOCKERFILE_CONTENT).getHash());
+        // the location of the project doesn't matter
+        assertEquals(hash, DockerBuildContext.create(copy, DOCKERFILE, DOCKERFILE_CONTENT).getHash());
+
+        // neither the modification time nor the files out of the context
+        Files.setLastModifiedTime(project.resolve("target/app.jar"), FileTime.fromMillis(0));
+        write(project, "target/classes/Main.class", "changed");
+        write(project, "node_modules/lib/index.js", "changed");
+        write(project, "src/Main.java", "changed");
+        assertEquals(hash, DockerBuildContext.create(project, DOCKERFILE, DOCKERFILE_CONTENT).getHash());
+    }
+
+    @Test
+    public void testHashChangesWithTheContext() throws IOException {
+        final Path project = createProject(temp.newFolder("project").toPath());
+        final String hash = DockerBuildContext.create(project, DOCKERFILE, DOCKERFILE_CONTENT).getHash();
+
+        assertNotEquals(hash, DockerBuildContext.create(project, DOCKERFILE, DOCKERFILE_CONTENT + "EXPOSE 80\n").getHash());
+        assertNotEquals(hash, DockerBuildContext.create(project, "Dockerfile.prod", DOCKERFILE_CONTENT).getHash());
+
+        write(project, "target/app.jar", "new app");
+        final String changedHash = DockerBuildContext.create(project, DOCKERFILE, DOCKERFILE_CONTENT).getHash();
+        assertNotEquals(hash, changedHash);
+
+        write(project, "config/new.properties", "");
+        assertNotEquals(changedHash, DockerBuildContext.create(project, DOCKERFILE, DOCKERFILE_CONTENT).getHash());
+    }
+
+    @Test
+    public void testHashDoesNotMixPathsAndContents() throws IOException {
+        final Path first = temp.newFolder("first").toPath();
+        write(first, "a", "bc");
+        final Path second = temp.newFolder("second").toPath();
+        write(second, "ab", "c");
+
+        final String dockerfile = "FROM scratch\nCOPY . /\n";
+        assertNotEquals(DockerBuildContext.create(first, DOCKERFILE, dockerfile).getHash(),
+                DockerBuildContext.create(second, DOCKERFILE, dockerfile).getHash());
+    }
+
+    @Test
+    public void testStageAndCleanUp() throws IOException {
+        final Path project = createProject(temp.newFolder("project").toPath());
+        final DockerBuildContext context = DockerBuildContext.create(project, DOCKERFILE, DOCKERFILE_CONTENT);
+
+        final Path staging = context.stage();
+        try {
+            assertEquals(DOCKERFILE_CONTENT, new String(Files.readAllBytes(staging.resolve(DOCKERFILE)), StandardCharsets.UTF_8));
+            for (final String file : context.getFiles()) {
+                assertArrayEquals(Files.readAllBytes(project.resolve(file)), Files.readAllBytes(staging.resolve(file)));
+            }
+            assertFalse(Files.exists(staging.resolve("src")));
+            assertFalse(Files.exists(staging.resolve("node_modules")));
+        } finally {
+            DockerBuildContext.cleanUp(staging);
+        }
+
+        assertFalse(Files.exists(staging));
+        // the linked files are kept
+        assertEquals("app", new String(Files.readAllBytes(project.resolve("target/app.jar")), StandardCharsets.UTF_8));
+        // the Dockerfile of the project is not touched
+        assertEquals("FROM openjdk:17\nCOPY target/${ARTIFACT_NAME} /app/\n",
+                new String(Files.readAllBytes(project.resolve(DOCKERFILE)), StandardCharsets.UTF_8));
+    }
+
+    private static Path createProject(Path project) throws IOException {
+        write(project, DOCKERFILE, "FROM openjdk:17\nCOPY target/${ARTIFACT_NAME} /app/\n");
+        write(project, ".dockerignore", "# build outputs except the artifacts\ntarget/*\n!target/app.jar\n" +
+                "!target/extra/*.jar\nnode_modules\nconfig/secret.*\nlib/ignored.jar\n");
+        write(project, "target/app.jar", "app");
+        write(project, "target/classes/Main.class", "class");
+        write(project, "config/app.properties", "key=value");
+        write(project, "config/secret.properties", "password=secret");
+        write(project, "node_modules/lib/index.js", "module.exports = {}");
+        write(project, "src/Main.java", "class Main {}");
+        return project;
+    }
+
+    private static Path write(Path root, String relative, String content) throws IOException {
+        final Path file = root.resolve(relative);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
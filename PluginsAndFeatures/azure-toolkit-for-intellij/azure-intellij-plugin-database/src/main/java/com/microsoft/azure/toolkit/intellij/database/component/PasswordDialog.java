@@ -112,7 +112,11 @@ public class PasswordDialog extends AzureDialog<Password> implements AzureForm<P
         if (result.isConnected()) {
             messageBuilder.append("Connected successfully.").append(System.lineSeparator());
             messageBuilder.append("Version: ").append(result.getServerVersion()).append(System.lineSeparator());
-            messageBuilder.append("Ping cost: ").append(result.getPingCost()).append("ms");
+            messageBuilder.append("Ping cost: ").append(result.getPingCostDetails());
+            if (result.getStatistics().getQuery().getCount() > 1) {
+                messageBuilder.append(System.lineSeparator()).append("Latency of repeated tests:").append(System.lineSeparator());
+                messageBuilder.append(result.getStatistics());
+            }
         } else {
             messageBuilder.append("Failed to connect with above parameters.").append(System.lineSeparator());
             messageBuilder.append("Message: ").append(result.getMessage());
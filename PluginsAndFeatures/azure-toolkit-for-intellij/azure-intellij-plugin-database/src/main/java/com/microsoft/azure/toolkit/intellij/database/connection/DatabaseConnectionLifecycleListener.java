@@ -0,0 +1,18 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.database.connection;
+
+import com.intellij.ide.AppLifecycleListener;
+
+/**
+ * close the pooled database connections when the IDE is closing.
+ */
+public class DatabaseConnectionLifecycleListener implements AppLifecycleListener {
+    @Override
+    public void appWillBeClosed(boolean isRestart) {
+        DatabaseConnectionUtils.closeIdleConnections();
+    }
+}
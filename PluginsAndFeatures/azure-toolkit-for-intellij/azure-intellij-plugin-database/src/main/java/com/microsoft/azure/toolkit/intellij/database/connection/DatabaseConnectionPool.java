@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.database.connection;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small pool of idle JDBC connections keyed by url, user and password, so that connecting repeatedly doesn't pay
+ * the TLS and authentication handshake each time. Idle connections are validated before reuse and closed once they
+ * have been idle for {@link #IDLE_TIMEOUT_MILLIS}.
+ */
+@Slf4j
+class DatabaseConnectionPool {
+    private static final int MAX_IDLE_PER_KEY = 2;
+    private static final int MAX_IDLE_TOTAL = 8;
+    private static final long IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final Map<Key, Deque<IdleConnection>> idleConnections = new HashMap<>();
+    private final ScheduledExecutorService evictor;
+    private int idleCount = 0;
+
+    DatabaseConnectionPool() {
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "azure-database-connection-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.evictor.scheduleWithFixedDelay(this::evictIdleConnections, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * borrow a valid idle connection or open a new one, the lease must be returned by {@link #release} or
+     * {@link #invalidate}.
+     */
+    @Nonnull
+    Lease borrow(@Nonnull String url, @Nullable String username, @Nullable String password) throws SQLException {
+        final Key key = new Key(url, username, digest(password));
+        IdleConnection idle;
+        while ((idle = this.pollIdleConnection(key)) != null) {
+            if (isValid(idle.connection)) {
+                return new Lease(key, idle.connection, true, 0);
+            }
+            closeQuietly(idle.connection);
+        }
+        return open(key, password);
+    }
+
+    /**
+     * always open a new connection without reusing idle ones, e.g. to really test the connectivity and credential,
+     * the lease must be returned by {@link #release} or {@link #invalidate}.
+     */
+    @Nonnull
+    Lease open(@Nonnull String url, @Nullable String username, @Nullable String password) throws SQLException {
+        return open(new Key(url, username, digest(password)), password);
+    }
+
+    @Nonnull
+    private static Lease open(@Nonnull Key key, @Nullable String password) throws SQLException {
+        final long start = System.currentTimeMillis();
+        final Connection connection = DriverManager.getConnection(key.url, key.username, password);
+        return new Lease(key, connection, false, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * return a healthy connection to the pool, it's closed if the pool is full.
+     */
+    void release(@Nonnull Lease lease) {
+        synchronized (this) {
+            final Deque<IdleConnection> idles = this.idleConnections.computeIfAbsent(lease.key, k -> new ArrayDeque<>());
+            if (idles.size() < MAX_IDLE_PER_KEY && this.idleCount < MAX_IDLE_TOTAL) {
+                idles.push(new IdleConnection(lease.connection, System.currentTimeMillis()));
+                this.idleCount++;
+                return;
+            }
+        }
+        closeQuietly(lease.connection);
+    }
+
+    /**
+     * close a connection which failed in use rather than returning it to the pool.
+     */
+    void invalidate(@Nonnull Lease lease) {
+        closeQuietly(lease.connection);
+    }
+
+    void evictIdleConnections() {
+        final long now = System.currentTimeMillis();
+        final List<Connection> expired = new ArrayList<>();
+        synchronized (this) {
+            for (final Iterator<Deque<IdleConnection>> it = this.idleConnections.values().iterator(); it.hasNext(); ) {
+                final Deque<IdleConnection> idles = it.next();
+                idles.removeIf(idle -> {
+                    final boolean isExpired = now - idle.idleSince >= IDLE_TIMEOUT_MILLIS;
+                    if (isExpired) {
+                        expired.add(idle.connection);
+                    }
+                    return isExpired;
+                });
+                if (idles.isEmpty()) {
+                    it.remove();
+                }
+            }
+            this.idleCount -= expired.size();
+        }
+        expired.forEach(DatabaseConnectionPool::closeQuietly);
+    }
+
+    void closeAll() {
+        final List<Connection> connections = new ArrayList<>();
+        synchronized (this) {
+            this.idleConnections.values().forEach(idles -> idles.forEach(idle -> connections.add(idle.connection)));
+            this.idleConnections.clear();
+            this.idleCount = 0;
+        }
+        connections.forEach(DatabaseConnectionPool::closeQuietly);
+    }
+
+    /**
+     * stop evicting and close all idle connections, the pool must not be used afterwards.
+     */
+    void shutdown() {
+        this.evictor.shutdownNow();
+        this.closeAll();
+    }
+
+    synchronized int getIdleCount() {
+        return this.idleCount;
+    }
+
+    @Nullable
+    private synchronized IdleConnection pollIdleConnection(@Nonnull Key key) {
+        final Deque<IdleConnection> idles = this.idleConnections.get(key);
+        final IdleConnection idle = idles == null ? null : idles.poll();
+        if (idle != null) {
+            this.idleCount--;
+        }
+        return idle;
+    }
+
+    private static boolean isValid(@Nonnull Connection connection) {
+        try {
+            return !connection.isClosed() && connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (final SQLException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(@Nonnull Connection connection) {
+        try {
+            connection.close();
+        } catch (final SQLException e) {
+            log.debug("failed to close database connection", e);
+        }
+    }
+
+    /**
+     * passwords are only kept as digests in keys
+     */
+    @Nonnull
+    private static String digest(@Nullable String password) {
+        if (password == null) {
+            return "";
+        }
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class Key {
+        private final String url;
+        private final String username;
+        private final String passwordDigest;
+    }
+
+    @RequiredArgsConstructor
+    private static class IdleConnection {
+        private final Connection connection;
+        private final long idleSince;
+    }
+
+    @RequiredArgsConstructor
+    static class Lease {
+        private final Key key;
+        @Getter
+        private final Connection connection;
+        /**
+         * whether the connection is reused from the pool rather than newly opened
+         */
+        @Getter
+        private final boolean reused;
+        /**
+         * time (in milliseconds) taken to open the connection, 0 if reused
+         */
+        @Getter
+        private final long openCost;
+    }
+}
@@ -14,13 +14,21 @@ import lombok.Getter;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class DatabaseConnectionUtils {
 
@@ -32,11 +40,16 @@ public class DatabaseConnectionUtils {
     public static final int ACCESS_DENIED_ERROR_CODE = 1045;
     private static final int CLASS_NOT_FOUND_ERROR_CODE = -1000;
     private static final int UNKNOWN_EXCEPTION_ERROR_CODE = -1;
+    private static final int PROBE_TIMEOUT_MILLIS = 5000;
+    private static final Pattern HOST_PORT_PATTERN = Pattern.compile("^jdbc:[\\w:]+://([^/:;?]+)(?::(\\d+))?");
+    private static final DatabaseConnectionPool POOL = new DatabaseConnectionPool();
+    private static final Map<String, PingStatistics> STATISTICS = new ConcurrentHashMap<>();
 
     public static boolean connect(JdbcUrl url, String username, String password) {
         try {
             Class.forName(getDriverClassName(url));
-            DriverManager.getConnection(url.toString(), username, password);
+            final DatabaseConnectionPool.Lease lease = POOL.borrow(url.toString(), username, password);
+            POOL.release(lease);
             return true;
         } catch (final ClassNotFoundException | SQLException ignored) {
         }
@@ -48,19 +61,41 @@ public class DatabaseConnectionUtils {
         boolean connected = false;
         String errorMessage = null;
         Long pingCost = null;
+        Long connectCost = null;
+        Long handshakeCost = null;
+        Long queryCost = null;
         String serverVersion = null;
+        final PingStatistics statistics = STATISTICS.computeIfAbsent(url + "|" + username, k -> new PingStatistics());
+        DatabaseConnectionPool.Lease lease = null;
+        boolean reused = false;
+        boolean healthy = false;
         // refresh property
         try {
             Class.forName(getDriverClassName(url));
             final long start = System.currentTimeMillis();
-            final Connection connection = DriverManager.getConnection(url.toString(), username, password);
+            // repeated tests reuse the idle connection of the same url, user and password once it's validated, the
+            // credential has been proven by opening it and the connectivity is proven by the validation round trip
+            lease = POOL.borrow(url.toString(), username, password);
+            final Connection connection = lease.getConnection();
+            reused = lease.isReused();
             connected = true;
-            final Statement statement = connection.createStatement();
-            final ResultSet resultSet = statement.executeQuery("select 'hi'");
-            if (resultSet.next()) {
-                final String result = resultSet.getString(1);
-                connected = "hi".equals(result);
+            if (!reused) {
+                // driver doesn't tell the tcp connect from tls and authentication handshake, so measure the former alone
+                connectCost = probeConnectCost(url.toString());
+                handshakeCost = connectCost == null ? lease.getOpenCost() : Math.max(0, lease.getOpenCost() - connectCost);
+                Optional.ofNullable(connectCost).ifPresent(statistics.connect::record);
+                statistics.handshake.record(handshakeCost);
             }
+            final long queryStart = System.currentTimeMillis();
+            try (final Statement statement = connection.createStatement();
+                 final ResultSet resultSet = statement.executeQuery("select 'hi'")) {
+                if (resultSet.next()) {
+                    final String result = resultSet.getString(1);
+                    connected = "hi".equals(result);
+                }
+            }
+            queryCost = System.currentTimeMillis() - queryStart;
+            statistics.query.record(queryCost);
             pingCost = System.currentTimeMillis() - start;
             if (StringUtils.startsWith(url.toString(), SQL_SERVER_URL_PREFIX)) {
                 try {
@@ -72,6 +107,7 @@ public class DatabaseConnectionUtils {
                 final DatabaseMetaData meta = connection.getMetaData();
                 serverVersion = meta == null ? "unknown" : String.format("%d.%d", meta.getDatabaseMajorVersion(), meta.getDatabaseMinorVersion());
             }
+            healthy = connected;
         } catch (final SQLException exception) {
             errorCode = exception.getErrorCode();
             errorMessage = exception.getErrorCode() == CONNECTION_ERROR_CODE ?
@@ -79,11 +115,48 @@ public class DatabaseConnectionUtils {
         } catch (final ClassNotFoundException | RuntimeException exception) {
             errorCode = exception instanceof ClassNotFoundException ? CLASS_NOT_FOUND_ERROR_CODE : UNKNOWN_EXCEPTION_ERROR_CODE;
             errorMessage = exception.getMessage();
+        } finally {
+            if (lease != null) {
+                if (healthy) {
+                    POOL.release(lease);
+                } else {
+                    POOL.invalidate(lease);
+                }
+            }
         }
         EventUtil.logEvent(EventType.info, ActionConstants.parse(ActionConstants.MySQL.TEST_CONNECTION).getServiceName(),
             ActionConstants.parse(ActionConstants.MySQL.TEST_CONNECTION).getOperationName(),
             Collections.singletonMap("result", String.valueOf(connected)));
-        return new ConnectResult(connected, errorMessage, pingCost, serverVersion, errorCode);
+        return new ConnectResult(connected, errorMessage, pingCost, serverVersion, errorCode, connectCost, handshakeCost, queryCost, reused, statistics);
+    }
+
+    /**
+     * close the idle pooled connections and stop evicting, called when the IDE is shutting down
+     */
+    public static void closeIdleConnections() {
+        POOL.shutdown();
+    }
+
+    /**
+     * @return time (in milliseconds) to open a plain tcp connection to the database server, null if failed
+     */
+    @Nullable
+    private static Long probeConnectCost(String jdbcUrl) {
+        final Matcher matcher = HOST_PORT_PATTERN.matcher(jdbcUrl);
+        if (!matcher.find()) {
+            return null;
+        }
+        final String host = matcher.group(1);
+        final int port = matcher.group(2) != null ? Integer.parseInt(matcher.group(2)) :
+            StringUtils.startsWith(jdbcUrl, SQL_SERVER_URL_PREFIX) ? 1433 :
+                StringUtils.startsWith(jdbcUrl, POSTGRE_URL_PREFIX) ? 5432 : 3306;
+        final long start = System.currentTimeMillis();
+        try (final Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), PROBE_TIMEOUT_MILLIS);
+            return System.currentTimeMillis() - start;
+        } catch (final IOException | IllegalArgumentException e) {
+            return null;
+        }
     }
 
     private static String getDriverClassName(JdbcUrl url) {
@@ -105,5 +178,38 @@ public class DatabaseConnectionUtils {
         private final Long pingCost;
         private final String serverVersion;
         private final int errorCode;
+        @Nullable
+        private final Long connectCost;
+        @Nullable
+        private final Long handshakeCost;
+        @Nullable
+        private final Long queryCost;
+        /**
+         * whether an idle connection is reused, which pays neither the connect nor the handshake
+         */
+        private final boolean reused;
+        private final PingStatistics statistics;
+
+        public String getPingCostDetails() {
+            final String phases = this.reused ? String.format("reused connection, query: %sms", this.queryCost) :
+                String.format("connect: %sms, handshake: %sms, query: %sms",
+                    Optional.ofNullable(this.connectCost).map(String::valueOf).orElse("n/a"), this.handshakeCost, this.queryCost);
+            return String.format("%sms (%s)", this.pingCost, phases);
+        }
+    }
+
+    /**
+     * latencies of the repeated tests of a database with the same user
+     */
+    @Getter
+    public static class PingStatistics {
+        private final LatencyHistogram connect = new LatencyHistogram();
+        private final LatencyHistogram handshake = new LatencyHistogram();
+        private final LatencyHistogram query = new LatencyHistogram();
+
+        @Override
+        public String toString() {
+            return String.format("connect: %s%nhandshake: %s%nquery: %s", this.connect, this.handshake, this.query);
+        }
     }
 }
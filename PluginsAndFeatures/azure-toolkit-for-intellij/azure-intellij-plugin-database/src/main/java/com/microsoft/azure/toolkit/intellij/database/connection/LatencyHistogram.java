@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.database.connection;
+
+/**
+ * Counts latencies (in milliseconds) in a few fixed buckets, enough to tell the typical cost from outliers across
+ * repeated connection tests.
+ */
+public class LatencyHistogram {
+    private static final long[] BOUNDS = {10, 50, 100, 250, 500, 1000, 5000};
+
+    private final long[] counts = new long[BOUNDS.length + 1];
+    private long count = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public synchronized void record(long millis) {
+        int bucket = 0;
+        while (bucket < BOUNDS.length && millis > BOUNDS[bucket]) {
+            bucket++;
+        }
+        this.counts[bucket]++;
+        this.count++;
+        this.min = Math.min(this.min, millis);
+        this.max = Math.max(this.max, millis);
+    }
+
+    public synchronized long getCount() {
+        return this.count;
+    }
+
+    /**
+     * @return upper bound of the bucket the percentile falls in, or the max recorded latency if it falls in the last
+     * bucket, -1 if nothing recorded.
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (this.count == 0) {
+            return -1;
+        }
+        final long rank = (long) Math.ceil(percentile / 100 * this.count);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) {
+                return Math.min(BOUNDS[i], this.max);
+            }
+        }
+        return this.max;
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (this.count == 0) {
+            return "n/a";
+        }
+        return String.format("min %dms, p50 <= %dms, p90 <= %dms, max %dms (%d samples)",
+            this.min, this.getPercentile(50), this.getPercentile(90), this.max, this.count);
+    }
+}
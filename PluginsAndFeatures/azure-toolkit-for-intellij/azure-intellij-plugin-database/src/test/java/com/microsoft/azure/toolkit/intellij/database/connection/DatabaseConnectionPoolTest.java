@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.database.connection;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class DatabaseConnectionPoolTest {
+    private static final String URL = "jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1";
+    private static final String USER = "sa";
+    private static final String PASSWORD = "";
+
+    private DatabaseConnectionPool pool;
+
+    @Before
+    public void setUp() {
+        this.pool = new DatabaseConnectionPool();
+    }
+
+    @After
+    public void tearDown() {
+        this.pool.shutdown();
+    }
+
+    @Test
+    public void borrowReusesReleasedConnection() throws SQLException {
+        final DatabaseConnectionPool.Lease first = pool.borrow(URL, USER, PASSWORD);
+        Assert.assertFalse(first.isReused());
+        pool.release(first);
+        Assert.assertEquals(1, pool.getIdleCount());
+
+        final DatabaseConnectionPool.Lease second = pool.borrow(URL, USER, PASSWORD);
+        Assert.assertTrue(second.isReused());
+        Assert.assertSame(first.getConnection(), second.getConnection());
+        Assert.assertEquals(0, pool.getIdleCount());
+        pool.release(second);
+    }
+
+    @Test
+    public void openNeverReusesIdleConnection() throws SQLException {
+        final DatabaseConnectionPool.Lease pooled = pool.borrow(URL, USER, PASSWORD);
+        pool.release(pooled);
+
+        final DatabaseConnectionPool.Lease fresh = pool.open(URL, USER, PASSWORD);
+        Assert.assertFalse(fresh.isReused());
+        Assert.assertNotSame(pooled.getConnection(), fresh.getConnection());
+        Assert.assertEquals(1, pool.getIdleCount());
+        pool.invalidate(fresh);
+        Assert.assertTrue(fresh.getConnection().isClosed());
+    }
+
+    @Test
+    public void borrowDoesNotShareConnectionsAcrossPasswords() throws SQLException {
+        final DatabaseConnectionPool.Lease lease = pool.borrow(URL, USER, PASSWORD);
+        pool.release(lease);
+
+        Assert.assertThrows(SQLException.class, () -> pool.borrow(URL, USER, "wrong-password"));
+        Assert.assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void borrowDropsClosedIdleConnection() throws SQLException {
+        final DatabaseConnectionPool.Lease first = pool.borrow(URL, USER, PASSWORD);
+        pool.release(first);
+        first.getConnection().close();
+
+        final DatabaseConnectionPool.Lease second = pool.borrow(URL, USER, PASSWORD);
+        Assert.assertFalse(second.isReused());
+        Assert.assertNotSame(first.getConnection(), second.getConnection());
+        pool.release(second);
+    }
+
+    @Test
+    public void releaseClosesConnectionsBeyondIdleLimit() throws SQLException {
+        final DatabaseConnectionPool.Lease[] leases = new DatabaseConnectionPool.Lease[3];
+        for (int i = 0; i < leases.length; i++) {
+            leases[i] = pool.borrow(URL, USER, PASSWORD);
+        }
+        for (final DatabaseConnectionPool.Lease lease : leases) {
+            pool.release(lease);
+        }
+        Assert.assertEquals(2, pool.getIdleCount());
+        Assert.assertTrue(leases[2].getConnection().isClosed());
+    }
+
+    @Test
+    public void shutdownClosesIdleConnections() throws SQLException {
+        final DatabaseConnectionPool.Lease lease = pool.borrow(URL, USER, PASSWORD);
+        final Connection connection = lease.getConnection();
+        pool.release(lease);
+
+        pool.shutdown();
+        Assert.assertEquals(0, pool.getIdleCount());
+        Assert.assertTrue(connection.isClosed());
+    }
+}
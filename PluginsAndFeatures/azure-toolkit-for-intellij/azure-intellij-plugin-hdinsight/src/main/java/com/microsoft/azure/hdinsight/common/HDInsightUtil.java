@@ -8,6 +8,7 @@ package com.microsoft.azure.hdinsight.common;
 
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowManager;
 import com.microsoft.azure.hdinsight.serverexplore.HDInsightRootModuleImpl;
@@ -44,6 +45,9 @@ public class HDInsightUtil {
         DefaultLoader.getIdeHelper().setApplicationProperty(
                 com.microsoft.azure.hdinsight.common.CommonConst.ENABLE_HDINSIGHT_NEW_SDK, "true");
         HDInsightRootModuleImpl hdInsightRootModule = new HDInsightRootModuleImpl(azureModule);
+        if (azureModule.getProject() instanceof Project) {
+            Disposer.register((Project) azureModule.getProject(), hdInsightRootModule::dispose);
+        }
 
         azureModule.setHdInsightModule(hdInsightRootModule);
     }
@@ -5,6 +5,8 @@
 
 package com.microsoft.azure.hdinsight.spark.ui.filesystem;
 
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileListener;
 import com.microsoft.azure.hdinsight.common.AbfsUri;
@@ -16,10 +18,20 @@ import com.microsoft.azure.hdinsight.spark.common.ADLSGen2Deploy;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import rx.Observable;
+import rx.Subscription;
+import rx.exceptions.Exceptions;
+import rx.schedulers.Schedulers;
+import rx.subjects.PublishSubject;
+import rx.subjects.Subject;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 public class ADLSGen2FileSystem extends AzureStorageVirtualFileSystem {
     public static final String myProtocol = "abfs";
@@ -30,6 +42,13 @@ public class ADLSGen2FileSystem extends AzureStorageVirtualFileSystem {
     private AbfsUri rootPathUri;
     private ADLSGen2FSOperation op;
 
+    // Listings of the directories by their virtual files, the children are appended as the pages arrive
+    @NotNull
+    private final Map<VirtualFile, DirectoryListing> listings = new ConcurrentHashMap<>();
+
+    @NotNull
+    private final Subject<VirtualFile, VirtualFile> childrenLoaded = PublishSubject.<VirtualFile>create().toSerialized();
+
     public ADLSGen2FileSystem(@NotNull HttpObservable http, @NotNull AbfsUri rootPathUri) {
         this.http = http;
         this.op = new ADLSGen2FSOperation(this.http);
@@ -42,34 +61,93 @@ public class ADLSGen2FileSystem extends AzureStorageVirtualFileSystem {
         return myProtocol;
     }
 
+    /**
+     * List the children of the directory loaded so far. Large directories come in pages, which are loaded in
+     * background one after another, only the first one is waited for here, and the directory is notified by
+     * {@link #getChildrenLoaded()} once more children arrive.
+     */
     @NotNull
     public VirtualFile[] listFiles(AdlsGen2VirtualFile vf) {
-        List<AdlsGen2VirtualFile> childrenList = new ArrayList<>();
-        if (vf.isDirectory()) {
-            // sample fileSystemRootPath: https://accountName.dfs.core.windows.net/fileSystem/
-            String fileSystemRootPath = rootPathUri.resolve("/").getUrl().toString();
-            // sample directoryParam: sub/path/to
-            String directoryParam = vf.getAbfsUri().getDirectoryParam();
-            childrenList = this.op.list(fileSystemRootPath, directoryParam)
-                    // sample remoteFile.getName(): sub/path/to/SparkSubmission
-                    .map(remoteFile -> new AdlsGen2VirtualFile(
-                            (AbfsUri) AbfsUri.parse(fileSystemRootPath)
-                                    .resolveAsRoot(AzureStorageUri.encodeAndNormalizePath(remoteFile.getName())),
-                            remoteFile.isDirectory(),
-                            this))
-                    .doOnNext(file -> file.setParent(vf))
-                    .onErrorResumeNext(err -> {
-                                String errorMessage = "Failed to list folders and files with error " + err.getMessage() + ". ";
-                                if (err instanceof ForbiddenHttpErrorStatus) {
-                                    errorMessage += ADLSGen2Deploy.getForbiddenErrorHints(vf.toString());
-                                }
-                                return Observable.error(new IOException(errorMessage));
-                            }
-                    )
-                    .toList().toBlocking().lastOrDefault(new ArrayList<>());
+        if (!vf.isDirectory()) {
+            return VirtualFile.EMPTY_ARRAY;
+        }
+
+        final DirectoryListing listing = listings.computeIfAbsent(vf, this::startListing);
+        try {
+            listing.awaitFirstPage();
+        } catch (ProcessCanceledException ex) {
+            // e.g. the folder is collapsed before any page arrives
+            listing.subscription.unsubscribe();
+            listings.remove(vf, listing);
+            throw ex;
         }
 
-        return childrenList.toArray(new VirtualFile[0]);
+        if (listing.error != null) {
+            // list it again next time
+            listings.remove(vf, listing);
+            throw Exceptions.propagate(listing.error);
+        }
+
+        return listing.children.toArray(VirtualFile.EMPTY_ARRAY);
+    }
+
+    @NotNull
+    private DirectoryListing startListing(@NotNull AdlsGen2VirtualFile vf) {
+        // sample fileSystemRootPath: https://accountName.dfs.core.windows.net/fileSystem/
+        String fileSystemRootPath = rootPathUri.resolve("/").getUrl().toString();
+        // sample directoryParam: sub/path/to
+        String directoryParam = vf.getAbfsUri().getDirectoryParam();
+        final DirectoryListing listing = new DirectoryListing();
+        listing.subscription = this.op.listPages(fileSystemRootPath, directoryParam)
+                .subscribeOn(Schedulers.io())
+                .map(page -> page.stream()
+                        // sample remoteFile.getName(): sub/path/to/SparkSubmission
+                        .map(remoteFile -> {
+                            AdlsGen2VirtualFile file = new AdlsGen2VirtualFile(
+                                    (AbfsUri) AbfsUri.parse(fileSystemRootPath)
+                                            .resolveAsRoot(AzureStorageUri.encodeAndNormalizePath(remoteFile.getName())),
+                                    remoteFile.isDirectory(),
+                                    this);
+                            file.setParent(vf);
+                            return file;
+                        })
+                        .collect(Collectors.toList()))
+                .subscribe(
+                        children -> {
+                            listing.children.addAll(children);
+                            if (!listing.releaseFirstPage()) {
+                                childrenLoaded.onNext(vf);
+                            }
+                        },
+                        err -> {
+                            String errorMessage = "Failed to list folders and files with error " + err.getMessage() + ". ";
+                            if (err instanceof ForbiddenHttpErrorStatus) {
+                                errorMessage += ADLSGen2Deploy.getForbiddenErrorHints(vf.toString());
+                            }
+
+                            if (listing.children.isEmpty()) {
+                                listing.error = new IOException(errorMessage);
+                            } else {
+                                // keep the children listed by the pages before
+                                log().warn(errorMessage, err);
+                            }
+                            listing.releaseFirstPage();
+                        },
+                        listing::releaseFirstPage);
+
+        return listing;
+    }
+
+    @NotNull
+    @Override
+    public Observable<VirtualFile> getChildrenLoaded() {
+        return childrenLoaded;
+    }
+
+    @Override
+    public void cancelListings() {
+        listings.values().forEach(listing -> listing.subscription.unsubscribe());
+        listings.clear();
     }
 
     @Nullable
@@ -142,4 +220,36 @@ public class ADLSGen2FileSystem extends AzureStorageVirtualFileSystem {
     public boolean isReadOnly() {
         return false;
     }
+
+    private static class DirectoryListing {
+        private static final long CHECK_CANCELED_INTERVAL_MILLIS = 100;
+
+        @NotNull
+        private final List<VirtualFile> children = new CopyOnWriteArrayList<>();
+        @NotNull
+        private final CountDownLatch firstPage = new CountDownLatch(1);
+        private Subscription subscription;
+        @Nullable
+        private volatile IOException error;
+
+        /**
+         * @return whether the first page is waited for, false if it has been released already
+         */
+        private boolean releaseFirstPage() {
+            final boolean isWaited = firstPage.getCount() > 0;
+            firstPage.countDown();
+            return isWaited;
+        }
+
+        private void awaitFirstPage() {
+            try {
+                while (!firstPage.await(CHECK_CANCELED_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    ProgressManager.checkCanceled();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new ProcessCanceledException(ex);
+            }
+        }
+    }
 }
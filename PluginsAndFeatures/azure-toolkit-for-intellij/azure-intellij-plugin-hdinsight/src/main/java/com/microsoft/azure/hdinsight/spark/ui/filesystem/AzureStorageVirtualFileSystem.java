@@ -5,11 +5,25 @@
 
 package com.microsoft.azure.hdinsight.spark.ui.filesystem;
 
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileSystem;
 import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import rx.Observable;
 
 public abstract class AzureStorageVirtualFileSystem extends VirtualFileSystem implements ILogger {
     public enum VFSSupportStorageType {
         ADLSGen2
     }
+
+    /**
+     * @return the directories which get more children after they are listed, e.g. the remaining pages arrive
+     */
+    @NotNull
+    public abstract Observable<VirtualFile> getChildrenLoaded();
+
+    /**
+     * Stop loading the children of all directories
+     */
+    public abstract void cancelListings();
 }
@@ -9,21 +9,39 @@ import com.intellij.openapi.fileChooser.FileChooserDescriptor;
 import com.intellij.openapi.fileChooser.ex.FileChooserDialogImpl;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.microsoft.azure.toolkit.lib.common.task.AzureTask;
+import com.microsoft.azure.toolkit.lib.common.task.AzureTaskManager;
 import com.microsoft.azuretools.telemetry.TelemetryConstants;
 import com.microsoft.azuretools.telemetrywrapper.EventType;
 import com.microsoft.azuretools.telemetrywrapper.EventUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import rx.Subscription;
 
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
 
 public class StorageChooserDialogImpl extends FileChooserDialogImpl {
     private FileChooserDescriptor myChooserDescriptor;
     private VirtualFile[] myChosenFiles = VirtualFile.EMPTY_ARRAY;
+    private final List<Subscription> myChildrenLoadedSubscriptions = new ArrayList<>();
 
     public StorageChooserDialogImpl(@NotNull FileChooserDescriptor descriptor, @NotNull Component parent, @Nullable Project project) {
         super(descriptor, parent, project);
         this.myChooserDescriptor = descriptor;
+
+        // Show the children of large directories as their pages arrive
+        descriptor.getRoots().stream()
+                .map(VirtualFile::getFileSystem)
+                .filter(AzureStorageVirtualFileSystem.class::isInstance)
+                .distinct()
+                .forEach(fs -> myChildrenLoadedSubscriptions.add(((AzureStorageVirtualFileSystem) fs).getChildrenLoaded()
+                        .subscribe(ignored -> AzureTaskManager.getInstance().runLater(() -> {
+                            if (!isDisposed()) {
+                                myFileSystemTree.updateTree();
+                            }
+                        }, AzureTask.Modality.ANY))));
     }
 
     @Override
@@ -56,6 +74,18 @@ public class StorageChooserDialogImpl extends FileChooserDialogImpl {
         return myChosenFiles;
     }
 
+    @Override
+    protected void dispose() {
+        myChildrenLoadedSubscriptions.forEach(Subscription::unsubscribe);
+        // Stop loading the remaining pages nobody will see
+        myChooserDescriptor.getRoots().stream()
+                .map(VirtualFile::getFileSystem)
+                .filter(AzureStorageVirtualFileSystem.class::isInstance)
+                .distinct()
+                .forEach(fs -> ((AzureStorageVirtualFileSystem) fs).cancelListings());
+        super.dispose();
+    }
+
     private boolean isTextFieldActive() {
         return myPathTextField.getField().getRootPane() != null;
     }
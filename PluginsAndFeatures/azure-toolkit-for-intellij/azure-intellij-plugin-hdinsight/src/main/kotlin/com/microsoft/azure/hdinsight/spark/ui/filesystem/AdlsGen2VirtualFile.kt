@@ -47,16 +47,13 @@ open class AdlsGen2VirtualFile(val abfsUri: AbfsUri, private val myIsDirectory:
         this.parent = parent
     }
 
-    override fun getChildren(): Array<VirtualFile>? = myLazyChildren
+    // The children loaded so far, more are notified by the file system as the remaining pages arrive
+    override fun getChildren(): Array<VirtualFile>? = (myFileSystem as? ADLSGen2FileSystem)?.listFiles(this)
 
     override fun getUrl(): String {
         return abfsUri.url.toString()
     }
 
-    private val myLazyChildren: Array<VirtualFile>? by lazy {
-        (myFileSystem as? ADLSGen2FileSystem)?.listFiles(this)
-    }
-
     override fun toString(): String {
         return abfsUri.uri.toString()
     }
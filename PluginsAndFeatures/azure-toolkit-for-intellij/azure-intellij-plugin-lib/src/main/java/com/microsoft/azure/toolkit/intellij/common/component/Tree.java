@@ -84,6 +84,9 @@ public class Tree extends SimpleTree implements DataProvider {
         protected final Node<T> inner;
         protected final JTree tree;
         Boolean loaded = null; //null:not loading/loaded, false: loading: true: loaded
+        private int loadingGeneration = 0;
+        // children shown while loading, identified by identity as nodes are built again in each loading
+        private final Set<Node<?>> shownChildren = Collections.newSetFromMap(new IdentityHashMap<>());
 
         public TreeNode(@Nonnull Node<T> n, JTree tree) {
             super(n.data(), n.hasChildren());
@@ -163,20 +166,49 @@ public class Tree extends SimpleTree implements DataProvider {
                 return; // return if loading/loaded
             }
             this.loaded = false;
+            final int generation = ++this.loadingGeneration;
+            this.shownChildren.clear();
             final AzureTaskManager tm = AzureTaskManager.getInstance();
             tm.runOnPooledThread(() -> {
-                final List<Node<?>> children = this.inner.getChildren();
                 if (incremental.length > 0 && incremental[0]) {
+                    final List<Node<?>> children = this.inner.getChildren();
                     tm.runLater(() -> updateChildren(children));
                 } else {
-                    tm.runLater(() -> setChildren(children));
+                    // show children of each builder as soon as it's loaded
+                    final List<Node<?>> children = this.inner.getChildren(partial -> tm.runLater(() -> addPartialChildren(partial, generation)));
+                    tm.runLater(() -> setChildren(children, generation));
                 }
             });
         }
 
-        private synchronized void setChildren(List<Node<?>> children) {
-            this.removeAllChildren();
-            children.stream().map(c -> new TreeNode<>(c, this.tree)).forEach(this::add);
+        /**
+         * insert loaded children which are not shown yet before the loading node, {@code loaded} keeps the order of
+         * final children, so the relative order of shown children is stable.
+         */
+        private synchronized void addPartialChildren(List<Node<?>> loaded, int generation) {
+            if (generation != this.loadingGeneration || BooleanUtils.isNotFalse(this.loaded)) {
+                return; // outdated
+            }
+            boolean changed = false;
+            for (int i = 0; i < loaded.size(); i++) {
+                final Node<?> node = loaded.get(i);
+                if (this.shownChildren.add(node)) {
+                    this.insert(new TreeNode<>(node, this.tree), Math.min(i, this.getChildCount()));
+                    changed = true;
+                }
+            }
+            if (changed) {
+                this.refreshChildrenView();
+            }
+        }
+
+        private synchronized void setChildren(List<Node<?>> children, int generation) {
+            if (generation != this.loadingGeneration) {
+                return; // outdated
+            }
+            this.addPartialChildren(children, generation);
+            this.removeLoadingNode();
+            this.shownChildren.clear();
             this.addLoadMoreNode();
             this.loaded = true;
             this.refreshChildrenView();
@@ -222,6 +254,7 @@ public class Tree extends SimpleTree implements DataProvider {
             synchronized (this.tree) {
                 this.removeAllChildren();
                 this.loaded = null;
+                this.loadingGeneration++; // discard children being loaded
                 if (this.getAllowsChildren()) {
                     this.add(new LoadingNode());
                     this.tree.collapsePath(new TreePath(this.getPath()));
@@ -21,10 +21,12 @@ import org.jetbrains.annotations.NotNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.logging.Level;
@@ -54,14 +56,26 @@ public interface ConnectionManager extends PersistentStateComponent<Element> {
 
     void addConnection(Connection<?, ?> connection);
 
+    /**
+     * add connections at once, existing connections equal to the new ones are replaced.
+     */
+    void addConnections(Collection<? extends Connection<?, ?>> connections);
+
     void removeConnection(String resourceId, String consumerId);
 
+    /**
+     * remove connections at once.
+     */
+    void removeConnections(Collection<? extends Connection<?, ?>> connections);
+
     List<Connection<?, ?>> getConnections();
 
     List<Connection<?, ?>> getConnectionsByResourceId(String id);
 
     List<Connection<?, ?>> getConnectionsByConsumerId(String id);
 
+    List<Connection<?, ?>> getConnectionsByDefinition(ConnectionDefinition<?, ?> definition);
+
     @EqualsAndHashCode.Include
     static String getName(ConnectionDefinition<?, ?> definition) {
         return getName(definition.getResourceDefinition(), definition.getConsumerDefinition());
@@ -79,7 +93,8 @@ public interface ConnectionManager extends PersistentStateComponent<Element> {
         private static final String ELEMENT_NAME_CONNECTIONS = "connections";
         private static final String ELEMENT_NAME_CONNECTION = "connection";
         private static final String FIELD_TYPE = "type";
-        private final Set<Connection<?, ?>> connections = new LinkedHashSet<>();
+        // readers always see a consistent snapshot without locking, writers replace it as a whole (copy on write).
+        private volatile Snapshot snapshot = Snapshot.EMPTY;
         private static Map<String, ConnectionDefinition<?, ?>> definitions = null;
 
         public synchronized static Map<String, ConnectionDefinition<?, ?>> getDefinitions() {
@@ -91,37 +106,66 @@ public interface ConnectionManager extends PersistentStateComponent<Element> {
 
         @Override
         @AzureOperation(name = "user/connector.add_connection")
-        public synchronized void addConnection(Connection<?, ?> connection) {
-            connections.removeIf(c -> Objects.equals(c, connection)); // always replace the old with the new one.
-            connections.add(connection);
+        public void addConnection(Connection<?, ?> connection) {
+            this.addConnections(Collections.singletonList(connection));
+        }
+
+        @Override
+        public synchronized void addConnections(Collection<? extends Connection<?, ?>> connections) {
+            final Set<Connection<?, ?>> updated = new LinkedHashSet<>(this.snapshot.connections);
+            for (final Connection<?, ?> connection : connections) {
+                updated.remove(connection); // always replace the old with the new one.
+                updated.add(connection);
+            }
+            this.snapshot = new Snapshot(updated);
         }
 
         @Override
         @AzureOperation(name = "user/connector.remove_connection")
         public synchronized void removeConnection(String resourceId, String consumerId) {
-            connections.removeIf(c -> StringUtils.equals(resourceId, c.getResource().getId()) && StringUtils.equals(consumerId, c.getConsumer().getId()));
+            final List<Connection<?, ?>> toRemove = this.snapshot.byResourceId.getOrDefault(resourceId, Collections.emptyList()).stream()
+                .filter(c -> StringUtils.equals(consumerId, c.getConsumer().getId()))
+                .collect(Collectors.toList());
+            this.removeConnections(toRemove);
+        }
+
+        @Override
+        public synchronized void removeConnections(Collection<? extends Connection<?, ?>> connections) {
+            if (connections.isEmpty()) {
+                return;
+            }
+            final Set<Connection<?, ?>> updated = new LinkedHashSet<>(this.snapshot.connections);
+            if (updated.removeAll(connections)) {
+                this.snapshot = new Snapshot(updated);
+            }
         }
 
         @Override
         public List<Connection<?, ?>> getConnections() {
-            return new ArrayList<>(connections);
+            return new ArrayList<>(this.snapshot.connections);
         }
 
         @Override
         public List<Connection<?, ?>> getConnectionsByResourceId(String id) {
-            return connections.stream().filter(e -> StringUtils.equals(id, e.getResource().getId())).collect(Collectors.toList());
+            return new ArrayList<>(this.snapshot.byResourceId.getOrDefault(id, Collections.emptyList()));
         }
 
         @Override
         public List<Connection<?, ?>> getConnectionsByConsumerId(String id) {
-            return connections.stream().filter(e -> StringUtils.equals(id, e.getConsumer().getId())).collect(Collectors.toList());
+            return new ArrayList<>(this.snapshot.byConsumerId.getOrDefault(id, Collections.emptyList()));
+        }
+
+        @Override
+        public List<Connection<?, ?>> getConnectionsByDefinition(ConnectionDefinition<?, ?> definition) {
+            final String name = ConnectionManager.getName(definition);
+            return new ArrayList<>(this.snapshot.byDefinition.getOrDefault(name, Collections.emptyList()));
         }
 
         @Override
         @ExceptionNotification
         public Element getState() {
             final Element connectionsEle = new Element(ELEMENT_NAME_CONNECTIONS);
-            for (final Connection<?, ?> connection : this.connections) {
+            for (final Connection<?, ?> connection : this.snapshot.connections) {
                 final Element connectionEle = new Element(ELEMENT_NAME_CONNECTION);
                 connectionEle.setAttribute(FIELD_TYPE, ConnectionManager.getName(connection.getDefinition()));
                 connection.write(connectionEle);
@@ -134,15 +178,37 @@ public interface ConnectionManager extends PersistentStateComponent<Element> {
         @ExceptionNotification
         @AzureOperation(name = "platform/connector.load_resource_connections")
         public void loadState(@NotNull Element connectionsEle) {
+            final List<Connection<?, ?>> loaded = new ArrayList<>();
             for (final Element connectionEle : connectionsEle.getChildren()) {
                 final String name = connectionEle.getAttributeValue(FIELD_TYPE);
                 final ConnectionDefinition<?, ?> definition = ConnectionManager.getDefinitionOrDefault(name);
                 try {
-                    Optional.ofNullable(definition).map(d -> d.read(connectionEle)).ifPresent(this::addConnection);
+                    Optional.ofNullable(definition).map(d -> d.read(connectionEle)).ifPresent(loaded::add);
                 } catch (final Exception e) {
                     log.log(Level.WARNING, String.format("error occurs when load a resource connection of type '%s'", name), e);
                 }
             }
+            this.addConnections(loaded);
+        }
+
+        /**
+         * immutable connections (in order of addition) indexed by resource id, consumer id and definition name.
+         */
+        private static final class Snapshot {
+            private static final Snapshot EMPTY = new Snapshot(Collections.emptyList());
+            private final List<Connection<?, ?>> connections;
+            private final Map<String, List<Connection<?, ?>>> byResourceId = new HashMap<>();
+            private final Map<String, List<Connection<?, ?>>> byConsumerId = new HashMap<>();
+            private final Map<String, List<Connection<?, ?>>> byDefinition = new HashMap<>();
+
+            private Snapshot(Collection<Connection<?, ?>> connections) {
+                this.connections = Collections.unmodifiableList(new ArrayList<>(connections));
+                for (final Connection<?, ?> connection : this.connections) {
+                    this.byResourceId.computeIfAbsent(connection.getResource().getId(), k -> new ArrayList<>()).add(connection);
+                    this.byConsumerId.computeIfAbsent(connection.getConsumer().getId(), k -> new ArrayList<>()).add(connection);
+                    this.byDefinition.computeIfAbsent(ConnectionManager.getName(connection.getDefinition()), k -> new ArrayList<>()).add(connection);
+                }
+            }
         }
     }
 }
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.connector;
+
+import com.intellij.openapi.project.Project;
+import com.microsoft.azure.toolkit.intellij.common.AzureFormJPanel;
+import org.jdom.Element;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class ConnectionManagerTest {
+    private ConnectionDefinition<String, String> storage;
+    private ConnectionDefinition<String, String> keyvault;
+    private ConnectionManager.Impl manager;
+
+    @Before
+    public void setUp() {
+        final ResourceDefinition<String> module = new SimpleDefinition("Module");
+        storage = new ConnectionDefinition<>(new SimpleDefinition("Storage"), module);
+        keyvault = new ConnectionDefinition<>(new SimpleDefinition("KeyVault"), module);
+        manager = new ConnectionManager.Impl();
+    }
+
+    @Test
+    public void lookupsByResourceConsumerAndDefinition() {
+        final Connection<String, String> c1 = connect(storage, "account1", "moduleA");
+        final Connection<String, String> c2 = connect(storage, "account1", "moduleB");
+        final Connection<String, String> c3 = connect(keyvault, "vault1", "moduleA");
+        manager.addConnections(Arrays.asList(c1, c2, c3));
+
+        Assert.assertEquals(Arrays.asList(c1, c2, c3), manager.getConnections());
+        Assert.assertEquals(Arrays.asList(c1, c2), manager.getConnectionsByResourceId("account1"));
+        Assert.assertEquals(Arrays.asList(c1, c3), manager.getConnectionsByConsumerId("moduleA"));
+        Assert.assertEquals(Collections.singletonList(c3), manager.getConnectionsByDefinition(keyvault));
+        Assert.assertEquals(Collections.emptyList(), manager.getConnectionsByResourceId("unknown"));
+    }
+
+    @Test
+    public void addingEqualConnectionReplacesTheOldOne() {
+        final Connection<String, String> c1 = connect(storage, "account1", "moduleA");
+        final Connection<String, String> c2 = connect(storage, "account2", "moduleA");
+        manager.addConnections(Arrays.asList(c1, c2));
+
+        final Connection<String, String> replaced = new Connection<>(c1.getResource(), c1.getConsumer(), storage);
+        replaced.setEnvPrefix("NEW_");
+        manager.addConnections(Collections.singletonList(replaced));
+
+        // the new one is appended as before, and the index refers to it rather than the old one
+        Assert.assertEquals(Arrays.asList(c2, replaced), manager.getConnections());
+        Assert.assertSame(replaced, manager.getConnectionsByResourceId("account1").get(0));
+    }
+
+    @Test
+    public void removeConnectionsUpdatesIndexes() {
+        final Connection<String, String> c1 = connect(storage, "account1", "moduleA");
+        final Connection<String, String> c2 = connect(keyvault, "vault1", "moduleA");
+        manager.addConnections(Arrays.asList(c1, c2));
+
+        manager.removeConnections(Collections.singletonList(c1));
+
+        Assert.assertEquals(Collections.singletonList(c2), manager.getConnections());
+        Assert.assertEquals(Collections.emptyList(), manager.getConnectionsByResourceId("account1"));
+        Assert.assertEquals(Collections.singletonList(c2), manager.getConnectionsByConsumerId("moduleA"));
+        Assert.assertEquals(Collections.emptyList(), manager.getConnectionsByDefinition(storage));
+    }
+
+    @Test
+    public void returnedListsAreDetachedFromSnapshot() {
+        manager.addConnections(Collections.singletonList(connect(storage, "account1", "moduleA")));
+
+        manager.getConnectionsByResourceId("account1").clear();
+        manager.getConnections().clear();
+
+        Assert.assertEquals(1, manager.getConnectionsByResourceId("account1").size());
+        Assert.assertEquals(1, manager.getConnections().size());
+    }
+
+    @Test
+    public void readersSeeConsistentSnapshotsWhileWritersUpdate() throws Exception {
+        final int writers = 4;
+        final int readers = 4;
+        final int connectionsPerWriter = 500;
+        final ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch written = new CountDownLatch(writers);
+        final List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int w = 0; w < writers; w++) {
+                final int writer = w;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < connectionsPerWriter; i++) {
+                        final Connection<String, String> kept = connect(storage, "account-" + writer + "-" + i, "module-" + writer);
+                        final Connection<String, String> removed = connect(keyvault, "vault-" + writer + "-" + i, "module-" + writer);
+                        manager.addConnections(Arrays.asList(kept, removed));
+                        manager.removeConnections(Collections.singletonList(removed));
+                    }
+                    written.countDown();
+                    return null;
+                }));
+            }
+            for (int r = 0; r < readers; r++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    while (written.getCount() > 0) {
+                        for (final Connection<?, ?> connection : manager.getConnections()) {
+                            final String resourceId = connection.getResource().getId();
+                            // indexes never return connections of other keys, whatever the writers are doing
+                            Assert.assertTrue(manager.getConnectionsByResourceId(resourceId).stream()
+                                .allMatch(c -> resourceId.equals(c.getResource().getId())));
+                        }
+                        Assert.assertTrue(manager.getConnectionsByDefinition(keyvault).stream()
+                            .allMatch(c -> keyvault.equals(c.getDefinition())));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (final Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(writers * connectionsPerWriter, manager.getConnections().size());
+        Assert.assertEquals(writers * connectionsPerWriter, manager.getConnectionsByDefinition(storage).size());
+        Assert.assertEquals(Collections.emptyList(), manager.getConnectionsByDefinition(keyvault));
+        IntStream.range(0, writers).forEach(w ->
+            Assert.assertEquals(connectionsPerWriter, manager.getConnectionsByConsumerId("module-" + w).size()));
+    }
+
+    @Test
+    public void lookupsDoNotScanAllConnections() {
+        final int count = 20_000;
+        final List<Connection<?, ?>> connections = IntStream.range(0, count)
+            .mapToObj(i -> connect(storage, "account-" + i, "module-" + (i % 100)))
+            .collect(Collectors.toList());
+        final long loadStart = System.nanoTime();
+        manager.addConnections(connections);
+        final long loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStart);
+
+        final long lookupStart = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(1, manager.getConnectionsByResourceId("account-" + i).size());
+        }
+        final long lookupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lookupStart);
+
+        // scanning all connections for each lookup would take count * count = 4e8 comparisons
+        Assert.assertTrue("loading " + count + " connections took " + loadMillis + "ms", loadMillis < 5000);
+        Assert.assertTrue(count + " lookups took " + lookupMillis + "ms", lookupMillis < 5000);
+    }
+
+    private static Connection<String, String> connect(ConnectionDefinition<String, String> definition, String resourceId, String consumerId) {
+        return new Connection<>(new SimpleResource(definition.getResourceDefinition(), resourceId),
+            new SimpleResource(definition.getConsumerDefinition(), consumerId), definition);
+    }
+
+    private static class SimpleDefinition implements ResourceDefinition<String> {
+        private final String name;
+
+        private SimpleDefinition(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return this.name;
+        }
+
+        @Override
+        public Resource<String> define(String resource) {
+            return new SimpleResource(this, resource);
+        }
+
+        @Override
+        public AzureFormJPanel<Resource<String>> getResourcePanel(Project project) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean write(@Nonnull Element element, @Nonnull Resource<String> resource) {
+            return false;
+        }
+
+        @Override
+        public Resource<String> read(@Nonnull Element element) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class SimpleResource implements Resource<String> {
+        private final ResourceDefinition<String> definition;
+        private final String id;
+
+        private SimpleResource(ResourceDefinition<String> definition, String id) {
+            this.definition = definition;
+            this.id = id;
+        }
+
+        @Nonnull
+        @Override
+        public ResourceDefinition<String> getDefinition() {
+            return this.definition;
+        }
+
+        @Override
+        public String getData() {
+            return this.id;
+        }
+
+        @Override
+        public String getId() {
+            return this.id;
+        }
+
+        @Override
+        public String getDataId() {
+            return this.id;
+        }
+
+        @Override
+        public String getName() {
+            return this.id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SimpleResource && ((SimpleResource) o).id.equals(this.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.id.hashCode();
+        }
+    }
+}
@@ -29,13 +29,13 @@ import com.microsoft.azure.toolkit.intellij.azuresdk.model.AzureSdkFeatureEntity
 import com.microsoft.azure.toolkit.intellij.azuresdk.model.AzureSdkServiceEntity;
 import com.microsoft.azure.toolkit.intellij.azuresdk.service.AzureSdkCategoryService;
 import com.microsoft.azure.toolkit.intellij.azuresdk.service.AzureSdkLibraryService;
+import com.microsoft.azure.toolkit.intellij.azuresdk.service.AzureSdkSearchIndex;
 import com.microsoft.azure.toolkit.intellij.common.TextDocumentListenerAdapter;
 import com.microsoft.azure.toolkit.lib.common.event.AzureEventBus;
 import com.microsoft.azure.toolkit.lib.common.operation.AzureOperation;
 import com.microsoft.azure.toolkit.lib.common.operation.OperationContext;
 import com.microsoft.azure.toolkit.lib.common.task.AzureTask;
 import com.microsoft.azure.toolkit.lib.common.task.AzureTaskManager;
-import com.microsoft.azure.toolkit.lib.common.utils.TailingDebouncer;
 import lombok.Getter;
 import lombok.Setter;
 import org.apache.commons.collections4.CollectionUtils;
@@ -53,8 +53,10 @@ import javax.swing.tree.TreeNode;
 import javax.swing.tree.TreePath;
 import javax.swing.tree.TreeSelectionModel;
 import java.io.IOException;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -63,8 +65,6 @@ import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class AzureSdkTreePanel implements TextDocumentListenerAdapter {
-    public static final int TIMEOUT = 1000;
-    private final TailingDebouncer filter;
     @Setter
     private Consumer<AzureSdkFeatureEntity> onSdkFeatureNodeSelected;
     @Getter
@@ -77,10 +77,14 @@ public class AzureSdkTreePanel implements TextDocumentListenerAdapter {
     private List<? extends AzureSdkServiceEntity> services;
     private Map<String, List<AzureSdkCategoryEntity>> categories;
     private TreePath lastNodePath;
+    // all nodes of the tree and their children in default order, nodes are shown or hidden by filter
+    private Map<DefaultMutableTreeNode, List<DefaultMutableTreeNode>> structure = Collections.emptyMap();
+    // leaf (feature) nodes indexed by their category, service, feature, artifacts and description
+    @Nullable
+    private AzureSdkSearchIndex<DefaultMutableTreeNode> index;
 
     public AzureSdkTreePanel() {
         this.initEventListeners();
-        this.filter = new TailingDebouncer(() -> this.filter(this.searchBox.getText()), 300);
     }
 
     private void initEventListeners() {
@@ -130,12 +134,27 @@ public class AzureSdkTreePanel implements TextDocumentListenerAdapter {
 
     @Override
     public void onDocumentChanged() {
-        this.filter.debounce();
+        // searching the index is cheap enough to filter on each change
+        this.filter(this.searchBox.getText());
     }
 
     private void filter(final String text) {
-        final String[] filters = Arrays.stream(text.split("\\s+")).filter(StringUtils::isNoneBlank).map(String::toLowerCase).toArray(String[]::new);
-        this.loadData(this.categories, this.services, filters);
+        if (Objects.isNull(this.index)) {
+            // not loaded yet, will be filtered once loaded
+            return;
+        }
+        final Map<DefaultMutableTreeNode, Integer> scores = new HashMap<>();
+        this.index.search(text).forEach(hit -> scores.put(hit.getDocument(), hit.getScore()));
+        final DefaultMutableTreeNode root = (DefaultMutableTreeNode) this.model.getRoot();
+        this.score(root, scores);
+        this.updateChildren(root, scores);
+        if (StringUtils.isNotBlank(text)) {
+            TreeUtil.expandAll(this.tree);
+        }
+        // keep the selected feature if it's still shown, so that its details are not reloaded by each query
+        if (Objects.isNull(this.tree.getSelectionPath())) {
+            TreeUtil.promiseSelectFirstLeaf(this.tree);
+        }
     }
 
     public synchronized void refresh(boolean... force) {
@@ -146,7 +165,16 @@ public class AzureSdkTreePanel implements TextDocumentListenerAdapter {
             this.services = AzureSdkLibraryService.loadAzureSdkServices();
             this.categories = AzureSdkCategoryService.loadAzureSDKCategories();
             this.fillDescriptionFromCategoryIfMissing(this.categories, this.services);
-            this.loadData(this.categories, this.services, this.searchBox.getText());
+            final DefaultMutableTreeNode root = (DefaultMutableTreeNode) this.model.getRoot();
+            final Map<DefaultMutableTreeNode, List<DefaultMutableTreeNode>> structure = new HashMap<>();
+            final AzureSdkSearchIndex<DefaultMutableTreeNode> index = this.buildTree(root, this.categories, this.services, structure);
+            AzureTaskManager.getInstance().runAndWait(() -> {
+                root.removeAllChildren();
+                this.model.reload();
+                this.structure = structure;
+                this.index = index;
+                this.filter(this.searchBox.getText());
+            });
             Optional.ofNullable(this.lastNodePath).ifPresent(p -> AzureTaskManager.getInstance().runAndWait(() -> TreeUtil.selectPath(this.tree, p)));
             AzureEventBus.emit("reference.refresh");
         } catch (final IOException e) {
@@ -167,12 +195,17 @@ public class AzureSdkTreePanel implements TextDocumentListenerAdapter {
             })));
     }
 
-    private void loadData(final Map<String, List<AzureSdkCategoryEntity>> categoryToServiceMap, final List<? extends AzureSdkServiceEntity> services, String... filters) {
-        final DefaultMutableTreeNode root = (DefaultMutableTreeNode) this.model.getRoot();
-        root.removeAllChildren();
+    /**
+     * build all nodes of the tree (without attaching them to the root) into {@code structure} and index the leaves.
+     */
+    private AzureSdkSearchIndex<DefaultMutableTreeNode> buildTree(final DefaultMutableTreeNode root, final Map<String, List<AzureSdkCategoryEntity>> categoryToServiceMap,
+                                                                  final List<? extends AzureSdkServiceEntity> services,
+                                                                  final Map<DefaultMutableTreeNode, List<DefaultMutableTreeNode>> structure) {
+        final AzureSdkSearchIndex.Builder<DefaultMutableTreeNode> index = AzureSdkSearchIndex.builder();
         final Map<String, AzureSdkServiceEntity> serviceMap = services.stream().collect(Collectors.toMap(e -> getServiceKeyByName(e.getName()), e -> e));
         final List<String> categories = categoryToServiceMap.keySet().stream().filter(StringUtils::isNotBlank).sorted(
                 (s1, s2) -> StringUtils.contains(s1, "Others") ? 1 : StringUtils.contains(s2, "Others") ? -1 : s1.compareTo(s2)).collect(Collectors.toList());
+        final List<DefaultMutableTreeNode> categoryNodes = new ArrayList<>();
         for (final String category : categories) {
             // no feature found for current category
             if (CollectionUtils.isEmpty(categoryToServiceMap.get(category)) ||
@@ -181,63 +214,104 @@ public class AzureSdkTreePanel implements TextDocumentListenerAdapter {
                 continue;
             }
             // add features for current category
-            final MutableTreeNode categoryNode = new DefaultMutableTreeNode(category);
-            final boolean categoryMatched = this.isMatchedFilters(category, filters);
+            final DefaultMutableTreeNode categoryNode = new DefaultMutableTreeNode(category);
+            final List<DefaultMutableTreeNode> serviceNodes = new ArrayList<>();
             categoryToServiceMap.get(category)
                 .stream().sorted(Comparator.comparing(AzureSdkCategoryEntity::getServiceName))
                 .forEach(categoryService -> {
                     final AzureSdkServiceEntity service = serviceMap.get(getServiceKeyByName(categoryService.getServiceName()));
-                    AzureTaskManager.getInstance().runAndWait(() -> this.loadServiceData(service, categoryService, categoryNode, filters));
+                    this.buildServiceNodes(service, category, serviceNodes, structure, index);
                 });
-            if (ArrayUtils.isEmpty(filters) || categoryMatched || categoryNode.getChildCount() > 0) {
-                this.model.insertNodeInto(categoryNode, root, root.getChildCount());
-            }
-        }
-        this.model.reload();
-        if (ArrayUtils.isNotEmpty(filters)) {
-            TreeUtil.expandAll(this.tree);
-        }
-        try {
-            TreeUtil.promiseSelectFirstLeaf(this.tree).blockingGet(TIMEOUT);
-        } catch (Throwable e) {
-            // swallow exception during select first leaf
+            structure.put(categoryNode, serviceNodes);
+            categoryNodes.add(categoryNode);
         }
+        structure.put(root, categoryNodes);
+        return index.build();
     }
 
     private String getServiceKeyByName(final String name) {
         return StringUtils.lowerCase(StringUtils.trim(name));
     }
 
-    private void loadServiceData(AzureSdkServiceEntity service, AzureSdkCategoryEntity categoryService, MutableTreeNode categoryNode, String... filters) {
+    private void buildServiceNodes(AzureSdkServiceEntity service, String category, List<DefaultMutableTreeNode> serviceNodes,
+                                   Map<DefaultMutableTreeNode, List<DefaultMutableTreeNode>> structure, AzureSdkSearchIndex.Builder<DefaultMutableTreeNode> index) {
         if (Objects.isNull(service) || CollectionUtils.isEmpty(service.getContent())) {
             return;
         }
-        final boolean categoryMatched = this.isMatchedFilters(categoryService.getCategory(), filters);
         if (CollectionUtils.size(service.getContent()) == 1 && StringUtils.equals(service.getName(), service.getContent().get(0).getName())) {
             final AzureSdkFeatureEntity feature = service.getContent().get(0);
-            final boolean featureMatched = this.isMatchedFilters(feature.getName(), filters);
-            if (ArrayUtils.isEmpty(filters) || categoryMatched || featureMatched) {
-                final DefaultMutableTreeNode featureNode = new DefaultMutableTreeNode(feature);
-                this.model.insertNodeInto(featureNode, categoryNode, categoryNode.getChildCount());
-            }
+            serviceNodes.add(this.buildFeatureNode(feature, service, category, index));
             return;
         }
-        final MutableTreeNode serviceNode = new DefaultMutableTreeNode(service);
-        final boolean serviceMatched = this.isMatchedFilters(service.getName(), filters);
+        final DefaultMutableTreeNode serviceNode = new DefaultMutableTreeNode(service);
+        final List<DefaultMutableTreeNode> featureNodes = new ArrayList<>();
         for (final AzureSdkFeatureEntity feature : service.getContent()) {
-            final boolean featureMatched = this.isMatchedFilters(feature.getName(), filters);
-            if (ArrayUtils.isEmpty(filters) || categoryMatched || serviceMatched || featureMatched) {
-                final DefaultMutableTreeNode featureNode = new DefaultMutableTreeNode(feature);
-                this.model.insertNodeInto(featureNode, serviceNode, serviceNode.getChildCount());
-            }
+            featureNodes.add(this.buildFeatureNode(feature, service, category, index));
+        }
+        structure.put(serviceNode, featureNodes);
+        serviceNodes.add(serviceNode);
+    }
+
+    private DefaultMutableTreeNode buildFeatureNode(AzureSdkFeatureEntity feature, AzureSdkServiceEntity service, String category,
+                                                    AzureSdkSearchIndex.Builder<DefaultMutableTreeNode> index) {
+        final DefaultMutableTreeNode featureNode = new DefaultMutableTreeNode(feature);
+        final AzureSdkSearchIndex.Builder<DefaultMutableTreeNode>.Document document = index.add(featureNode)
+            .field(AzureSdkSearchIndex.Field.CATEGORY, category)
+            .field(AzureSdkSearchIndex.Field.SERVICE, service.getName())
+            .field(AzureSdkSearchIndex.Field.FEATURE, feature.getName())
+            .field(AzureSdkSearchIndex.Field.DESCRIPTION, feature.getDescription());
+        feature.getArtifacts().forEach(artifact -> document.field(AzureSdkSearchIndex.Field.ARTIFACT, artifact.getArtifactId()));
+        return featureNode;
+    }
+
+    /**
+     * score of a node is the best score of the matched features under it, nodes without matched feature are not scored.
+     */
+    private int score(DefaultMutableTreeNode node, Map<DefaultMutableTreeNode, Integer> scores) {
+        final List<DefaultMutableTreeNode> children = this.structure.get(node);
+        if (Objects.isNull(children)) {
+            return scores.getOrDefault(node, -1);
         }
-        if (ArrayUtils.isEmpty(filters) || categoryMatched || serviceMatched || serviceNode.getChildCount() > 0) {
-            this.model.insertNodeInto(serviceNode, categoryNode, categoryNode.getChildCount());
+        int best = -1;
+        for (final DefaultMutableTreeNode child : children) {
+            best = Math.max(best, this.score(child, scores));
         }
+        if (best >= 0) {
+            scores.put(node, best);
+        }
+        return best;
     }
 
-    private boolean isMatchedFilters(String content, String... filters) {
-        return Arrays.stream(filters).allMatch(f -> StringUtils.containsIgnoreCase(content, f));
+    /**
+     * show the scored children of {@code parent} ordered by score, only the nodes changed are removed/inserted so
+     * that the tree is not rebuilt on each query.
+     */
+    private void updateChildren(DefaultMutableTreeNode parent, Map<DefaultMutableTreeNode, Integer> scores) {
+        final List<DefaultMutableTreeNode> children = this.structure.get(parent);
+        if (Objects.isNull(children)) {
+            return;
+        }
+        // stable sort keeps the default order of nodes with the same score
+        final List<DefaultMutableTreeNode> visible = children.stream().filter(scores::containsKey)
+            .sorted(Comparator.comparingInt((DefaultMutableTreeNode n) -> scores.get(n)).reversed())
+            .collect(Collectors.toList());
+        for (int i = parent.getChildCount() - 1; i >= 0; i--) {
+            final TreeNode child = parent.getChildAt(i);
+            if (!scores.containsKey(child)) {
+                this.model.removeNodeFromParent((MutableTreeNode) child);
+            }
+        }
+        for (int i = 0; i < visible.size(); i++) {
+            final DefaultMutableTreeNode node = visible.get(i);
+            if (i < parent.getChildCount() && parent.getChildAt(i) == node) {
+                continue;
+            }
+            if (node.getParent() == parent) {
+                this.model.removeNodeFromParent(node);
+            }
+            this.model.insertNodeInto(node, parent, i);
+        }
+        visible.forEach(node -> this.updateChildren(node, scores));
     }
 
     private ActionToolbarImpl initToolbar() {
@@ -29,14 +29,18 @@ import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
@@ -64,19 +68,17 @@ public class AzureSdkLibraryService {
     }
 
     private static void addClientLibs(Map<String, AzureSdkServiceEntity> services) {
+        // features of each service are indexed once, instead of being scanned for every client lib
+        final Map<AzureSdkServiceEntity, FeatureLookup> lookups = new IdentityHashMap<>();
         getClientLibs().stream()
                 .sorted(Comparator.comparing(AzureJavaSdkEntity::getServiceName))
                 .forEachOrdered(raw -> {
                     final AzureSdkServiceEntity service = getOrCreateService(services, raw);
-                    for (final AzureSdkFeatureEntity feature : service.getContent()) {
-                        final boolean specified = Optional.ofNullable(feature.getClientSource())
-                                .filter(s -> s.getGroupId().equals(raw.getGroupId()) && s.getArtifactId().equals(raw.getArtifactId()))
-                                .isPresent();
-                        final boolean sameFeatureName = trim(feature.getName()).equals(trim(raw.getDisplayName()));
-                        if (specified || sameFeatureName) {
-                            feature.getArtifacts().add(toSdkArtifactEntity(raw));
-                            return;
-                        }
+                    final FeatureLookup lookup = lookups.computeIfAbsent(service, s -> new FeatureLookup(s.getContent()));
+                    final AzureSdkFeatureEntity matched = lookup.find(raw);
+                    if (Objects.nonNull(matched)) {
+                        matched.getArtifacts().add(toSdkArtifactEntity(raw));
+                        return;
                     }
                     // if no mapping feature found.
                     final AzureSdkFeatureEntity feature = AzureSdkFeatureEntity.builder()
@@ -84,7 +86,7 @@ public class AzureSdkLibraryService {
                             .msdocs(raw.getMsdocsUrl())
                             .artifacts(new ArrayList<>(Collections.singletonList(toSdkArtifactEntity(raw))))
                             .build();
-                    service.getContent().add(feature);
+                    lookup.add(feature);
                 });
     }
 
@@ -115,6 +117,47 @@ public class AzureSdkLibraryService {
         return name.toLowerCase().replaceAll("\\W+", "");
     }
 
+    /**
+     * features of a service indexed by their client source and trimmed name. the first feature (in order of the
+     * service content) matching either of them is the mapping feature of a client lib.
+     */
+    private static class FeatureLookup {
+        private final List<AzureSdkFeatureEntity> features;
+        private final Map<String, Integer> bySource = new HashMap<>();
+        private final Map<String, Integer> byName = new HashMap<>();
+
+        private FeatureLookup(@Nonnull List<AzureSdkFeatureEntity> features) {
+            this.features = features;
+            for (int i = 0; i < features.size(); i++) {
+                this.index(features.get(i), i);
+            }
+        }
+
+        private void add(@Nonnull AzureSdkFeatureEntity feature) {
+            this.features.add(feature);
+            this.index(feature, this.features.size() - 1);
+        }
+
+        @Nullable
+        private AzureSdkFeatureEntity find(@Nonnull AzureJavaSdkEntity raw) {
+            final Integer specified = this.bySource.get(raw.getGroupId() + ":" + raw.getArtifactId());
+            final Integer sameFeatureName = this.byName.get(trim(raw.getDisplayName()));
+            if (Objects.isNull(specified) && Objects.isNull(sameFeatureName)) {
+                return null;
+            }
+            final int index = Objects.isNull(specified) ? sameFeatureName :
+                    Objects.isNull(sameFeatureName) ? specified : Math.min(specified, sameFeatureName);
+            return this.features.get(index);
+        }
+
+        private void index(@Nonnull AzureSdkFeatureEntity feature, int index) {
+            Optional.ofNullable(feature.getClientSource())
+                    .filter(s -> Objects.nonNull(s.getGroupId()) && Objects.nonNull(s.getArtifactId()))
+                    .ifPresent(s -> this.bySource.putIfAbsent(s.getGroupId() + ":" + s.getArtifactId(), index));
+            this.byName.putIfAbsent(trim(feature.getName()), index);
+        }
+    }
+
     @Nonnull
     private static AzureSdkArtifactEntity toSdkArtifactEntity(@Nonnull AzureJavaSdkEntity entity) {
         final AzureSdkArtifactEntity artifact = new AzureSdkArtifactEntity();
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.azuresdk.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Inverted index for searching the Azure SDK reference book, built once after the metadata is loaded.
+ * Tokens of the indexed fields are kept sorted, so a query term is looked up as a prefix range by binary search.
+ * Suffixes of name tokens are indexed too, so that a term may hit the middle of a word, e.g. "bus" of "servicebus".
+ * A document matches if every term of the query hits any of its fields, and is ranked by the weights of the fields hit.
+ */
+public class AzureSdkSearchIndex<T> {
+    private static final int MIN_SUFFIX_LENGTH = 2;
+    private static final int EXACT_FACTOR = 4;
+    private static final int PREFIX_FACTOR = 2;
+    // terms this short hit a large share of the tokens, their scores are computed once and cached
+    private static final int MAX_CACHED_TERM_LENGTH = 1;
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Field {
+        FEATURE(16, true),
+        SERVICE(8, true),
+        CATEGORY(4, true),
+        ARTIFACT(4, true),
+        DESCRIPTION(1, false);
+
+        private final int weight;
+        /**
+         * whether the suffixes of tokens are indexed, so that the field can be matched in the middle of a word.
+         */
+        private final boolean partial;
+    }
+
+    private final List<T> documents;
+    private final String[] tokens;
+    // documents (ascending) of each token, and the weights of the fields in which they contain the token as a whole
+    // word or as a suffix of a word.
+    private final int[][] postings;
+    private final int[][] wholeWeights;
+    private final int[][] partialWeights;
+    private final Map<String, int[]> cachedTermScores = new ConcurrentHashMap<>();
+
+    private AzureSdkSearchIndex(@Nonnull List<T> documents, @Nonnull Map<String, Map<Integer, int[]>> index) {
+        this.documents = Collections.unmodifiableList(new ArrayList<>(documents));
+        this.tokens = index.keySet().toArray(new String[0]);
+        Arrays.sort(this.tokens);
+        this.postings = new int[this.tokens.length][];
+        this.wholeWeights = new int[this.tokens.length][];
+        this.partialWeights = new int[this.tokens.length][];
+        for (int i = 0; i < this.tokens.length; i++) {
+            final Map<Integer, int[]> docs = index.get(this.tokens[i]);
+            this.postings[i] = new int[docs.size()];
+            this.wholeWeights[i] = new int[docs.size()];
+            this.partialWeights[i] = new int[docs.size()];
+            int j = 0;
+            for (final Map.Entry<Integer, int[]> doc : docs.entrySet()) {
+                this.postings[i][j] = doc.getKey();
+                this.wholeWeights[i][j] = doc.getValue()[0];
+                this.partialWeights[i][j] = doc.getValue()[1];
+                j++;
+            }
+        }
+    }
+
+    @Nonnull
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    @Nonnull
+    public List<T> getDocuments() {
+        return this.documents;
+    }
+
+    /**
+     * @return the documents matching all terms of the query, the most relevant first. all documents in the indexed
+     * order if the query is blank.
+     */
+    @Nonnull
+    public List<Hit<T>> search(@Nullable String query) {
+        final List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return this.documents.stream().map(d -> new Hit<>(d, 0)).collect(Collectors.toList());
+        }
+        final int size = this.documents.size();
+        final int[] scores = new int[size];
+        final int[] matchedTerms = new int[size];
+        for (int t = 0; t < terms.size(); t++) {
+            final int[] termScores = this.getTermScores(terms.get(t));
+            boolean anyMatched = false;
+            for (int d = 0; d < size; d++) {
+                // only documents matched all the previous terms count
+                if (termScores[d] > 0 && matchedTerms[d] == t) {
+                    matchedTerms[d]++;
+                    scores[d] += termScores[d];
+                    anyMatched = true;
+                }
+            }
+            if (!anyMatched) {
+                return Collections.emptyList();
+            }
+        }
+        // sort by score (descending) then by indexed order in a primitive array, instead of sorting boxed hits
+        final long[] ranked = new long[size];
+        int count = 0;
+        for (int d = 0; d < size; d++) {
+            if (matchedTerms[d] == terms.size()) {
+                ranked[count++] = ((long) (Integer.MAX_VALUE - scores[d]) << 32) | d;
+            }
+        }
+        Arrays.sort(ranked, 0, count);
+        final List<Hit<T>> hits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int d = (int) ranked[i];
+            hits.add(new Hit<>(this.documents.get(d), scores[d]));
+        }
+        return hits;
+    }
+
+    /**
+     * @return the best score of the term in each document, 0 if not matched.
+     */
+    @Nonnull
+    private int[] getTermScores(@Nonnull String term) {
+        if (term.length() <= MAX_CACHED_TERM_LENGTH) {
+            return this.cachedTermScores.computeIfAbsent(term, this::computeTermScores);
+        }
+        return this.computeTermScores(term);
+    }
+
+    @Nonnull
+    private int[] computeTermScores(@Nonnull String term) {
+        final int[] termScores = new int[this.documents.size()];
+        for (int i = lowerBound(term); i < this.tokens.length && this.tokens[i].startsWith(term); i++) {
+            final int factor = this.tokens[i].length() == term.length() ? EXACT_FACTOR : PREFIX_FACTOR;
+            final int[] docs = this.postings[i];
+            for (int j = 0; j < docs.length; j++) {
+                final int score = Math.max(this.wholeWeights[i][j] * factor, this.partialWeights[i][j]);
+                termScores[docs[j]] = Math.max(termScores[docs[j]], score);
+            }
+        }
+        return termScores;
+    }
+
+    private int lowerBound(@Nonnull String term) {
+        final int index = Arrays.binarySearch(this.tokens, term);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    @Nonnull
+    private static List<String> tokenize(@Nullable String text) {
+        if (StringUtils.isBlank(text)) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(text.toLowerCase().split("[^\\p{Alnum}]+"))
+                .filter(StringUtils::isNotEmpty)
+                .collect(Collectors.toList());
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Hit<T> {
+        @Nonnull
+        private final T document;
+        private final int score;
+    }
+
+    public static class Builder<T> {
+        private final List<T> documents = new ArrayList<>();
+        // token -> document -> [weight as a whole word, weight as a suffix of a word]
+        private final Map<String, Map<Integer, int[]>> index = new HashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * add a document to the index, its fields are added through the returned {@link Document}.
+         */
+        @Nonnull
+        public Document add(@Nonnull T document) {
+            this.documents.add(document);
+            return new Document(this.documents.size() - 1);
+        }
+
+        @Nonnull
+        public AzureSdkSearchIndex<T> build() {
+            return new AzureSdkSearchIndex<>(this.documents, this.index);
+        }
+
+        private void put(@Nonnull String token, int doc, int slot, int weight) {
+            // documents are added in order, so the postings of each token are ascending
+            final int[] weights = this.index.computeIfAbsent(token, k -> new LinkedHashMap<>()).computeIfAbsent(doc, k -> new int[2]);
+            weights[slot] = Math.max(weights[slot], weight);
+        }
+
+        public class Document {
+            private final int id;
+
+            private Document(int id) {
+                this.id = id;
+            }
+
+            @Nonnull
+            public Document field(@Nonnull Field field, @Nullable String text) {
+                final List<String> words = tokenize(text);
+                words.forEach(word -> this.addWord(field, word, field.isPartial()));
+                if (field.isPartial() && words.size() > 1) {
+                    // so that "servicebus" matches "Service Bus", its suffixes are covered by the words already
+                    this.addWord(field, String.join("", words), false);
+                }
+                return this;
+            }
+
+            private void addWord(@Nonnull Field field, @Nonnull String word, boolean partial) {
+                put(word, this.id, 0, field.getWeight());
+                if (partial) {
+                    for (int i = 1; i <= word.length() - MIN_SUFFIX_LENGTH; i++) {
+                        put(word.substring(i), this.id, 1, field.getWeight());
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.intellij.azuresdk.service;
+
+import com.microsoft.azure.toolkit.intellij.azuresdk.service.AzureSdkSearchIndex.Field;
+import com.microsoft.azure.toolkit.intellij.azuresdk.service.AzureSdkSearchIndex.Hit;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class AzureSdkSearchIndexTest {
+    private AzureSdkSearchIndex<String> index;
+
+    @Before
+    public void setUp() {
+        final AzureSdkSearchIndex.Builder<String> builder = AzureSdkSearchIndex.builder();
+        builder.add("blob")
+            .field(Field.CATEGORY, "Storage")
+            .field(Field.SERVICE, "Storage")
+            .field(Field.FEATURE, "Storage Blob")
+            .field(Field.ARTIFACT, "azure-storage-blob")
+            .field(Field.DESCRIPTION, "Object storage");
+        builder.add("queue")
+            .field(Field.CATEGORY, "Storage")
+            .field(Field.SERVICE, "Storage")
+            .field(Field.FEATURE, "Storage Queue")
+            .field(Field.ARTIFACT, "azure-storage-queue")
+            .field(Field.DESCRIPTION, "Message queue");
+        builder.add("bus")
+            .field(Field.CATEGORY, "Messaging")
+            .field(Field.SERVICE, "Service Bus")
+            .field(Field.FEATURE, "Service Bus")
+            .field(Field.ARTIFACT, "azure-messaging-servicebus")
+            .field(Field.DESCRIPTION, "Reliable message broker");
+        builder.add("keys")
+            .field(Field.CATEGORY, "Security")
+            .field(Field.SERVICE, "Key Vault")
+            .field(Field.FEATURE, "Key Vault Keys")
+            .field(Field.ARTIFACT, "azure-security-keyvault-keys")
+            .field(Field.DESCRIPTION, null);
+        index = builder.build();
+    }
+
+    @Test
+    public void blankQueryReturnsAllDocumentsInIndexedOrder() {
+        Assert.assertEquals(Arrays.asList("blob", "queue", "bus", "keys"), search(null));
+        Assert.assertEquals(Arrays.asList("blob", "queue", "bus", "keys"), search("  "));
+        Assert.assertTrue(index.search("").stream().allMatch(hit -> hit.getScore() == 0));
+    }
+
+    @Test
+    public void termMatchesPrefixOfWordsIgnoringCase() {
+        Assert.assertEquals(Arrays.asList("blob", "queue"), search("STOR"));
+        Assert.assertEquals(Collections.singletonList("keys"), search("vau"));
+    }
+
+    @Test
+    public void termMatchesMiddleOfNameWords() {
+        Assert.assertEquals(Collections.singletonList("keys"), search("ault"));
+        Assert.assertEquals(Collections.singletonList("bus"), search("bus"));
+    }
+
+    @Test
+    public void joinedWordsMatchMultiWordNames() {
+        Assert.assertEquals(Collections.singletonList("bus"), search("servicebus"));
+        Assert.assertEquals(Collections.singletonList("keys"), search("keyvault"));
+    }
+
+    @Test
+    public void allTermsMustMatch() {
+        Assert.assertEquals(Collections.singletonList("queue"), search("storage queue"));
+        Assert.assertEquals(Collections.emptyList(), search("storage bus"));
+        Assert.assertEquals(Collections.emptyList(), search("cosmos"));
+    }
+
+    @Test
+    public void documentsAreRankedByFieldWeightAndMatchKind() {
+        final List<Hit<String>> hits = index.search("messag");
+        // category "Messaging" beats description "Message"
+        Assert.assertEquals(Arrays.asList("bus", "queue"), hits.stream().map(Hit::getDocument).collect(Collectors.toList()));
+        Assert.assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+        // exact word beats prefix of the same field
+        Assert.assertTrue(score("blob") > score("blo"));
+    }
+
+    @Test
+    public void documentsOfSameScoreKeepIndexedOrder() {
+        final List<Hit<String>> hits = index.search("storage");
+        Assert.assertEquals(Arrays.asList("blob", "queue"), hits.stream().map(Hit::getDocument).collect(Collectors.toList()));
+        Assert.assertEquals(hits.get(0).getScore(), hits.get(1).getScore());
+    }
+
+    @Test
+    public void cachedShortTermsGiveSameResults() {
+        final List<String> first = search("q");
+        Assert.assertEquals(Collections.singletonList("queue"), first);
+        Assert.assertEquals(first, search("q"));
+        Assert.assertEquals(Collections.singletonList("queue"), search("q storage"));
+    }
+
+    private List<String> search(String query) {
+        return index.search(query).stream().map(Hit::getDocument).collect(Collectors.toList());
+    }
+
+    private int score(String query) {
+        return index.search(query).get(0).getScore();
+    }
+}
@@ -40,6 +40,8 @@ import com.microsoft.azuretools.core.mvp.ui.base.AppSchedulerProvider;
 import com.microsoft.azuretools.core.mvp.ui.base.MvpUIHelperFactory;
 import com.microsoft.azuretools.core.mvp.ui.base.SchedulerProviderFactory;
 import com.microsoft.azuretools.service.ServiceManager;
+import com.microsoft.azuretools.telemetry.AppInsightsClient;
+import com.microsoft.azuretools.telemetrywrapper.CommonUtil;
 import com.microsoft.intellij.helpers.IDEHelperImpl;
 import com.microsoft.intellij.helpers.MvpUIHelperImpl;
 import com.microsoft.intellij.helpers.UIHelperImpl;
@@ -83,6 +85,7 @@ public class AzureActionsListener implements AppLifecycleListener, PluginCompone
     private static final Logger LOG = Logger.getInstance(AzureActionsListener.class);
     private static final String AZURE_TOOLS_FOLDER = ".AzureToolsForIntelliJ";
     private static final String AZURE_TOOLS_FOLDER_DEPRECATED = "AzureToolsForIntelliJ";
+    private static final long TELEMETRY_FLUSH_TIMEOUT_MILLIS = 3000;
     private static FileHandler logFileHandler = null;
 
     private PluginSettings settings;
@@ -173,6 +176,13 @@ public class AzureActionsListener implements AppLifecycleListener, PluginCompone
         }
     }
 
+    @Override
+    public void appWillBeClosed(boolean isRestart) {
+        // send the pending telemetry and stop the senders, so that they don't outlive the plugin
+        AppInsightsClient.stop(TELEMETRY_FLUSH_TIMEOUT_MILLIS);
+        CommonUtil.stopEvents(TELEMETRY_FLUSH_TIMEOUT_MILLIS);
+    }
+
     private void initAuthManage() {
         try {
             final String baseFolder = FileUtil.getDirectoryWithinUserHome(AZURE_TOOLS_FOLDER).toString();
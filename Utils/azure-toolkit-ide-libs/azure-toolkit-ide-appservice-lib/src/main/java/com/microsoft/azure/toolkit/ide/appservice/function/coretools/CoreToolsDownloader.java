@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.ide.appservice.function.coretools;
+
+import com.microsoft.azure.toolkit.lib.Azure;
+import com.microsoft.azure.toolkit.lib.common.exception.AzureToolkitRuntimeException;
+import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLContext;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Downloads release zip of function core tools with parallel ranged segments, segments are kept as `.partN` files
+ * beside the target so an interrupted download resumes from where it stopped.
+ */
+public class CoreToolsDownloader {
+    private static final int MAX_SEGMENTS = 4;
+    private static final long MIN_SEGMENT_SIZE = 8 * FileUtils.ONE_MB;
+    private static final int MAX_EXTRACT_THREADS = 4;
+    private static final int CONNECT_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(30);
+    private static final int SOCKET_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * download {@code url} to {@code target}, skip if target already exists and matches {@code sha256}. the download
+     * can't be verified if {@code sha256} is blank, which is warned.
+     */
+    public void download(@Nonnull final String url, @Nonnull final File target, @Nullable final String sha256) throws IOException {
+        if (StringUtils.isBlank(sha256)) {
+            AzureMessager.getMessager().warning(String.format("Checksum of %s is not available, the downloaded file will not be verified.", url));
+        }
+        if (target.exists() && isChecksumMatched(target, sha256)) {
+            return;
+        }
+        Files.createDirectories(target.toPath().getParent());
+        try (final CloseableHttpClient client = createClient()) {
+            download(client, url, target, sha256);
+        }
+    }
+
+    private void download(@Nonnull final CloseableHttpClient client, @Nonnull final String url, @Nonnull final File target,
+                          @Nullable final String sha256) throws IOException {
+        final long length = getContentLengthIfRangeSupported(client, url);
+        final List<long[]> segments = new ArrayList<>();
+        if (length <= 0) {
+            segments.add(new long[]{0, -1});
+        } else {
+            final int count = (int) Math.max(1, Math.min(MAX_SEGMENTS, length / MIN_SEGMENT_SIZE));
+            final long segmentSize = (length + count - 1) / count;
+            for (long start = 0; start < length; start += segmentSize) {
+                segments.add(new long[]{start, Math.min(length, start + segmentSize) - 1});
+            }
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(segments.size());
+        try {
+            final List<Future<File>> futures = new ArrayList<>();
+            for (int i = 0; i < segments.size(); i++) {
+                final File part = new File(target.getPath() + ".part" + i);
+                final long[] range = segments.get(i);
+                futures.add(executor.submit(() -> downloadSegment(client, url, part, range[0], range[1])));
+            }
+            final File merged = new File(target.getPath() + ".download");
+            try (final OutputStream out = new FileOutputStream(merged)) {
+                for (final Future<File> future : futures) {
+                    Files.copy(future.get().toPath(), out);
+                }
+            }
+            if (!isChecksumMatched(merged, sha256)) {
+                // parts are corrupted, remove them so that next try starts over
+                futures.forEach(future -> FileUtils.deleteQuietly(getQuietly(future)));
+                FileUtils.deleteQuietly(merged);
+                throw new AzureToolkitRuntimeException(String.format("checksum of downloaded file (%s) mismatched", url));
+            }
+            Files.move(merged.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            futures.forEach(future -> FileUtils.deleteQuietly(getQuietly(future)));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (final ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * extract {@code zipFile} into {@code destDirPath} with random access, entries are written in parallel
+     */
+    public void unzip(@Nonnull final File zipFile, @Nonnull final String destDirPath) throws IOException {
+        final Path destDir = Files.createDirectories(Paths.get(destDirPath)).toAbsolutePath().normalize();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_EXTRACT_THREADS, Runtime.getRuntime().availableProcessors()));
+        try (final ZipFile zip = new ZipFile(zipFile)) {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (final ZipEntry entry : Collections.list(zip.entries())) {
+                final Path entryPath = destDir.resolve(entry.getName()).normalize();
+                if (!entryPath.startsWith(destDir)) {
+                    throw new IOException(String.format("entry (%s) is outside of target dir", entry.getName()));
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(entryPath);
+                    continue;
+                }
+                futures.add(executor.submit(() -> {
+                    Files.createDirectories(entryPath.getParent());
+                    try (final InputStream in = zip.getInputStream(entry)) {
+                        Files.copy(in, entryPath, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (final ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return whether sha256 of {@code file} matches {@code sha256}, always true if {@code sha256} is blank (unverifiable)
+     */
+    public static boolean isChecksumMatched(@Nonnull final File file, @Nullable final String sha256) throws IOException {
+        if (StringUtils.isBlank(sha256)) {
+            return true;
+        }
+        try (final InputStream in = Files.newInputStream(file.toPath())) {
+            return StringUtils.equalsIgnoreCase(DigestUtils.sha256Hex(in), sha256);
+        }
+    }
+
+    /**
+     * @return content length of {@code url}, or -1 if server doesn't support range requests
+     */
+    private long getContentLengthIfRangeSupported(@Nonnull final CloseableHttpClient client, @Nonnull final String url) {
+        try (final CloseableHttpResponse response = client.execute(new HttpHead(url))) {
+            final Header acceptRanges = response.getFirstHeader(HttpHeaders.ACCEPT_RANGES);
+            final Header contentLength = response.getFirstHeader(HttpHeaders.CONTENT_LENGTH);
+            if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK && acceptRanges != null &&
+                    StringUtils.equalsIgnoreCase(acceptRanges.getValue(), "bytes") && contentLength != null) {
+                return Long.parseLong(contentLength.getValue());
+            }
+        } catch (final IOException | NumberFormatException e) {
+            // fall back to single stream download
+        }
+        return -1;
+    }
+
+    private File downloadSegment(@Nonnull final CloseableHttpClient client, @Nonnull final String url, @Nonnull final File part,
+                                 final long start, final long end) throws IOException {
+        final long downloaded = part.exists() ? part.length() : 0;
+        if (end >= 0 && start + downloaded > end) {
+            return part;
+        }
+        final HttpGet request = new HttpGet(url);
+        if (end >= 0) {
+            request.setHeader(HttpHeaders.RANGE, String.format("bytes=%d-%d", start + downloaded, end));
+        } else if (downloaded > 0) {
+            request.setHeader(HttpHeaders.RANGE, String.format("bytes=%d-", downloaded));
+        }
+        try (final CloseableHttpResponse response = client.execute(request)) {
+            final int status = response.getStatusLine().getStatusCode();
+            if ((end >= 0 && status != HttpStatus.SC_PARTIAL_CONTENT) || (status != HttpStatus.SC_OK && status != HttpStatus.SC_PARTIAL_CONTENT)) {
+                throw new IOException(String.format("failed to download %s, status code: %d", url, status));
+            }
+            // server may ignore range header of single stream download and return whole content, start over then
+            final boolean append = status == HttpStatus.SC_PARTIAL_CONTENT;
+            try (final InputStream in = response.getEntity().getContent();
+                 final OutputStream out = new FileOutputStream(part, append)) {
+                IOUtils.copy(in, out);
+            }
+        }
+        return part;
+    }
+
+    /**
+     * the default connection manager allows only 2 connections per route, which would serialize the segments
+     */
+    @Nonnull
+    private static CloseableHttpClient createClient() {
+        final SSLContext sslContext = Azure.az().config().getSslContext();
+        final Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", sslContext == null ? SSLConnectionSocketFactory.getSocketFactory() : new SSLConnectionSocketFactory(sslContext))
+                .build();
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(registry);
+        connectionManager.setDefaultMaxPerRoute(MAX_SEGMENTS);
+        connectionManager.setMaxTotal(MAX_SEGMENTS);
+        final RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(CONNECT_TIMEOUT_MILLIS)
+                .setConnectionRequestTimeout(CONNECT_TIMEOUT_MILLIS)
+                .setSocketTimeout(SOCKET_TIMEOUT_MILLIS)
+                .build();
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .build();
+    }
+
+    @Nullable
+    private static File getQuietly(@Nonnull final Future<File> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException | ExecutionException e) {
+            return null;
+        }
+    }
+}
@@ -9,24 +9,25 @@ import com.microsoft.azure.toolkit.ide.common.store.AzureConfigInitializer;
 import com.microsoft.azure.toolkit.lib.Azure;
 import com.microsoft.azure.toolkit.lib.common.event.AzureEventBus;
 import com.microsoft.azure.toolkit.lib.common.exception.AzureToolkitRuntimeException;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.annotation.Nullable;
-import java.io.*;
-import java.net.URL;
-import java.nio.channels.Channels;
-import java.nio.file.Files;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
-import java.util.*;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.IntStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 public class FunctionsCoreToolsManager {
     private ReleaseInfo releaseInfoCache;
     private final String RELEASE_TAG = "v4";
+    private static final String COMPLETED_MARKER = ".download-completed";
+    private final CoreToolsDownloader downloader = new CoreToolsDownloader();
     private static final FunctionsCoreToolsManager instance = new FunctionsCoreToolsManager();
     public static FunctionsCoreToolsManager getInstance() {
         return instance;
@@ -71,7 +72,8 @@ public class FunctionsCoreToolsManager {
                                 .filter(i -> releaseFilter.sizes.get(i).equalsIgnoreCase(o2.getSize()))
                                 .findFirst().orElse(9999);
                         return rank1 - rank2;
-                    }).ifPresent(releaseCoreTool -> this.releaseInfoCache = new ReleaseInfo(releaseVersion.toLowerCase(), releaseCoreTool.getDownloadLink()));
+                    }).ifPresent(releaseCoreTool -> this.releaseInfoCache = new ReleaseInfo(releaseVersion.toLowerCase(),
+                            releaseCoreTool.getDownloadLink(), releaseCoreTool.getSha2()));
         });
     }
 
@@ -81,15 +83,18 @@ public class FunctionsCoreToolsManager {
         }
         final String unzipRootDir = Paths.get(downloadDirPath, extractFileNameFromUrl(releaseInfo.downloadLink)).toString();
         final String executionFilePath = Paths.get(unzipRootDir, "windows".equalsIgnoreCase(generateFilter().os) ? "func.exe" : "func").toString();
-        final String AZURE_FUNCTIONS = "AzureFunctions";
+        final File completedMarker = new File(unzipRootDir, COMPLETED_MARKER);
         try {
-            final File tempFile = File.createTempFile(
-                    String.format("%s-%s", AZURE_FUNCTIONS, releaseInfo.releaseVersion),
-                    ".zip", Files.createTempDirectory(AZURE_FUNCTIONS).toFile());
-            final FileOutputStream outputStream = new FileOutputStream(tempFile);
-            outputStream.getChannel().transferFrom(Channels.newChannel(new URL(releaseInfo.downloadLink).openStream()), 0, Long.MAX_VALUE);
-            unzip(tempFile, unzipRootDir);
-            tempFile.deleteOnExit();
+            // reuse extracted tools of the same release, which is marked as completed (with its hash if any) after extraction
+            final String sha2 = StringUtils.defaultString(releaseInfo.sha2);
+            if (!completedMarker.exists() || !StringUtils.equalsIgnoreCase(FileUtils.readFileToString(completedMarker, StandardCharsets.UTF_8), sha2)) {
+                final File zipFile = Paths.get(downloadDirPath, extractFileNameFromUrl(releaseInfo.downloadLink) + ".zip").toFile();
+                downloader.download(releaseInfo.downloadLink, zipFile, releaseInfo.sha2);
+                FileUtils.deleteQuietly(completedMarker);
+                downloader.unzip(zipFile, unzipRootDir);
+                FileUtils.write(completedMarker, sha2, StandardCharsets.UTF_8);
+                FileUtils.deleteQuietly(zipFile);
+            }
             final File executionFile = new File(executionFilePath);
             if (executionFile.exists() && !executionFile.canExecute()) {
                 executionFile.setExecutable(true);
@@ -102,27 +107,6 @@ public class FunctionsCoreToolsManager {
         AzureEventBus.emit("function.download_func_core_tools_succeed.version", releaseInfo.releaseVersion);
     }
 
-    private void unzip(File zipFile, String destDirPath) throws Exception {
-        Files.createDirectories(Paths.get(destDirPath));
-        final ZipInputStream zipInputStream = new ZipInputStream(new FileInputStream(zipFile));
-        ZipEntry zipEntry = zipInputStream.getNextEntry();
-        while (zipEntry != null) {
-            final File zipEntryFile = new File(destDirPath + File.separator + zipEntry.getName());
-            if (zipEntry.isDirectory()) {
-                Files.createDirectories(zipEntryFile.toPath());
-            } else {
-                Files.createDirectories(zipEntryFile.toPath().getParent());
-                try (final OutputStream out = new FileOutputStream(zipEntryFile)) {
-                    IOUtils.copy(zipInputStream, out);
-                }
-            }
-            zipInputStream.closeEntry();
-            zipEntry = zipInputStream.getNextEntry();
-        }
-        zipInputStream.closeEntry();
-        zipInputStream.close();
-    }
-
     /**
      * refer to https://github.com/JetBrains/azure-tools-for-intellij
      * */
@@ -153,9 +137,11 @@ public class FunctionsCoreToolsManager {
     private static class ReleaseInfo {
         private final String releaseVersion;
         private final String downloadLink;
-        ReleaseInfo(String releaseVersion, String downloadLink) {
+        private final String sha2;
+        ReleaseInfo(String releaseVersion, String downloadLink, String sha2) {
             this.releaseVersion = releaseVersion;
             this.downloadLink = downloadLink;
+            this.sha2 = sha2;
         }
     }
 
@@ -9,12 +9,14 @@ import com.microsoft.azure.toolkit.lib.common.action.Action;
 import com.microsoft.azure.toolkit.lib.common.action.AzureActionManager;
 import com.microsoft.azure.toolkit.lib.common.action.IActionGroup;
 import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
+import com.microsoft.azure.toolkit.lib.common.task.AzureTaskManager;
 import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.Accessors;
+import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 
 import javax.annotation.Nonnull;
@@ -22,14 +24,17 @@ import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.stream.IntStream;
 
+@Slf4j
 @Getter
 @Accessors(chain = true, fluent = true)
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
@@ -98,14 +103,61 @@ public class Node<D> {
     }
 
     public List<Node<?>> getChildren() {
-        return this.childrenBuilders.stream().flatMap((builder) -> {
-            try {
-                return builder.build(this).stream();
-            } catch (final Exception e) {
-                AzureMessager.getMessager().error(e);
-                return Stream.empty();
+        return this.getChildren(ignore -> {
+        });
+    }
+
+    /**
+     * build children with all children builders concurrently (on pooled threads of {@link AzureTaskManager}, so that
+     * operation context of the caller is passed to the builders).
+     *
+     * @param onPartialLoaded called with children loaded so far (in order of builders) each time a builder completes
+     */
+    public List<Node<?>> getChildren(@Nonnull Consumer<List<Node<?>>> onPartialLoaded) {
+        final List<ChildrenNodeBuilder<D, ?>> builders = new ArrayList<>(this.childrenBuilders);
+        final List<List<Node<?>>> results = new ArrayList<>(Collections.nCopies(builders.size(), null));
+        if (builders.size() < 2) {
+            for (int i = 0; i < builders.size(); i++) {
+                results.set(i, this.buildChildren(builders.get(i)));
             }
-        }).collect(Collectors.toList());
+            return flatten(results);
+        }
+        final CompletableFuture<?>[] futures = IntStream.range(0, builders.size()).mapToObj(i -> {
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            AzureTaskManager.getInstance().runOnPooledThread(() -> {
+                try {
+                    final List<Node<?>> children = this.buildChildren(builders.get(i));
+                    final List<Node<?>> loaded;
+                    synchronized (results) {
+                        results.set(i, children);
+                        loaded = flatten(results);
+                    }
+                    onPartialLoaded.accept(loaded);
+                    future.complete(null);
+                } catch (final Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+            return future;
+        }).toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(futures).join();
+        return flatten(results);
+    }
+
+    private List<Node<?>> buildChildren(ChildrenNodeBuilder<D, ?> builder) {
+        final long start = System.currentTimeMillis();
+        try {
+            return builder.build(this);
+        } catch (final Exception e) {
+            AzureMessager.getMessager().error(e);
+            return Collections.emptyList();
+        } finally {
+            log.debug("loaded children of node({}) with builder[{}] in {}ms", this.data, this.childrenBuilders.indexOf(builder), System.currentTimeMillis() - start);
+        }
+    }
+
+    private static List<Node<?>> flatten(List<List<Node<?>>> results) {
+        return results.stream().filter(Objects::nonNull).flatMap(List::stream).collect(Collectors.toList());
     }
 
     public boolean hasChildren() {
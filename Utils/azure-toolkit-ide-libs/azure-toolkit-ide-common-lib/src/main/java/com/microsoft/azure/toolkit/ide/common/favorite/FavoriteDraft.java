@@ -43,7 +43,7 @@ public class FavoriteDraft extends Favorite implements AzResource.Draft<Favorite
     @Nonnull
     @Override
     public AbstractAzResource<?, ?, ?> createResourceInAzure() {
-        Favorites.getInstance().favorites.add(0, resource.getId().toLowerCase());
+        Favorites.getInstance().addFavorite(resource.getId());
         Favorites.getInstance().persist();
         return this.resource;
     }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.ide.common.favorite;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves favorites by id in background, at most {@code maxConcurrency} of them at a time, and keeps the resolutions
+ * so that the favorites being resolved can be shown as placeholders.
+ */
+@Slf4j
+class FavoriteResolver<T> {
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private final ExecutorService executor;
+    private final Function<String, T> resolver;
+    // called once a favorite is resolved or failed to
+    private final Runnable onResolved;
+    private final Map<String, CompletableFuture<T>> resolutions = new ConcurrentHashMap<>();
+
+    FavoriteResolver(int maxConcurrency, @Nonnull Function<String, T> resolver, @Nonnull Runnable onResolved) {
+        this.executor = Executors.newFixedThreadPool(maxConcurrency, r -> {
+            final Thread thread = new Thread(r, "azure-favorites-resolver-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.resolver = resolver;
+        this.onResolved = onResolved;
+    }
+
+    /**
+     * resolve the favorites again concurrently and wait for all of them, the resolutions of the other ids are dropped.
+     *
+     * @return the resolved favorites in the order of the ids, the failed ones are left out
+     */
+    @Nonnull
+    List<T> resolveAll(@Nonnull List<String> ids) {
+        this.resolutions.keySet().retainAll(ids);
+        final List<CompletableFuture<T>> resolving = ids.stream()
+            .map(id -> this.resolutions.compute(id, (k, v) -> this.resolveAsync(k)))
+            .collect(Collectors.toList());
+        return resolving.stream().map(f -> f.exceptionally(e -> null).join()).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the resolved favorites, and the {@link String} ids of the ones being resolved as placeholders, in the
+     * order of the ids
+     */
+    @Nonnull
+    List<Object> getResolvedOrPlaceholders(@Nonnull List<String> ids) {
+        return ids.stream().map(id -> {
+            final CompletableFuture<T> resolution = this.resolutions.get(id);
+            if (Objects.isNull(resolution) || !resolution.isDone()) {
+                return id;
+            }
+            return resolution.exceptionally(t -> null).join();
+        }).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    void clear() {
+        this.resolutions.clear();
+    }
+
+    @Nonnull
+    private CompletableFuture<T> resolveAsync(@Nonnull String id) {
+        return CompletableFuture.supplyAsync(() -> this.resolver.apply(id), this.executor)
+            .whenComplete((r, e) -> {
+                if (Objects.nonNull(e)) {
+                    log.warn("failed to load favorite {}", id, e);
+                }
+                this.onResolved.run();
+            });
+    }
+}
@@ -14,6 +14,7 @@ import com.microsoft.azure.toolkit.ide.common.action.ResourceCommonActionsContri
 import com.microsoft.azure.toolkit.ide.common.component.AzureModuleLabelView;
 import com.microsoft.azure.toolkit.ide.common.component.AzureResourceLabelView;
 import com.microsoft.azure.toolkit.ide.common.component.Node;
+import com.microsoft.azure.toolkit.ide.common.component.NodeView;
 import com.microsoft.azure.toolkit.ide.common.icon.AzureIcons;
 import com.microsoft.azure.toolkit.ide.common.store.AzureStoreManager;
 import com.microsoft.azure.toolkit.ide.common.store.IMachineStore;
@@ -34,7 +35,6 @@ import com.microsoft.azure.toolkit.lib.common.operation.AzureOperation;
 import com.microsoft.azure.toolkit.lib.common.task.AzureTaskManager;
 import lombok.Getter;
 import lombok.SneakyThrows;
-import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.annotation.Nonnull;
@@ -42,6 +42,7 @@ import javax.annotation.Nullable;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
@@ -49,17 +50,43 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-@Slf4j
 public class Favorites extends AbstractAzResourceModule<Favorite, AzResource.None, AbstractAzResource<?, ?, ?>> {
     private static final String FAVORITE_ICON = AzureIcons.Common.FAVORITE.getIconPath();
     private static final String FAVORITE_GROUP = "{favorites_group}";
+    static final int MAX_CONCURRENT_RESOLUTIONS = 8;
+    private static final long PLACEHOLDER_DELAY_MILLIS = 200;
+    private static final long COALESCE_DELAY_MILLIS = 300;
+    // persists favorites and notifies children changes, a single thread keeps the writes in order
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "azure-favorites-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
     @Getter
     private static final Favorites instance = new Favorites();
     public static final String NAME = "favorites";
+    // guards reads and writes of favorites, it's never held while resolving favorites
+    private final Object favoritesLock = new Object();
     List<String> favorites = new LinkedList<>();
+    private final AtomicReference<CompletableFuture<List<Favorite>>> listing = new AtomicReference<>();
+    private final AtomicBoolean placeholdersShown = new AtomicBoolean();
+    private final FavoriteResolver<AbstractAzResource<?, ?, ?>> resolver = new FavoriteResolver<>(MAX_CONCURRENT_RESOLUTIONS,
+        id -> this.loadResourceFromAzure(id, FAVORITE_GROUP), this::onFavoriteResolved);
+    private final AtomicBoolean childrenChangedScheduled = new AtomicBoolean();
+    private final AtomicBoolean persistScheduled = new AtomicBoolean();
+    @Nullable
+    private volatile String persisted;
 
     private Favorites() {
         super(NAME, AzResource.NONE);
@@ -73,7 +100,10 @@ public class Favorites extends AbstractAzResourceModule<Favorite, AzResource.Non
     @Override
     public synchronized void clear() {
         super.clear();
-        this.favorites.clear();
+        synchronized (this.favoritesLock) {
+            this.favorites.clear();
+        }
+        this.resolver.clear();
     }
 
     @Nonnull
@@ -83,7 +113,8 @@ public class Favorites extends AbstractAzResourceModule<Favorite, AzResource.Non
             return Collections.emptyList();
         }
         final List<Favorite> result = new LinkedList<>(super.list());
-        result.sort(Comparator.comparing(item -> this.favorites.indexOf(item.getName().toLowerCase())));
+        final List<String> ids = this.getFavoriteIds();
+        result.sort(Comparator.comparing(item -> ids.indexOf(item.getName().toLowerCase())));
         return result;
     }
 
@@ -100,24 +131,29 @@ public class Favorites extends AbstractAzResourceModule<Favorite, AzResource.Non
         final String user = account.getUsername();
         final IMachineStore store = AzureStoreManager.getInstance().getMachineStore();
         final String favorites = store.getProperty(this.getName(), user);
+        this.persisted = favorites;
         if (StringUtils.isNotBlank(favorites)) {
             final ObjectMapper mapper = new ObjectMapper();
+            List<String> loaded;
             try {
-                this.favorites = new LinkedList<>(Arrays.asList(mapper.readValue(favorites, String[].class))).stream()
-                    .map(String::toLowerCase).distinct().collect(Collectors.toList());
+                loaded = new LinkedList<>(Arrays.asList(mapper.readValue(favorites, String[].class))).stream()
+                    .map(String::toLowerCase).distinct().collect(Collectors.toCollection(LinkedList::new));
             } catch (final JsonProcessingException ex) {
                 AzureMessager.getMessager().error("failed to load favorites.");
-                this.favorites = new LinkedList<>();
+                loaded = new LinkedList<>();
+            }
+            synchronized (this.favoritesLock) {
+                this.favorites = loaded;
             }
         }
-        return this.favorites.stream().map(id -> this.loadResourceFromAzure(id, FAVORITE_GROUP)).filter(Objects::nonNull)
-            .map(c -> ((AbstractAzResource<?, ?, ?>) c));
+        // resolve all favorites concurrently, the order of favorites is kept
+        return this.resolver.resolveAll(this.getFavoriteIds()).stream();
     }
 
     @Nullable
     @Override
     protected AbstractAzResource<?, ?, ?> loadResourceFromAzure(@Nonnull String name, @Nullable String resourceGroup) {
-        if (this.favorites.contains(name.toLowerCase())) {
+        if (this.exists(name)) {
             return Azure.az().getById(name);
         }
         return null;
@@ -128,7 +164,9 @@ public class Favorites extends AbstractAzResourceModule<Favorite, AzResource.Non
     @AzureOperation(name = "internal/favorite.delete_favorite")
     protected void deleteResourceFromAzure(@Nonnull String favoriteId) {
         final String resourceId = URLDecoder.decode(ResourceId.fromString(favoriteId).name(), StandardCharsets.UTF_8.name());
-        this.favorites.remove(resourceId.toLowerCase());
+        synchronized (this.favoritesLock) {
+            this.favorites.remove(resourceId.toLowerCase());
+        }
         this.persist();
     }
 
@@ -166,7 +204,25 @@ public class Favorites extends AbstractAzResourceModule<Favorite, AzResource.Non
     }
 
     public boolean exists(@Nonnull String resourceId) {
-        return this.favorites.contains(resourceId.toLowerCase());
+        synchronized (this.favoritesLock) {
+            return this.favorites.contains(resourceId.toLowerCase());
+        }
+    }
+
+    void addFavorite(@Nonnull String resourceId) {
+        synchronized (this.favoritesLock) {
+            this.favorites.add(0, resourceId.toLowerCase());
+        }
+    }
+
+    /**
+     * @return a copy of the ids of favorites in order
+     */
+    @Nonnull
+    List<String> getFavoriteIds() {
+        synchronized (this.favoritesLock) {
+            return new ArrayList<>(this.favorites);
+        }
     }
 
 
@@ -193,18 +249,98 @@ public class Favorites extends AbstractAzResourceModule<Favorite, AzResource.Non
         this.delete(resourceId, FAVORITE_GROUP);
     }
 
+    /**
+     * favorites are persisted as a whole into the machine store, so changes in a short time are coalesced into one write
+     * and the write is skipped if nothing changed since last persisted.
+     */
     public void persist() {
+        if (this.persistScheduled.compareAndSet(false, true)) {
+            SCHEDULER.schedule(this::doPersist, COALESCE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void doPersist() {
+        this.persistScheduled.set(false);
+        final IMachineStore store = AzureStoreManager.getInstance().getMachineStore();
+        final Account account = Azure.az(AzureAccount.class).account();
+        final String user = account.getUsername();
+        final ObjectMapper mapper = new ObjectMapper();
+        try {
+            final String value = mapper.writeValueAsString(this.getFavoriteIds());
+            if (!StringUtils.equals(value, this.persisted)) {
+                store.setProperty(this.getName(), user, value);
+                this.persisted = value;
+            }
+        } catch (final JsonProcessingException e) {
+            AzureMessager.getMessager().error("failed to persist favorites.");
+        }
+    }
+
+    /**
+     * list favorites if they are loaded in a short time, otherwise start loading in background and return the resolved
+     * resources and {@link String} ids of the ones being resolved as placeholders, children changes are notified as
+     * favorites are resolved.
+     */
+    @Nonnull
+    public List<Object> listOrPlaceholders() {
+        if (!Azure.az(AzureAccount.class).isLoggedIn()) {
+            return Collections.emptyList();
+        }
+        final CompletableFuture<List<Favorite>> loading = this.startListing();
+        try {
+            return new ArrayList<>(loading.get(PLACEHOLDER_DELAY_MILLIS, TimeUnit.MILLISECONDS));
+        } catch (final TimeoutException e) {
+            this.placeholdersShown.set(true);
+            return this.resolver.getResolvedOrPlaceholders(this.getFavoriteIds());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.emptyList();
+        } catch (final ExecutionException e) {
+            throw new AzureToolkitRuntimeException("failed to load favorites.", e.getCause());
+        }
+    }
+
+    /**
+     * @return the listing in progress, or a new one started in background if there is none
+     */
+    @Nonnull
+    private CompletableFuture<List<Favorite>> startListing() {
+        final CompletableFuture<List<Favorite>> current = this.listing.get();
+        if (Objects.nonNull(current) && !current.isDone()) {
+            return current;
+        }
+        final CompletableFuture<List<Favorite>> next = new CompletableFuture<>();
+        if (!this.listing.compareAndSet(current, next)) { // another caller has just started listing
+            return this.listing.get();
+        }
+        next.whenComplete((r, e) -> {
+            if (this.placeholdersShown.getAndSet(false)) {
+                this.notifyChildrenChanged();
+            }
+        });
         AzureTaskManager.getInstance().runOnPooledThread(() -> {
-            final IMachineStore store = AzureStoreManager.getInstance().getMachineStore();
-            final Account account = Azure.az(AzureAccount.class).account();
-            final String user = account.getUsername();
-            final ObjectMapper mapper = new ObjectMapper();
             try {
-                store.setProperty(this.getName(), user, mapper.writeValueAsString(this.favorites));
-            } catch (final JsonProcessingException e) {
-                AzureMessager.getMessager().error("failed to persist favorites.");
+                next.complete(this.list());
+            } catch (final Throwable t) {
+                next.completeExceptionally(t);
             }
         });
+        return next;
+    }
+
+    private void onFavoriteResolved() {
+        if (this.placeholdersShown.get()) {
+            this.notifyChildrenChanged();
+        }
+    }
+
+    private void notifyChildrenChanged() {
+        if (this.childrenChangedScheduled.compareAndSet(false, true)) {
+            SCHEDULER.schedule(() -> {
+                this.childrenChangedScheduled.set(false);
+                AzureEventBus.emit("module.children_changed.module", this);
+            }, COALESCE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
     }
 
     public static Node<Favorites> buildFavoriteRoot(IExplorerNodeProvider.Manager manager) {
@@ -215,15 +351,20 @@ public class Favorites extends AbstractAzResourceModule<Favorite, AzResource.Non
             .withLabel("Unmark All As Favorite")
             .withIcon(AzureIcons.Action.UNPIN.getIconPath())
             .visibleWhen(s -> s instanceof Favorites)
-            .enableWhen(s -> !Favorites.getInstance().favorites.isEmpty())
+            .enableWhen(s -> !Favorites.getInstance().getFavoriteIds().isEmpty())
             .withHandler(Favorites::unpinAll)
             .withShortcut("control F11");
 
         final AzureModuleLabelView<Favorites> rootView = new AzureModuleLabelView<>(Favorites.getInstance(), "Favorites", FAVORITE_ICON);
         return new Node<>(Favorites.getInstance(), rootView).lazy(false)
             .actions(new ActionGroup(unpinAllAction, "---", ResourceCommonActionsContributor.REFRESH))
-            .addChildren(Favorites::list, (o, parent) -> {
-                final Node<?> node = manager.createNode(o.getResource(), parent, IExplorerNodeProvider.ViewType.APP_CENTRIC);
+            .addChildren(Favorites::listOrPlaceholders, (o, parent) -> {
+                if (o instanceof String) { // placeholder of the favorite being resolved
+                    final String name = ResourceId.fromString((String) o).name();
+                    return new Node<>(o, new NodeView.Static(name, FAVORITE_ICON, "loading..."));
+                }
+                final AbstractAzResource<?, ?, ?> resource = o instanceof Favorite ? ((Favorite) o).getResource() : (AbstractAzResource<?, ?, ?>) o;
+                final Node<?> node = manager.createNode(resource, parent, IExplorerNodeProvider.ViewType.APP_CENTRIC);
                 if (node.view() instanceof AzureResourceLabelView) {
                     node.view(new FavoriteNodeView((AzureResourceLabelView<?>) node.view()));
                 }
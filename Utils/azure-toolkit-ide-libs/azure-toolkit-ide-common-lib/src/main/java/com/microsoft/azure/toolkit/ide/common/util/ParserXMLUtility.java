@@ -11,6 +11,11 @@ import org.w3c.dom.Node;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
@@ -18,20 +23,51 @@ import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public final class ParserXMLUtility {
 
     private static final int BUFF_SIZE = 1024;
     public static final String INVALID_ARG = "Invalid argument.";
+    private static final int MAX_CACHED_DOCUMENTS = 16;
+    private static final int MAX_CACHED_EXPRESSIONS = 256;
+
+    // factories are created once, with the class loader of this plugin, see parseXMLFile
+    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = withPluginClassLoader(() -> {
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setIgnoringElementContentWhitespace(true);
+        return factory;
+    });
+    private static final XPathFactory XPATH_FACTORY = withPluginClassLoader(XPathFactory::newInstance);
+    private static final XMLInputFactory XML_INPUT_FACTORY = withPluginClassLoader(() -> {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    });
+    // builders and XPath are not thread safe, so they are reused per thread
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDERS = ThreadLocal.withInitial(ParserXMLUtility::newDocumentBuilder);
+    private static final ThreadLocal<XPathCompiler> XPATH_COMPILERS = ThreadLocal.withInitial(XPathCompiler::new);
+    // parsed documents keyed by absolute path, only copies of them are returned since callers may modify the documents
+    private static final Map<String, CachedDocument> DOCUMENTS = new LinkedHashMap<String, CachedDocument>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedDocument> eldest) {
+            return size() > MAX_CACHED_DOCUMENTS;
+        }
+    };
 
     /**
      * Parses XML file and returns XML document.
@@ -42,23 +78,27 @@ public final class ParserXMLUtility {
      */
     public static Document parseXMLFile(final String fileName)
             throws Exception {
-        final ClassLoader current = Thread.currentThread().getContextClassLoader();
-        try {
-            Thread.currentThread().setContextClassLoader(ParserXMLUtility.class.getClassLoader());
-            // fixes https://dev.azure.com/mseng/VSJava/_workitems/edit/1796447
-            // refers https://jetbrains.org/intellij/sdk/docs/basics/plugin_structure/plugin_class_loaders.html
-            DocumentBuilder docBuilder;
-            Document doc = null;
-            DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory
-                    .newInstance();
-            docBuilderFactory.setIgnoringElementContentWhitespace(true);
-            docBuilder = docBuilderFactory.newDocumentBuilder();
-            File xmlFile = new File(fileName);
-            doc = docBuilder.parse(xmlFile);
-            return doc;
-        } finally {
-            Thread.currentThread().setContextClassLoader(current);
+        final File xmlFile = new File(fileName);
+        final String key = xmlFile.getAbsolutePath();
+        final long lastModified = xmlFile.lastModified();
+        final long length = xmlFile.length();
+        final CachedDocument cached;
+        synchronized (DOCUMENTS) {
+            cached = DOCUMENTS.get(key);
         }
+        if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+            return cached.copy();
+        }
+
+        final DocumentBuilder docBuilder = DOCUMENT_BUILDERS.get();
+        docBuilder.reset();
+        final CachedDocument parsed = new CachedDocument(docBuilder.parse(xmlFile), lastModified, length);
+        if (lastModified > 0) {
+            synchronized (DOCUMENTS) {
+                DOCUMENTS.put(key, parsed);
+            }
+        }
+        return parsed.copy();
     }
 
     /**
@@ -70,14 +110,83 @@ public final class ParserXMLUtility {
      */
     protected static Document parseXMLResource(final InputStream inputStream)
             throws Exception {
-        DocumentBuilder docBuilder;
-        Document doc = null;
-        DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory
-                .newInstance();
-        docBuilderFactory.setIgnoringElementContentWhitespace(true);
-        docBuilder = docBuilderFactory.newDocumentBuilder();
-        doc = docBuilder.parse(inputStream);
-        return doc;
+        final DocumentBuilder docBuilder = DOCUMENT_BUILDERS.get();
+        docBuilder.reset();
+        return docBuilder.parse(inputStream);
+    }
+
+    /**
+     * Streams XML file to find the text of the first element at the given path, without building the whole document.
+     * Reading stops as soon as the element is found.
+     *
+     * @param fileName    .
+     * @param elementPath local names of the elements from the root, e.g. {@code "project", "version"}
+     * @return trimmed text of the element, or <B>null</B> if not found
+     */
+    public static String findElementText(final String fileName, final String... elementPath)
+            throws IOException, XMLStreamException {
+        return findElement(fileName, elementPath, reader -> true, reader -> reader.getElementText().trim());
+    }
+
+    /**
+     * Streams XML file to find the attributes of the first element at the given path which matches the filter, without
+     * building the whole document. Reading stops as soon as the element is found.
+     *
+     * @param fileName    .
+     * @param filter      filter on the attributes (by local name) of the elements at the path
+     * @param elementPath local names of the elements from the root, e.g. {@code "data", "property"}
+     * @return attributes of the element by local name, or <B>null</B> if not found
+     */
+    public static Map<String, String> findElementAttributes(final String fileName,
+                                                            final Predicate<Map<String, String>> filter,
+                                                            final String... elementPath)
+            throws IOException, XMLStreamException {
+        return findElement(fileName, elementPath, reader -> filter.test(getAttributes(reader)), ParserXMLUtility::getAttributes);
+    }
+
+    private static <T> T findElement(final String fileName, final String[] elementPath,
+                                     final StreamFunction<Boolean> filter, final StreamFunction<T> mapper)
+            throws IOException, XMLStreamException {
+        if (fileName == null || elementPath == null || elementPath.length == 0) {
+            throw new IllegalArgumentException(INVALID_ARG);
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(fileName))) {
+            final XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                // depth of current element, and how many of its ancestors (including itself) match the path
+                int depth = 0;
+                int matched = 0;
+                while (reader.hasNext()) {
+                    final int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                        if (matched == depth - 1 && matched < elementPath.length &&
+                                elementPath[matched].equals(reader.getLocalName())) {
+                            matched++;
+                            if (matched == elementPath.length && filter.apply(reader)) {
+                                return mapper.apply(reader);
+                            }
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        if (matched == depth) {
+                            matched--;
+                        }
+                        depth--;
+                    }
+                }
+                return null;
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    private static Map<String, String> getAttributes(final XMLStreamReader reader) {
+        final Map<String, String> attributes = new HashMap<>();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            attributes.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+        }
+        return attributes;
     }
 
     /**
@@ -111,6 +220,12 @@ public final class ParserXMLUtility {
             if (fos != null) {
                 fos.close();
             }
+            // modification time may not change within its resolution
+            if (xmlFile != null) {
+                synchronized (DOCUMENTS) {
+                    DOCUMENTS.remove(xmlFile.getAbsolutePath());
+                }
+            }
         }
         return true;
     }
@@ -179,8 +294,7 @@ public final class ParserXMLUtility {
         if (doc == null) {
             throw new IllegalArgumentException(INVALID_ARG);
         } else {
-            XPath path = XPathFactory.newInstance().newXPath();
-            Element element = (Element) path.evaluate(expr, doc,
+            Element element = (Element) compile(expr).evaluate(doc,
                     XPathConstants.NODE);
 
             if (element != null) {
@@ -200,8 +314,7 @@ public final class ParserXMLUtility {
             throw new IllegalArgumentException(INVALID_ARG);
         }
 
-        XPath path = XPathFactory.newInstance().newXPath();
-        return path.evaluate(expr, doc);
+        return compile(expr).evaluate(doc);
     }
 
     /**
@@ -213,8 +326,7 @@ public final class ParserXMLUtility {
             throw new IllegalArgumentException(INVALID_ARG);
         }
 
-        XPath path = XPathFactory.newInstance().newXPath();
-        Node node = (Node) path.evaluate(expr, doc, XPathConstants.NODE);
+        Node node = (Node) compile(expr).evaluate(doc, XPathConstants.NODE);
         node.setNodeValue(value);
     }
 
@@ -293,18 +405,17 @@ public final class ParserXMLUtility {
         if (doc == null) {
             throw new IllegalArgumentException(INVALID_ARG);
         } else {
-            XPath path = XPathFactory.newInstance().newXPath();
             Element element = null;
             if (expr != null) {
-                element = (Element) path.evaluate(expr, doc,
+                element = (Element) compile(expr).evaluate(doc,
                         XPathConstants.NODE);
             }
 
             // If element doesn't exist create one
             if (element == null) {
                 element = doc.createElement(elementName);
-                Element parentElement = (Element) path.evaluate(
-                        parentNodeExpr, doc, XPathConstants.NODE);
+                Element parentElement = (Element) compile(
+                        parentNodeExpr).evaluate(doc, XPathConstants.NODE);
                 if (firstChild) {
                     parentElement.insertBefore(
                             element,
@@ -337,10 +448,9 @@ public final class ParserXMLUtility {
         if (doc == null) {
             throw new IllegalArgumentException(INVALID_ARG);
         } else {
-            XPath path = XPathFactory.newInstance().newXPath();
             Element element = null;
             if (expr != null) {
-                element = (Element) path.evaluate(expr, doc,
+                element = (Element) compile(expr).evaluate(doc,
                         XPathConstants.NODE);
             }
 
@@ -379,9 +489,86 @@ public final class ParserXMLUtility {
         if (nodeExpression == null) {
             throw new IllegalArgumentException(INVALID_ARG);
         } else {
-            XPath path = XPathFactory.newInstance().newXPath();
-            Element element = (Element) path.evaluate(nodeExpression, doc, XPathConstants.NODE);
+            Element element = (Element) compile(nodeExpression).evaluate(doc, XPathConstants.NODE);
             return element != null;
         }
     }
+
+    /**
+     * @return compiled XPath expression, which is cached and only used by the current thread.
+     */
+    private static XPathExpression compile(String expr) throws XPathExpressionException {
+        return XPATH_COMPILERS.get().compile(expr);
+    }
+
+    private static DocumentBuilder newDocumentBuilder() {
+        synchronized (DOCUMENT_BUILDER_FACTORY) {
+            try {
+                return DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+            } catch (ParserConfigurationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static <T> T withPluginClassLoader(Supplier<T> supplier) {
+        final ClassLoader current = Thread.currentThread().getContextClassLoader();
+        try {
+            // fixes https://dev.azure.com/mseng/VSJava/_workitems/edit/1796447
+            // refers https://jetbrains.org/intellij/sdk/docs/basics/plugin_structure/plugin_class_loaders.html
+            Thread.currentThread().setContextClassLoader(ParserXMLUtility.class.getClassLoader());
+            return supplier.get();
+        } finally {
+            Thread.currentThread().setContextClassLoader(current);
+        }
+    }
+
+    @FunctionalInterface
+    private interface StreamFunction<T> {
+        T apply(XMLStreamReader reader) throws XMLStreamException;
+    }
+
+    private static class XPathCompiler {
+        private final XPath xpath;
+        private final Map<String, XPathExpression> expressions = new LinkedHashMap<String, XPathExpression>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+                return size() > MAX_CACHED_EXPRESSIONS;
+            }
+        };
+
+        private XPathCompiler() {
+            synchronized (XPATH_FACTORY) {
+                this.xpath = XPATH_FACTORY.newXPath();
+            }
+        }
+
+        private XPathExpression compile(String expr) throws XPathExpressionException {
+            XPathExpression expression = expressions.get(expr);
+            if (expression == null) {
+                expression = xpath.compile(expr);
+                expressions.put(expr, expression);
+            }
+            return expression;
+        }
+    }
+
+    private static class CachedDocument {
+        private final Document document;
+        private final long lastModified;
+        private final long length;
+
+        private CachedDocument(Document document, long lastModified, long length) {
+            this.document = document;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        private Document copy() {
+            // DOM is not thread safe even for reading, e.g. nodes are expanded lazily
+            synchronized (this) {
+                return (Document) document.cloneNode(true);
+            }
+        }
+    }
 }
@@ -7,12 +7,9 @@ package com.microsoft.azuretools.telemetrywrapper;
 
 import com.microsoft.azure.toolkit.lib.common.telemetry.AzureTelemetryClient;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.tuple.MutableTriple;
 
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import static com.microsoft.azure.toolkit.lib.common.telemetry.AzureTelemeter.SERVICE_NAME;
@@ -22,8 +19,9 @@ public class CommonUtil {
     public static final String DURATION = "duration";
     public static final String OPERATION_ID = "operationId";
     public static final String TIMESTAMP = "timestamp";
-    public static AzureTelemetryClient client;
-    private static List<MutableTriple<EventType, Map, Map>> cachedEvents = new ArrayList<>();
+    public static volatile AzureTelemetryClient client;
+    // events are held until the client is set, and then sent in background
+    private static final TelemetryEventQueue queue = new TelemetryEventQueue("azure-toolkit-telemetry-sender", () -> client);
 
     public static Map<String, String> mergeProperties(Map<String, String> properties) {
         Map<String, String> commonProperties = TelemetryManager.getInstance().getCommonProperties();
@@ -34,7 +32,7 @@ public class CommonUtil {
         return merged;
     }
 
-    public static synchronized void sendTelemetry(EventType eventType, String serviceName, Map<String, String> properties,
+    public static void sendTelemetry(EventType eventType, String serviceName, Map<String, String> properties,
         Map<String, Double> metrics) {
         Map<String, String> mutableProps = properties == null ? new HashMap<>() : new HashMap<>(properties);
         // Tag UTC time as timestamp
@@ -42,23 +40,32 @@ public class CommonUtil {
         if (!StringUtils.isEmpty(serviceName)) {
             mutableProps.put(SERVICE_NAME, serviceName);
         }
-        if (client != null) {
-            final String eventName = getFullEventName(eventType);
-            client.trackEvent(eventName, mutableProps, metrics);
-        } else {
-            cacheEvents(eventType, mutableProps, metrics);
-        }
+        // event name is resolved when sent, for the prefix is unknown before the client is set
+        queue.offer(() -> getFullEventName(eventType), mutableProps, metrics);
     }
 
     public static void clearCachedEvents() {
         if (client != null) {
-            cachedEvents.forEach(triple -> client.trackEvent(getFullEventName(triple.left), triple.middle, triple.right));
-            cachedEvents.clear();
+            queue.signal();
         }
     }
 
-    private static void cacheEvents(EventType eventType, Map<String, String> mutableProps, Map<String, Double> metrics) {
-        cachedEvents.add(MutableTriple.of(eventType, mutableProps, metrics));
+    /**
+     * send the pending events in current thread, e.g. before the IDE exits
+     */
+    public static void flushEvents(long timeoutMillis) {
+        queue.flush(timeoutMillis);
+    }
+
+    /**
+     * send the pending events in current thread and stop the background sender, called when the IDE exits
+     */
+    public static void stopEvents(long timeoutMillis) {
+        queue.stop(timeoutMillis);
+    }
+
+    public static long getDroppedEventCount() {
+        return queue.getDroppedCount();
     }
 
     private static String getFullEventName(EventType eventType) {
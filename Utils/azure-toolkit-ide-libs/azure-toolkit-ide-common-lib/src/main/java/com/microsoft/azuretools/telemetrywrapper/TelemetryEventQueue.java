@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azuretools.telemetrywrapper;
+
+import com.microsoft.azure.toolkit.lib.common.telemetry.AzureTelemetryClient;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Bounded queue of telemetry events, drained in batches by a background sender so that callers never wait for the
+ * telemetry client. Events are kept until a client is available, the oldest ones are dropped when the queue is full.
+ * The owner must {@link #stop} the queue when the IDE or plugin is closing, so that the sender thread doesn't outlive it.
+ */
+public class TelemetryEventQueue {
+    public static final int DEFAULT_CAPACITY = 2000;
+    public static final int DEFAULT_BATCH_SIZE = 50;
+    private static final long SEND_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+    // size of ConcurrentLinkedQueue is O(n), so it's counted separately
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final int capacity;
+    private final int batchSize;
+    @Nonnull
+    private final Supplier<AzureTelemetryClient> client;
+    @Nonnull
+    private final Thread sender;
+    private volatile boolean stopped = false;
+
+    public TelemetryEventQueue(@Nonnull String name, @Nonnull Supplier<AzureTelemetryClient> client) {
+        this(name, client, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+
+    public TelemetryEventQueue(@Nonnull String name, @Nonnull Supplier<AzureTelemetryClient> client, int capacity, int batchSize) {
+        this.client = client;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.sender = new Thread(this::sendLoop, name);
+        this.sender.setDaemon(true);
+        this.sender.start();
+    }
+
+    /**
+     * enqueue an event without blocking, the name of event is resolved when it's sent. events offered after the queue
+     * is stopped are dropped.
+     */
+    public void offer(@Nonnull Supplier<String> eventName, @Nullable Map<String, String> properties,
+                      @Nullable Map<String, Double> metrics) {
+        if (stopped) {
+            dropped.incrementAndGet();
+            return;
+        }
+        events.offer(new Event(eventName, properties, metrics));
+        final int current = size.incrementAndGet();
+        if (current > capacity && events.poll() != null) {
+            size.decrementAndGet();
+            dropped.incrementAndGet();
+        }
+        if (current >= batchSize) {
+            LockSupport.unpark(sender);
+        }
+    }
+
+    /**
+     * wake up the sender to send the pending events, e.g. when the telemetry client becomes available.
+     */
+    public void signal() {
+        LockSupport.unpark(sender);
+    }
+
+    /**
+     * send the pending events in current thread, gives up when {@code timeoutMillis} elapses.
+     */
+    public void flush(long timeoutMillis) {
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (System.currentTimeMillis() < deadline && sendBatch() > 0) {
+            // keep sending until drained
+        }
+    }
+
+    /**
+     * stop the sender and send the pending events in current thread, gives up when {@code timeoutMillis} elapses.
+     */
+    public void stop(long timeoutMillis) {
+        if (stopped) {
+            return;
+        }
+        stopped = true;
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        LockSupport.unpark(sender);
+        try {
+            sender.join(Math.max(1, timeoutMillis));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        flush(deadline - System.currentTimeMillis());
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * @return count of events dropped because the queue was full or stopped
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public int getPendingCount() {
+        return size.get();
+    }
+
+    private void sendLoop() {
+        while (!stopped && !Thread.currentThread().isInterrupted()) {
+            if (sendBatch() < batchSize) {
+                // idle or drained, wait for more events or the next interval
+                LockSupport.parkNanos(this, SEND_INTERVAL_NANOS);
+            }
+        }
+    }
+
+    /**
+     * @return count of events sent
+     */
+    private int sendBatch() {
+        final AzureTelemetryClient target = client.get();
+        if (target == null) {
+            return 0;
+        }
+        int sent = 0;
+        Event event;
+        while (sent < batchSize && (event = events.poll()) != null) {
+            size.decrementAndGet();
+            sent++;
+            try {
+                target.trackEvent(event.name.get(), event.properties, event.metrics);
+            } catch (final RuntimeException ignore) {
+                // telemetry should never break the sender
+            }
+        }
+        return sent;
+    }
+
+    private static class Event {
+        @Nonnull
+        private final Supplier<String> name;
+        @Nullable
+        private final Map<String, String> properties;
+        @Nullable
+        private final Map<String, Double> metrics;
+
+        private Event(@Nonnull Supplier<String> name, @Nullable Map<String, String> properties, @Nullable Map<String, Double> metrics) {
+            this.name = name;
+            this.properties = properties;
+            this.metrics = metrics;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.toolkit.ide.common.favorite;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FavoriteResolverTest {
+    private static final long LATENCY_MILLIS = 50;
+    private static final long WAIT_SECONDS = 10;
+
+    @Test
+    public void testPlaceholdersOfFavoritesBeingResolved() throws Exception {
+        final CountDownLatch slowReleased = new CountDownLatch(1);
+        final AtomicInteger resolvedCount = new AtomicInteger();
+        final FavoriteResolver<String> resolver = new FavoriteResolver<>(Favorites.MAX_CONCURRENT_RESOLUTIONS, id -> {
+            if (id.startsWith("slow")) {
+                await(slowReleased);
+            }
+            return "resource of " + id;
+        }, resolvedCount::incrementAndGet);
+        final List<String> ids = Arrays.asList("fast1", "slow1", "fast2", "slow2");
+
+        // nothing is resolved before resolving
+        assertEquals(ids, resolver.getResolvedOrPlaceholders(ids));
+
+        final CompletableFuture<List<String>> resolving = CompletableFuture.supplyAsync(() -> resolver.resolveAll(ids));
+        // the fast ones are resolved while the slow ones are still placeholders, in the order of ids
+        final List<Object> partial = Arrays.asList("resource of fast1", "slow1", "resource of fast2", "slow2");
+        waitUntil(() -> partial.equals(resolver.getResolvedOrPlaceholders(ids)));
+        assertEquals(2, resolvedCount.get());
+
+        slowReleased.countDown();
+        final List<String> expected = Arrays.asList("resource of fast1", "resource of slow1", "resource of fast2", "resource of slow2");
+        assertEquals(expected, resolving.get(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(expected, resolver.getResolvedOrPlaceholders(ids));
+        assertEquals(4, resolvedCount.get());
+    }
+
+    @Test
+    public void testResolutionIsBoundedByMaxConcurrentResolutions() {
+        final int max = Favorites.MAX_CONCURRENT_RESOLUTIONS;
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final FavoriteResolver<String> resolver = new FavoriteResolver<>(max, id -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                TimeUnit.MILLISECONDS.sleep(LATENCY_MILLIS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return "resource of " + id;
+        }, () -> {
+        });
+        final List<String> ids = IntStream.range(0, max * 5).mapToObj(i -> "favorite" + i).collect(Collectors.toList());
+
+        final long start = System.nanoTime();
+        final List<String> resolved = resolver.resolveAll(ids);
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(ids.stream().map(id -> "resource of " + id).collect(Collectors.toList()), resolved);
+        assertTrue("at most " + maxRunning.get() + " resolutions at a time", maxRunning.get() <= max);
+        // concurrently rather than one by one
+        assertTrue("only " + maxRunning.get() + " resolution at a time", maxRunning.get() > 1);
+        // but in 5 rounds at least since the resolutions are bounded
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis >= LATENCY_MILLIS * 5);
+    }
+
+    @Test
+    public void testFailedFavoritesAreLeftOut() {
+        final AtomicInteger resolvedCount = new AtomicInteger();
+        final FavoriteResolver<String> resolver = new FavoriteResolver<>(Favorites.MAX_CONCURRENT_RESOLUTIONS, id -> {
+            if (id.equals("deleted")) {
+                return null;
+            }
+            if (id.equals("failed")) {
+                throw new IllegalStateException("failed to resolve " + id);
+            }
+            return "resource of " + id;
+        }, resolvedCount::incrementAndGet);
+        final List<String> ids = Arrays.asList("first", "deleted", "failed", "last");
+
+        assertEquals(Arrays.asList("resource of first", "resource of last"), resolver.resolveAll(ids));
+        // no more placeholders once they are done
+        assertEquals(Arrays.asList("resource of first", "resource of last"), resolver.getResolvedOrPlaceholders(ids));
+        assertEquals(4, resolvedCount.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(WAIT_SECONDS);
+        while (!condition.getAsBoolean()) {
+            assertTrue("timed out", System.nanoTime() < deadline);
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+}
@@ -5,16 +5,30 @@
 
 package com.microsoft.azuretools.core.mvp.model.container;
 
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.Credentials;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import org.apache.commons.lang3.StringUtils;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 public class ContainerExplorerMvpModel {
 
@@ -27,8 +41,30 @@ public class ContainerExplorerMvpModel {
     private static final String LINK_HEADER = "link";
     private static final String RESPONSE_FAIL_MSG = "Unexpected response %s. please make sure the admin user is " +
             "enabled and try again";
+    private static final long PAGE_CACHE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final int MAX_CACHED_PAGES = 64;
 
-    private final OkHttpClient sharedClient = new OkHttpClient();
+    // all requests share the connection pool and dispatcher, credentials are carried by each request
+    private final OkHttpClient sharedClient = new OkHttpClient.Builder()
+            .addInterceptor(chain -> {
+                final Request request = chain.request();
+                final RegistryCredential credential = request.tag(RegistryCredential.class);
+                if (credential == null || request.header(HEADER_AUTH) != null) {
+                    return chain.proceed(request);
+                }
+                return chain.proceed(request.newBuilder().header(HEADER_AUTH, credential.toBasic()).build());
+            })
+            .build();
+
+    // visited and prefetched pages, keyed by url and credential
+    private final Map<String, Page> pages = new LinkedHashMap<String, Page>(MAX_CACHED_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Page> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    // the latest prefetch of each listing (repositories of a registry or tags of a repository)
+    private final Map<String, Page> prefetches = new HashMap<>();
 
     private ContainerExplorerMvpModel() {
     }
@@ -47,17 +83,7 @@ public class ContainerExplorerMvpModel {
     public Map<String, String> listRepositories(@Nonnull String serverUrl, @Nonnull String username,
                                                 @Nonnull String password, @Nullable Map<String, String> query)
             throws Exception {
-        OkHttpClient client = createRestClient(username, password);
-        HttpUrl.Builder urlBuilder = new HttpUrl.Builder()
-                .scheme(URL_PREFIX)
-                .host(serverUrl)
-                .addPathSegment(REPOSITORY_PATH);
-        if (query != null) {
-            for (String key : query.keySet()) {
-                urlBuilder.addQueryParameter(key, query.get(key));
-            }
-        }
-        return getResponse(client, urlBuilder.build());
+        return getResponse(buildRepositoriesUrl(serverUrl, query), new RegistryCredential(username, password));
     }
 
     /**
@@ -65,47 +91,221 @@ public class ContainerExplorerMvpModel {
      */
     public Map<String, String> listTags(@Nonnull String serverUrl, @Nonnull String username, @Nonnull String password,
                                         @Nonnull String repo, @Nullable Map<String, String> query) throws Exception {
-        OkHttpClient client = createRestClient(username, password);
-        HttpUrl.Builder urlBuilder = new HttpUrl.Builder()
-                .scheme(URL_PREFIX)
-                .host(serverUrl)
-                .addPathSegment(String.format(TAG_PATH, repo));
-        if (query != null) {
-            for (String key : query.keySet()) {
-                urlBuilder.addQueryParameter(key, query.get(key));
-            }
+        return getResponse(buildTagsUrl(serverUrl, repo, query), new RegistryCredential(username, password));
+    }
+
+    /**
+     * fetch a page of repositories in background, so that it's ready when user turns to it. the previous prefetch of
+     * the registry is cancelled if it's still in flight and nobody is waiting for it.
+     */
+    public void prefetchRepositories(@Nonnull String serverUrl, @Nonnull String username, @Nonnull String password,
+                                     @Nullable Map<String, String> query) {
+        prefetch(serverUrl, buildRepositoriesUrl(serverUrl, query), new RegistryCredential(username, password));
+    }
+
+    /**
+     * fetch a page of tags in background, so that it's ready when user turns to it. the previous prefetch of the
+     * repository is cancelled if it's still in flight and nobody is waiting for it.
+     */
+    public void prefetchTags(@Nonnull String serverUrl, @Nonnull String username, @Nonnull String password,
+                             @Nonnull String repo, @Nullable Map<String, String> query) {
+        prefetch(serverUrl + "/" + repo, buildTagsUrl(serverUrl, repo, query), new RegistryCredential(username, password));
+    }
+
+    /**
+     * cancel the outstanding prefetches of the given registry, e.g. when its explorer is closed.
+     */
+    public void cancelPrefetches(@Nonnull String serverUrl) {
+        final List<Page> outdated = new ArrayList<>();
+        synchronized (pages) {
+            prefetches.entrySet().removeIf(entry -> {
+                final boolean matched = StringUtils.equals(entry.getKey(), serverUrl) ||
+                        StringUtils.startsWith(entry.getKey(), serverUrl + "/");
+                if (matched) {
+                    outdated.add(entry.getValue());
+                }
+                return matched;
+            });
+        }
+        outdated.forEach(this::cancelIfUnclaimed);
+    }
+
+    /**
+     * drop the cached pages of the given registry, or of a repository if {@code repo} is specified.
+     */
+    public void invalidateCache(@Nonnull String serverUrl, @Nullable String repo) {
+        final String prefix = repo == null ?
+                buildUrl(serverUrl).toString() :
+                buildUrl(serverUrl).addPathSegment(String.format(TAG_PATH, repo)).toString();
+        synchronized (pages) {
+            pages.keySet().removeIf(key -> key.startsWith(prefix));
         }
-        return getResponse(client, urlBuilder.build());
     }
 
     @Nonnull
-    private Map<String, String> getResponse(@Nonnull OkHttpClient client, HttpUrl url) throws Exception {
+    private Map<String, String> getResponse(HttpUrl url, @Nonnull RegistryCredential credential) throws Exception {
         if (url == null) {
             throw new NullPointerException(INVALID_URL);
         }
-        Request request = new Request.Builder().url(url).get().build();
-        try (Response response = client.newCall(request).execute()) {
-            if (response.isSuccessful()) {
-                Map<String, String> responseMap = new HashMap<>();
-                responseMap.put(BODY, response.body().string());
-                responseMap.put(LINK_HEADER, response.header(LINK_HEADER));
-                return responseMap;
-            } else {
-                throw new Exception(String.format(RESPONSE_FAIL_MSG, response));
-            }
+        final Page page = getOrFetch(url, credential, true);
+        try {
+            return page.future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private void prefetch(@Nonnull String scope, @Nonnull HttpUrl url, @Nonnull RegistryCredential credential) {
+        final Page page = getOrFetch(url, credential, false);
+        final Page previous;
+        synchronized (pages) {
+            previous = prefetches.put(scope, page);
+        }
+        if (previous != null && previous != page) {
+            cancelIfUnclaimed(previous);
         }
     }
 
+    /**
+     * get the cached page or start fetching it, {@code claim} marks the page as waited for in the same atomic step, so
+     * that it can never be cancelled as an outdated prefetch once returned.
+     */
     @Nonnull
-    private OkHttpClient createRestClient(@Nonnull String username, @Nonnull String password) {
-        return sharedClient.newBuilder()
-                .authenticator((route, response) -> {
-                    String credential = Credentials.basic(username, password);
-                    if (credential.equals(response.request().header(HEADER_AUTH))) {
-                        return null;
+    private Page getOrFetch(@Nonnull HttpUrl url, @Nonnull RegistryCredential credential, boolean claim) {
+        final String key = url + "|" + credential.getCacheKey();
+        final Page[] created = new Page[1];
+        final Page page;
+        synchronized (pages) {
+            final long now = System.currentTimeMillis();
+            page = pages.compute(key, (k, cached) -> {
+                if (cached != null && cached.isValid(now)) {
+                    return cached;
+                }
+                final Request request = new Request.Builder().url(url).get().tag(RegistryCredential.class, credential).build();
+                created[0] = new Page(k, sharedClient.newCall(request));
+                return created[0];
+            });
+            page.claimed = page.claimed || claim;
+        }
+        if (created[0] == null) {
+            return page;
+        }
+        page.call.enqueue(new Callback() {
+            @Override
+            public void onResponse(@Nonnull Call call, @Nonnull Response response) {
+                try (Response r = response) {
+                    if (r.isSuccessful()) {
+                        final Map<String, String> responseMap = new HashMap<>();
+                        responseMap.put(BODY, r.body() == null ? "" : r.body().string());
+                        responseMap.put(LINK_HEADER, r.header(LINK_HEADER));
+                        page.expireAt = System.currentTimeMillis() + PAGE_CACHE_TTL_MILLIS;
+                        page.future.complete(responseMap);
+                    } else {
+                        fail(new Exception(String.format(RESPONSE_FAIL_MSG, r)));
                     }
-                    return response.request().newBuilder().header(HEADER_AUTH, credential).build();
-                })
-                .build();
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+
+            @Override
+            public void onFailure(@Nonnull Call call, @Nonnull IOException e) {
+                fail(e);
+            }
+
+            private void fail(@Nonnull Exception e) {
+                // failures are not cached, the next request fetches again
+                synchronized (pages) {
+                    pages.remove(page.key, page);
+                }
+                page.future.completeExceptionally(e);
+            }
+        });
+        return page;
+    }
+
+    private void cancelIfUnclaimed(@Nonnull Page page) {
+        synchronized (pages) {
+            // checked and cancelled under the same lock as claimed, a page being claimed is never cancelled
+            if (page.claimed || page.future.isDone()) {
+                return;
+            }
+            pages.remove(page.key, page);
+            page.call.cancel();
+        }
+    }
+
+    @Nonnull
+    private static HttpUrl buildRepositoriesUrl(@Nonnull String serverUrl, @Nullable Map<String, String> query) {
+        return addQuery(buildUrl(serverUrl).addPathSegment(REPOSITORY_PATH), query).build();
+    }
+
+    @Nonnull
+    private static HttpUrl buildTagsUrl(@Nonnull String serverUrl, @Nonnull String repo, @Nullable Map<String, String> query) {
+        return addQuery(buildUrl(serverUrl).addPathSegment(String.format(TAG_PATH, repo)), query).build();
+    }
+
+    @Nonnull
+    private static HttpUrl.Builder buildUrl(@Nonnull String serverUrl) {
+        return new HttpUrl.Builder()
+                .scheme(URL_PREFIX)
+                .host(serverUrl);
+    }
+
+    @Nonnull
+    private static HttpUrl.Builder addQuery(@Nonnull HttpUrl.Builder urlBuilder, @Nullable Map<String, String> query) {
+        if (query != null) {
+            // sorted so that the same query always hits the same cached page
+            query.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(entry -> urlBuilder.addQueryParameter(entry.getKey(), entry.getValue()));
+        }
+        return urlBuilder;
+    }
+
+    private static class RegistryCredential {
+        private final String username;
+        private final String password;
+
+        private RegistryCredential(@Nonnull String username, @Nonnull String password) {
+            this.username = username;
+            this.password = password;
+        }
+
+        /**
+         * the password is part of the key so a changed password never reads pages fetched with the old one, it's
+         * only kept as a digest in the key.
+         */
+        @Nonnull
+        private String getCacheKey() {
+            try {
+                final byte[] hash = MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+                return username + "|" + Base64.getEncoder().encodeToString(hash);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private String toBasic() {
+            return Credentials.basic(username, password);
+        }
+    }
+
+    private static class Page {
+        private final String key;
+        private final Call call;
+        private final CompletableFuture<Map<String, String>> future = new CompletableFuture<>();
+        private volatile long expireAt = Long.MAX_VALUE;
+        // whether someone is waiting for this page, so it's not cancelled as an outdated prefetch, guarded by pages
+        private boolean claimed = false;
+
+        private Page(@Nonnull String key, @Nonnull Call call) {
+            this.key = key;
+            this.call = call;
+        }
+
+        private boolean isValid(long now) {
+            return !call.isCanceled() && !future.isCompletedExceptionally() && expireAt > now;
+        }
     }
 }
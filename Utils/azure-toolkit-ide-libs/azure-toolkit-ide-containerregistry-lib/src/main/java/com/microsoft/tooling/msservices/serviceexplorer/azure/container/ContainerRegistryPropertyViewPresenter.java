@@ -20,7 +20,9 @@ import com.microsoft.azuretools.core.mvp.ui.base.MvpPresenter;
 import com.microsoft.azuretools.core.mvp.ui.containerregistry.ContainerRegistryProperty;
 import okhttp3.HttpUrl;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import rx.Observable;
+import rx.Subscription;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -44,12 +46,14 @@ public class ContainerRegistryPropertyViewPresenter<V extends ContainerRegistryP
     private static final String KEY_PAGE_SIZE = "n";
     private static final String HEADER_LINK = "link";
     private static final String FAKE_URL = "http://a";
-    private final Stack<String> repoStack = new Stack<>();
-    private final Stack<String> tagStack = new Stack<>();
-    private String currentRepo;
-    private String currentTag;
-    private String nextRepo;
-    private String nextTag;
+    private Pagination repoPagination;
+    private Pagination tagPagination;
+    // increased on every listing or reset, so that only the result of the latest listing is applied
+    private int repoListing;
+    private int tagListing;
+    private volatile String loginServerUrl;
+    private Subscription repoSubscription;
+    private Subscription tagSubscription;
 
     /**
      * Constructor.
@@ -108,9 +112,23 @@ public class ContainerRegistryPropertyViewPresenter<V extends ContainerRegistryP
      */
     public void onRefreshRepositories(String sid, String id, boolean isNextPage) {
         resetRepoStack();
+        if (loginServerUrl != null) {
+            ContainerExplorerMvpModel.getInstance().invalidateCache(loginServerUrl, null);
+        }
         onListRepositories(sid, id, isNextPage);
     }
 
+    /**
+     * Called when selecting a repository or refreshing its tags in ACR Explorer
+     */
+    public void onRefreshTags(String sid, String id, String repo) {
+        resetTagStack();
+        if (loginServerUrl != null) {
+            ContainerExplorerMvpModel.getInstance().invalidateCache(loginServerUrl, repo);
+        }
+        onListTags(sid, id, repo, true /* isNextPage */);
+    }
+
     /**
      * Called when listing repositories of ACR.
      */
@@ -119,23 +137,35 @@ public class ContainerRegistryPropertyViewPresenter<V extends ContainerRegistryP
             return;
         }
         resetTagStack();
-        Observable.fromCallable(() -> {
+        // the result of an outdated listing is dropped
+        unsubscribe(repoSubscription);
+        unsubscribe(tagSubscription);
+        // the listing works on its own copy of the pagination, which is applied only if it's still the latest one
+        final Pagination pagination = repoPagination.copy();
+        final int listing = ++repoListing;
+        repoSubscription = Observable.fromCallable(() -> {
             ContainerRegistry registry = ContainerRegistryMvpModel.getInstance().getContainerRegistry(sid, id);
             PrivateRegistryImageSetting setting = ContainerRegistryMvpModel.getInstance()
                     .createImageSettingWithRegistry(registry);
-            Map<String, String> query = buildQueryMap(isNextPage, repoStack, nextRepo);
+            loginServerUrl = registry.getLoginServerUrl();
+            Map<String, String> query = pagination.buildQueryMap(isNextPage);
             Map<String, String> responseMap = ContainerExplorerMvpModel.getInstance().listRepositories(registry
                     .getLoginServerUrl(), setting.getUsername(), setting.getPassword(), query);
-            updatePaginationInfo(isNextPage, Type.REPO, responseMap.get(HEADER_LINK));
+            pagination.update(isNextPage, responseMap.get(HEADER_LINK));
+            if (pagination.hasNext()) {
+                ContainerExplorerMvpModel.getInstance().prefetchRepositories(registry.getLoginServerUrl(),
+                        setting.getUsername(), setting.getPassword(), pagination.buildQueryMap(true));
+            }
             final Catalog catalog = JsonUtils.fromJson(responseMap.get(BODY), Catalog.class);
-            return catalog.getRepositories();
+            return Pair.of(catalog.getRepositories(), pagination);
         })
                 .subscribeOn(getSchedulerProvider().io())
-                .subscribe(repos -> AzureTaskManager.getInstance().runLater(() -> {
-                    if (isViewDetached()) {
+                .subscribe(page -> AzureTaskManager.getInstance().runLater(() -> {
+                    if (isViewDetached() || listing != repoListing) {
                         return;
                     }
-                    getMvpView().listRepo(repos);
+                    repoPagination = page.getRight();
+                    getMvpView().listRepo(page.getLeft());
                 }), e -> errorHandler(CANNOT_GET_REPOS, (Exception) e));
     }
 
@@ -146,53 +176,69 @@ public class ContainerRegistryPropertyViewPresenter<V extends ContainerRegistryP
         if (isSubscriptionIdAndResourceIdInValid(sid, id)) {
             return;
         }
-        resetTagStack();
-        Observable.fromCallable(() -> {
+        unsubscribe(tagSubscription);
+        final Pagination pagination = tagPagination.copy();
+        final int listing = ++tagListing;
+        tagSubscription = Observable.fromCallable(() -> {
             ContainerRegistry registry = ContainerRegistryMvpModel.getInstance().getContainerRegistry(sid, id);
             PrivateRegistryImageSetting setting = ContainerRegistryMvpModel.getInstance()
                     .createImageSettingWithRegistry(registry);
-            Map<String, String> query = buildQueryMap(isNextPage, tagStack, nextTag);
+            loginServerUrl = registry.getLoginServerUrl();
+            Map<String, String> query = pagination.buildQueryMap(isNextPage);
             Map<String, String> responseMap = ContainerExplorerMvpModel.getInstance().listTags(registry
                     .getLoginServerUrl(), setting.getUsername(), setting.getPassword(), repo, query);
-            updatePaginationInfo(isNextPage, Type.TAG, responseMap.get(HEADER_LINK));
+            pagination.update(isNextPage, responseMap.get(HEADER_LINK));
+            if (pagination.hasNext()) {
+                ContainerExplorerMvpModel.getInstance().prefetchTags(registry.getLoginServerUrl(),
+                        setting.getUsername(), setting.getPassword(), repo, pagination.buildQueryMap(true));
+            }
             Tag tag = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false).readValue(responseMap.get(BODY), Tag.class);
-            return tag.getTags();
+            return Pair.of(tag.getTags(), pagination);
         })
                 .subscribeOn(getSchedulerProvider().io())
-                .subscribe(tags -> AzureTaskManager.getInstance().runLater(() -> {
-                    if (isViewDetached()) {
+                .subscribe(page -> AzureTaskManager.getInstance().runLater(() -> {
+                    if (isViewDetached() || listing != tagListing) {
                         return;
                     }
-                    getMvpView().listTag(tags);
+                    tagPagination = page.getRight();
+                    getMvpView().listTag(page.getLeft());
                 }), e -> errorHandler(CANNOT_GET_TAGS, (Exception) e));
     }
 
+    @Override
+    public void onDetachView() {
+        unsubscribe(repoSubscription);
+        unsubscribe(tagSubscription);
+        if (loginServerUrl != null) {
+            ContainerExplorerMvpModel.getInstance().cancelPrefetches(loginServerUrl);
+        }
+        super.onDetachView();
+    }
+
     public boolean hasNextRepoPage() {
-        return nextRepo != null;
+        return repoPagination.hasNext();
     }
 
     public boolean hasNextTagPage() {
-        return nextTag != null;
+        return tagPagination.hasNext();
     }
 
     public boolean hasPreviousRepoPage() {
-        return repoStack.size() != 0;
+        return repoPagination.hasPrevious();
     }
 
     public boolean hasPreviousTagPage() {
-        return tagStack.size() != 0;
+        return tagPagination.hasPrevious();
     }
 
     private void resetRepoStack() {
-        repoStack.clear();
-        currentRepo = null;
-        nextRepo = "";
+        repoPagination = new Pagination();
+        repoListing++;
     }
 
     private void resetTagStack() {
-        tagStack.clear();
-        currentTag = null;
-        nextTag = "";
+        tagPagination = new Pagination();
+        tagListing++;
     }
 
     private ContainerRegistryProperty getProperty(ContainerRegistry registry, String sid) {
@@ -222,67 +268,8 @@ public class ContainerRegistryPropertyViewPresenter<V extends ContainerRegistryP
         return false;
     }
 
-    private Map<String, String> buildQueryMap(boolean isNextPage, @Nonnull Stack<String> stack, @Nullable String next) {
-        Map<String, String> query = new HashMap<>();
-        query.put(KEY_PAGE_SIZE, PAGE_SIZE);
-        if (isNextPage) {
-            if (next != null) {
-                query.put(KEY_LAST, next);
-            }
-        } else {
-            if (stack.size() > 0) {
-                query.put(KEY_LAST, stack.peek());
-            }
-        }
-        return query;
-    }
-
-    private void updatePaginationInfo(boolean isNextPage, @Nonnull Type type, @Nullable String linkHeader) {
-        if (isNextPage) {
-            switch (type) {
-                case REPO:
-                    if (this.currentRepo != null) {
-                        repoStack.push(this.currentRepo);
-                    }
-                    if (this.nextRepo != null) {
-                        this.currentRepo = this.nextRepo;
-                    }
-                    this.nextRepo = linkHeader == null ? null : parseLinkHeader(linkHeader);
-                    break;
-                case TAG:
-                    if (this.currentTag != null) {
-                        tagStack.push(this.currentTag);
-                    }
-                    if (this.nextTag != null) {
-                        this.currentTag = this.nextTag;
-                    }
-                    this.nextTag = linkHeader == null ? null : parseLinkHeader(linkHeader);
-                    break;
-                default:
-                    break;
-            }
-        } else {
-            switch (type) {
-                case REPO:
-                    if (repoStack.size() > 0) {
-                        this.nextRepo = this.currentRepo;
-                        this.currentRepo = repoStack.pop();
-                    }
-                    break;
-                case TAG:
-                    if (tagStack.size() > 0) {
-                        this.nextTag = this.currentTag;
-                        this.currentTag = tagStack.pop();
-                    }
-                    break;
-                default:
-                    break;
-            }
-        }
-    }
-
     @Nullable
-    private String parseLinkHeader(@Nonnull String header) {
+    private static String parseLinkHeader(@Nonnull String header) {
         int start = header.indexOf("<") + 1;
         int end = header.lastIndexOf(">");
         if (start <= 0 || end < 0 || end >= header.length() || start >= end) {
@@ -295,6 +282,12 @@ public class ContainerRegistryPropertyViewPresenter<V extends ContainerRegistryP
         return url.queryParameter(KEY_LAST);
     }
 
+    private static void unsubscribe(@Nullable Subscription subscription) {
+        if (subscription != null && !subscription.isUnsubscribed()) {
+            subscription.unsubscribe();
+        }
+    }
+
     private void errorHandler(String msg, Exception e) {
         AzureTaskManager.getInstance().runLater(() -> {
             if (isViewDetached()) {
@@ -304,8 +297,61 @@ public class ContainerRegistryPropertyViewPresenter<V extends ContainerRegistryP
         });
     }
 
-    private enum Type {
-        REPO,
-        TAG
+    /**
+     * Pagination of repositories or tags, the pages before the current one are kept in a stack.
+     */
+    private static class Pagination {
+        private final Stack<String> stack = new Stack<>();
+        private String current;
+        // empty for the first page, and null if there is no next page
+        private String next = "";
+
+        @Nonnull
+        Pagination copy() {
+            final Pagination copy = new Pagination();
+            copy.stack.addAll(this.stack);
+            copy.current = this.current;
+            copy.next = this.next;
+            return copy;
+        }
+
+        boolean hasNext() {
+            return next != null;
+        }
+
+        boolean hasPrevious() {
+            return stack.size() != 0;
+        }
+
+        @Nonnull
+        Map<String, String> buildQueryMap(boolean isNextPage) {
+            Map<String, String> query = new HashMap<>();
+            query.put(KEY_PAGE_SIZE, PAGE_SIZE);
+            if (isNextPage) {
+                if (next != null) {
+                    query.put(KEY_LAST, next);
+                }
+            } else {
+                if (stack.size() > 0) {
+                    query.put(KEY_LAST, stack.peek());
+                }
+            }
+            return query;
+        }
+
+        void update(boolean isNextPage, @Nullable String linkHeader) {
+            if (isNextPage) {
+                if (current != null) {
+                    stack.push(current);
+                }
+                if (next != null) {
+                    current = next;
+                }
+                next = linkHeader == null ? null : parseLinkHeader(linkHeader);
+            } else if (stack.size() > 0) {
+                next = current;
+                current = stack.pop();
+            }
+        }
     }
 }
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.tooling.msservices.serviceexplorer.azure.container;
+
+import com.microsoft.azure.toolkit.lib.common.task.AzureTaskManager;
+import com.microsoft.azure.toolkit.lib.containerregistry.ContainerRegistry;
+import com.microsoft.azuretools.core.mvp.model.container.ContainerExplorerMvpModel;
+import com.microsoft.azuretools.core.mvp.model.container.ContainerRegistryMvpModel;
+import com.microsoft.azuretools.core.mvp.model.webapp.PrivateRegistryImageSetting;
+import com.microsoft.azuretools.core.mvp.ui.base.SchedulerProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ContainerRegistryPropertyViewPresenterTest {
+    private static final String SID = "00000000-0000-0000-0000-000000000000";
+    private static final String REGISTRY_ID = "test-registry-id";
+    private static final String SERVER_URL = "test.azurecr.io";
+    private static final String USERNAME = "user";
+    private static final String PASSWORD = "password";
+    private static final int PAGE_SIZE = 30;
+    private static final int REPO_COUNT = 90;
+
+    private MockedStatic<ContainerRegistryMvpModel> registryModelMockedStatic;
+    private MockedStatic<ContainerExplorerMvpModel> explorerModelMockedStatic;
+    private MockedStatic<AzureTaskManager> taskManagerMockedStatic;
+    private ContainerExplorerMvpModel explorerModel;
+    private ContainerRegistryPropertyMvpView view;
+    private ContainerRegistryPropertyViewPresenter<ContainerRegistryPropertyMvpView> presenter;
+    // the runnables posted to UI thread, which are run in order by the tests
+    private final Queue<Runnable> uiQueue = new LinkedList<>();
+    private final List<Map<String, String>> queries = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        final ContainerRegistry registry = mock(ContainerRegistry.class);
+        when(registry.getLoginServerUrl()).thenReturn(SERVER_URL);
+        final PrivateRegistryImageSetting setting = mock(PrivateRegistryImageSetting.class);
+        when(setting.getUsername()).thenReturn(USERNAME);
+        when(setting.getPassword()).thenReturn(PASSWORD);
+        final ContainerRegistryMvpModel registryModel = mock(ContainerRegistryMvpModel.class);
+        when(registryModel.getContainerRegistry(SID, REGISTRY_ID)).thenReturn(registry);
+        when(registryModel.createImageSettingWithRegistry(registry)).thenReturn(setting);
+        registryModelMockedStatic = mockStatic(ContainerRegistryMvpModel.class);
+        registryModelMockedStatic.when(ContainerRegistryMvpModel::getInstance).thenReturn(registryModel);
+
+        explorerModel = mock(ContainerExplorerMvpModel.class);
+        when(explorerModel.listRepositories(eq(SERVER_URL), eq(USERNAME), eq(PASSWORD), anyMap()))
+                .thenAnswer(invocation -> listRepositories(invocation.getArgument(3)));
+        explorerModelMockedStatic = mockStatic(ContainerExplorerMvpModel.class);
+        explorerModelMockedStatic.when(ContainerExplorerMvpModel::getInstance).thenReturn(explorerModel);
+
+        final AzureTaskManager taskManager = mock(AzureTaskManager.class);
+        doAnswer(invocation -> uiQueue.add(invocation.getArgument(0))).when(taskManager).runLater(any(Runnable.class));
+        taskManagerMockedStatic = mockStatic(AzureTaskManager.class);
+        taskManagerMockedStatic.when(AzureTaskManager::getInstance).thenReturn(taskManager);
+
+        view = mock(ContainerRegistryPropertyMvpView.class);
+        presenter = new ContainerRegistryPropertyViewPresenter<ContainerRegistryPropertyMvpView>() {
+            @Override
+            public SchedulerProvider getSchedulerProvider() {
+                return new SchedulerProvider() {
+                    @Override
+                    public Scheduler io() {
+                        return Schedulers.immediate();
+                    }
+
+                    @Override
+                    public Scheduler computation() {
+                        return Schedulers.immediate();
+                    }
+                };
+            }
+        };
+        presenter.onAttachView(view);
+    }
+
+    @After
+    public void tearDown() {
+        registryModelMockedStatic.close();
+        explorerModelMockedStatic.close();
+        taskManagerMockedStatic.close();
+    }
+
+    @Test
+    public void testPagesForwardAndBackward() {
+        presenter.onListRepositories(SID, REGISTRY_ID, true);
+        runUiQueue();
+        verify(view).listRepo(repos(0));
+        assertTrue(presenter.hasNextRepoPage());
+        assertFalse(presenter.hasPreviousRepoPage());
+
+        presenter.onListRepositories(SID, REGISTRY_ID, true);
+        runUiQueue();
+        verify(view).listRepo(repos(PAGE_SIZE));
+        assertTrue(presenter.hasPreviousRepoPage());
+
+        presenter.onListRepositories(SID, REGISTRY_ID, true);
+        runUiQueue();
+        verify(view).listRepo(repos(PAGE_SIZE * 2));
+        assertFalse(presenter.hasNextRepoPage());
+
+        presenter.onListRepositories(SID, REGISTRY_ID, false);
+        runUiQueue();
+        verify(view, times(2)).listRepo(repos(PAGE_SIZE));
+        assertTrue(presenter.hasNextRepoPage());
+        assertEquals(lastRepo(0), queries.get(queries.size() - 1).get("last"));
+        // the next pages are prefetched
+        verify(explorerModel).prefetchRepositories(eq(SERVER_URL), eq(USERNAME), eq(PASSWORD), eq(query(lastRepo(0))));
+    }
+
+    @Test
+    public void testOutdatedListingDoesNotChangePagination() throws Exception {
+        // the listing is refreshed while the first listing is still waiting for the registry
+        final AtomicBoolean refreshed = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (refreshed.compareAndSet(false, true)) {
+                presenter.onRefreshRepositories(SID, REGISTRY_ID, true);
+            }
+            return listRepositories(invocation.getArgument(3));
+        }).when(explorerModel).listRepositories(anyString(), anyString(), anyString(), anyMap());
+
+        presenter.onListRepositories(SID, REGISTRY_ID, true);
+        assertEquals(2, uiQueue.size());
+        runUiQueue();
+
+        // only the refreshed listing is shown, and its pagination is kept as it is
+        verify(view, times(1)).listRepo(any());
+        assertFalse(presenter.hasPreviousRepoPage());
+        assertTrue(presenter.hasNextRepoPage());
+
+        presenter.onListRepositories(SID, REGISTRY_ID, true);
+        runUiQueue();
+        assertEquals(lastRepo(0), queries.get(queries.size() - 1).get("last"));
+        verify(view).listRepo(repos(PAGE_SIZE));
+
+        presenter.onListRepositories(SID, REGISTRY_ID, false);
+        runUiQueue();
+        verify(view, times(2)).listRepo(repos(0));
+        assertFalse(presenter.hasPreviousRepoPage());
+    }
+
+    @Test
+    public void testListingAfterDetachIsDropped() {
+        presenter.onListRepositories(SID, REGISTRY_ID, true);
+        presenter.onDetachView();
+        runUiQueue();
+
+        verify(view, never()).listRepo(any());
+        verify(explorerModel).cancelPrefetches(SERVER_URL);
+    }
+
+    private void runUiQueue() {
+        while (!uiQueue.isEmpty()) {
+            uiQueue.poll().run();
+        }
+    }
+
+    /**
+     * a registry of {@link #REPO_COUNT} repositories, listed in pages of {@link #PAGE_SIZE} after the "last" one.
+     */
+    private Map<String, String> listRepositories(Map<String, String> query) {
+        queries.add(query);
+        final String last = query.get("last");
+        final int from = last == null || last.isEmpty() ? 0 : Integer.parseInt(last.substring("repo".length())) + 1;
+        final List<String> repos = repos(from);
+        final Map<String, String> response = new HashMap<>();
+        response.put("body", repos.stream().map(r -> "\"" + r + "\"")
+                .collect(Collectors.joining(",", "{\"repositories\":[", "]}")));
+        if (from + PAGE_SIZE < REPO_COUNT) {
+            response.put("link", String.format("</v2/_catalog?last=%s&n=%d>; rel=\"next\"", lastRepo(from), PAGE_SIZE));
+        }
+        return response;
+    }
+
+    private static List<String> repos(int from) {
+        return IntStream.range(from, Math.min(from + PAGE_SIZE, REPO_COUNT)).mapToObj(i -> String.format("repo%02d", i))
+                .collect(Collectors.toList());
+    }
+
+    private static String lastRepo(int from) {
+        return String.format("repo%02d", from + PAGE_SIZE - 1);
+    }
+
+    private static Map<String, String> query(String last) {
+        final Map<String, String> query = new HashMap<>();
+        query.put("n", String.valueOf(PAGE_SIZE));
+        query.put("last", last);
+        return query;
+    }
+}
@@ -6,9 +6,7 @@
 package com.microsoft.azuretools.azurecommons.xmlhandling;
 
 import java.util.HashMap;
-
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathFactory;
+import java.util.Map;
 
 import com.microsoft.azure.toolkit.ide.common.util.ParserXMLUtility;
 import org.w3c.dom.Document;
@@ -44,12 +42,10 @@ public class DataOperations {
     public static String getProperty(String dataFile, String propName) {
         String propVal = null;
         try {
-            Document doc = ParserXMLUtility.parseXMLFile(dataFile);
-            if (doc != null) {
-                String nodeExpr = String.format(PROPERTY_VAL, propName);
-                XPath xPath = XPathFactory.newInstance().newXPath();
-                propVal = xPath.evaluate(nodeExpr, doc);
-            }
+            // streams the file and stops at the property, same as evaluating PROPERTY_VAL on the parsed document
+            Map<String, String> attributes = ParserXMLUtility.findElementAttributes(dataFile,
+                    attrs -> propName.equals(attrs.get("name")), "data", "property");
+            propVal = attributes == null ? "" : attributes.getOrDefault("value", "");
         } catch (Exception ex) {
             // ignore
         }
@@ -10,6 +10,7 @@ import com.microsoft.azure.toolkit.ide.common.experiment.ExperimentationService;
 import com.microsoft.azure.toolkit.lib.common.telemetry.AzureTelemeter;
 import com.microsoft.azure.toolkit.lib.common.telemetry.AzureTelemetryClient;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import com.microsoft.azuretools.telemetrywrapper.TelemetryEventQueue;
 import com.microsoft.azuretools.telemetrywrapper.TelemetryManager;
 import org.apache.commons.lang3.StringUtils;
 
@@ -20,6 +21,9 @@ import java.util.Optional;
 
 public class AppInsightsClient {
     static AppInsightsConfiguration configuration;
+    // events are tracked in background, so that callers don't contend on the telemetry client
+    private static final TelemetryEventQueue queue = new TelemetryEventQueue("azure-toolkit-appinsights-sender",
+            TelemetryClientSingleton::getTelemetry);
 
     public enum EventType {
         Action,
@@ -101,15 +105,30 @@ public class AppInsightsClient {
         if (isAppInsightsClientAvailable() && configuration.validated()) {
             String prefValue = configuration.preferenceVal();
             if (prefValue == null || prefValue.isEmpty() || prefValue.equalsIgnoreCase("true") || force) {
-                AzureTelemetryClient telemetry = TelemetryClientSingleton.getTelemetry();
                 Map<String, String> properties = buildProperties(version, myProperties);
-                synchronized (TelemetryClientSingleton.class) {
-                    telemetry.trackEvent(eventName, properties, metrics);
-                }
+                queue.offer(() -> eventName, properties, metrics);
             }
         }
     }
 
+    /**
+     * send the pending events in current thread, e.g. before the IDE exits
+     */
+    public static void flush(long timeoutMillis) {
+        queue.flush(timeoutMillis);
+    }
+
+    /**
+     * send the pending events in current thread and stop the background sender, called when the IDE exits
+     */
+    public static void stop(long timeoutMillis) {
+        queue.stop(timeoutMillis);
+    }
+
+    public static long getDroppedEventCount() {
+        return queue.getDroppedCount();
+    }
+
     private static Map<String, String> buildProperties(String version, Map<String, String> myProperties) {
         Map<String, String> properties = myProperties == null ? new HashMap<>() : new HashMap<>(myProperties);
         properties.put("SessionId", configuration.sessionId());
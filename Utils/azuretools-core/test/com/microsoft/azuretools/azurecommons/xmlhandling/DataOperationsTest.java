@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azuretools.azurecommons.xmlhandling;
+
+import com.microsoft.azure.toolkit.ide.common.util.ParserXMLUtility;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DataOperationsTest {
+
+    private static final int PROPERTY_COUNT = 500;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testParsedDocumentIsReusedWhileFileIsUnchanged() throws Exception {
+        final File file = write("data.xml", dataFile("old"));
+        final long lastModified = file.lastModified();
+        final Document first = ParserXMLUtility.parseXMLFile(file.getPath());
+
+        // same length and modification time, so the cached document is used rather than reading the file again
+        write("data.xml", dataFile("new"));
+        assertTrue(file.setLastModified(lastModified));
+        final Document second = ParserXMLUtility.parseXMLFile(file.getPath());
+
+        assertNotSame(first, second);
+        assertEquals("old", ParserXMLUtility.getExpressionValue(second, String.format(DataOperations.PROPERTY_VAL, "p0")));
+    }
+
+    @Test
+    public void testCallersGetCopiesOfCachedDocument() throws Exception {
+        final File file = write("data.xml", dataFile("value"));
+
+        final Document modified = ParserXMLUtility.parseXMLFile(file.getPath());
+        DataOperations.updatePropertyValue(modified, "p0", "modified");
+        DataOperations.updatePropertyValue(modified, "added", "added");
+
+        final Document parsed = ParserXMLUtility.parseXMLFile(file.getPath());
+        assertEquals("value", ParserXMLUtility.getExpressionValue(parsed, String.format(DataOperations.PROPERTY_VAL, "p0")));
+        assertEquals("", ParserXMLUtility.getExpressionValue(parsed, String.format(DataOperations.PROPERTY_VAL, "added")));
+    }
+
+    @Test
+    public void testCachedDocumentIsDroppedOnceFileChanges() throws Exception {
+        final File file = write("data.xml", dataFile("old"));
+        final long lastModified = file.lastModified();
+        ParserXMLUtility.parseXMLFile(file.getPath());
+
+        write("data.xml", dataFile("changed"));
+        assertTrue(file.setLastModified(lastModified + 2000));
+        assertEquals("changed", getPropertyByXPath(file, "p0"));
+
+        // the length tells the change even if the modification time doesn't
+        write("data.xml", dataFile("changed again"));
+        assertTrue(file.setLastModified(lastModified + 2000));
+        assertEquals("changed again", getPropertyByXPath(file, "p0"));
+    }
+
+    @Test
+    public void testCachedDocumentIsDroppedOnSave() throws Exception {
+        final File file = write("data.xml", dataFile("old"));
+        final long lastModified = file.lastModified();
+        final Document doc = ParserXMLUtility.parseXMLFile(file.getPath());
+
+        DataOperations.updatePropertyValue(doc, "p0", "new");
+        ParserXMLUtility.saveXMLFile(file.getPath(), doc);
+        // within the resolution of the modification time
+        assertTrue(file.setLastModified(lastModified));
+
+        assertEquals("new", getPropertyByXPath(file, "p0"));
+        assertEquals("new", DataOperations.getProperty(file.getPath(), "p0"));
+    }
+
+    @Test
+    public void testStreamingLookupOfPropertyMatchesXPath() throws Exception {
+        final StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<data>\n");
+        // nested properties and the ones out of <data> are not at the path
+        xml.append("  <group><property name=\"nested\" value=\"wrong\"/></group>\n");
+        for (int i = 0; i < PROPERTY_COUNT; i++) {
+            xml.append(String.format("  <property name=\"p%d\" value=\"v%d\"/>\n", i, i));
+        }
+        xml.append("  <property name=\"nested\" value=\"right\"/>\n");
+        xml.append("  <property name=\"escaped\" value=\"a &amp; b &lt;c&gt; &quot;d&quot;\"/>\n");
+        xml.append("  <property name=\"empty\" value=\"\"/>\n");
+        xml.append("  <property name=\"noValue\"/>\n");
+        // the first one wins for duplicated names
+        xml.append("  <property name=\"p1\" value=\"duplicated\"/>\n");
+        xml.append("  <!-- <property name=\"commented\" value=\"wrong\"/> -->\n");
+        xml.append("</data>\n");
+        final File file = write("data.xml", xml.toString());
+
+        final List<String> names = new ArrayList<>();
+        for (int i = 0; i < PROPERTY_COUNT; i += 50) {
+            names.add("p" + i);
+        }
+        names.add("p1");
+        names.add("nested");
+        names.add("escaped");
+        names.add("empty");
+        names.add("noValue");
+        names.add("commented");
+        names.add("missing");
+        for (final String name : names) {
+            assertEquals(name, getPropertyByXPath(file, name), DataOperations.getProperty(file.getPath(), name));
+        }
+        assertEquals("a & b <c> \"d\"", DataOperations.getProperty(file.getPath(), "escaped"));
+        assertEquals("v1", DataOperations.getProperty(file.getPath(), "p1"));
+    }
+
+    @Test
+    public void testStreamingLookupOfElementTextMatchesXPath() throws Exception {
+        final File file = write("pom.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n" +
+                "  <parent>\n    <version>1.0.0</version>\n  </parent>\n" +
+                "  <artifactId>app</artifactId>\n" +
+                "  <version>\n    2.0.0\n  </version>\n" +
+                "  <build><finalName>app-final</finalName></build>\n" +
+                "</project>\n");
+        final Document doc = ParserXMLUtility.parseXMLFile(file.getPath());
+
+        assertEquals(ParserXMLUtility.getExpressionValue(doc, "/project/version").trim(),
+                ParserXMLUtility.findElementText(file.getPath(), "project", "version"));
+        assertEquals(ParserXMLUtility.getExpressionValue(doc, "/project/parent/version"),
+                ParserXMLUtility.findElementText(file.getPath(), "project", "parent", "version"));
+        assertEquals(ParserXMLUtility.getExpressionValue(doc, "/project/build/finalName"),
+                ParserXMLUtility.findElementText(file.getPath(), "project", "build", "finalName"));
+        assertNull(ParserXMLUtility.findElementText(file.getPath(), "project", "finalName"));
+        assertNull(ParserXMLUtility.findElementText(file.getPath(), "build", "finalName"));
+    }
+
+    @Test
+    public void testStreamingLookupOfElementAttributes() throws Exception {
+        final File file = write("data.xml", dataFile("value"));
+
+        final Map<String, String> attributes = ParserXMLUtility.findElementAttributes(file.getPath(),
+                attrs -> "p3".equals(attrs.get("name")), "data", "property");
+        assertEquals("value", attributes.get("value"));
+        assertEquals(2, attributes.size());
+        assertNull(ParserXMLUtility.findElementAttributes(file.getPath(), attrs -> false, "data", "property"));
+    }
+
+    @Test
+    public void testConcurrentParsing() throws Exception {
+        final File file = write("data.xml", dataFile("value"));
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                final String name = "p" + (i % PROPERTY_COUNT);
+                results.add(executor.submit(() -> getPropertyByXPath(file, name)));
+            }
+            for (final Future<String> result : results) {
+                assertEquals("value", result.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String getPropertyByXPath(File file, String name) throws Exception {
+        final Document doc = ParserXMLUtility.parseXMLFile(file.getPath());
+        return ParserXMLUtility.getExpressionValue(doc, String.format(DataOperations.PROPERTY_VAL, name));
+    }
+
+    private static String dataFile(String value) {
+        final StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<data>\n");
+        for (int i = 0; i < PROPERTY_COUNT; i++) {
+            xml.append(String.format("  <property name=\"p%d\" value=\"%s\"/>\n", i, value));
+        }
+        return xml.append("</data>\n").toString();
+    }
+
+    private File write(String name, String content) throws Exception {
+        final File file = new File(temp.getRoot(), name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
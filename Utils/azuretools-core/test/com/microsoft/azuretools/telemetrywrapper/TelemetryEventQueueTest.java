@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azuretools.telemetrywrapper;
+
+import com.microsoft.azure.toolkit.lib.common.telemetry.AzureTelemetryClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class TelemetryEventQueueTest {
+
+    private static final long SLOW_TRACK_MILLIS = 2;
+
+    private AzureTelemetryClient clientMock;
+    private Queue<String> tracked;
+    private final List<TelemetryEventQueue> queues = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        tracked = new ConcurrentLinkedQueue<>();
+        clientMock = mock(AzureTelemetryClient.class);
+        doAnswer(invocation -> {
+            // a slow client which can only track one event at a time
+            synchronized (this) {
+                Thread.sleep(SLOW_TRACK_MILLIS);
+                tracked.add(invocation.getArgument(0));
+            }
+            return null;
+        }).when(clientMock).trackEvent(anyString(), any(), any());
+    }
+
+    @After
+    public void tearDown() {
+        queues.forEach(queue -> queue.stop(TimeUnit.SECONDS.toMillis(10)));
+        queues.clear();
+    }
+
+    @Test
+    public void testCallersDoNotWaitForSlowClient() throws Exception {
+        final int threads = 16;
+        final int eventsPerThread = 500;
+        final TelemetryEventQueue queue = newQueue("telemetry-test-sender", () -> clientMock, 1000, 50);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Long>> maxLatencies = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                maxLatencies.add(executor.submit(() -> {
+                    start.await();
+                    long max = 0;
+                    for (int i = 0; i < eventsPerThread; i++) {
+                        final long begin = System.nanoTime();
+                        queue.offer(() -> "event-" + thread, null, null);
+                        max = Math.max(max, System.nanoTime() - begin);
+                    }
+                    return max;
+                }));
+            }
+            final long begin = System.nanoTime();
+            start.countDown();
+            long maxLatency = 0;
+            for (final Future<Long> future : maxLatencies) {
+                maxLatency = Math.max(maxLatency, future.get(30, TimeUnit.SECONDS));
+            }
+            final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+            // tracking all events in callers' threads would take at least threads * eventsPerThread * SLOW_TRACK_MILLIS
+            final long serializedMillis = threads * eventsPerThread * SLOW_TRACK_MILLIS;
+            assertTrue("callers took " + elapsedMillis + "ms", elapsedMillis < serializedMillis / 4);
+            assertTrue("max caller latency " + maxLatency + "ns", maxLatency < TimeUnit.MILLISECONDS.toNanos(serializedMillis / 4));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        queue.flush(TimeUnit.SECONDS.toMillis(30));
+        assertEquals(0, queue.getPendingCount());
+        awaitTracked(threads * eventsPerThread - queue.getDroppedCount());
+        assertEquals(threads * eventsPerThread, tracked.size() + queue.getDroppedCount());
+    }
+
+    @Test
+    public void testDropOldestEventsWhenFull() throws InterruptedException {
+        final AtomicReference<AzureTelemetryClient> client = new AtomicReference<>();
+        final TelemetryEventQueue queue = newQueue("telemetry-test-sender", client::get, 10, 5);
+
+        IntStream.range(0, 25).forEach(i -> queue.offer(() -> "event-" + i, Collections.emptyMap(), null));
+        assertEquals(10, queue.getPendingCount());
+        assertEquals(15, queue.getDroppedCount());
+
+        client.set(clientMock);
+        queue.flush(TimeUnit.SECONDS.toMillis(10));
+        awaitTracked(10);
+        // the background sender and the flushing thread may track concurrently, so the order is not asserted
+        final Set<String> expected = IntStream.range(15, 25).mapToObj(i -> "event-" + i).collect(Collectors.toSet());
+        assertEquals(expected, new HashSet<>(tracked));
+    }
+
+    @Test
+    public void testResolveEventNameWhenSent() throws InterruptedException {
+        final AtomicReference<AzureTelemetryClient> client = new AtomicReference<>();
+        final AtomicReference<String> prefix = new AtomicReference<>("");
+        final TelemetryEventQueue queue = newQueue("telemetry-test-sender", client::get, TelemetryEventQueue.DEFAULT_CAPACITY,
+                TelemetryEventQueue.DEFAULT_BATCH_SIZE);
+
+        queue.offer(() -> prefix.get() + "/info", null, null);
+        prefix.set("AzurePlugin.Test");
+        client.set(clientMock);
+        queue.flush(TimeUnit.SECONDS.toMillis(10));
+        awaitTracked(1);
+
+        assertEquals(Collections.singletonList("AzurePlugin.Test/info"), new ArrayList<>(tracked));
+    }
+
+    @Test
+    public void testStopSendsPendingEventsAndEndsSender() {
+        final AtomicReference<AzureTelemetryClient> client = new AtomicReference<>();
+        final String name = "telemetry-test-sender-stopped";
+        final TelemetryEventQueue queue = newQueue(name, client::get, 100, 50);
+
+        IntStream.range(0, 10).forEach(i -> queue.offer(() -> "event-" + i, null, null));
+        client.set(clientMock);
+        queue.stop(TimeUnit.SECONDS.toMillis(10));
+
+        assertTrue(queue.isStopped());
+        assertEquals(0, queue.getPendingCount());
+        assertEquals(10, tracked.size());
+        assertFalse(Thread.getAllStackTraces().keySet().stream().anyMatch(t -> name.equals(t.getName())));
+
+        queue.offer(() -> "event-after-stop", null, null);
+        assertEquals(0, queue.getPendingCount());
+        assertEquals(1, queue.getDroppedCount());
+    }
+
+    private TelemetryEventQueue newQueue(String name, Supplier<AzureTelemetryClient> client, int capacity, int batchSize) {
+        final TelemetryEventQueue queue = new TelemetryEventQueue(name, client, capacity, batchSize);
+        queues.add(queue);
+        return queue;
+    }
+
+    private void awaitTracked(long count) throws InterruptedException {
+        // the background sender may be still tracking the last event it took
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (tracked.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ * <p/>
+ * All rights reserved.
+ * <p/>
+ * MIT License
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.microsoft.azure.hdinsight.common
+
+import com.microsoft.azure.hdinsight.sdk.cluster.ClusterDetail
+import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail
+import com.microsoft.azure.toolkit.lib.common.model.Subscription
+import io.cucumber.datatable.DataTable
+import io.cucumber.java.Before
+import io.cucumber.java.en.Given
+import io.cucumber.java.en.Then
+import org.assertj.core.api.Assertions.assertThat
+import org.mockito.ArgumentMatchers.any
+import org.mockito.Mockito.*
+import rx.Observable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import kotlin.concurrent.thread
+
+class ClusterManagerExRefreshScenario {
+    data class SubscriptionListing(val subscription: String,
+                                   val clusters: String,
+                                   val isBlocked: Boolean) {
+        val clusterNames: List<String>
+            get() = clusters.split(",").filter { it.isNotBlank() }.map { it.trim().substringBefore(":") }
+    }
+
+    data class SimpleDelta(val subscription: String,
+                           val added: String?,
+                           val removed: String?,
+                           val changed: String?)
+
+    private var clusterMagr: ClusterManagerEx? = null
+    private val listings = ConcurrentHashMap<String, SubscriptionListing>()
+    private val deltas = CopyOnWriteArrayList<ClusterListDelta>()
+    private val snapshotsOnDelta = ConcurrentHashMap<String, List<String>>()
+    private val readerSnapshots = CopyOnWriteArrayList<List<String>>()
+    private var readerCount = 0
+    private var blockedListingGate = CountDownLatch(0)
+    private val isBlockedListingReleasedByReaders = AtomicBoolean()
+
+    @Before
+    fun setUp() {
+        listings.clear()
+
+        clusterMagr = spy(ClusterManagerEx::class.java.getDeclaredConstructor()
+                .apply { isAccessible = true }
+                .newInstance())
+        doReturn(emptyList<IClusterDetail>()).`when`(clusterMagr!!).loadAdditionalClusters()
+        doReturn(emptyList<IClusterDetail>()).`when`(clusterMagr!!).loadEmulatorClusters()
+        doAnswer { listings.keys.sorted().map { mockSubscription(it) } }.`when`(clusterMagr!!).selectedSubscriptions
+        doAnswer {
+            val listing = listings[it.getArgument<Subscription>(0).id]!!
+            Observable.fromCallable {
+                if (listing.isBlocked) {
+                    // Hold the listing until all readers have read the cached clusters, the timeout only
+                    // guards against hanging the test when readers are blocked by the refresh
+                    isBlockedListingReleasedByReaders.set(blockedListingGate.await(30, TimeUnit.SECONDS))
+                }
+
+                listing.clusters.split(",").filter { name -> name.isNotBlank() }.map { name -> mockCluster(name.trim()) }
+            }
+        }.`when`(clusterMagr!!).getSubscriptionHDInsightClustersOfType(any())
+    }
+
+    @Given("^subscriptions list HDInsight clusters:$")
+    fun mockListings(listingTable: DataTable) {
+        listings.clear()
+        listingTable.asList(SubscriptionListing::class.java).forEach { listings[it.subscription] = it }
+    }
+
+    @Given("^refresh clusters asynchronously while (\\d+) readers keep reading cached clusters$")
+    fun refreshWithReaders(readerCount: Int) {
+        deltas.clear()
+        snapshotsOnDelta.clear()
+        readerSnapshots.clear()
+        isBlockedListingReleasedByReaders.set(false)
+        this.readerCount = readerCount
+        blockedListingGate = CountDownLatch(readerCount)
+
+        val unblockedClusters = listings.values.filter { !it.isBlocked }.flatMap { it.clusterNames }
+        val isRefreshing = AtomicBoolean(true)
+        val readers = (1..readerCount).map {
+            thread {
+                while (isRefreshing.get()) {
+                    val snapshot = clusterMagr!!.cachedClusters.map { cluster -> cluster.name }
+                    clusterMagr!!.findClusterDetail({ cluster -> cluster.name == "not-exist" }, false)
+
+                    if (snapshot.containsAll(unblockedClusters)) {
+                        readerSnapshots.add(snapshot)
+                        blockedListingGate.countDown()
+                        break
+                    }
+                }
+            }
+        }
+
+        clusterMagr!!.refreshClusterDetailsAsync()
+                .doOnNext {
+                    snapshotsOnDelta[it.subscriptionId] = clusterMagr!!.cachedClusters.map { cluster -> cluster.name }
+                    deltas.add(it)
+                }
+                .toBlocking()
+                .lastOrDefault(null)
+
+        isRefreshing.set(false)
+        readers.forEach { it.join() }
+    }
+
+    @Then("^clusters of subscription '(.+)' should be cached without those of '(.+)'$")
+    fun checkPartialSnapshot(fastSubscription: String, slowSubscription: String) {
+        assertThat(deltas.map { it.subscriptionId }.indexOf(fastSubscription))
+                .isLessThan(deltas.map { it.subscriptionId }.indexOf(slowSubscription))
+
+        assertThat(snapshotsOnDelta[fastSubscription]).doesNotContainAnyElementsOf(listings[slowSubscription]!!.clusterNames)
+    }
+
+    @Then("^all readers should read cached clusters while subscription '(.+)' is being listed$")
+    fun checkReadersNotBlocked(slowSubscription: String) {
+        assertThat(isBlockedListingReleasedByReaders.get()).isTrue()
+        assertThat(readerSnapshots).hasSize(readerCount)
+        readerSnapshots.forEach {
+            assertThat(it).doesNotContainAnyElementsOf(listings[slowSubscription]!!.clusterNames)
+        }
+    }
+
+    @Then("^cached cluster names should be:$")
+    fun checkCachedClusters(expect: List<String>) {
+        assertThat(clusterMagr!!.cachedClusters.map { it.name }).containsExactlyElementsOf(expect)
+    }
+
+    @Then("^cluster deltas should be:$")
+    fun checkDeltas(deltaTable: DataTable) {
+        val expect = deltaTable.asList(SimpleDelta::class.java)
+        val actual = deltas.map { delta ->
+            SimpleDelta(delta.subscriptionId,
+                    delta.added.map { it.name }.sorted().joinToString(","),
+                    delta.removed.map { it.name }.sorted().joinToString(","),
+                    delta.changed.map { it.name }.sorted().joinToString(","))
+        }
+
+        assertThat(actual).containsExactlyInAnyOrderElementsOf(expect.map {
+            // Empty table cells are read as null
+            SimpleDelta(it.subscription, it.added ?: "", it.removed ?: "", it.changed ?: "")
+        })
+    }
+
+    private fun mockSubscription(id: String): Subscription {
+        val subscription = mock(Subscription::class.java)
+        doReturn(id).`when`(subscription).id
+        doReturn(id).`when`(subscription).name
+        doReturn(true).`when`(subscription).isSelected
+
+        return subscription
+    }
+
+    private fun mockCluster(nameWithState: String): ClusterDetail {
+        // Cluster is in form of name[:state]
+        val name = nameWithState.substringBefore(":")
+        val state = nameWithState.substringAfter(":", "Running")
+        val cluster = mock(ClusterDetail::class.java)
+        doReturn(name).`when`(cluster).name
+        doReturn(name).`when`(cluster).clusterIdForConfiguration
+        doReturn(state).`when`(cluster).state
+        doReturn(if (state == "Running") name else "$name (State: $state)").`when`(cluster).title
+
+        return cluster
+    }
+}
@@ -61,7 +61,9 @@ class ClusterManagerExScenario {
 
         DefaultLoader.setIdeHelper(mockedIdeHelper)
 
-        clusterMagr = mock(ClusterManagerEx::class.java, CALLS_REAL_METHODS)
+        clusterMagr = spy(ClusterManagerEx::class.java.getDeclaredConstructor()
+                .apply { isAccessible = true }
+                .newInstance())
     }
 
     @Given("^Linked HDInsight clusters are:$")
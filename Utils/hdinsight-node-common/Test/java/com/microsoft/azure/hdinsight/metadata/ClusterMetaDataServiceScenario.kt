@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ * <p/>
+ * All rights reserved.
+ * <p/>
+ * MIT License
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.microsoft.azure.hdinsight.metadata
+
+import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail
+import io.cucumber.datatable.DataTable
+import io.cucumber.java.After
+import io.cucumber.java.Before
+import io.cucumber.java.en.Given
+import io.cucumber.java.en.Then
+import org.assertj.core.api.Assertions.assertThat
+import org.mockito.Mockito.doReturn
+import org.mockito.Mockito.mock
+import rx.Subscription
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Semaphore
+import java.util.concurrent.TimeUnit
+
+class ClusterMetaDataServiceScenario {
+    data class SimpleCluster(val name: String,
+                             val connectionUrl: String)
+
+    private val service = ClusterMetaDataService.getInstance()
+    private val events = CopyOnWriteArrayList<ClusterMetaDataService.ClustersChangedEvent>()
+    private val eventsReceived = Semaphore(0)
+    private var eventsSubscription: Subscription? = null
+
+    @Before
+    fun setUp() {
+        service.addCachedClusters(emptyList())
+        events.clear()
+        eventsReceived.drainPermits()
+        eventsSubscription = service.clustersChanges.subscribe {
+            events.add(it)
+            eventsReceived.release()
+        }
+    }
+
+    @After
+    fun tearDown() {
+        eventsSubscription?.unsubscribe()
+    }
+
+    @Given("^cache clusters in batch:$")
+    fun addClusters(clusters: DataTable) {
+        service.addClustersToCache(clusters.asList(SimpleCluster::class.java).map { mockCluster(it) })
+    }
+
+    @Given("^remove clusters in batch:$")
+    fun removeClusters(names: List<String>) {
+        service.removeClustersFromCache(names.map { mockCluster(SimpleCluster(it, "")) })
+    }
+
+    @Then("^cluster found by name '(.+)' should have connection URL '(.+)'$")
+    fun checkFindByName(name: String, connectionUrl: String) {
+        assertThat(service.findClusterByName(name)?.connectionUrl).isEqualTo(connectionUrl)
+    }
+
+    @Then("^cluster found by connection URL '(.+)' should be '(.+)'$")
+    fun checkFindByUrl(connectionUrl: String, name: String) {
+        assertThat(service.findClusterByConnectionUrl(connectionUrl)?.name).isEqualTo(name)
+    }
+
+    @Given("^cache (\\d+) generated clusters$")
+    fun addGeneratedClusters(count: Int) {
+        service.addCachedClusters((0 until count).map {
+            mockCluster(SimpleCluster("cluster$it", "https://cluster$it.azurehdinsight.net/"))
+        })
+    }
+
+    @Then("^looking up each of (\\d+) generated clusters by name and connection URL should take less than (\\d+) ms$")
+    fun checkLookupTime(count: Int, maxMillis: Long) {
+        // Warm up, the connection URL index is built at the first lookup
+        service.findClusterByConnectionUrl("https://cluster0.azurehdinsight.net/")
+
+        val start = System.nanoTime()
+        for (i in 0 until count) {
+            assertThat(service.findClusterByName("cluster$i")).isNotNull
+            assertThat(service.findClusterByConnectionUrl("https://cluster$i.azurehdinsight.net")).isNotNull
+        }
+        val elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+        assertThat(elapsedMillis).isLessThan(maxMillis)
+    }
+
+    @Then("^no cluster should be found by name '(.+)'$")
+    fun checkNotFound(name: String) {
+        assertThat(service.findClusterByName(name)).isNull()
+    }
+
+    @Then("^cached cluster names should be:$")
+    fun checkCachedClusters(expect: List<String>) {
+        assertThat(service.cachedClusterDetails.map { it.name }).containsExactlyElementsOf(expect)
+    }
+
+    @Then("^cluster change events should be:$")
+    fun checkEvents(expect: DataTable) {
+        val expectRows = expect.cells().drop(1)
+        // Events are delivered on a pooled thread, wait for them instead of the publisher
+        assertThat(eventsReceived.tryAcquire(expectRows.size, 10, TimeUnit.SECONDS)).isTrue()
+
+        val actual = events.map {
+            listOf(it.added.joinToString(",") { cluster -> cluster.name }, it.removed.joinToString(",") { cluster -> cluster.name })
+        }
+
+        assertThat(actual).containsExactlyElementsOf(expectRows.map { row -> row.map { it ?: "" } })
+    }
+
+    private fun mockCluster(cluster: SimpleCluster): IClusterDetail {
+        val clusterMock = mock(IClusterDetail::class.java)
+        doReturn(cluster.name).`when`(clusterMock).name
+        doReturn(cluster.connectionUrl).`when`(clusterMock).connectionUrl
+
+        return clusterMock
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ * <p/>
+ * All rights reserved.
+ * <p/>
+ * MIT License
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.microsoft.azure.hdinsight.sdk.cluster
+
+import com.google.gson.Gson
+import com.microsoft.azure.hdinsight.common.CommonConst
+import com.microsoft.azure.toolkit.lib.common.model.Subscription
+import com.microsoft.tooling.msservices.components.DefaultLoader
+import com.microsoft.tooling.msservices.helpers.IDEHelper
+import io.cucumber.java.Before
+import io.cucumber.java.en.Given
+import io.cucumber.java.en.Then
+import org.assertj.core.api.Assertions.assertThat
+import org.mockito.ArgumentMatchers.anyString
+import org.mockito.Mockito.doAnswer
+import org.mockito.Mockito.mock
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.concurrent.thread
+
+class ClusterConfigurationPrefetcherScenario {
+    /**
+     * Fake cluster operation which counts the configuration requests and injects latency
+     */
+    class FakeClusterOperation(private val latencyMs: Long) : IClusterOperation {
+        val fetchCount = AtomicInteger()
+
+        override fun listCluster(subscription: Subscription?): List<ClusterRawInfo> =
+                throw UnsupportedOperationException()
+
+        override fun getClusterConfiguration(subscription: Subscription?, clusterId: String?): ClusterConfiguration {
+            fetchCount.incrementAndGet()
+            Thread.sleep(latencyMs)
+
+            return ClusterConfiguration()
+        }
+    }
+
+    private val subscription = mock(Subscription::class.java)
+    private var clusterOperation = FakeClusterOperation(0)
+    private val clusterEtags = mutableMapOf<String, String>()
+    private var loadedClusters = listOf<ClusterDetail>()
+    private var refreshedClusters = mapOf<String, ClusterDetail>()
+
+    @Before
+    fun setUp() {
+        ClusterConfigurationPrefetcher.getInstance().invalidateAll()
+        clusterEtags.clear()
+    }
+
+    @Given("^a fake cluster operation fetching configuration in (\\d+) milliseconds$")
+    fun mockClusterOperation(latencyMs: Long) {
+        clusterOperation = FakeClusterOperation(latencyMs)
+    }
+
+    @Given("^(\\d+) callers load configuration of cluster '(.+)' concurrently from (\\d+) cluster instances$")
+    fun loadConfigurationConcurrently(callerCount: Int, clusterName: String, instanceCount: Int) {
+        val clusters = (1..instanceCount).map { createCluster(clusterName) }
+        val start = CountDownLatch(1)
+        val callers = (0 until callerCount).map {
+            thread {
+                start.await()
+                clusters[it % instanceCount].getConfigurationInfo()
+            }
+        }
+
+        start.countDown()
+        callers.forEach { it.join() }
+        loadedClusters = clusters
+    }
+
+    @Given("^etag of cluster '(.+)' changes to '(.+)'$")
+    fun changeEtag(clusterName: String, etag: String) {
+        clusterEtags[clusterName] = etag
+    }
+
+    @Given("^clusters are refreshed with configuration prefetched:$")
+    fun refreshAndPrefetch(clusterNames: List<String>) {
+        refreshedClusters = clusterNames.associateWith { createCluster(it) }
+        ClusterConfigurationPrefetcher.getInstance().prefetch(refreshedClusters.values)
+    }
+
+    @Given("^cluster '(.+)' was recently used before IDE restarted$")
+    fun mockPersistedRecentCluster(clusterName: String) {
+        val mockedIdeHelper = mock(IDEHelper::class.java)
+        doAnswer { if (it.getArgument<String>(0) == CommonConst.HDINSIGHT_RECENT_CLUSTER_IDS) clusterId(clusterName) else null }
+                .`when`(mockedIdeHelper).getApplicationProperty(anyString())
+
+        DefaultLoader.setIdeHelper(mockedIdeHelper)
+    }
+
+    @Given("^clusters are refreshed with configuration prefetched after IDE restarted:$")
+    fun refreshAndPrefetchAfterRestart(clusterNames: List<String>) {
+        refreshedClusters = clusterNames.associateWith { createCluster(it) }
+        ClusterConfigurationPrefetcher(TimeUnit.MINUTES.toMillis(30), 1).prefetch(refreshedClusters.values)
+    }
+
+    @Then("^cluster configuration should be fetched (\\d+) times$")
+    fun checkFetchCount(expect: Int) {
+        assertThat(clusterOperation.fetchCount.get()).isEqualTo(expect)
+    }
+
+    @Then("^configuration of all loaded cluster instances should be available$")
+    fun checkLoaded() {
+        assertThat(loadedClusters).allMatch { it.isConfigInfoAvailable }
+    }
+
+    @Then("^configuration of refreshed cluster '(.+)' should be prefetched: (true|false)$")
+    fun checkPrefetched(clusterName: String, expect: Boolean) {
+        val cluster = refreshedClusters[clusterName]!!
+        if (expect) {
+            // Wait for the background prefetch
+            val deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5)
+            while (!cluster.isConfigInfoAvailable && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10)
+            }
+        }
+
+        assertThat(cluster.isConfigInfoAvailable).isEqualTo(expect)
+    }
+
+    private fun createCluster(name: String): ClusterDetail {
+        val rawInfo = mapOf(
+                "id" to clusterId(name),
+                "name" to name,
+                "etag" to clusterEtags.getOrDefault(name, "etag0"),
+                "properties" to mapOf(
+                        "clusterVersion" to "4.0",
+                        "osType" to "Linux",
+                        "clusterState" to "Running",
+                        "clusterDefinition" to mapOf("kind" to "spark"),
+                        "computeProfile" to mapOf("roles" to listOf(mapOf("name" to "workernode", "targetInstanceCount" to 2)))))
+
+        return ClusterDetail(subscription, Gson().fromJson(Gson().toJson(rawInfo), ClusterRawInfo::class.java), clusterOperation)
+    }
+
+    private fun clusterId(name: String): String =
+            "/subscriptions/sub0/resourceGroups/rg0/providers/Microsoft.HDInsight/clusters/$name"
+}
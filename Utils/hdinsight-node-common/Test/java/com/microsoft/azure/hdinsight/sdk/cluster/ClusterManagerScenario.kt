@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ * <p/>
+ * All rights reserved.
+ * <p/>
+ * MIT License
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.microsoft.azure.hdinsight.sdk.cluster
+
+import com.google.gson.Gson
+import com.microsoft.azure.hdinsight.sdk.cluster.HDInsightNewAPI.ClusterOperationNewAPIImpl
+import com.microsoft.azure.hdinsight.sdk.cluster.HDInsightNewAPI.HDInsightUserRoleType
+import com.microsoft.azure.toolkit.lib.common.model.Subscription
+import io.cucumber.datatable.DataTable
+import io.cucumber.java.Before
+import io.cucumber.java.en.Given
+import io.cucumber.java.en.Then
+import org.assertj.core.api.Assertions.assertThat
+import org.mockito.ArgumentMatchers.any
+import org.mockito.Mockito.*
+import rx.Observable
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.LongSupplier
+
+class ClusterManagerScenario {
+    data class SimpleCluster(val name: String,
+                             val state: String,
+                             val version: String,
+                             val isEsp: Boolean)
+
+    private var now = 0L
+    private val probeCount = AtomicInteger()
+    private val transientFailingClusters = mutableSetOf<String>()
+    private var clusters = mutableMapOf<String, SimpleCluster>()
+    private var clusterDetails = listOf<ClusterDetail>()
+    private var clusterMagr: ClusterManager? = null
+    private val subscription = mock(Subscription::class.java)
+
+    @Before
+    fun setUp() {
+        now = 0L
+        probeCount.set(0)
+        clusters.clear()
+        transientFailingClusters.clear()
+    }
+
+    @Given("^cluster probe cache TTL is (\\d+) minutes$")
+    fun initClusterManager(ttlMinutes: Long) {
+        val listClusterOperation = mock(ClusterOperationImpl::class.java)
+        doAnswer { clusters.values.map { toRawInfo(it) } }.`when`(listClusterOperation).listCluster(any())
+
+        clusterMagr = spy(ClusterManager(ClusterProbeCache(TimeUnit.MINUTES.toMillis(ttlMinutes), LongSupplier { now })))
+        doReturn(true).`when`(clusterMagr!!).isHDInsightNewSDKEnabled
+        doReturn(listClusterOperation).`when`(clusterMagr!!).createClusterOperation()
+        doAnswer {
+            // Stub the probe operation to count network probes
+            val probeOperation = mock(ClusterOperationNewAPIImpl::class.java, CALLS_REAL_METHODS)
+            var isFailedTransiently = false
+            doAnswer {
+                probeCount.incrementAndGet()
+                isFailedTransiently = transientFailingClusters.contains(it.getArgument<ClusterRawInfo>(0).name)
+                if (!isFailedTransiently) {
+                    probeOperation.setRoleType(HDInsightUserRoleType.OWNER)
+                }
+                Observable.just(!isFailedTransiently)
+            }.`when`(probeOperation).isProbeGetConfigurationSucceed(any())
+            doAnswer { isFailedTransiently }.`when`(probeOperation).isLastProbeFailureTransient
+
+            probeOperation
+        }.`when`(clusterMagr!!).createProbeOperation(any())
+    }
+
+    @Given("^subscription HDInsight clusters are:$")
+    fun initClusters(clusterTable: DataTable) {
+        clusterTable.asList(SimpleCluster::class.java).forEach { clusters[it.name] = it }
+    }
+
+    @Given("^refresh HDInsight clusters (\\d+) times$")
+    fun refreshClusters(times: Int) {
+        repeat(times) {
+            clusterDetails = clusterMagr!!.getHDInsightClustersWithSpecificType(listOf(subscription), "Linux")
+                    .toBlocking()
+                    .single()
+        }
+    }
+
+    @Given("^state of cluster '(.+)' changes to '(.+)'$")
+    fun changeClusterState(name: String, state: String) {
+        clusters[name] = clusters[name]!!.copy(state = state)
+    }
+
+    @Given("^version of cluster '(.+)' changes to '(.+)'$")
+    fun changeClusterVersion(name: String, version: String) {
+        clusters[name] = clusters[name]!!.copy(version = version)
+    }
+
+    @Given("^new API probe of cluster '(.+)' fails transiently$")
+    fun failProbeTransiently(name: String) {
+        transientFailingClusters.add(name)
+    }
+
+    @Given("^new API probe of cluster '(.+)' recovers$")
+    fun recoverProbe(name: String) {
+        transientFailingClusters.remove(name)
+    }
+
+    @Given("^(\\d+) minutes elapsed$")
+    fun elapse(minutes: Long) {
+        now += TimeUnit.MINUTES.toMillis(minutes)
+    }
+
+    @Then("^new API probe count should be (\\d+)$")
+    fun checkProbeCount(expect: Int) {
+        assertThat(probeCount.get()).isEqualTo(expect)
+    }
+
+    @Then("^MFA ESP clusters should be:$")
+    fun checkMfaEspClusters(expect: List<String>) {
+        assertThat(clusterDetails.filterIsInstance<MfaClusterDetail>().map { it.name })
+                .containsExactlyInAnyOrderElementsOf(expect)
+    }
+
+    @Then("^cluster '(.+)' should not be MFA ESP$")
+    fun checkNotMfaEspCluster(name: String) {
+        assertThat(clusterDetails.map { it.name }).contains(name)
+        assertThat(clusterDetails.filterIsInstance<MfaClusterDetail>().map { it.name }).doesNotContain(name)
+    }
+
+    @Then("^no cluster should be in reader role$")
+    fun checkRoleType() {
+        assertThat(clusterDetails).hasSize(clusters.size)
+        // Role type should be restored from cache for the clusters not probed again
+        assertThat(clusterDetails.filter { it.isRoleTypeReader }).isEmpty()
+    }
+
+    private fun toRawInfo(cluster: SimpleCluster): ClusterRawInfo {
+        val roles = mutableListOf(mapOf("name" to "workernode", "targetInstanceCount" to 2))
+        if (cluster.isEsp) {
+            roles.add(mapOf("name" to "idbrokernode", "targetInstanceCount" to 2))
+        }
+
+        val rawInfo = mapOf(
+                "id" to "/subscriptions/sub0/resourceGroups/rg0/providers/Microsoft.HDInsight/clusters/${cluster.name}",
+                "name" to cluster.name,
+                "properties" to mapOf(
+                        "clusterVersion" to cluster.version,
+                        "osType" to "Linux",
+                        "clusterState" to cluster.state,
+                        "clusterDefinition" to mapOf("kind" to "spark"),
+                        "computeProfile" to mapOf("roles" to roles)))
+
+        return Gson().fromJson(Gson().toJson(rawInfo), ClusterRawInfo::class.java)
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ * <p/>
+ * All rights reserved.
+ * <p/>
+ * MIT License
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.microsoft.azure.hdinsight.sdk.storage.adlsgen2
+
+import com.github.tomakehurst.wiremock.client.WireMock
+import com.github.tomakehurst.wiremock.http.RequestMethod
+import com.github.tomakehurst.wiremock.stubbing.Scenario
+import com.microsoft.azure.hdinsight.sdk.common.HttpObservable
+import com.microsoft.azure.hdinsight.spark.common.MockHttpService
+import io.cucumber.java.After
+import io.cucumber.java.Before
+import io.cucumber.java.en.Given
+import io.cucumber.java.en.Then
+import io.cucumber.java.en.When
+import org.assertj.core.api.Assertions.assertThat
+import java.io.File
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.random.Random
+
+class ADLSGen2FSOperationScenario {
+    private val fileSystemPath = "/fs"
+
+    private lateinit var httpServerMock: MockHttpService
+    private lateinit var op: ADLSGen2FSOperation
+    private var listedCount = 0
+    private var listedPages = 0
+    private lateinit var fileToUpload: File
+    private val uploadedBytesReported = AtomicLong()
+    private var uploadError: Throwable? = null
+
+    @Before
+    fun setUp() {
+        httpServerMock = MockHttpService()
+        op = ADLSGen2FSOperation(credentialHttp("user"))
+        // The listing cache is shared by all operations
+        op.invalidateListingCache()
+    }
+
+    @After
+    fun tearDown() {
+        httpServerMock.livyServerMock.stop()
+        if (::fileToUpload.isInitialized) {
+            fileToUpload.delete()
+        }
+    }
+
+    @Given("^an ADLS Gen2 directory '(.+)' with (\\d+) entries served in pages of (\\d+)$")
+    fun mockDirectory(directory: String, entriesCount: Int, pageSize: Int) {
+        WireMock.configureFor(httpServerMock.port)
+        op.setListPageSize(pageSize)
+
+        val pagesCount = (entriesCount + pageSize - 1) / pageSize
+        (0 until pagesCount).forEach { page ->
+            val paths = (page * pageSize until minOf(entriesCount, (page + 1) * pageSize))
+                    .joinToString(",") { """{"name":"$directory/file$it","isDirectory":"false"}""" }
+            val response = WireMock.aResponse()
+                    .withStatus(200)
+                    .withBody("""{"paths":[$paths]}""")
+
+            if (page + 1 < pagesCount) {
+                response.withHeader(ADLSGen2FSOperation.CONTINUATION_HEADER, "token${page + 1}")
+            }
+
+            WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo(fileSystemPath))
+                    .withQueryParam("directory", WireMock.equalTo(directory))
+                    .withQueryParam("maxResults", WireMock.equalTo(pageSize.toString()))
+                    .withQueryParam("continuation",
+                            if (page == 0) WireMock.absent() else WireMock.equalTo("token$page"))
+                    .willReturn(response))
+        }
+    }
+
+    @When("^list the ADLS Gen2 directory '(.+)'$")
+    fun listDirectory(directory: String) {
+        listedPages = 0
+        listedCount = op.listPages(httpServerMock.completeUrl(fileSystemPath), directory)
+                .doOnNext { listedPages++ }
+                .concatMap { rx.Observable.from(it) }
+                .count()
+                .toBlocking()
+                .single()
+    }
+
+    @When("^list the ADLS Gen2 directory '(.+)' and stop after (\\d+) pages$")
+    fun listDirectoryPartially(directory: String, pagesToTake: Int) {
+        listedPages = 0
+        listedCount = op.listPages(httpServerMock.completeUrl(fileSystemPath), directory)
+                .take(pagesToTake)
+                .doOnNext { listedPages++ }
+                .concatMap { rx.Observable.from(it) }
+                .count()
+                .toBlocking()
+                .single()
+    }
+
+    @When("^list the ADLS Gen2 directory '(.+)' with another operation$")
+    fun listDirectoryWithAnotherOperation(directory: String) {
+        op = ADLSGen2FSOperation(credentialHttp("user"))
+        listDirectory(directory)
+    }
+
+    @When("^list the ADLS Gen2 directory '(.+)' with the credential '(.+)'$")
+    fun listDirectoryWithCredential(directory: String, credential: String) {
+        op = ADLSGen2FSOperation(credentialHttp(credential))
+        listDirectory(directory)
+    }
+
+    @When("^list the ADLS Gen2 directory '(.+)' with an unknown credential$")
+    fun listDirectoryWithUnknownCredential(directory: String) {
+        op = ADLSGen2FSOperation(HttpObservable())
+        listDirectory(directory)
+    }
+
+    @When("^list the ADLS Gen2 directory '(.+)' after the cached listings expire in (\\d+) ms$")
+    fun listDirectoryAfterExpired(directory: String, ttlMillis: Long) {
+        op.setListCacheTtlMillis(ttlMillis)
+        listDirectory(directory)
+        Thread.sleep(ttlMillis * 2)
+        listDirectory(directory)
+    }
+
+    @When("^create ADLS Gen2 file '(.+)'$")
+    fun createFile(filePath: String) {
+        WireMock.configureFor(httpServerMock.port)
+        WireMock.stubFor(WireMock.put(WireMock.urlPathEqualTo(filePath))
+                .willReturn(WireMock.aResponse().withStatus(201)))
+
+        op.createFile(httpServerMock.completeUrl(filePath)).toBlocking().single()
+    }
+
+    @When("^invalidate the ADLS Gen2 listing cache$")
+    fun invalidateCache() {
+        op.invalidateListingCache()
+        httpServerMock.livyServerMock.resetRequests()
+    }
+
+    @Then("^(\\d+) ADLS Gen2 entries in (\\d+) pages are listed$")
+    fun checkListed(expectedCount: Int, expectedPages: Int) {
+        assertThat(listedCount).isEqualTo(expectedCount)
+        assertThat(listedPages).isEqualTo(expectedPages)
+    }
+
+    @Then("^(\\d+) ADLS Gen2 list requests are sent$")
+    fun checkRequestsCount(expectedCount: Int) {
+        assertThat(httpServerMock.livyServerMock.allServeEvents
+                .filter { it.request.method == RequestMethod.GET && it.request.url.startsWith(fileSystemPath) })
+                .hasSize(expectedCount)
+    }
+
+    private fun credentialHttp(credential: String) = object : HttpObservable() {
+        override fun getCredentialIdentity() = credential
+    }
+
+    @Given("^a local file of (\\d+) bytes to upload$")
+    fun createFileToUpload(size: Int) {
+        fileToUpload = File.createTempFile("adlsgen2-upload", ".jar")
+        fileToUpload.writeBytes(Random(size).nextBytes(size))
+    }
+
+    @Given("^an ADLS Gen2 file '(.+)' accepting appended data$")
+    fun mockAppendAndFlush(filePath: String) {
+        WireMock.configureFor(httpServerMock.port)
+        WireMock.stubFor(WireMock.patch(WireMock.urlPathEqualTo(filePath))
+                .withQueryParam("action", WireMock.equalTo("append"))
+                .willReturn(WireMock.aResponse().withStatus(202)))
+        WireMock.stubFor(WireMock.patch(WireMock.urlPathEqualTo(filePath))
+                .withQueryParam("action", WireMock.equalTo("flush"))
+                .willReturn(WireMock.aResponse().withStatus(200)))
+    }
+
+    @Given("^appending to ADLS Gen2 file '(.+)' at position (\\d+) fails (\\d+) times$")
+    fun mockAppendFailures(filePath: String, position: Long, failures: Int) {
+        WireMock.configureFor(httpServerMock.port)
+        (0 until failures).forEach { failed ->
+            WireMock.stubFor(WireMock.patch(WireMock.urlPathEqualTo(filePath))
+                    .atPriority(1)
+                    .inScenario("append-$position")
+                    .whenScenarioStateIs(if (failed == 0) Scenario.STARTED else "failed-$failed")
+                    .withQueryParam("action", WireMock.equalTo("append"))
+                    .withQueryParam("position", WireMock.equalTo(position.toString()))
+                    .willReturn(WireMock.aResponse().withStatus(500))
+                    .willSetStateTo("failed-${failed + 1}"))
+        }
+    }
+
+    @When("^upload the local file to ADLS Gen2 file '(.+)' in chunks of (\\d+) bytes with (\\d+) retries$")
+    fun uploadFile(filePath: String, chunkSize: Int, retries: Int) {
+        op.setUploadChunkSize(chunkSize)
+        op.setUploadMaxRetries(retries)
+        op.setUploadRetryDelayMillis(10)
+        op.addUploadProgressListener { uploadedBytes, _, bytesPerSecond ->
+            assertThat(bytesPerSecond).isPositive()
+            uploadedBytesReported.accumulateAndGet(uploadedBytes, Math::max)
+        }
+
+        uploadError = null
+        try {
+            op.uploadData(httpServerMock.completeUrl(filePath), fileToUpload).toBlocking().single()
+        } catch (err: Throwable) {
+            uploadError = err
+        }
+    }
+
+    @Then("^the whole local file is appended to ADLS Gen2 file '(.+)' in (\\d+) ranges$")
+    fun checkAppendedRanges(filePath: String, expectedRanges: Int) {
+        assertThat(uploadError).isNull()
+
+        val appended = httpServerMock.livyServerMock.allServeEvents
+                .filter { it.request.url.startsWith("$filePath?") &&
+                        it.request.queryParameter("action").firstValue() == "append" &&
+                        it.response.status == 202 }
+                .map { it.request.queryParameter("position").firstValue().toInt() to it.request.body }
+                .sortedBy { it.first }
+
+        assertThat(appended).hasSize(expectedRanges)
+        appended.fold(0) { expectedPosition, (position, body) ->
+            assertThat(position).isEqualTo(expectedPosition)
+            position + body.size
+        }
+        assertThat(appended.flatMap { it.second.asIterable() }.toByteArray()).isEqualTo(fileToUpload.readBytes())
+    }
+
+    @Then("^(\\d+) ADLS Gen2 append requests are sent$")
+    fun checkAppendRequestsCount(expectedCount: Int) {
+        assertThat(httpServerMock.livyServerMock.allServeEvents
+                .filter { it.request.queryParameter("action").let { action -> action.isPresent && action.firstValue() == "append" } })
+                .hasSize(expectedCount)
+    }
+
+    @Then("^ADLS Gen2 file '(.+)' is flushed once at the local file length$")
+    fun checkFlushed(filePath: String) {
+        val flushed = httpServerMock.livyServerMock.allServeEvents
+                .filter { it.request.url.startsWith("$filePath?") &&
+                        it.request.queryParameter("action").firstValue() == "flush" }
+
+        assertThat(flushed).hasSize(1)
+        assertThat(flushed[0].request.queryParameter("position").firstValue()).isEqualTo(fileToUpload.length().toString())
+    }
+
+    @Then("^the upload progress reaches the local file length$")
+    fun checkProgress() {
+        assertThat(uploadedBytesReported.get()).isEqualTo(fileToUpload.length())
+    }
+
+    @Then("^the upload fails without flushing ADLS Gen2 file '(.+)'$")
+    fun checkUploadFailed(filePath: String) {
+        assertThat(uploadError).isNotNull()
+        assertThat(httpServerMock.livyServerMock.allServeEvents
+                .filter { it.request.url.startsWith("$filePath?") &&
+                        it.request.queryParameter("action").firstValue() == "flush" })
+                .isEmpty()
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) Microsoft Corporation
+ * <p/>
+ * All rights reserved.
+ * <p/>
+ * MIT License
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.microsoft.azure.hdinsight.spark.common
+
+import com.github.tomakehurst.wiremock.http.RequestMethod
+import com.google.gson.Gson
+import io.cucumber.java.After
+import io.cucumber.java.Before
+import io.cucumber.java.en.Given
+import io.cucumber.java.en.Then
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
+import java.io.IOException
+
+class SparkBatchLogReaderScenario {
+    private val batchId = 1
+    private var httpServerMock: MockHttpService? = null
+    private var logReader: SparkBatchLogReader? = null
+    private var linesRead: List<String> = emptyList()
+
+    @Before
+    fun setUp() {
+        httpServerMock = MockHttpService()
+    }
+
+    @After
+    fun cleanUp() {
+        httpServerMock?.livyServerMock?.stop()
+    }
+
+    @Given("^mock Livy batch log of (\\d+) lines in pages of (\\d+) lines$")
+    fun mockLivyBatchLog(total: Int, pageSize: Int) {
+        // Serve the pages a reader caught up at page boundaries asks for, the trailing one is empty
+        for (from in (0 until total step pageSize) + total) {
+            val lines = (from until minOf(from + pageSize, total)).map { "line $it" }
+            stubLogPage(from, pageSize, total, lines)
+        }
+    }
+
+    @Given("^mock Livy batch log truncated to (\\d+) lines when read from (\\d+) in pages of (\\d+) lines$")
+    fun mockTruncatedLivyBatchLog(total: Int, from: Int, pageSize: Int) {
+        stubLogPage(from, pageSize, total, emptyList())
+    }
+
+    @Given("^mock Livy batch log to return status code (\\d+) in pages of (\\d+) lines$")
+    fun mockLivyBatchLogFailure(statusCode: Int, pageSize: Int) {
+        httpServerMock!!.stub("GET", logUri(0, pageSize), statusCode, "Internal Server Error")
+    }
+
+    @Given("^create a Spark batch log reader in pages of (\\d+) lines$")
+    fun createLogReader(pageSize: Int) {
+        logReader = SparkBatchLogReader(SparkBatchSubmission(), httpServerMock!!.completeUrl("/batches"), batchId, pageSize)
+    }
+
+    @Then("^read new lines of Spark batch log$")
+    fun readNewLines() {
+        httpServerMock!!.livyServerMock.resetRequests()
+        linesRead = logReader!!.readNewLines()
+    }
+
+    @Then("^check (\\d+) lines read from 'line (\\d+)' to 'line (\\d+)'$")
+    fun checkLinesRead(count: Int, first: Int, last: Int) {
+        assertThat(linesRead).hasSize(count)
+        assertThat(linesRead).isEqualTo((first..last).map { "line $it" })
+    }
+
+    @Then("^check no lines read$")
+    fun checkNoLinesRead() {
+        assertThat(linesRead).isEmpty()
+    }
+
+    @Then("^check Spark batch log reader offset should be (\\d+)$")
+    fun checkOffset(offset: Int) {
+        assertThat(logReader!!.offset).isEqualTo(offset)
+    }
+
+    @Then("^check Livy batch log requests should be from the following offsets$")
+    fun checkLogRequests(offsets: List<Int>) {
+        val requested = httpServerMock!!.livyServerMock.allServeEvents
+                .filter { it.request.method == RequestMethod.GET && it.request.url.startsWith("/batches/$batchId/log") }
+                .map { it.request.queryParameter("from").firstValue().toInt() }
+                .sorted()
+
+        assertThat(requested).isEqualTo(offsets)
+    }
+
+    @Then("^reading new lines of Spark batch log should throw IOException$")
+    fun checkReadFailure() {
+        assertThatThrownBy { logReader!!.readNewLines() }.isInstanceOf(IOException::class.java)
+    }
+
+    private fun stubLogPage(from: Int, pageSize: Int, total: Int, lines: List<String>) {
+        val page = mapOf("id" to batchId, "from" to from, "total" to total, "log" to lines)
+        httpServerMock!!.stub("GET", logUri(from, pageSize), 200, Gson().toJson(page))
+    }
+
+    private fun logUri(from: Int, pageSize: Int): String = "/batches/$batchId/log?from=$from&size=$pageSize"
+}
@@ -0,0 +1,32 @@
+Feature: ClusterManagerEx refresh tests
+
+  Scenario: Slow subscription doesn't hold back the others or the readers
+    Given subscriptions list HDInsight clusters:
+      | subscription | clusters    | isBlocked |
+      | fastSub      | fast0,fast1 | false     |
+      | slowSub      | slow0       | true      |
+    Given refresh clusters asynchronously while 4 readers keep reading cached clusters
+    Then clusters of subscription 'fastSub' should be cached without those of 'slowSub'
+    Then all readers should read cached clusters while subscription 'slowSub' is being listed
+    Then cached cluster names should be:
+      | fast0 |
+      | fast1 |
+      | slow0 |
+
+  Scenario: Refresh emits added, removed and changed clusters of each subscription
+    Given subscriptions list HDInsight clusters:
+      | subscription | clusters    | isBlocked |
+      | sub0         | spk0,spk1   | false     |
+      | sub1         | spk2        | false     |
+    Given refresh clusters asynchronously while 2 readers keep reading cached clusters
+    Given subscriptions list HDInsight clusters:
+      | subscription | clusters                | isBlocked |
+      | sub0         | spk0:Deleting,spk3      | false     |
+    Given refresh clusters asynchronously while 2 readers keep reading cached clusters
+    Then cluster deltas should be:
+      | subscription | added | removed | changed |
+      | sub1         |       | spk2    |         |
+      | sub0         | spk3  | spk1    | spk0    |
+    Then cached cluster names should be:
+      | spk0 |
+      | spk3 |
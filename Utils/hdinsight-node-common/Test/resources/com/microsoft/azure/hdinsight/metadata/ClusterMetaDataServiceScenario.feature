@@ -0,0 +1,38 @@
+Feature: ClusterMetaDataService tests
+
+  Scenario: Clusters are looked up by name and connection URL
+    Given cache clusters in batch:
+      | name  | connectionUrl                            |
+      | spk0  | https://spk0.azurehdinsight.net/         |
+      | spk1  | https://spk1.azurehdinsight.net          |
+      | spk0  | https://duplicated.azurehdinsight.net/   |
+    Then cluster found by name 'spk0' should have connection URL 'https://spk0.azurehdinsight.net/'
+    Then cluster found by connection URL 'https://SPK1.azurehdinsight.net/' should be 'spk1'
+    Then cluster found by connection URL 'https://spk0.azurehdinsight.net' should be 'spk0'
+    Then no cluster should be found by name 'spk2'
+
+  Scenario: Lookups don't scan the cached clusters
+    Given cache 10000 generated clusters
+    Then looking up each of 10000 generated clusters by name and connection URL should take less than 1000 ms
+
+  Scenario: Batched add and remove publish change events
+    Given cache clusters in batch:
+      | name  | connectionUrl                    |
+      | spk0  | https://spk0.azurehdinsight.net/ |
+      | spk1  | https://spk1.azurehdinsight.net/ |
+    Given cache clusters in batch:
+      | name  | connectionUrl                    |
+      | spk1  | https://spk1.azurehdinsight.net/ |
+      | spk2  | https://spk2.azurehdinsight.net/ |
+    Given remove clusters in batch:
+      | spk0 |
+      | spk2 |
+      | spk3 |
+    Then cached cluster names should be:
+      | spk1 |
+    Then no cluster should be found by name 'spk0'
+    Then cluster change events should be:
+      | added     | removed   |
+      | spk0,spk1 |           |
+      | spk2      |           |
+      |           | spk0,spk2 |
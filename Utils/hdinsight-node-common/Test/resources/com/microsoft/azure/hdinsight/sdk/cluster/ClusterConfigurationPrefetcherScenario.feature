@@ -0,0 +1,35 @@
+Feature: ClusterConfigurationPrefetcher tests
+
+  Scenario: Concurrent loading of the same cluster shares a single fetch
+    Given a fake cluster operation fetching configuration in 300 milliseconds
+    Given 8 callers load configuration of cluster 'spk0' concurrently from 2 cluster instances
+    Then cluster configuration should be fetched 1 times
+    Then configuration of all loaded cluster instances should be available
+
+  Scenario: Configuration is fetched again after credentials rotated
+    Given a fake cluster operation fetching configuration in 10 milliseconds
+    Given 2 callers load configuration of cluster 'spk0' concurrently from 1 cluster instances
+    Given etag of cluster 'spk0' changes to 'etag1'
+    Given 2 callers load configuration of cluster 'spk0' concurrently from 1 cluster instances
+    Then cluster configuration should be fetched 2 times
+
+  Scenario: Only recently used clusters are prefetched after refresh
+    Given a fake cluster operation fetching configuration in 10 milliseconds
+    Given 1 callers load configuration of cluster 'spk0' concurrently from 1 cluster instances
+    Given etag of cluster 'spk0' changes to 'etag1'
+    Given clusters are refreshed with configuration prefetched:
+      | spk0 |
+      | spk1 |
+    Then configuration of refreshed cluster 'spk0' should be prefetched: true
+    Then configuration of refreshed cluster 'spk1' should be prefetched: false
+    Then cluster configuration should be fetched 2 times
+
+  Scenario: Clusters recently used before IDE restarted are prefetched at the first refresh
+    Given a fake cluster operation fetching configuration in 10 milliseconds
+    Given cluster 'spk1' was recently used before IDE restarted
+    Given clusters are refreshed with configuration prefetched after IDE restarted:
+      | spk0 |
+      | spk1 |
+    Then configuration of refreshed cluster 'spk1' should be prefetched: true
+    Then configuration of refreshed cluster 'spk0' should be prefetched: false
+    Then cluster configuration should be fetched 1 times
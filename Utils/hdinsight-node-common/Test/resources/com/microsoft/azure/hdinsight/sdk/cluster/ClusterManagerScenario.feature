@@ -0,0 +1,46 @@
+Feature: ClusterManager probe cache tests
+
+  Background:
+    Given cluster probe cache TTL is 30 minutes
+    Given subscription HDInsight clusters are:
+      | name  | state   | version | isEsp |
+      | spk0  | Running | 4.0     | false |
+      | spk1  | Running | 4.0     | false |
+      | esp0  | Running | 4.0     | true  |
+
+  Scenario: New API probe runs only once for unchanged clusters across refreshes
+    Given refresh HDInsight clusters 3 times
+    Then new API probe count should be 3
+    Then MFA ESP clusters should be:
+      | esp0 |
+    Then no cluster should be in reader role
+
+  Scenario: New API probe runs again only for clusters whose state or version changed
+    Given refresh HDInsight clusters 1 times
+    Given state of cluster 'spk0' changes to 'Deleting'
+    Given version of cluster 'esp0' changes to '5.0'
+    Given refresh HDInsight clusters 2 times
+    Then new API probe count should be 5
+    Then MFA ESP clusters should be:
+      | esp0 |
+
+  Scenario: New API probe runs again for all clusters after the cached results expired
+    Given refresh HDInsight clusters 1 times
+    Given 20 minutes elapsed
+    Given refresh HDInsight clusters 1 times
+    Then new API probe count should be 3
+    Given 20 minutes elapsed
+    Given refresh HDInsight clusters 1 times
+    Then new API probe count should be 6
+
+  Scenario: Results of transient probe failures are cached only shortly
+    Given new API probe of cluster 'esp0' fails transiently
+    Given refresh HDInsight clusters 2 times
+    Then new API probe count should be 3
+    Then cluster 'esp0' should not be MFA ESP
+    Given new API probe of cluster 'esp0' recovers
+    Given 2 minutes elapsed
+    Given refresh HDInsight clusters 1 times
+    Then new API probe count should be 4
+    Then MFA ESP clusters should be:
+      | esp0 |
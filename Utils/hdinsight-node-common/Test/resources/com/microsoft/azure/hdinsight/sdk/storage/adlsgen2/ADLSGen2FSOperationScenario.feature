@@ -0,0 +1,87 @@
+Feature: ADLS Gen2 FS Operation
+
+  Scenario: List a large directory page by page
+    Given an ADLS Gen2 directory 'big' with 50000 entries served in pages of 5000
+    When list the ADLS Gen2 directory 'big'
+    Then 50000 ADLS Gen2 entries in 10 pages are listed
+    And 10 ADLS Gen2 list requests are sent
+
+  Scenario: List a directory within a single page
+    Given an ADLS Gen2 directory 'small' with 3 entries served in pages of 5000
+    When list the ADLS Gen2 directory 'small'
+    Then 3 ADLS Gen2 entries in 1 pages are listed
+    And 1 ADLS Gen2 list requests are sent
+
+  Scenario: Listing again in a short time is served from cache
+    Given an ADLS Gen2 directory 'big' with 50000 entries served in pages of 5000
+    When list the ADLS Gen2 directory 'big'
+    And list the ADLS Gen2 directory 'big'
+    Then 50000 ADLS Gen2 entries in 10 pages are listed
+    And 10 ADLS Gen2 list requests are sent
+    When invalidate the ADLS Gen2 listing cache
+    And list the ADLS Gen2 directory 'big'
+    Then 10 ADLS Gen2 list requests are sent
+
+  Scenario: Cached listings are shared by operations and dropped when a file is created in the directory
+    Given an ADLS Gen2 directory 'small' with 3 entries served in pages of 5000
+    When list the ADLS Gen2 directory 'small'
+    And list the ADLS Gen2 directory 'small' with another operation
+    Then 3 ADLS Gen2 entries in 1 pages are listed
+    And 1 ADLS Gen2 list requests are sent
+    When create ADLS Gen2 file '/fs/small/app.jar'
+    And list the ADLS Gen2 directory 'small'
+    Then 2 ADLS Gen2 list requests are sent
+
+  Scenario: Cached listings are not shared by other credentials
+    Given an ADLS Gen2 directory 'small' with 3 entries served in pages of 5000
+    When list the ADLS Gen2 directory 'small'
+    And list the ADLS Gen2 directory 'small' with the credential 'another user'
+    Then 3 ADLS Gen2 entries in 1 pages are listed
+    And 2 ADLS Gen2 list requests are sent
+    When list the ADLS Gen2 directory 'small' with an unknown credential
+    And list the ADLS Gen2 directory 'small' with an unknown credential
+    Then 4 ADLS Gen2 list requests are sent
+
+  Scenario: Expired listings are listed again
+    Given an ADLS Gen2 directory 'small' with 3 entries served in pages of 5000
+    When list the ADLS Gen2 directory 'small' after the cached listings expire in 50 ms
+    Then 3 ADLS Gen2 entries in 1 pages are listed
+    And 2 ADLS Gen2 list requests are sent
+
+  Scenario: Stop listing the remaining pages once unsubscribed
+    Given an ADLS Gen2 directory 'big' with 50000 entries served in pages of 5000
+    When list the ADLS Gen2 directory 'big' and stop after 2 pages
+    Then 10000 ADLS Gen2 entries in 2 pages are listed
+    And 2 ADLS Gen2 list requests are sent
+
+  Scenario: Upload a file in chunks appended in parallel
+    Given a local file of 1000000 bytes to upload
+    And an ADLS Gen2 file '/fs/app.jar' accepting appended data
+    When upload the local file to ADLS Gen2 file '/fs/app.jar' in chunks of 65536 bytes with 3 retries
+    Then the whole local file is appended to ADLS Gen2 file '/fs/app.jar' in 16 ranges
+    And ADLS Gen2 file '/fs/app.jar' is flushed once at the local file length
+    And the upload progress reaches the local file length
+
+  Scenario: Retry the failed chunks only
+    Given a local file of 1000000 bytes to upload
+    And an ADLS Gen2 file '/fs/app.jar' accepting appended data
+    And appending to ADLS Gen2 file '/fs/app.jar' at position 131072 fails 2 times
+    And appending to ADLS Gen2 file '/fs/app.jar' at position 917504 fails 1 times
+    When upload the local file to ADLS Gen2 file '/fs/app.jar' in chunks of 65536 bytes with 3 retries
+    Then the whole local file is appended to ADLS Gen2 file '/fs/app.jar' in 16 ranges
+    And 19 ADLS Gen2 append requests are sent
+    And ADLS Gen2 file '/fs/app.jar' is flushed once at the local file length
+
+  Scenario: Fail the upload once a chunk runs out of retries
+    Given a local file of 1000000 bytes to upload
+    And an ADLS Gen2 file '/fs/app.jar' accepting appended data
+    And appending to ADLS Gen2 file '/fs/app.jar' at position 65536 fails 5 times
+    When upload the local file to ADLS Gen2 file '/fs/app.jar' in chunks of 65536 bytes with 3 retries
+    Then the upload fails without flushing ADLS Gen2 file '/fs/app.jar'
+
+  Scenario: Upload an empty file
+    Given a local file of 0 bytes to upload
+    And an ADLS Gen2 file '/fs/empty.jar' accepting appended data
+    When upload the local file to ADLS Gen2 file '/fs/empty.jar' in chunks of 65536 bytes with 3 retries
+    Then the whole local file is appended to ADLS Gen2 file '/fs/empty.jar' in 0 ranges
+    And ADLS Gen2 file '/fs/empty.jar' is flushed once at the local file length
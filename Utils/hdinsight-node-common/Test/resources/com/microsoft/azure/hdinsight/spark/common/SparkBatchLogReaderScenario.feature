@@ -0,0 +1,48 @@
+Feature: SparkBatchLogReader tests
+
+  Scenario: Read a long log in pages only once
+    Given mock Livy batch log of 3500 lines in pages of 1000 lines
+    And create a Spark batch log reader in pages of 1000 lines
+    Then read new lines of Spark batch log
+    And check 3500 lines read from 'line 0' to 'line 3499'
+    And check Spark batch log reader offset should be 3500
+    And check Livy batch log requests should be from the following offsets
+      | 0    |
+      | 1000 |
+      | 2000 |
+      | 3000 |
+    Then read new lines of Spark batch log
+    And check no lines read
+    And check Spark batch log reader offset should be 3500
+    And check Livy batch log requests should be from the following offsets
+      | 3500 |
+
+  Scenario: Only read the lines appended since last read
+    Given mock Livy batch log of 2000 lines in pages of 1000 lines
+    And create a Spark batch log reader in pages of 1000 lines
+    Then read new lines of Spark batch log
+    And check 2000 lines read from 'line 0' to 'line 1999'
+    Given mock Livy batch log of 5200 lines in pages of 1000 lines
+    Then read new lines of Spark batch log
+    And check 3200 lines read from 'line 2000' to 'line 5199'
+    And check Spark batch log reader offset should be 5200
+    And check Livy batch log requests should be from the following offsets
+      | 2000 |
+      | 3000 |
+      | 4000 |
+      | 5000 |
+
+  Scenario: Start over from the end of a truncated log
+    Given mock Livy batch log of 1500 lines in pages of 1000 lines
+    And create a Spark batch log reader in pages of 1000 lines
+    Then read new lines of Spark batch log
+    And check Spark batch log reader offset should be 1500
+    Given mock Livy batch log truncated to 100 lines when read from 1500 in pages of 1000 lines
+    Then read new lines of Spark batch log
+    And check no lines read
+    And check Spark batch log reader offset should be 100
+
+  Scenario: Fail to read the log when Livy responds an error
+    Given mock Livy batch log to return status code 500 in pages of 1000 lines
+    And create a Spark batch log reader in pages of 1000 lines
+    Then reading new lines of Spark batch log should throw IOException
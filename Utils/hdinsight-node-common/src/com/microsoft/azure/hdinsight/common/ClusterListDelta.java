@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.common;
+
+import com.google.common.collect.ImmutableList;
+import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+
+import java.util.List;
+
+/**
+ * Changes of the HDInsight clusters listed from a subscription since its last refresh
+ */
+public class ClusterListDelta {
+    @NotNull
+    private final String subscriptionId;
+    @NotNull
+    private final ImmutableList<IClusterDetail> added;
+    @NotNull
+    private final ImmutableList<IClusterDetail> removed;
+    @NotNull
+    private final ImmutableList<IClusterDetail> changed;
+
+    public ClusterListDelta(@NotNull String subscriptionId,
+                            @NotNull List<? extends IClusterDetail> added,
+                            @NotNull List<? extends IClusterDetail> removed,
+                            @NotNull List<? extends IClusterDetail> changed) {
+        this.subscriptionId = subscriptionId;
+        this.added = ImmutableList.copyOf(added);
+        this.removed = ImmutableList.copyOf(removed);
+        this.changed = ImmutableList.copyOf(changed);
+    }
+
+    @NotNull
+    public String getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    @NotNull
+    public ImmutableList<IClusterDetail> getAdded() {
+        return added;
+    }
+
+    @NotNull
+    public ImmutableList<IClusterDetail> getRemoved() {
+        return removed;
+    }
+
+    @NotNull
+    public ImmutableList<IClusterDetail> getChanged() {
+        return changed;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+}
@@ -27,10 +27,19 @@ import com.microsoft.tooling.msservices.components.DefaultLoader;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import rx.Observable;
+import rx.schedulers.Schedulers;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -49,13 +58,24 @@ public class ClusterManagerEx implements ILogger {
      * 2. HDInsightLivyLinkClusterDetail
      * 3. SqlBigDataLivyLinkClusterDetail
      */
-    private List<IClusterDetail> additionalClusterDetails = new ArrayList<>();
-    private List<IClusterDetail> emulatorClusterDetails = new ArrayList<>();
+    private volatile List<IClusterDetail> additionalClusterDetails = new CopyOnWriteArrayList<>();
+    private volatile List<IClusterDetail> emulatorClusterDetails = new CopyOnWriteArrayList<>();
 
-    private boolean isListClusterSuccess = false;
-    private boolean isListAdditionalClusterSuccess = false;
-    private boolean isListEmulatorClusterSuccess = false;
-    private boolean isSelectedSubscriptionExist = false;
+    /**
+     * HDInsight clusters listed from user's subscriptions, indexed by subscription ID and then cluster name.
+     * The cluster map of a subscription is replaced as a whole when the subscription is refreshed.
+     */
+    private final ConcurrentMap<String, Map<String, ClusterDetail>> subscriptionClusters = new ConcurrentHashMap<>();
+
+    /**
+     * Guards merging of cluster changes and publishing of the cluster snapshot, readers never take it
+     */
+    private final Object snapshotLock = new Object();
+
+    private volatile boolean isListClusterSuccess = false;
+    private volatile boolean isListAdditionalClusterSuccess = false;
+    private volatile boolean isListEmulatorClusterSuccess = false;
+    private volatile boolean isSelectedSubscriptionExist = false;
 
     private ClusterManagerEx() {
     }
@@ -65,7 +85,7 @@ public class ClusterManagerEx implements ILogger {
             synchronized (ClusterManagerEx.class) {
                 if (instance == null) {
                     instance = new ClusterManagerEx();
-                    AzureEventBus.on("account.logged_out.account", new AzureEventBus.EventListener(e -> instance.setCachedClusters(instance.additionalClusterDetails)));
+                    AzureEventBus.on("account.logged_out.account", new AzureEventBus.EventListener(e -> instance.clearSubscriptionClusters()));
                 }
             }
         }
@@ -134,10 +154,13 @@ public class ClusterManagerEx implements ILogger {
     }
 
     public Optional<IClusterDetail> getClusterDetailByName(String clusterName) {
-        return getClusterDetailsWithoutAsync(true)
-                .stream()
-                .filter(cluster -> cluster.getName().equals(clusterName))
-                .findFirst()
+        if (ClusterMetaDataService.getInstance().getCachedClusterDetails().isEmpty()) {
+            getClusterDetails();
+        }
+
+        return Optional.ofNullable(ClusterMetaDataService.getInstance().findClusterByName(clusterName))
+                // Ignore error clusters
+                .filter(cluster -> !(cluster instanceof ClusterDetail) || cluster.getState().equalsIgnoreCase("Running"))
                 .flatMap(cluster -> {
                     try {
                         cluster.getConfigurationInfo();
@@ -149,11 +172,14 @@ public class ClusterManagerEx implements ILogger {
                 });
     }
 
-    synchronized void setCachedClusters(@NotNull List<IClusterDetail> clusterDetails) {
-        ClusterMetaDataService.getInstance().addCachedClusters(clusterDetails);
+    void clearSubscriptionClusters() {
+        synchronized (snapshotLock) {
+            subscriptionClusters.clear();
+            publishClusterSnapshot();
+        }
     }
 
-    public synchronized ImmutableList<IClusterDetail> getCachedClusters() {
+    public ImmutableList<IClusterDetail> getCachedClusters() {
         return ClusterMetaDataService.getInstance().getCachedClusterDetails();
     }
 
@@ -164,14 +190,9 @@ public class ClusterManagerEx implements ILogger {
                 clusterDetail instanceof EmulatorClusterDetail;
     }
 
-    synchronized Observable<List<ClusterDetail>> getSubscriptionHDInsightClustersOfType(List<Subscription> list) {
-        setSelectedSubscriptionExist(list.stream().anyMatch(Subscription::isSelected));
-        return ClusterManager.getInstance().getHDInsightClustersWithSpecificType(list, OSTYPE)
-                .doOnNext(clusters -> isListClusterSuccess = true)
-                .doOnError(err -> {
-                    log().warn("Error Refreshing HDInsight clusters. " + ExceptionUtils.getStackTrace(err));
-                    isListClusterSuccess = false;
-                });
+    @NotNull
+    Observable<List<ClusterDetail>> getSubscriptionHDInsightClustersOfType(@NotNull Subscription subscription) {
+        return ClusterManager.getInstance().getHDInsightClustersWithSpecificType(subscription, OSTYPE).toList();
     }
 
     public List<IClusterDetail> getAdditionalClusterDetails() {
@@ -179,7 +200,7 @@ public class ClusterManagerEx implements ILogger {
     }
 
     void setAdditionalClusterDetails(List<IClusterDetail> additionalClusterDetails) {
-        this.additionalClusterDetails = additionalClusterDetails;
+        this.additionalClusterDetails = new CopyOnWriteArrayList<>(additionalClusterDetails);
     }
 
     List<IClusterDetail> getEmulatorClusterDetails() {
@@ -187,22 +208,25 @@ public class ClusterManagerEx implements ILogger {
     }
 
     void setEmulatorClusterDetails(List<IClusterDetail> emulatorClusterDetails) {
-        this.emulatorClusterDetails = emulatorClusterDetails;
+        this.emulatorClusterDetails = new CopyOnWriteArrayList<>(emulatorClusterDetails);
     }
 
+    /**
+     * @return selected subscriptions, an empty list for non-logged in user.
+     */
     @NotNull
-    List<ClusterDetail> getSubscriptionHDInsightClusters() {
+    List<Subscription> getSelectedSubscriptions() {
         final AzureAccount az = Azure.az(AzureAccount.class);
         if (!az.isLoggedIn()) {
             return new ArrayList<>();
         }
 
-        return Observable.fromCallable(() -> az.account().getSelectedSubscriptions())
-                .doOnError(err -> log().warn("Failed to list HDInsight Clusters: {}", err.getMessage()))
-                .flatMap(this::getSubscriptionHDInsightClustersOfType)
-                .onErrorResumeNext(Observable.just(new ArrayList<>()))
-                .toBlocking()
-                .singleOrDefault(new ArrayList<>());
+        try {
+            return az.account().getSelectedSubscriptions();
+        } catch (Exception err) {
+            log().warn("Failed to list HDInsight Clusters: {}", err.getMessage());
+            return new ArrayList<>();
+        }
     }
 
     /**
@@ -211,9 +235,58 @@ public class ClusterManagerEx implements ILogger {
      * 2. HDInsight linked clusters
      * 3. Emulator clusters
      * 4. SQL Big Data clusters
+     * The method waits until all subscriptions are refreshed, use {@link #refreshClusterDetailsAsync()} to consume the
+     * clusters of each subscription as soon as they are listed.
      * @return all kinds of cluster details
      */
     public ImmutableList<IClusterDetail> getClusterDetails() {
+        refreshClusterDetailsAsync().toBlocking().lastOrDefault(null);
+
+        return getCachedClusters();
+    }
+
+    /**
+     * Refresh all kinds of cluster details asynchronously. Clusters of each subscription are merged into cache as soon
+     * as they are listed, so that a slow subscription doesn't hold back the others, and {@link #getCachedClusters()}
+     * keeps returning the latest snapshot without waiting for the refresh.
+     * @return changes of the clusters, one delta per refreshed subscription
+     */
+    public Observable<ClusterListDelta> refreshClusterDetailsAsync() {
+        return Observable.defer(() -> {
+            refreshLocalClusters();
+
+            final List<Subscription> subscriptions = getSelectedSubscriptions();
+            setSelectedSubscriptionExist(subscriptions.stream().anyMatch(Subscription::isSelected));
+
+            // Clusters of the subscriptions not selected any more are removed at once
+            final Set<String> subscriptionIds = subscriptions.stream().map(Subscription::getId).collect(Collectors.toSet());
+            final List<ClusterListDelta> unselectedDeltas = subscriptionClusters.keySet().stream()
+                    .filter(subscriptionId -> !subscriptionIds.contains(subscriptionId))
+                    .map(subscriptionId -> mergeSubscriptionClusters(subscriptionId, emptyList()))
+                    .collect(Collectors.toList());
+            publishClusterSnapshot();
+
+            final AtomicBoolean isAllListed = new AtomicBoolean(true);
+            return Observable.from(unselectedDeltas)
+                    .concatWith(Observable.from(subscriptions)
+                            .flatMap(subscription -> getSubscriptionHDInsightClustersOfType(subscription)
+                                    // Run time-consuming list clusters job of each subscription concurrently in IO thread
+                                    .subscribeOn(Schedulers.io())
+                                    // Warm up configurations of the recently used clusters in background, the newly
+                                    // listed instances of unchanged clusters haven't loaded their configurations either
+                                    .doOnNext(clusters -> ClusterConfigurationPrefetcher.getInstance().prefetch(clusters))
+                                    .map(clusters -> mergeSubscriptionClusters(subscription.getId(), clusters))
+                                    .onErrorResumeNext(err -> {
+                                        log().warn("Error Refreshing HDInsight clusters of subscription " + subscription.getId()
+                                                + ". " + ExceptionUtils.getStackTrace(err));
+                                        isAllListed.set(false);
+                                        return Observable.empty();
+                                    })))
+                    .doOnCompleted(() -> isListClusterSuccess = isAllListed.get());
+        });
+    }
+
+    private void refreshLocalClusters() {
         List<IClusterDetail> linkedClusters;
         if (!isListAdditionalClusterSuccess()) {
             try {
@@ -236,41 +309,78 @@ public class ClusterManagerEx implements ILogger {
             emulatorClusters = getEmulatorClusterDetails();
         }
 
-        // Get clusters from Subscription, an empty list for non-logged in user.
-        List<ClusterDetail> clusterDetailsFromSubscription = getSubscriptionHDInsightClusters();
-
-        // Sort the merged clusters before set it to cache, sorting algorithm is based on cluster name
-        ImmutableSortedSet<IClusterDetail> mergedClusters =
-                new ImmutableSortedSet.Builder<IClusterDetail>(ComparableCluster::compareTo)
-                        .addAll(linkedClusters)
-                        .addAll(emulatorClusters)
-                        .addAll(clusterDetailsFromSubscription)
-                        .build();
-
         synchronized (this) {
             setAdditionalClusterDetails(linkedClusters);
             isListAdditionalClusterSuccess = true;
 
             setEmulatorClusterDetails(emulatorClusters);
             isListEmulatorClusterSuccess = true;
+        }
+    }
+
+    /**
+     * Replace the clusters of a subscription with the newly listed ones and publish a new cluster snapshot
+     * @return the changes against the clusters listed last time
+     */
+    @NotNull
+    ClusterListDelta mergeSubscriptionClusters(@NotNull String subscriptionId, @NotNull List<ClusterDetail> clusters) {
+        final Map<String, ClusterDetail> current = new HashMap<>();
+        clusters.forEach(cluster -> current.putIfAbsent(cluster.getName(), cluster));
+
+        synchronized (snapshotLock) {
+            final Map<String, ClusterDetail> previous = subscriptionClusters.getOrDefault(subscriptionId, Collections.emptyMap());
+            final List<IClusterDetail> added = new ArrayList<>();
+            final List<IClusterDetail> changed = new ArrayList<>();
+            current.forEach((name, cluster) -> {
+                final ClusterDetail previousCluster = previous.get(name);
+                if (previousCluster == null) {
+                    added.add(cluster);
+                } else if (!StringUtils.equals(previousCluster.getTitle(), cluster.getTitle())) {
+                    // Title covers the state, Spark version and role of the cluster
+                    changed.add(cluster);
+                }
+            });
+            final List<IClusterDetail> removed = previous.entrySet().stream()
+                    .filter(entry -> !current.containsKey(entry.getKey()))
+                    .map(Map.Entry::getValue)
+                    .collect(Collectors.toList());
+
+            if (current.isEmpty()) {
+                subscriptionClusters.remove(subscriptionId);
+            } else {
+                subscriptionClusters.put(subscriptionId, Collections.unmodifiableMap(current));
+            }
+
+            publishClusterSnapshot();
+
+            return new ClusterListDelta(subscriptionId, added, removed, changed);
+        }
+    }
 
-            setCachedClusters(mergedClusters.asList());
-            isListClusterSuccess = true;
+    private void publishClusterSnapshot() {
+        synchronized (snapshotLock) {
+            // Sort the merged clusters before set it to cache, sorting algorithm is based on cluster name.
+            // Linked clusters are added first to replace the subscription clusters with the same name.
+            final ImmutableSortedSet.Builder<IClusterDetail> mergedClusters =
+                    new ImmutableSortedSet.Builder<IClusterDetail>(ComparableCluster::compareTo)
+                            .addAll(additionalClusterDetails)
+                            .addAll(emulatorClusterDetails);
+            subscriptionClusters.values().forEach(clusters -> mergedClusters.addAll(clusters.values()));
 
-            return getCachedClusters();
+            ClusterMetaDataService.getInstance().addCachedClusters(mergedClusters.build().asList());
         }
     }
 
     public synchronized  void addEmulatorCluster(EmulatorClusterDetail emulatorClusterDetail) {
         emulatorClusterDetails.add(emulatorClusterDetail);
-        ClusterMetaDataService.getInstance().addClusterToCache(emulatorClusterDetail);
+        publishClusterSnapshot();
 
         saveEmulatorClusters();
     }
 
     public synchronized void addAdditionalCluster(@NotNull IClusterDetail hdInsightClusterDetail) {
         additionalClusterDetails.add(hdInsightClusterDetail);
-        ClusterMetaDataService.getInstance().addClusterToCache(hdInsightClusterDetail);
+        publishClusterSnapshot();
         saveAdditionalClusters();
     }
 
@@ -280,21 +390,20 @@ public class ClusterManagerEx implements ILogger {
                 .filter(clusterDetail1 ->
                         !(clusterDetail1 instanceof HDInsightAdditionalClusterDetail
                                 && clusterDetail1.getName().equals(clusterDetailToUpdate.getName())))
-                .collect(Collectors.toList());
-        ClusterMetaDataService.getInstance().removeClusterFromCache(clusterDetailToUpdate);
+                .collect(Collectors.toCollection(CopyOnWriteArrayList::new));
         addAdditionalCluster(clusterDetailToUpdate);
     }
 
     public synchronized void removeEmulatorCluster(EmulatorClusterDetail emulatorClusterDetail) {
         emulatorClusterDetails.remove(emulatorClusterDetail);
-        ClusterMetaDataService.getInstance().removeClusterFromCache(emulatorClusterDetail);
+        publishClusterSnapshot();
 
         saveEmulatorClusters();
     }
 
     public synchronized void removeAdditionalCluster(@NotNull IClusterDetail hdInsightClusterDetail) {
         additionalClusterDetails.remove(hdInsightClusterDetail);
-        ClusterMetaDataService.getInstance().removeClusterFromCache(hdInsightClusterDetail);
+        publishClusterSnapshot();
         saveAdditionalClusters();
     }
 
@@ -334,18 +443,11 @@ public class ClusterManagerEx implements ILogger {
     }
 
     public boolean isEmulatorClusterExist(String clusterName) {
-        final ImmutableList<IClusterDetail> cachedClusterDetails =
-                Optional.of(ClusterMetaDataService.getInstance().getCachedClusterDetails())
-                        .filter(clusters -> !clusters.isEmpty())
-                        .orElseGet(this::getClusterDetails);
-
-        for( IClusterDetail clusterDetail : cachedClusterDetails) {
-            if( clusterDetail.getName().equals(clusterName)) {
-                return true;
-            }
+        if (ClusterMetaDataService.getInstance().getCachedClusterDetails().isEmpty()) {
+            getClusterDetails();
         }
 
-        return false;
+        return ClusterMetaDataService.getInstance().findClusterByName(clusterName) != null;
     }
 
     private void saveEmulatorClusters() {
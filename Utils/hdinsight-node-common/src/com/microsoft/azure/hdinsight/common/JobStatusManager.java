@@ -6,12 +6,12 @@
 package com.microsoft.azure.hdinsight.common;
 
 public class JobStatusManager {
-    private boolean isJobKilled = false;
+    private volatile boolean isJobKilled = false;
     private boolean isApplicationGenerated = false;
     private String applicationId;
     private boolean isRunning = false;
 
-    public void resetJobStateManager() {
+    public synchronized void resetJobStateManager() {
         isJobKilled = false;
         isApplicationGenerated = false;
     }
@@ -28,9 +28,27 @@ public class JobStatusManager {
         return isJobKilled;
     }
 
-    public void setJobKilled() {
+    public synchronized void setJobKilled() {
         isJobKilled = true;
         isRunning = false;
+        notifyAll();
+    }
+
+    /**
+     * Wait until the job is killed or the timeout elapses, used by the pollers instead of sleeping so that they can
+     * stop as soon as the job is killed
+     *
+     * @return whether the job has been killed
+     */
+    public synchronized boolean awaitJobKilled(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long remaining = timeoutMillis;
+        while (!isJobKilled && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+
+        return isJobKilled;
     }
 
     public boolean isApplicationGenerated(){
@@ -5,17 +5,40 @@
 
 package com.microsoft.azure.hdinsight.metadata;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
 import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
-
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import rx.Observable;
+import rx.schedulers.Schedulers;
+import rx.subjects.PublishSubject;
+import rx.subjects.SerializedSubject;
+import rx.subjects.Subject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
 public class ClusterMetaDataService {
     private static ClusterMetaDataService instance = new ClusterMetaDataService();
-    private ImmutableList<IClusterDetail> cachedClusters = ImmutableList.of();
+
+    /**
+     * Readers always get a consistent snapshot without locking, writers replace the snapshot as a whole
+     */
+    private volatile Snapshot snapshot = new Snapshot(ImmutableList.of());
+    private final Subject<ClustersChangedEvent, ClustersChangedEvent> changes =
+            new SerializedSubject<>(PublishSubject.create());
 
     private ClusterMetaDataService() {
     }
@@ -25,43 +48,196 @@ public class ClusterMetaDataService {
     }
 
     public ImmutableList<IClusterDetail> getCachedClusterDetails () {
-        return cachedClusters;
+        return snapshot.clusters;
+    }
+
+    /**
+     * @return events of cached clusters changes, which are delivered in order on a pooled thread after the change is
+     * visible to readers, so that subscribers never run under the locks of the thread changing the cache
+     */
+    @NotNull
+    public Observable<ClustersChangedEvent> getClustersChanges() {
+        return changes.asObservable()
+                .onBackpressureBuffer()
+                .observeOn(Schedulers.io());
+    }
+
+    @Nullable
+    public IClusterDetail findClusterByName(@Nullable String clusterName) {
+        return clusterName == null ? null : snapshot.clustersByName.get(clusterName);
+    }
+
+    /**
+     * @return the cached cluster of the connection URL, which is matched case-insensitively with or without the
+     * trailing slash
+     */
+    @Nullable
+    public IClusterDetail findClusterByConnectionUrl(@Nullable String connectionUrl) {
+        return connectionUrl == null ? null : snapshot.clustersByUrl.get().get(normalizeUrl(connectionUrl));
     }
 
     public void addCachedClusters(@NotNull List<IClusterDetail> clusterDetails) {
-        cachedClusters = ImmutableList.copyOf(clusterDetails);
+        replaceSnapshot(ImmutableList.copyOf(clusterDetails));
     }
 
     public boolean addClusterToCache(@NotNull IClusterDetail clusterDetail) {
-        if (cachedClusters.stream().map(IClusterDetail::getName).anyMatch(clusterDetail.getName()::equals)) {
-            return false;
-        }
+        return !addClustersToCache(ImmutableList.of(clusterDetail)).isEmpty();
+    }
 
-        cachedClusters = new ImmutableList.Builder<IClusterDetail>().addAll(cachedClusters).add(clusterDetail).build();
+    /**
+     * Add clusters in a batch, the clusters share the same name with a cached one are ignored
+     *
+     * @return the clusters added
+     */
+    @NotNull
+    List<IClusterDetail> addClustersToCache(@NotNull Collection<? extends IClusterDetail> clusterDetails) {
+        ClustersChangedEvent event;
+        synchronized (this) {
+            Snapshot current = snapshot;
+            Map<String, IClusterDetail> toAdd = new LinkedHashMap<>();
+            clusterDetails.stream()
+                    .filter(clusterDetail -> !current.clustersByName.containsKey(clusterDetail.getName()))
+                    .forEach(clusterDetail -> toAdd.putIfAbsent(clusterDetail.getName(), clusterDetail));
+
+            if (toAdd.isEmpty()) {
+                return ImmutableList.of();
+            }
 
-        return true;
+            snapshot = new Snapshot(new ImmutableList.Builder<IClusterDetail>()
+                    .addAll(current.clusters)
+                    .addAll(toAdd.values())
+                    .build());
+            event = new ClustersChangedEvent(toAdd.values(), ImmutableList.of());
+        }
+
+        changes.onNext(event);
+        return event.getAdded();
     }
 
     public boolean isCachedClusterExist(@NotNull IClusterDetail clusterDetail) {
-        for (IClusterDetail iClusterDetail : cachedClusters) {
-            if (iClusterDetail.getName().equals(clusterDetail.getName())) {
-                return true;
+        return snapshot.clustersByName.containsKey(clusterDetail.getName());
+    }
+
+    public boolean removeClusterFromCache(@NotNull IClusterDetail clusterDetailToRemove) {
+        return !removeClustersFromCache(ImmutableList.of(clusterDetailToRemove)).isEmpty();
+    }
+
+    /**
+     * Remove the cached clusters which share the same names with the clusters in a batch
+     *
+     * @return the clusters removed
+     */
+    @NotNull
+    List<IClusterDetail> removeClustersFromCache(@NotNull Collection<? extends IClusterDetail> clusterDetailsToRemove) {
+        ClustersChangedEvent event;
+        synchronized (this) {
+            Snapshot current = snapshot;
+            Set<String> namesToRemove = clusterDetailsToRemove.stream()
+                    .map(IClusterDetail::getName)
+                    .filter(current.clustersByName::containsKey)
+                    .collect(Collectors.toSet());
+
+            if (namesToRemove.isEmpty()) {
+                return ImmutableList.of();
             }
+
+            List<IClusterDetail> removed = new ArrayList<>();
+            List<IClusterDetail> remaining = new ArrayList<>();
+            current.clusters.forEach(clusterDetail ->
+                    (namesToRemove.contains(clusterDetail.getName()) ? removed : remaining).add(clusterDetail));
+
+            snapshot = new Snapshot(ImmutableList.copyOf(remaining));
+            event = new ClustersChangedEvent(ImmutableList.of(), removed);
         }
-        return false;
+
+        changes.onNext(event);
+        return event.getRemoved();
     }
 
-    public boolean removeClusterFromCache(@NotNull IClusterDetail clusterDetailToRemove) {
-        if (cachedClusters.stream().map(IClusterDetail::getName).noneMatch(clusterDetailToRemove.getName()::equals)) {
-            return false;
+    private void replaceSnapshot(@NotNull ImmutableList<IClusterDetail> clusterDetails) {
+        ClustersChangedEvent event;
+        synchronized (this) {
+            Snapshot current = snapshot;
+            snapshot = new Snapshot(clusterDetails);
+
+            Set<IClusterDetail> previous = Sets.newIdentityHashSet();
+            previous.addAll(current.clusters);
+            Set<IClusterDetail> latest = Sets.newIdentityHashSet();
+            latest.addAll(clusterDetails);
+
+            event = new ClustersChangedEvent(
+                    clusterDetails.stream().filter(clusterDetail -> !previous.contains(clusterDetail)).collect(Collectors.toList()),
+                    current.clusters.stream().filter(clusterDetail -> !latest.contains(clusterDetail)).collect(Collectors.toList()));
+        }
+
+        if (!event.isEmpty()) {
+            changes.onNext(event);
+        }
+    }
+
+    @NotNull
+    private static String normalizeUrl(@NotNull String url) {
+        return StringUtils.appendIfMissing(url.trim().toLowerCase(), "/");
+    }
+
+    private static class Snapshot {
+        @NotNull
+        private final ImmutableList<IClusterDetail> clusters;
+        @NotNull
+        private final ImmutableMap<String, IClusterDetail> clustersByName;
+        // Connection URL of some clusters is built on demand, so the index is built at the first lookup
+        @NotNull
+        private final Supplier<ImmutableMap<String, IClusterDetail>> clustersByUrl;
+
+        private Snapshot(@NotNull ImmutableList<IClusterDetail> clusters) {
+            this.clusters = clusters;
+            this.clustersByName = index(clusters, IClusterDetail::getName);
+            this.clustersByUrl = Suppliers.memoize(() -> index(clusters, clusterDetail -> {
+                String connectionUrl = clusterDetail.getConnectionUrl();
+                return connectionUrl == null ? null : normalizeUrl(connectionUrl);
+            }));
         }
 
-        cachedClusters = new ImmutableList.Builder<IClusterDetail>()
-                .addAll(cachedClusters.stream()
-                                      .filter(clusterDetail -> !clusterDetail.getName().equals(clusterDetailToRemove.getName()))
-                                      .collect(Collectors.toList()))
-                .build();
+        @NotNull
+        private static ImmutableMap<String, IClusterDetail> index(@NotNull List<IClusterDetail> clusters,
+                                                                  @NotNull Function<IClusterDetail, String> keyOf) {
+            // The first cluster wins if several clusters share the same key
+            Map<String, IClusterDetail> indexed = new LinkedHashMap<>();
+            clusters.forEach(clusterDetail -> {
+                String key = keyOf.apply(clusterDetail);
+                if (key != null) {
+                    indexed.putIfAbsent(key, clusterDetail);
+                }
+            });
+
+            return ImmutableMap.copyOf(indexed);
+        }
+    }
+
+    public static class ClustersChangedEvent {
+        @NotNull
+        private final ImmutableList<IClusterDetail> added;
+        @NotNull
+        private final ImmutableList<IClusterDetail> removed;
+
+        public ClustersChangedEvent(@NotNull Collection<? extends IClusterDetail> added,
+                                    @NotNull Collection<? extends IClusterDetail> removed) {
+            this.added = ImmutableList.copyOf(added);
+            this.removed = ImmutableList.copyOf(removed);
+        }
 
-        return true;
+        @NotNull
+        public ImmutableList<IClusterDetail> getAdded() {
+            return added;
+        }
+
+        @NotNull
+        public ImmutableList<IClusterDetail> getRemoved() {
+            return removed;
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
     }
 }
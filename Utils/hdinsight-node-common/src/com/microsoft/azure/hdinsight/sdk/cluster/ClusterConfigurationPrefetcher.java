@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.cluster;
+
+import com.microsoft.azure.hdinsight.common.CommonConst;
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azure.hdinsight.sdk.common.HDIException;
+import com.microsoft.azure.toolkit.lib.common.model.Subscription;
+import com.microsoft.azuretools.azurecommons.helpers.AzureCmdException;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import com.microsoft.tooling.msservices.components.DefaultLoader;
+import com.microsoft.tooling.msservices.helpers.IDEHelper;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches and caches HDInsight cluster configurations (gateway credentials, core-site and storage accounts).
+ * Concurrent requests of the same cluster share a single in-flight fetch, and the configurations of recently used
+ * clusters are warmed up in a bounded background pool after clusters refreshed, so that users don't wait for the
+ * ARM call when expanding a cluster or submitting a job. The recently used clusters are persisted to warm them up
+ * at the first refresh after IDE restarted.
+ */
+public class ClusterConfigurationPrefetcher implements ILogger {
+    private static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    private static final int MAX_RECENT_CLUSTERS = 16;
+    private static final int MAX_PENDING_PREFETCHES = 64;
+
+    private static final ClusterConfigurationPrefetcher instance = new ClusterConfigurationPrefetcher(
+            DEFAULT_TTL_MILLIS, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private final long ttlMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> recentClusterIds = Collections.newSetFromMap(
+            Collections.synchronizedMap(new LinkedHashMap<String, Boolean>(MAX_RECENT_CLUSTERS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_RECENT_CLUSTERS;
+                }
+            }));
+    private final AtomicBoolean isRecentClusterIdsLoaded = new AtomicBoolean(false);
+    private final ThreadPoolExecutor prefetchExecutor;
+
+    ClusterConfigurationPrefetcher(long ttlMillis, int poolSize) {
+        this.ttlMillis = ttlMillis;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        // Prefetch is best effort, drop the requests if there are too many pending ones
+        this.prefetchExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_PENDING_PREFETCHES),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "hdinsight-cluster-configuration-prefetcher-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+        this.prefetchExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    public static ClusterConfigurationPrefetcher getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get the configuration of a cluster from cache, or fetch it in current thread if it's not cached, expired or
+     * the cluster has been updated (e.g. gateway credentials rotated) since fetched. Callers of the same cluster wait
+     * for the same in-flight fetch.
+     */
+    @Nullable
+    public ClusterConfiguration getClusterConfiguration(@NotNull IClusterOperation clusterOperation,
+                                                        @NotNull Subscription subscription,
+                                                        @NotNull ClusterRawInfo clusterRawInfo)
+            throws IOException, HDIException, AzureCmdException {
+        String clusterId = clusterRawInfo.getId();
+        if (clusterId == null) {
+            return clusterOperation.getClusterConfiguration(subscription, null);
+        }
+
+        addRecentCluster(clusterId);
+
+        CompletableFuture<ClusterConfiguration> fetching = new CompletableFuture<>();
+        long now = System.currentTimeMillis();
+        Entry entry = entries.compute(clusterId, (id, existing) ->
+                existing != null && existing.isValid(clusterRawInfo.getEtag(), now)
+                        ? existing
+                        : new Entry(clusterRawInfo.getEtag(), now + ttlMillis, fetching));
+
+        if (entry.future == fetching) {
+            try {
+                fetching.complete(clusterOperation.getClusterConfiguration(subscription, clusterId));
+            } catch (IOException | HDIException | AzureCmdException | RuntimeException ex) {
+                // Don't cache the failure, the next request will fetch again
+                entries.remove(clusterId, entry);
+                fetching.completeExceptionally(ex);
+            }
+        }
+
+        return await(entry.future, clusterId);
+    }
+
+    /**
+     * Wait for a configuration loading, the failure of the loading is rethrown as is
+     */
+    static <T> T await(@NotNull Future<T> loading, @NotNull String clusterName)
+            throws IOException, HDIException, AzureCmdException {
+        try {
+            return loading.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted when getting configuration of cluster " + clusterName, ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof HDIException) {
+                throw (HDIException) cause;
+            } else if (cause instanceof AzureCmdException) {
+                throw (AzureCmdException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Warm up configurations of the recently used clusters in background
+     *
+     * @param clusterDetails all clusters refreshed, the ones not recently used are skipped
+     */
+    public void prefetch(@NotNull Collection<? extends IClusterDetail> clusterDetails) {
+        loadRecentClusterIds();
+        clusterDetails.stream()
+                .filter(clusterDetail -> clusterDetail instanceof ClusterDetail)
+                .map(clusterDetail -> (ClusterDetail) clusterDetail)
+                .filter(clusterDetail -> !clusterDetail.isConfigInfoAvailable()
+                        && clusterDetail.getId() != null
+                        && recentClusterIds.contains(clusterDetail.getId()))
+                .forEach(clusterDetail -> prefetchExecutor.execute(() -> {
+                    try {
+                        clusterDetail.getConfigurationInfo();
+                    } catch (Exception ex) {
+                        log().warn("Failed to prefetch configuration of cluster " + clusterDetail.getName(), ex);
+                    }
+                }));
+    }
+
+    /**
+     * Drop all cached configurations and forget the recently used clusters, including the persisted ones
+     */
+    public void invalidateAll() {
+        isRecentClusterIdsLoaded.set(true);
+        entries.clear();
+        recentClusterIds.clear();
+        saveRecentClusterIds();
+    }
+
+    private void addRecentCluster(@NotNull String clusterId) {
+        loadRecentClusterIds();
+        if (recentClusterIds.add(clusterId)) {
+            saveRecentClusterIds();
+        }
+    }
+
+    private void loadRecentClusterIds() {
+        IDEHelper ideHelper = DefaultLoader.getIdeHelper();
+        if (ideHelper == null || !isRecentClusterIdsLoaded.compareAndSet(false, true)) {
+            return;
+        }
+
+        String persisted = ideHelper.getApplicationProperty(CommonConst.HDINSIGHT_RECENT_CLUSTER_IDS);
+        if (StringUtils.isNotBlank(persisted)) {
+            Arrays.stream(persisted.split(","))
+                    .filter(StringUtils::isNotBlank)
+                    .forEach(recentClusterIds::add);
+        }
+    }
+
+    private void saveRecentClusterIds() {
+        IDEHelper ideHelper = DefaultLoader.getIdeHelper();
+        if (ideHelper == null) {
+            return;
+        }
+
+        List<String> clusterIds;
+        synchronized (recentClusterIds) {
+            clusterIds = new ArrayList<>(recentClusterIds);
+        }
+
+        ideHelper.setApplicationProperty(CommonConst.HDINSIGHT_RECENT_CLUSTER_IDS, String.join(",", clusterIds));
+    }
+
+    private static class Entry {
+        @Nullable
+        private final String etag;
+        private final long expireAt;
+        @NotNull
+        private final CompletableFuture<ClusterConfiguration> future;
+
+        private Entry(@Nullable String etag, long expireAt, @NotNull CompletableFuture<ClusterConfiguration> future) {
+            this.etag = etag;
+            this.expireAt = expireAt;
+            this.future = future;
+        }
+
+        private boolean isValid(@Nullable String latestEtag, long now) {
+            // The in-flight fetch is always shared, the etag of cluster changes when its gateway credentials updated
+            return !future.isDone() || (expireAt > now && StringUtils.equals(etag, latestEtag));
+        }
+    }
+}
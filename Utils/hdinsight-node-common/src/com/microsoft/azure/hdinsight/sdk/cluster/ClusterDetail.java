@@ -29,6 +29,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class ClusterDetail implements IClusterDetail, LivyCluster, YarnCluster, ILogger  {
 
@@ -54,7 +55,10 @@ public class ClusterDetail implements IClusterDetail, LivyCluster, YarnCluster,
     private String passWord;
     private IHDIStorageAccount defaultStorageAccount;
     private List<HDStorageAccount> additionalStorageAccounts;
-    private boolean isConfigInfoAvailable = false;
+    private volatile boolean isConfigInfoAvailable = false;
+    // The in-flight configuration loading shared by concurrent callers
+    @Nullable
+    private CompletableFuture<Void> configInfoLoading = null;
     @Nullable
     private Map<String, String> coresiteMap = null;
 
@@ -260,60 +264,98 @@ public class ClusterDetail implements IClusterDetail, LivyCluster, YarnCluster,
     }
 
     public void getConfigurationInfo() throws IOException, HDIException, AzureCmdException {
+        if (isConfigInfoAvailable()) {
+            return;
+        }
+
+        CompletableFuture<Void> loading;
+        boolean isLoadingOwner = false;
+        synchronized (this) {
+            if (isConfigInfoAvailable()) {
+                return;
+            }
+
+            if (configInfoLoading == null) {
+                configInfoLoading = new CompletableFuture<>();
+                isLoadingOwner = true;
+            }
+
+            loading = configInfoLoading;
+        }
+
+        if (isLoadingOwner) {
+            try {
+                loadConfigurationInfo();
+                loading.complete(null);
+            } catch (IOException | HDIException | AzureCmdException | RuntimeException ex) {
+                loading.completeExceptionally(ex);
+                throw ex;
+            } finally {
+                synchronized (this) {
+                    configInfoLoading = null;
+                }
+            }
+
+            return;
+        }
+
+        // Wait for the loading started by another caller
+        ClusterConfigurationPrefetcher.await(loading, getName());
+    }
+
+    private void loadConfigurationInfo() throws IOException, HDIException, AzureCmdException {
         // If exception happens, isConfigInfoAvailable is still false, which means
         // next time we call getConfigurationInfo(), load configuration codes will still be executed.
-        if (!isConfigInfoAvailable()) {
-            String userName = null;
-            String passWord = null;
-            Map<String, String> coresiteMap = null;
-            IHDIStorageAccount defaultStorageAccount = null;
-            List<HDStorageAccount> additionalStorageAccounts = null;
-
-            ClusterConfiguration clusterConfiguration =
-                    clusterOperation.getClusterConfiguration(subscription, clusterRawInfo.getId());
-            if (clusterConfiguration != null && clusterConfiguration.getConfigurations() != null) {
-                Configurations configurations = clusterConfiguration.getConfigurations();
-                Gateway gateway = configurations.getGateway();
-                if (gateway != null) {
-                    userName = gateway.getUsername();
-                    passWord = gateway.getPassword();
-                }
+        String userName = null;
+        String passWord = null;
+        Map<String, String> coresiteMap = null;
+        IHDIStorageAccount defaultStorageAccount = null;
+        List<HDStorageAccount> additionalStorageAccounts = null;
+
+        ClusterConfiguration clusterConfiguration = ClusterConfigurationPrefetcher.getInstance()
+                .getClusterConfiguration(clusterOperation, subscription, clusterRawInfo);
+        if (clusterConfiguration != null && clusterConfiguration.getConfigurations() != null) {
+            Configurations configurations = clusterConfiguration.getConfigurations();
+            Gateway gateway = configurations.getGateway();
+            if (gateway != null) {
+                userName = gateway.getUsername();
+                passWord = gateway.getPassword();
+            }
 
-                Map<String, String> coresSiteMap = configurations.getCoresite();
-                ClusterIdentity clusterIdentity = configurations.getClusterIdentity();
-                if (coresSiteMap != null) {
-                    coresiteMap = coresSiteMap;
-                    try {
-                        this.tempCoresiteMap = coresSiteMap;
-                        defaultStorageAccount = getDefaultStorageAccount(coresSiteMap, clusterIdentity);
-                    } catch (HDIException exp) {
-                        String errMsg = String.format("Encounter exception when getting storage configuration for cluster name:%s,type:%s,location:%s," +
-                                        "state:%s,version:%s,osType:%s,kind:%s,spark version:%s",
-                                clusterRawInfo.getName(),
-                                clusterRawInfo.getType(),
-                                clusterRawInfo.getLocation(),
-                                clusterRawInfo.getProperties().getClusterState(),
-                                clusterRawInfo.getProperties().getClusterVersion(),
-                                clusterRawInfo.getProperties().getOsType(),
-                                clusterRawInfo.getProperties().getClusterDefinition().getKind(),
-                                clusterRawInfo.getProperties().getClusterDefinition().getComponentVersion().getSpark());
-                        log().warn(errMsg, exp);
-                        throw new HDIException(errMsg, exp);
-                    }
-
-                    additionalStorageAccounts = getAdditionalStorageAccounts(coresSiteMap);
+            Map<String, String> coresSiteMap = configurations.getCoresite();
+            ClusterIdentity clusterIdentity = configurations.getClusterIdentity();
+            if (coresSiteMap != null) {
+                coresiteMap = coresSiteMap;
+                try {
+                    this.tempCoresiteMap = coresSiteMap;
+                    defaultStorageAccount = getDefaultStorageAccount(coresSiteMap, clusterIdentity);
+                } catch (HDIException exp) {
+                    String errMsg = String.format("Encounter exception when getting storage configuration for cluster name:%s,type:%s,location:%s," +
+                                    "state:%s,version:%s,osType:%s,kind:%s,spark version:%s",
+                            clusterRawInfo.getName(),
+                            clusterRawInfo.getType(),
+                            clusterRawInfo.getLocation(),
+                            clusterRawInfo.getProperties().getClusterState(),
+                            clusterRawInfo.getProperties().getClusterVersion(),
+                            clusterRawInfo.getProperties().getOsType(),
+                            clusterRawInfo.getProperties().getClusterDefinition().getKind(),
+                            clusterRawInfo.getProperties().getClusterDefinition().getComponentVersion().getSpark());
+                    log().warn(errMsg, exp);
+                    throw new HDIException(errMsg, exp);
                 }
+
+                additionalStorageAccounts = getAdditionalStorageAccounts(coresSiteMap);
             }
+        }
 
-            synchronized (this) {
-                if (!isConfigInfoAvailable()) {
-                    this.userName = userName;
-                    this.passWord = passWord;
-                    this.coresiteMap = coresiteMap;
-                    this.defaultStorageAccount = defaultStorageAccount;
-                    this.additionalStorageAccounts = additionalStorageAccounts;
-                    isConfigInfoAvailable = true;
-                }
+        synchronized (this) {
+            if (!isConfigInfoAvailable()) {
+                this.userName = userName;
+                this.passWord = passWord;
+                this.coresiteMap = coresiteMap;
+                this.defaultStorageAccount = defaultStorageAccount;
+                this.additionalStorageAccounts = additionalStorageAccounts;
+                isConfigInfoAvailable = true;
             }
         }
     }
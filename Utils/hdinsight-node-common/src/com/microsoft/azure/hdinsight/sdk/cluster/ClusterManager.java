@@ -9,10 +9,12 @@ import com.microsoft.azure.hdinsight.common.ClusterManagerEx;
 import com.microsoft.azure.hdinsight.common.CommonConst;
 import com.microsoft.azure.hdinsight.common.logger.ILogger;
 import com.microsoft.azure.hdinsight.sdk.cluster.HDInsightNewAPI.ClusterOperationNewAPIImpl;
+import com.microsoft.azure.hdinsight.sdk.cluster.HDInsightNewAPI.HDInsightUserRoleType;
 import com.microsoft.azure.hdinsight.sdk.common.AuthType;
 import com.microsoft.azure.hdinsight.spark.common.SparkBatchSubmission;
 import com.microsoft.azure.toolkit.lib.common.model.Subscription;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import com.microsoft.tooling.msservices.components.DefaultLoader;
 import org.apache.commons.lang3.StringUtils;
 import rx.Observable;
@@ -37,7 +39,20 @@ public class ClusterManager implements ILogger {
         return instance;
     }
 
+    @NotNull
+    private final ClusterProbeCache probeCache;
+
     private ClusterManager() {
+        this(new ClusterProbeCache());
+    }
+
+    ClusterManager(@NotNull ClusterProbeCache probeCache) {
+        this.probeCache = probeCache;
+    }
+
+    @NotNull
+    public ClusterProbeCache getProbeCache() {
+        return probeCache;
     }
 
     private List<ClusterRawInfo> deduplicateClusters(@NotNull List<ClusterRawInfo> clusters) {
@@ -62,46 +77,49 @@ public class ClusterManager implements ILogger {
             List<Subscription> subscriptions,
             String osType) {
         return Observable.from(subscriptions)
-                .flatMap(subscriptionDetail ->
-                        Observable.fromCallable(() ->
-                                new ClusterOperationImpl().listCluster(subscriptionDetail))
-                                // Run time-consuming list clusters job in IO thread
-                                .subscribeOn(Schedulers.io())
-                                // Remove duplicate clusters that share the same cluster name
-                                .map(this::deduplicateClusters)
-                                .flatMap(Observable::from)
-                                // Extract RServer and Spark Cluster with required OS type we need
-                                .filter(clusterRawInfo -> {
-                                    ClusterType rawClusterType = ClusterDetail.getType(clusterRawInfo);
-                                    String rawOsType = ClusterDetail.getOSType(clusterRawInfo);
-                                    return (rawClusterType.equals(ClusterType.rserver)
-                                            || rawClusterType.equals(ClusterType.spark))
-                                                && StringUtils.equalsIgnoreCase(rawOsType, osType);
-                                })
-                                .flatMap(clusterRawInfo -> {
-                                    ClusterOperationNewAPIImpl probeClusterNewApiOperation = new ClusterOperationNewAPIImpl(subscriptionDetail);
-                                    if (isHDInsightNewSDKEnabled()) {
-                                        return isProbeNewApiSucceed(probeClusterNewApiOperation, clusterRawInfo)
-                                                // Run the time-consuming probe job concurrently in IO thread
-                                                .subscribeOn(Schedulers.io())
-                                                .map(isProbeSucceed -> isProbeSucceed
-                                                        ? (isMfaEspCluster(clusterRawInfo)
-                                                            ? new MfaClusterDetail(subscriptionDetail, clusterRawInfo, probeClusterNewApiOperation)
-                                                            : new ClusterDetail(subscriptionDetail, clusterRawInfo, probeClusterNewApiOperation))
-                                                        : new ClusterDetail(subscriptionDetail, clusterRawInfo, new ClusterOperationImpl()));
-                                    } else {
-                                        return Observable.just(new ClusterDetail(subscriptionDetail, clusterRawInfo, new ClusterOperationImpl()));
-                                    }
-                                })
-                )
+                .flatMap(subscriptionDetail -> getHDInsightClustersWithSpecificType(subscriptionDetail, osType))
+                .toList();
+    }
+
+    /**
+     * get hdinsight detailed cluster info of a single subscription with specific cluster type: Spark and RServer,
+     * so that clusters of each subscription could be consumed as soon as they are listed
+     *
+     * @param subscriptionDetail
+     * @return detailed cluster info with specific cluster type
+     */
+    public Observable<ClusterDetail> getHDInsightClustersWithSpecificType(
+            Subscription subscriptionDetail,
+            String osType) {
+        return Observable.fromCallable(() ->
+                        createClusterOperation().listCluster(subscriptionDetail))
+                // Run time-consuming list clusters job in IO thread
+                .subscribeOn(Schedulers.io())
+                // Remove duplicate clusters that share the same cluster name
+                .map(this::deduplicateClusters)
+                .flatMap(Observable::from)
+                // Extract RServer and Spark Cluster with required OS type we need
+                .filter(clusterRawInfo -> {
+                    ClusterType rawClusterType = ClusterDetail.getType(clusterRawInfo);
+                    String rawOsType = ClusterDetail.getOSType(clusterRawInfo);
+                    return (rawClusterType.equals(ClusterType.rserver)
+                            || rawClusterType.equals(ClusterType.spark))
+                                && StringUtils.equalsIgnoreCase(rawOsType, osType);
+                })
+                .flatMap(clusterRawInfo -> {
+                    if (isHDInsightNewSDKEnabled()) {
+                        return getClusterDetailWithProbe(subscriptionDetail, clusterRawInfo);
+                    } else {
+                        return Observable.just(new ClusterDetail(subscriptionDetail, clusterRawInfo, createClusterOperation()));
+                    }
+                })
                 .doOnNext(clusterDetail -> {
                     String debugMsg = String.format("Thread: %s. Sub: %s. Cluster: %s",
                             Thread.currentThread().getName(),
                             clusterDetail.getSubscription().getName(),
                             clusterDetail.getName());
                     log().info(debugMsg);
-                })
-                .toList();
+                });
     }
 
     public boolean isHDInsightNewSDKEnabled() {
@@ -109,6 +127,67 @@ public class ClusterManager implements ILogger {
                 && Boolean.valueOf(DefaultLoader.getIdeHelper().getApplicationProperty(CommonConst.ENABLE_HDINSIGHT_NEW_SDK));
     }
 
+    /**
+     * Probe the cluster with new API only if it's new or changed since last probed, the probe result and MFA/ESP
+     * classification are reused from cache otherwise.
+     */
+    private Observable<ClusterDetail> getClusterDetailWithProbe(
+            @NotNull Subscription subscriptionDetail,
+            @NotNull ClusterRawInfo clusterRawInfo) {
+        ClusterProbeCache.Entry cached = probeCache.get(clusterRawInfo);
+        if (cached != null) {
+            return Observable.just(createClusterDetail(subscriptionDetail, clusterRawInfo, cached, null));
+        }
+
+        ClusterOperationNewAPIImpl probeClusterNewApiOperation = createProbeOperation(subscriptionDetail);
+        return isProbeNewApiSucceed(probeClusterNewApiOperation, clusterRawInfo)
+                // Run the time-consuming probe job concurrently in IO thread
+                .subscribeOn(Schedulers.io())
+                .map(isProbeSucceed -> {
+                    ClusterProbeCache.Entry probed = probeCache.put(
+                            clusterRawInfo,
+                            isProbeSucceed,
+                            isProbeSucceed && isMfaEspCluster(clusterRawInfo),
+                            isProbeSucceed ? probeClusterNewApiOperation.getRoleType() : null,
+                            !isProbeSucceed && probeClusterNewApiOperation.isLastProbeFailureTransient());
+
+                    return createClusterDetail(subscriptionDetail, clusterRawInfo, probed, probeClusterNewApiOperation);
+                });
+    }
+
+    @NotNull
+    private ClusterDetail createClusterDetail(@NotNull Subscription subscriptionDetail,
+                                              @NotNull ClusterRawInfo clusterRawInfo,
+                                              @NotNull ClusterProbeCache.Entry probeResult,
+                                              @Nullable ClusterOperationNewAPIImpl probedOperation) {
+        if (!probeResult.isProbeSucceed()) {
+            return new ClusterDetail(subscriptionDetail, clusterRawInfo, createClusterOperation());
+        }
+
+        ClusterOperationNewAPIImpl clusterOperation = probedOperation;
+        if (clusterOperation == null) {
+            clusterOperation = createProbeOperation(subscriptionDetail);
+            HDInsightUserRoleType roleType = probeResult.getRoleType();
+            if (roleType != null) {
+                clusterOperation.setRoleType(roleType);
+            }
+        }
+
+        return probeResult.isMfaEsp()
+                ? new MfaClusterDetail(subscriptionDetail, clusterRawInfo, clusterOperation)
+                : new ClusterDetail(subscriptionDetail, clusterRawInfo, clusterOperation);
+    }
+
+    @NotNull
+    ClusterOperationImpl createClusterOperation() {
+        return new ClusterOperationImpl();
+    }
+
+    @NotNull
+    ClusterOperationNewAPIImpl createProbeOperation(@NotNull Subscription subscriptionDetail) {
+        return new ClusterOperationNewAPIImpl(subscriptionDetail);
+    }
+
     private Observable<Boolean> isProbeNewApiSucceed(
             @NotNull ClusterOperationNewAPIImpl clusterOperation,
             @NotNull ClusterRawInfo clusterRawInfo) {
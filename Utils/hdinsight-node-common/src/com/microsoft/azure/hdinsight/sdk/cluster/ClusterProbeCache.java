@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.cluster;
+
+import com.microsoft.azure.hdinsight.sdk.cluster.HDInsightNewAPI.HDInsightUserRoleType;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache of HDInsight new API probe results keyed by cluster ID. An entry is reused until it expires or the
+ * cluster state or version changes, so that refreshing the cluster list doesn't probe every cluster again.
+ * Results caused by transient failures (e.g. timeouts) are kept only shortly, so that they don't hide the
+ * capability of the cluster for long.
+ */
+public class ClusterProbeCache {
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    public static final long DEFAULT_TRANSIENT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final long transientTtlMillis;
+    @NotNull
+    private final LongSupplier clock;
+
+    public ClusterProbeCache() {
+        this(DEFAULT_TTL_MILLIS, System::currentTimeMillis);
+    }
+
+    public ClusterProbeCache(long ttlMillis, @NotNull LongSupplier clock) {
+        this(ttlMillis, Math.min(ttlMillis, DEFAULT_TRANSIENT_TTL_MILLIS), clock);
+    }
+
+    public ClusterProbeCache(long ttlMillis, long transientTtlMillis, @NotNull LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.transientTtlMillis = transientTtlMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the probe result of the cluster, or null if it was never probed, has expired or has changed since probed
+     */
+    @Nullable
+    public Entry get(@NotNull ClusterRawInfo clusterRawInfo) {
+        String clusterId = clusterRawInfo.getId();
+        if (clusterId == null) {
+            return null;
+        }
+
+        Entry entry = entries.get(clusterId);
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.expireAt <= clock.getAsLong() || !entry.signature.equals(getSignature(clusterRawInfo))) {
+            entries.remove(clusterId, entry);
+            return null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * @param isTransient whether the result is caused by a transient failure, which expires in the transient TTL
+     */
+    @NotNull
+    public Entry put(@NotNull ClusterRawInfo clusterRawInfo,
+                     boolean isProbeSucceed,
+                     boolean isMfaEsp,
+                     @Nullable HDInsightUserRoleType roleType,
+                     boolean isTransient) {
+        long expireAt = clock.getAsLong() + (isTransient ? transientTtlMillis : ttlMillis);
+        Entry entry = new Entry(getSignature(clusterRawInfo), isProbeSucceed, isMfaEsp, roleType, expireAt);
+        if (clusterRawInfo.getId() != null) {
+            entries.put(clusterRawInfo.getId(), entry);
+        }
+
+        return entry;
+    }
+
+    public void invalidate(@NotNull String clusterId) {
+        entries.remove(clusterId);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    @NotNull
+    private static String getSignature(@NotNull ClusterRawInfo clusterRawInfo) {
+        Optional<ClusterProperties> properties = Optional.ofNullable(clusterRawInfo.getProperties());
+        return properties.map(ClusterProperties::getClusterState).orElse("") + "|"
+                + properties.map(ClusterProperties::getClusterVersion).orElse("");
+    }
+
+    public static class Entry {
+        @NotNull
+        private final String signature;
+        private final boolean isProbeSucceed;
+        private final boolean isMfaEsp;
+        @Nullable
+        private final HDInsightUserRoleType roleType;
+        private final long expireAt;
+
+        private Entry(@NotNull String signature,
+                      boolean isProbeSucceed,
+                      boolean isMfaEsp,
+                      @Nullable HDInsightUserRoleType roleType,
+                      long expireAt) {
+            this.signature = signature;
+            this.isProbeSucceed = isProbeSucceed;
+            this.isMfaEsp = isMfaEsp;
+            this.roleType = roleType;
+            this.expireAt = expireAt;
+        }
+
+        public boolean isProbeSucceed() {
+            return isProbeSucceed;
+        }
+
+        public boolean isMfaEsp() {
+            return isMfaEsp;
+        }
+
+        @Nullable
+        public HDInsightUserRoleType getRoleType() {
+            return roleType;
+        }
+    }
+}
@@ -22,6 +22,7 @@ import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import com.microsoft.azuretools.telemetry.AppInsightsClient;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.http.HttpStatus;
 import org.apache.http.entity.StringEntity;
 import rx.Observable;
 
@@ -35,6 +36,9 @@ import java.util.Optional;
 public class ClusterOperationNewAPIImpl extends ClusterOperationImpl implements ILogger {
     private static final String VERSION = "2015-03-01-preview";
     private HDInsightUserRoleType roleType;
+    // the error the last probe fell back to false for, if it's transient (network error, timeout, throttling or server error)
+    @Nullable
+    private volatile Throwable transientProbeFailure;
     @NotNull
     private final Subscription subscription;
     @NotNull
@@ -73,6 +77,7 @@ public class ClusterOperationNewAPIImpl extends ClusterOperationImpl implements
     public Observable<Boolean> isProbeGetConfigurationSucceed(final ClusterRawInfo clusterRawInfo) {
         String clusterId = clusterRawInfo.getId();
         String managementURI = Azure.az(AzureCloud.class).getOrDefault().getResourceManagerEndpoint();
+        transientProbeFailure = null;
         return getClusterConfigurationRequest(clusterId,managementURI)
                 .map(clusterConfiguration -> {
                     if (isClusterConfigurationValid(clusterRawInfo, clusterConfiguration)) {
@@ -122,11 +127,34 @@ public class ClusterOperationNewAPIImpl extends ClusterOperationImpl implements
                         }
 
                         log().warn("Error getting cluster configurations with NEW HDInsight API. " + ExceptionUtils.getStackTrace(err));
+                        if (isTransientFailure(err)) {
+                            transientProbeFailure = err;
+                        }
                         return Observable.just(false);
                     }
                 });
     }
 
+    /**
+     * @return whether the last probe returned false because of a transient failure, whose result shouldn't be trusted for long
+     */
+    public boolean isLastProbeFailureTransient() {
+        return transientProbeFailure != null;
+    }
+
+    private static boolean isTransientFailure(@NotNull Throwable err) {
+        if (!(err instanceof HttpErrorStatus)) {
+            // network errors
+            return true;
+        }
+
+        int statusCode = ((HttpErrorStatus) err).getStatusCode();
+        return err instanceof GatewayTimeoutErrorStatus
+                || statusCode >= HttpStatus.SC_INTERNAL_SERVER_ERROR
+                || statusCode == HttpStatus.SC_REQUEST_TIMEOUT
+                || statusCode == 429;
+    }
+
     private boolean isClusterConfigurationValid(ClusterRawInfo clusterRawInfo, @Nullable ClusterConfiguration clusterConfiguration) {
         if (clusterConfiguration == null
                 || clusterConfiguration.getConfigurations() == null
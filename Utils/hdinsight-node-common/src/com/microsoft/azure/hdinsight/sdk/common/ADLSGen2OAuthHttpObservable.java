@@ -5,6 +5,8 @@
 
 package com.microsoft.azure.hdinsight.sdk.common;
 
+import com.microsoft.azure.toolkit.lib.Azure;
+import com.microsoft.azure.toolkit.lib.auth.AzureAccount;
 import com.microsoft.azuretools.authmanage.IdeAzureAccount;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
@@ -37,6 +39,11 @@ public class ADLSGen2OAuthHttpObservable extends OAuthTokenHttpObservable {
         return IdeAzureAccount.getInstance().getCredentialForTrack1(tenantId).getToken(resource);
     }
 
+    @Override
+    public String getCredentialIdentity() {
+        return "OAuth " + tenantId + " " + Azure.az(AzureAccount.class).account().getUsername();
+    }
+
     @Override
     public Observable<CloseableHttpResponse> request(@NotNull final HttpRequestBase httpRequest,
                                                      final @Nullable HttpEntity entity,
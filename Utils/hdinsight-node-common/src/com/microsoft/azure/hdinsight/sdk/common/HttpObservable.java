@@ -229,6 +229,15 @@ public class HttpObservable implements ILogger {
         return defaultParameters;
     }
 
+    /**
+     * @return the identity of the credential which the requests are authorized with, the responses can be shared by
+     * the ones of the same identity. Null if it can't be told, then the responses are not shared.
+     */
+    @Nullable
+    public String getCredentialIdentity() {
+        return null;
+    }
+
     /*
      * Helper functions
      */
@@ -9,6 +9,7 @@ import com.microsoft.azure.hdinsight.sdk.storage.adlsgen2.SharedKeyCredential;
 import com.microsoft.azure.storage.core.Utility;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
 import com.microsoft.azuretools.azurecommons.helpers.Nullable;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.NameValuePair;
@@ -19,6 +20,7 @@ import org.apache.http.message.HeaderGroup;
 import rx.Observable;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -29,6 +31,7 @@ public class SharedKeyHttpObservable extends HttpObservable {
     public static String ApiVersion = "2018-11-09";
     private SharedKeyCredential cred;
     private HeaderGroup defaultHeaders;
+    private String credentialIdentity;
 
     public SharedKeyHttpObservable(String accountName, String accessKey) {
         defaultHeaders = new HeaderGroup();
@@ -41,6 +44,7 @@ public class SharedKeyHttpObservable extends HttpObservable {
         setDefaultHeaderGroup(defaultHeaders);
         try {
             this.cred = new SharedKeyCredential(accountName, accessKey);
+            this.credentialIdentity = "SharedKey " + accountName + " " + DigestUtils.sha256Hex(accessKey);
         } catch (IllegalArgumentException ex) {
             log().warn("Create shared key credential encounter exception", ex);
             throw new IllegalArgumentException("Can't create shared key credential.Please check access key");
@@ -69,9 +73,17 @@ public class SharedKeyHttpObservable extends HttpObservable {
         ofNullable(addOrReplaceHeaders).orElse(emptyList()).forEach(headerGroup::addHeader);
         String key = cred.generateSharedKey(httpRequest, headerGroup, ofNullable(parameters).orElse(emptyList()));
 
-        getDefaultHeaderGroup().updateHeader(new BasicHeader("Authorization", key));
+        // The key is signed for this request only, set it per request rather than to the default header group shared
+        // by concurrent requests, e.g. the chunks appended in parallel
+        List<Header> headers = new ArrayList<>(ofNullable(addOrReplaceHeaders).orElse(emptyList()));
+        headers.add(new BasicHeader("Authorization", key));
 
-        return super.request(httpRequest, entity, ofNullable(parameters).orElse(emptyList()), ofNullable(addOrReplaceHeaders).orElse(emptyList()));
+        return super.request(httpRequest, entity, ofNullable(parameters).orElse(emptyList()), headers);
+    }
+
+    @Override
+    public String getCredentialIdentity() {
+        return credentialIdentity;
     }
 
     @Override
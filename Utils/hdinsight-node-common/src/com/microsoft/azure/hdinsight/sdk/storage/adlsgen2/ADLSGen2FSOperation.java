@@ -6,7 +6,9 @@
 package com.microsoft.azure.hdinsight.sdk.storage.adlsgen2;
 
 import com.google.common.collect.ImmutableList;
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
 import com.microsoft.azure.hdinsight.sdk.common.HttpObservable;
+import com.microsoft.azure.hdinsight.sdk.common.HttpResponse;
 import com.microsoft.azure.hdinsight.sdk.rest.azure.storageaccounts.RemoteFile;
 import com.microsoft.azure.hdinsight.sdk.rest.azure.storageaccounts.api.GetRemoteFilesResponse;
 import com.microsoft.azuretools.azurecommons.helpers.NotNull;
@@ -14,25 +16,45 @@ import com.microsoft.azuretools.azurecommons.helpers.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
 import org.apache.http.NameValuePair;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPatch;
 import org.apache.http.client.methods.HttpPut;
-import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
 import rx.Observable;
+import rx.exceptions.Exceptions;
+import rx.schedulers.Schedulers;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.UnknownServiceException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class ADLSGen2FSOperation {
+public class ADLSGen2FSOperation implements ILogger {
     public static final String DEFAULT_UMASK = "0000";
     public static final String PERMISSIONS_HEADER = "x-ms-permissions";
     public static final String UMASK_HEADER = "x-ms-umask";
+    public static final String CONTINUATION_HEADER = "x-ms-continuation";
+    // The max page size supported by ADLS Gen2 list path API
+    public static final int DEFAULT_LIST_PAGE_SIZE = 5000;
+    public static final long DEFAULT_LIST_CACHE_TTL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    public static final int DEFAULT_UPLOAD_CHUNK_SIZE = 8 * 1024 * 1024;
+    public static final int DEFAULT_UPLOAD_PARALLELISM = 4;
+    public static final int DEFAULT_UPLOAD_MAX_RETRIES = 3;
+    public static final long DEFAULT_UPLOAD_RETRY_DELAY_MILLIS = 1000;
 
     private HttpObservable http;
 
@@ -42,14 +64,26 @@ public class ADLSGen2FSOperation {
     @NotNull
     private List<NameValuePair> createFileReqParams;
 
-    @NotNull
-    private List<NameValuePair> appendReqParams;
+    private int uploadChunkSize = DEFAULT_UPLOAD_CHUNK_SIZE;
+
+    private int uploadParallelism = DEFAULT_UPLOAD_PARALLELISM;
+
+    private int uploadMaxRetries = DEFAULT_UPLOAD_MAX_RETRIES;
+
+    private long uploadRetryDelayMillis = DEFAULT_UPLOAD_RETRY_DELAY_MILLIS;
 
     @NotNull
-    private ADLSGen2ParamsBuilder listReqBuilder;
+    private final List<UploadProgressListener> uploadProgressListeners = new CopyOnWriteArrayList<>();
+
+    private int listPageSize = DEFAULT_LIST_PAGE_SIZE;
 
+    private long listCacheTtlMillis = DEFAULT_LIST_CACHE_TTL_MILLIS;
+
+    // Complete listings of directories keyed by the credential and the directory URL, which tells the account, shared
+    // by all operations so that the listings cached by file choosers are dropped when artifacts are uploaded to the
+    // same directories
     @NotNull
-    private ADLSGen2ParamsBuilder flushReqParamsBuilder;
+    private static final Map<ListingKey, CachedListing> listingCache = new ConcurrentHashMap<>();
 
     public ADLSGen2FSOperation(@NotNull HttpObservable http) {
         this.http = http;
@@ -60,14 +94,6 @@ public class ADLSGen2FSOperation {
         this.createFileReqParams = new ADLSGen2ParamsBuilder()
                 .setResource("file")
                 .build();
-
-        this.appendReqParams = new ADLSGen2ParamsBuilder()
-                .setAction("append")
-                .setPosition(0)
-                .build();
-
-        this.flushReqParamsBuilder = new ADLSGen2ParamsBuilder()
-                .setAction("flush");
     }
 
     public Observable<Boolean> createDir(String dirPath) {
@@ -87,6 +113,7 @@ public class ADLSGen2FSOperation {
                                                         new BasicHeader(UMASK_HEADER, uMask))
                                      : Collections.emptyList();
         return http.executeReqAndCheckStatus(req, null, this.createDirReqParams, headers, 201)
+                   .doOnNext(ignore -> invalidateListings(dirPath))
                    .map(ignore -> true);
     }
 
@@ -107,54 +134,288 @@ public class ADLSGen2FSOperation {
                                                         new BasicHeader(UMASK_HEADER, uMask))
                                      : Collections.emptyList();
         return http.executeReqAndCheckStatus(req, null, this.createFileReqParams, headers, 201)
+                .doOnNext(ignore -> invalidateListings(filePath))
                 .map(ignore -> true);
     }
 
     public Observable<Boolean> uploadData(String destFilePath, File src) {
         return appendData(destFilePath, src)
-                .flatMap(len -> flushData(destFilePath, len));
+                .flatMap(len -> flushData(destFilePath, len))
+                // The length of the file listed is changed
+                .doOnNext(ignore -> invalidateListings(destFilePath));
     }
 
     public Observable<RemoteFile> list(String rootPath, String relativePath) {
-        this.listReqBuilder = new ADLSGen2ParamsBuilder()
+        return listPages(rootPath, relativePath)
+                .concatMap(Observable::from);
+    }
+
+    /**
+     * List the directory page by page following the continuation token, each page is emitted as soon as it arrives.
+     * Unsubscribing stops requesting the remaining pages. A complete listing is cached for a short time.
+     */
+    public Observable<List<RemoteFile>> listPages(String rootPath, String relativePath) {
+        final String directory = getListingPath(
+                StringUtils.stripEnd(rootPath, "/") + "/" + StringUtils.strip(StringUtils.defaultString(relativePath), "/"));
+        return Observable.defer(() -> {
+            evictExpiredListings();
+            // Listings of unknown credentials are not cached, since they may be of other permissions
+            final String credential = http.getCredentialIdentity();
+            final ListingKey cacheKey = credential == null ? null : new ListingKey(credential, directory);
+            final CachedListing cached = cacheKey == null ? null : listingCache.get(cacheKey);
+            if (cached != null) {
+                return Observable.from(cached.pages);
+            }
+
+            final List<List<RemoteFile>> pages = Collections.synchronizedList(new ArrayList<>());
+            return Observable.create((Observable.OnSubscribe<List<RemoteFile>>) ob -> {
+                        String continuation = null;
+                        try {
+                            do {
+                                if (ob.isUnsubscribed()) {
+                                    return;
+                                }
+
+                                final HttpResponse resp = requestListPage(rootPath, relativePath, continuation);
+                                final List<RemoteFile> page = Optional.ofNullable(
+                                                http.convertJsonResponseToObject(resp, GetRemoteFilesResponse.class).getRemoteFiles())
+                                        .orElse(Collections.emptyList());
+                                pages.add(page);
+                                ob.onNext(page);
+
+                                continuation = resp.findHeader(CONTINUATION_HEADER);
+                            } while (StringUtils.isNotBlank(continuation));
+
+                            ob.onCompleted();
+                        } catch (Throwable err) {
+                            ob.onError(err);
+                        }
+                    })
+                    .doOnCompleted(() -> {
+                        if (cacheKey != null) {
+                            listingCache.put(cacheKey, new CachedListing(
+                                    new ArrayList<>(pages), System.currentTimeMillis() + listCacheTtlMillis));
+                        }
+                    });
+        });
+    }
+
+    @NotNull
+    private HttpResponse requestListPage(String rootPath, String relativePath, @Nullable String continuation) {
+        final ADLSGen2ParamsBuilder listReqBuilder = new ADLSGen2ParamsBuilder()
                 .enableRecursive(false)
-                .setResource("filesystem");
+                .setResource("filesystem")
+                .setDirectory(relativePath)
+                .setMaxResults(listPageSize);
+        if (StringUtils.isNotBlank(continuation)) {
+            listReqBuilder.setContinuation(continuation);
+        }
 
-        return http.get(
-                StringUtils.stripEnd(rootPath, "/"),
-                listReqBuilder.setDirectory(relativePath).build(),
-                null,
-                GetRemoteFilesResponse.class)
-                .flatMap(pathList -> Observable.from(pathList.getRemoteFiles()));
+        return http.requestWithHttpResponse(
+                        new HttpGet(StringUtils.stripEnd(rootPath, "/")),
+                        null,
+                        listReqBuilder.build(),
+                        null)
+                .toBlocking()
+                .single();
     }
 
+    public void setListPageSize(int listPageSize) {
+        this.listPageSize = listPageSize;
+    }
+
+    public void setListCacheTtlMillis(long listCacheTtlMillis) {
+        this.listCacheTtlMillis = listCacheTtlMillis;
+    }
+
+    /**
+     * Drop all cached listings
+     */
+    public void invalidateListingCache() {
+        listingCache.clear();
+    }
+
+    /**
+     * Drop the cached listings of the directories containing the path, which are changed by creating the path, no
+     * matter which credentials they are listed with
+     */
+    private static void invalidateListings(@NotNull String path) {
+        final String changedPath = getListingPath(path);
+        listingCache.keySet().removeIf(key -> changedPath.equals(key.directory) || changedPath.startsWith(key.directory + "/"));
+    }
+
+    private static void evictExpiredListings() {
+        final long now = System.currentTimeMillis();
+        listingCache.values().removeIf(listing -> listing.expireAt <= now);
+    }
+
+    @NotNull
+    private static String getListingPath(@NotNull String path) {
+        return StringUtils.stripEnd(StringUtils.substringBefore(path, "?"), "/");
+    }
+
+    public void setUploadChunkSize(int uploadChunkSize) {
+        this.uploadChunkSize = uploadChunkSize;
+    }
+
+    public void setUploadParallelism(int uploadParallelism) {
+        this.uploadParallelism = uploadParallelism;
+    }
+
+    public void setUploadMaxRetries(int uploadMaxRetries) {
+        this.uploadMaxRetries = uploadMaxRetries;
+    }
+
+    public void setUploadRetryDelayMillis(long uploadRetryDelayMillis) {
+        this.uploadRetryDelayMillis = uploadRetryDelayMillis;
+    }
+
+    public void addUploadProgressListener(@NotNull UploadProgressListener listener) {
+        uploadProgressListeners.add(listener);
+    }
+
+    public void removeUploadProgressListener(@NotNull UploadProgressListener listener) {
+        uploadProgressListeners.remove(listener);
+    }
+
+    /**
+     * Append the file in fixed-size chunks at their offsets with bounded parallelism, so that only a few chunks are
+     * held in memory and a failed chunk is retried on its own rather than uploading the whole file again.
+     *
+     * @return the length of the file to flush
+     */
     private Observable<Long> appendData(String filePath, File src) {
-        try {
-            InputStreamEntity reqEntity = new InputStreamEntity(
-                    new FileInputStream(src),
-                    -1,
-                    ContentType.APPLICATION_OCTET_STREAM);
-            BufferedHttpEntity entity = new BufferedHttpEntity(reqEntity);
-            long len = entity.getContentLength();
-
-            HttpPatch req = new HttpPatch(filePath);
-            http.setContentType("application/octet-stream");
-
-            return http.executeReqAndCheckStatus(req, entity, this.appendReqParams, Collections.emptyList(), 202)
-                    .map(ignore -> len);
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException(new IllegalArgumentException("Can not find the aritifact"));
-        } catch (IOException e) {
-            throw new RuntimeException(new IllegalArgumentException("Can not read the aritfact"));
+        if (!src.isFile()) {
+            return Observable.error(new IllegalArgumentException("Can not find the artifact " + src));
+        }
+
+        final long len = src.length();
+        final List<Long> offsets = new ArrayList<>();
+        for (long offset = 0; offset < len; offset += uploadChunkSize) {
+            offsets.add(offset);
         }
+
+        http.setContentType("application/octet-stream");
+
+        final AtomicLong uploadedBytes = new AtomicLong();
+        final long startTime = System.nanoTime();
+        return Observable.from(offsets)
+                .flatMap(offset -> appendChunk(filePath, src, offset, (int) Math.min(uploadChunkSize, len - offset))
+                                .subscribeOn(Schedulers.io()),
+                         uploadParallelism)
+                .doOnNext(chunkLen -> notifyUploadProgress(uploadedBytes.addAndGet(chunkLen), len, startTime))
+                .lastOrDefault(0L)
+                .map(ignore -> len);
+    }
+
+    private Observable<Long> appendChunk(String filePath, File src, long offset, int chunkLen) {
+        return Observable.fromCallable(() -> readChunk(src, offset, chunkLen))
+                .flatMap(chunk -> Observable
+                        .defer(() -> http.request(
+                                new HttpPatch(filePath),
+                                new ByteArrayEntity(chunk, ContentType.APPLICATION_OCTET_STREAM),
+                                new ADLSGen2ParamsBuilder().setAction("append").setPosition(offset).build(),
+                                Collections.emptyList()))
+                        .map(resp -> checkStatusAndClose(resp, 202))
+                        .retryWhen(errors -> errors
+                                .zipWith(Observable.range(1, uploadMaxRetries + 1), (err, attempt) -> {
+                                    if (attempt > uploadMaxRetries) {
+                                        throw Exceptions.propagate(err);
+                                    }
+
+                                    log().warn(String.format("Append data to %s at %d failed, retry %d time(s): %s",
+                                                             filePath, offset, attempt, err.getMessage()));
+                                    return attempt;
+                                })
+                                .flatMap(attempt -> Observable.timer(uploadRetryDelayMillis * attempt, TimeUnit.MILLISECONDS)))
+                        .map(ignore -> (long) chunkLen));
+    }
+
+    @NotNull
+    private static byte[] readChunk(File src, long offset, int chunkLen) throws IOException {
+        final byte[] chunk = new byte[chunkLen];
+        try (RandomAccessFile file = new RandomAccessFile(src, "r")) {
+            file.seek(offset);
+            file.readFully(chunk);
+        }
+
+        return chunk;
+    }
+
+    private void notifyUploadProgress(long uploadedBytes, long totalBytes, long startTime) {
+        final long elapsedNanos = Math.max(1, System.nanoTime() - startTime);
+        final double bytesPerSecond = uploadedBytes * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        uploadProgressListeners.forEach(listener -> listener.onProgress(uploadedBytes, totalBytes, bytesPerSecond));
     }
 
     private Observable<Boolean> flushData(String filePath, long flushLen) {
         HttpPatch req = new HttpPatch(filePath);
-        List<NameValuePair> flushReqParams = this.flushReqParamsBuilder.setPosition(flushLen).build();
+        List<NameValuePair> flushReqParams = new ADLSGen2ParamsBuilder()
+                .setAction("flush")
+                .setPosition(flushLen)
+                .build();
         http.setContentType("application/json");
 
-        return http.executeReqAndCheckStatus(req, null, flushReqParams, Collections.emptyList(), 200)
+        return http.request(req, null, flushReqParams, Collections.emptyList())
+                .map(resp -> checkStatusAndClose(resp, 200))
                 .map(ignore -> true);
     }
+
+    /**
+     * Release the connection of the response back to the pool, otherwise the pool is drained by chunked uploading
+     */
+    private static int checkStatusAndClose(CloseableHttpResponse resp, int validStatusCode) {
+        try (CloseableHttpResponse ignored = resp) {
+            final int statusCode = resp.getStatusLine().getStatusCode();
+            EntityUtils.consumeQuietly(resp.getEntity());
+            if (statusCode != validStatusCode) {
+                throw Exceptions.propagate(new UnknownServiceException(
+                        String.format("Execute request with unexpected code %s and resp %s", statusCode, resp)));
+            }
+
+            return statusCode;
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    private static class ListingKey {
+        @NotNull
+        private final String credential;
+        @NotNull
+        private final String directory;
+
+        private ListingKey(@NotNull String credential, @NotNull String directory) {
+            this.credential = credential;
+            this.directory = directory;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ListingKey)) {
+                return false;
+            }
+            final ListingKey that = (ListingKey) o;
+            return credential.equals(that.credential) && directory.equals(that.directory);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(credential, directory);
+        }
+    }
+
+    private static class CachedListing {
+        @NotNull
+        private final List<List<RemoteFile>> pages;
+        private final long expireAt;
+
+        private CachedListing(@NotNull List<List<RemoteFile>> pages, long expireAt) {
+            this.pages = pages;
+            this.expireAt = expireAt;
+        }
+    }
 }
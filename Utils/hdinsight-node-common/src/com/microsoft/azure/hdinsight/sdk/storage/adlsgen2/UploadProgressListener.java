@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.sdk.storage.adlsgen2;
+
+/**
+ * Listener of the chunked upload progress, notified from the uploading threads each time a chunk is appended
+ */
+@FunctionalInterface
+public interface UploadProgressListener {
+    /**
+     * @param uploadedBytes bytes appended so far
+     * @param totalBytes size of the file being uploaded
+     * @param bytesPerSecond average throughput since the upload started
+     */
+    void onProgress(long uploadedBytes, long totalBytes, double bytesPerSecond);
+}
@@ -8,6 +8,9 @@ package com.microsoft.azure.hdinsight.serverexplore;
 import com.microsoft.azure.hdinsight.common.ClusterManagerEx;
 import com.microsoft.azure.hdinsight.common.CommonConst;
 import com.microsoft.azure.hdinsight.common.IconPathBuilder;
+import com.microsoft.azure.hdinsight.common.logger.ILogger;
+import com.microsoft.azure.hdinsight.metadata.ClusterMetaDataService;
+import com.microsoft.azure.hdinsight.sdk.cluster.IClusterDetail;
 import com.microsoft.azure.hdinsight.serverexplore.hdinsightnode.ClusterNode;
 import com.microsoft.azure.hdinsight.serverexplore.hdinsightnode.HDInsightRootModule;
 import com.microsoft.azure.toolkit.ide.common.icon.AzureIcon;
@@ -21,8 +24,17 @@ import com.microsoft.azuretools.telemetrywrapper.EventType;
 import com.microsoft.azuretools.telemetrywrapper.EventUtil;
 import com.microsoft.tooling.msservices.serviceexplorer.Node;
 import com.microsoft.tooling.msservices.serviceexplorer.NodeActionEvent;
+import org.slf4j.LoggerFactory;
+import rx.Subscription;
 
-public class HDInsightRootModuleImpl extends HDInsightRootModule {
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+public class HDInsightRootModuleImpl extends HDInsightRootModule implements ILogger {
     private static final String HDINSIGHT_NODE_EXPAND = "HDInsightExplorer.HDInsightNodeExpand";
 
     private static final String HDInsight_SERVICE_MODULE_ID = HDInsightRootModuleImpl.class.getName();
@@ -33,8 +45,39 @@ public class HDInsightRootModuleImpl extends HDInsightRootModule {
             .build();
     private static final String BASE_MODULE_NAME = "HDInsight";
 
+    @NotNull
+    private final Subscription clustersChangesSubscription;
+
     public HDInsightRootModuleImpl(@NotNull Node parent) {
         super(HDInsight_SERVICE_MODULE_ID, BASE_MODULE_NAME, parent, ICON_PATH);
+
+        // Keep the cluster nodes up to date with the clusters linked, unlinked or refreshed elsewhere
+        this.clustersChangesSubscription = subscribeClustersChanges(new WeakReference<>(this));
+    }
+
+    /**
+     * The global publisher only references the module weakly, so that a module dropped without being disposed is not
+     * kept alive with its project, and the subscription ends with the next change after the module is collected.
+     */
+    @NotNull
+    private static Subscription subscribeClustersChanges(@NotNull WeakReference<HDInsightRootModuleImpl> moduleRef) {
+        return ClusterMetaDataService.getInstance().getClustersChanges()
+                .filter(event -> Stream.concat(event.getAdded().stream(), event.getRemoved().stream())
+                        .anyMatch(ClusterManagerEx.getInstance().getHDInsightClusterFilterPredicate()))
+                .map(event -> moduleRef.get())
+                .takeWhile(Objects::nonNull)
+                .subscribe(module -> {
+                    if (module.initialized) {
+                        module.syncClusterNodes();
+                    }
+                }, err -> LoggerFactory.getLogger(HDInsightRootModuleImpl.class).warn("Failed to update HDInsight cluster nodes", err));
+    }
+
+    /**
+     * Stop following the cluster changes, called when the module is removed from the explorer or its project is closed
+     */
+    public void dispose() {
+        clustersChangesSubscription.unsubscribe();
     }
 
     @Override
@@ -56,17 +99,44 @@ public class HDInsightRootModuleImpl extends HDInsightRootModule {
 
     @Override
     protected void refreshItems() throws AzureCmdException {
-        synchronized (this) {
-            ClusterManagerEx.getInstance().getCachedClusters().stream()
-                    .filter(ClusterManagerEx.getInstance().getHDInsightClusterFilterPredicate())
-                    .forEach(cluster -> addChildNode(new ClusterNode(this, cluster)));
-        }
+        syncClusterNodes();
     }
 
     @Override
     protected void refreshFromAzure() throws Exception {
         synchronized (this) {
-            ClusterManagerEx.getInstance().getClusterDetails();
+            // Show the cached clusters at once, and the clusters of each subscription as soon as they are listed
+            syncClusterNodes();
+            ClusterManagerEx.getInstance().refreshClusterDetailsAsync()
+                    .doOnNext(delta -> syncClusterNodes())
+                    .toBlocking()
+                    .lastOrDefault(null);
+        }
+    }
+
+    /**
+     * Make the cluster nodes consistent with the cached clusters, the nodes of unchanged clusters are kept
+     */
+    private void syncClusterNodes() {
+        synchronized (this) {
+            final Map<String, IClusterDetail> clusters = new LinkedHashMap<>();
+            ClusterManagerEx.getInstance().getCachedClusters().stream()
+                    .filter(ClusterManagerEx.getInstance().getHDInsightClusterFilterPredicate())
+                    .forEach(cluster -> clusters.putIfAbsent(cluster.getName(), cluster));
+
+            new ArrayList<>(getChildNodes()).stream()
+                    .filter(node -> node instanceof ClusterNode)
+                    .map(node -> (ClusterNode) node)
+                    .forEach(node -> {
+                        final IClusterDetail cluster = node.getClusterDetail();
+                        if (clusters.get(cluster.getName()) == cluster) {
+                            clusters.remove(cluster.getName());
+                        } else {
+                            removeDirectChildNode(node);
+                        }
+                    });
+
+            clusters.values().forEach(cluster -> addChildNode(new ClusterNode(this, cluster)));
         }
     }
 
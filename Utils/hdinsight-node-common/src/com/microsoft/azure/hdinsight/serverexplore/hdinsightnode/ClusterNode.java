@@ -36,6 +36,11 @@ public class ClusterNode extends RefreshableNode implements TelemetryProperties,
         this.loadActions();
     }
 
+    @NotNull
+    public IClusterDetail getClusterDetail() {
+        return clusterDetail;
+    }
+
     @Override
     protected void loadActions() {
         super.loadActions();
@@ -22,6 +22,10 @@ import rx.exceptions.Exceptions;
 
 import java.io.File;
 import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.microsoft.azure.hdinsight.common.MessageInfoType.Info;
+import static com.microsoft.azure.hdinsight.spark.common.log.SparkLogLine.TOOL;
 
 public class ADLSGen2Deploy implements Deployable, ILogger {
     @NotNull
@@ -56,6 +60,16 @@ public class ADLSGen2Deploy implements Deployable, ILogger {
         final String filePath = String.format("%s/%s", dirPath, src.getName());
 
         final ADLSGen2FSOperation op = new ADLSGen2FSOperation(this.http);
+        final AtomicInteger reportedPercent = new AtomicInteger();
+        op.addUploadProgressListener((uploadedBytes, totalBytes, bytesPerSecond) -> {
+            // Report every 10 percent to avoid flooding the console with large artifacts
+            final int percent = (int) (uploadedBytes * 100 / Math.max(1, totalBytes)) / 10 * 10;
+            if (percent > reportedPercent.getAndAccumulate(percent, Math::max)) {
+                logSubject.onNext(new SparkLogLine(TOOL, Info, String.format(
+                        "Uploaded %d%% of %s (%.2f MB/s)", percent, src.getName(), bytesPerSecond / (1024 * 1024))));
+            }
+        });
+
         return op.createDir(dirPath, "0755")
                  .onErrorReturn(err -> {
                      if (err.getMessage() != null && (err.getMessage().contains(String.valueOf(HttpStatus.SC_FORBIDDEN))
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.hdinsight.spark.common;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.microsoft.azure.hdinsight.sdk.common.HttpResponse;
+import com.microsoft.azuretools.azurecommons.helpers.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the log of a Livy batch job incrementally. Every read only asks Livy for the lines after the offset already
+ * read, in pages of bounded size, so that polling a job with a long log doesn't download the whole log again.
+ */
+public class SparkBatchLogReader {
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+
+    private static final Gson gson = new Gson();
+
+    @NotNull
+    private final SparkBatchSubmission submission;
+    @NotNull
+    private final String connectUrl;
+    private final int batchId;
+    private final int pageSize;
+    private int offset = 0;
+
+    /**
+     * @param connectUrl : eg http://localhost:8998/batches
+     */
+    public SparkBatchLogReader(@NotNull SparkBatchSubmission submission, @NotNull String connectUrl, int batchId) {
+        this(submission, connectUrl, batchId, DEFAULT_PAGE_SIZE);
+    }
+
+    public SparkBatchLogReader(@NotNull SparkBatchSubmission submission,
+                               @NotNull String connectUrl,
+                               int batchId,
+                               int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size should be positive, but got " + pageSize);
+        }
+
+        this.submission = submission;
+        this.connectUrl = connectUrl;
+        this.batchId = batchId;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Get the log lines appended since the last read, fetching as many pages as needed to catch up
+     *
+     * @return the new log lines, empty if there is none
+     */
+    @NotNull
+    public List<String> readNewLines() throws IOException {
+        List<String> newLines = new ArrayList<>();
+        while (true) {
+            SparkJobLog page = readPage(offset);
+            List<String> lines = page.getLog() == null ? Collections.emptyList() : page.getLog();
+            if (lines.isEmpty()) {
+                // Livy only keeps the recent lines of a long log, start over from its end if the log was truncated
+                if (page.getTotal() < offset) {
+                    offset = page.getTotal();
+                }
+
+                break;
+            }
+
+            newLines.addAll(lines);
+            offset = page.getFrom() + lines.size();
+
+            if (lines.size() < pageSize || offset >= page.getTotal()) {
+                break;
+            }
+        }
+
+        return newLines;
+    }
+
+    /**
+     * @return the count of log lines read so far
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    @NotNull
+    private SparkJobLog readPage(int from) throws IOException {
+        HttpResponse response = submission.getBatchJobLog(connectUrl, batchId, from, pageSize);
+        if (response.getCode() >= 300) {
+            throw new IOException(String.format("Failed to get log of Spark batch job %d, status code: %d, %s",
+                    batchId, response.getCode(), response.getMessage()));
+        }
+
+        try {
+            SparkJobLog page = gson.fromJson(response.getMessage(), SparkJobLog.class);
+            if (page == null) {
+                throw new IOException("Got empty log response of Spark batch job " + batchId);
+            }
+
+            return page;
+        } catch (JsonSyntaxException ex) {
+            throw new IOException("Failed to parse log response of Spark batch job " + batchId, ex);
+        }
+    }
+}
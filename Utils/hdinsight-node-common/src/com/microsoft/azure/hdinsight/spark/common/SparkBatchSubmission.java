@@ -366,6 +366,19 @@ public class SparkBatchSubmission implements ILogger {
      * @throws IOException
      */
     public HttpResponse getBatchJobFullLog(String connectUrl, int batchId)throws IOException {
-        return getHttpResponseViaGet(String.format("%s/%d/log?from=%d&size=%d", connectUrl, batchId, 0, Integer.MAX_VALUE));
+        return getBatchJobLog(connectUrl, batchId, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * get a range of batch job log
+     * @param connectUrl : eg http://localhost:8998/batches
+     * @param batchId : batch Id
+     * @param from : offset of the first log line to get
+     * @param size : max count of log lines to get
+     * @return response result
+     * @throws IOException
+     */
+    public HttpResponse getBatchJobLog(String connectUrl, int batchId, int from, int size) throws IOException {
+        return getHttpResponseViaGet(String.format("%s/%d/log?from=%d&size=%d", connectUrl, batchId, from, size));
     }
 }
@@ -7,6 +7,7 @@ package com.microsoft.azure.hdinsight.spark.mock;
 
 import org.apache.hadoop.fs.*;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 
@@ -25,4 +26,15 @@ class MockDfs extends LocalFileSystem {
     public String getScheme() {
         return "mockDfs";
     }
+
+    @Override
+    public RemoteIterator<LocatedFileStatus> listFiles(Path f, boolean recursive) throws IOException {
+        if (!recursive) {
+            return super.listFiles(f, false);
+        }
+
+        // List the sub-directories in parallel, skipping the checksum files as ChecksumFileSystem does
+        return MockRawLocalFileSystem.toLocatedFiles(
+                this, ((MockRawLocalFileSystem) getRawFileSystem()).listFilesInParallel(f, path -> !isChecksumFile(path)));
+    }
 }
@@ -9,67 +9,382 @@ package com.microsoft.azure.hdinsight.spark.mock;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.*;
 import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.util.Progressable;
 import org.apache.hadoop.util.Shell;
 import org.apache.hadoop.util.StringUtils;
 
-import java.io.DataOutput;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 class MockRawLocalFileSystem extends RawLocalFileSystem {
+    // Statuses and listings are cached for a short while, since a local Spark job asks for the same input files
+    // again and again when planning. The cache is dropped by any write through this file system, and expires soon
+    // for the changes made by others.
+    static final String STATUS_CACHE_TTL_KEY = "fs.mock.status.cache.ttl.ms";
+    static final long DEFAULT_STATUS_CACHE_TTL_MS = 1000;
+    private static final int MAX_CACHED_STATUSES = 200_000;
+    private static final boolean IS_POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
     private String authority;
     private String scheme = "wasb";
     private URI uri;
 
+    private long statusCacheTtlMs = DEFAULT_STATUS_CACHE_TTL_MS;
+    private final AtomicLong generation = new AtomicLong();
+    // Only the immutable attributes are cached, FileStatus is mutable (e.g. Globber resets its path) so a new one is
+    // built for each call
+    private final Map<Path, Cached<LocalFileAttributes>> statusCache = new ConcurrentHashMap<>();
+    private final Map<Path, Cached<Map<Path, LocalFileAttributes>>> listingCache = new ConcurrentHashMap<>();
+
     @Override
     public FileStatus getFileStatus(Path f) throws IOException {
-        File path = pathToFile(f);
-        if (path.exists()) {
-            return new RawLocalFileStatus(pathToFile(f), getDefaultBlockSize(f), makeQualified(f));
-        } else {
+        Path qualified = makeQualified(f);
+        return getAttributes(f, qualified).toFileStatus(getDefaultBlockSize(f), qualified);
+    }
+
+    private LocalFileAttributes getAttributes(Path f, Path qualified) throws IOException {
+        LocalFileAttributes cached = getCached(statusCache, qualified);
+        if (cached != null) {
+            return cached;
+        }
+
+        long readGeneration = generation.get();
+        LocalFileAttributes attributes;
+        try {
+            attributes = LocalFileAttributes.read(pathToFile(f));
+        } catch (NoSuchFileException e) {
             throw new FileNotFoundException("File " + f + " does not exist");
         }
+
+        putCached(statusCache, qualified, attributes, readGeneration);
+        return attributes;
     }
 
     @Override
     public FileStatus[] listStatus(Path f) throws IOException {
-        File localf = pathToFile(f);
-        FileStatus[] results;
+        Path qualified = makeQualified(f);
+        long blockSize = getDefaultBlockSize(f);
+        Map<Path, LocalFileAttributes> listing = getCached(listingCache, qualified);
+        if (listing == null) {
+            long readGeneration = generation.get();
+            LocalFileAttributes attributes = getAttributes(f, qualified);
+            if (!attributes.isDirectory) {
+                return new FileStatus[] { attributes.toFileStatus(blockSize, qualified) };
+            }
 
-        if (!localf.exists()) {
+            listing = readListing(f, readGeneration);
+            putCached(listingCache, qualified, listing, readGeneration);
+        }
+
+        FileStatus[] statuses = new FileStatus[listing.size()];
+        int i = 0;
+        for (Map.Entry<Path, LocalFileAttributes> child : listing.entrySet()) {
+            statuses[i++] = child.getValue().toFileStatus(blockSize, child.getKey());
+        }
+
+        return statuses;
+    }
+
+    private Map<Path, LocalFileAttributes> readListing(Path f, long readGeneration) throws IOException {
+        Map<Path, LocalFileAttributes> listing = new LinkedHashMap<>();
+        // Read the attributes of each entry by one call, rather than asking File for existence, type, length and
+        // modification time one by one
+        try (DirectoryStream<java.nio.file.Path> entries = Files.newDirectoryStream(pathToFile(f).toPath())) {
+            for (java.nio.file.Path entry : entries) {
+                try {
+                    // Assemble the path using the Path 3 arg constructor to make sure
+                    // paths with colon are properly resolved on Linux
+                    Path child = makeQualified(new Path(f, new Path(null, null, entry.getFileName().toString())));
+                    LocalFileAttributes childAttributes = LocalFileAttributes.read(entry.toFile());
+                    putCached(statusCache, child, childAttributes, readGeneration);
+                    listing.put(child, childAttributes);
+                } catch (NoSuchFileException e) {
+                    // ignore the files not found since the dir list may have have changed
+                    // since the entries were listed.
+                }
+            }
+        } catch (NoSuchFileException e) {
             throw new FileNotFoundException("File " + f + " does not exist");
         }
-        if (localf.isFile()) {
-            return new FileStatus[] {
-                    new RawLocalFileStatus(localf, getDefaultBlockSize(f), makeQualified(f)) };
+
+        return Collections.unmodifiableMap(listing);
+    }
+
+    @Override
+    public RemoteIterator<LocatedFileStatus> listFiles(Path f, boolean recursive) throws IOException {
+        if (!recursive) {
+            return super.listFiles(f, false);
+        }
+
+        return toLocatedFiles(this, listFilesInParallel(f, path -> true));
+    }
+
+    /**
+     * List the files under the path recursively, the sub-directories are listed in parallel.
+     *
+     * @param f the path to list
+     * @param filter filter of the files to return
+     * @return the files accepted by the filter, in depth-first order
+     */
+    List<FileStatus> listFilesInParallel(Path f, PathFilter filter) throws IOException {
+        FileStatus status = getFileStatus(f);
+        if (!status.isDirectory()) {
+            return filter.accept(status.getPath()) ? Collections.singletonList(status) : Collections.emptyList();
         }
 
-        String[] names = localf.list();
-        if (names == null) {
-            return null;
+        try {
+            return ForkJoinPool.commonPool().invoke(new ListFilesTask(status.getPath(), filter));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
-        results = new FileStatus[names.length];
-        int j = 0;
-        for (int i = 0; i < names.length; i++) {
+    }
+
+    static RemoteIterator<LocatedFileStatus> toLocatedFiles(FileSystem fs, List<FileStatus> files) {
+        Iterator<FileStatus> iterator = files.iterator();
+
+        return new RemoteIterator<LocatedFileStatus>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public LocatedFileStatus next() throws IOException {
+                FileStatus file = iterator.next();
+                return new LocatedFileStatus(file, fs.getFileBlockLocations(file, 0, file.getLen()));
+            }
+        };
+    }
+
+    private class ListFilesTask extends RecursiveTask<List<FileStatus>> {
+        private final Path dir;
+        private final PathFilter filter;
+
+        ListFilesTask(Path dir, PathFilter filter) {
+            this.dir = dir;
+            this.filter = filter;
+        }
+
+        @Override
+        protected List<FileStatus> compute() {
+            FileStatus[] children;
             try {
-                // Assemble the path using the Path 3 arg constructor to make sure
-                // paths with colon are properly resolved on Linux
-                results[j] = getFileStatus(new Path(f, new Path(null, null, names[i])));
-                j++;
+                children = listStatus(dir);
             } catch (FileNotFoundException e) {
-                // ignore the files not found since the dir list may have have changed
-                // since the names[] list was generated.
+                // the directory has been removed since its parent was listed
+                return Collections.emptyList();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            List<ListFilesTask> subTasks = Arrays.stream(children)
+                    .filter(FileStatus::isDirectory)
+                    .map(child -> new ListFilesTask(child.getPath(), filter))
+                    .collect(Collectors.toList());
+            invokeAll(subTasks);
+
+            List<FileStatus> files = new ArrayList<>();
+            Iterator<ListFilesTask> subTaskIterator = subTasks.iterator();
+            for (FileStatus child : children) {
+                if (child.isDirectory()) {
+                    files.addAll(subTaskIterator.next().join());
+                } else if (filter.accept(child.getPath())) {
+                    files.add(child);
+                }
+            }
+
+            return files;
+        }
+    }
+
+    @Override
+    public FSDataOutputStream create(Path f, boolean overwrite, int bufferSize, short replication, long blockSize,
+                                     Progressable progress) throws IOException {
+        try {
+            return invalidateOnClose(super.create(f, overwrite, bufferSize, replication, blockSize, progress), 0);
+        } finally {
+            invalidateStatusCache();
+        }
+    }
+
+    @Override
+    public FSDataOutputStream create(Path f, FsPermission permission, boolean overwrite, int bufferSize,
+                                     short replication, long blockSize, Progressable progress) throws IOException {
+        try {
+            return invalidateOnClose(
+                    super.create(f, permission, overwrite, bufferSize, replication, blockSize, progress), 0);
+        } finally {
+            invalidateStatusCache();
+        }
+    }
+
+    @Override
+    public FSDataOutputStream createNonRecursive(Path f, FsPermission permission, EnumSet<CreateFlag> flags,
+                                                 int bufferSize, short replication, long blockSize,
+                                                 Progressable progress) throws IOException {
+        try {
+            return invalidateOnClose(
+                    super.createNonRecursive(f, permission, flags, bufferSize, replication, blockSize, progress), 0);
+        } finally {
+            invalidateStatusCache();
+        }
+    }
+
+    @Override
+    public FSDataOutputStream append(Path f, int bufferSize, Progressable progress) throws IOException {
+        FSDataOutputStream out = super.append(f, bufferSize, progress);
+        return invalidateOnClose(out, out.getPos());
+    }
+
+    @Override
+    public boolean rename(Path src, Path dst) throws IOException {
+        try {
+            return super.rename(src, dst);
+        } finally {
+            invalidateStatusCache();
+        }
+    }
+
+    @Override
+    public boolean delete(Path p, boolean recursive) throws IOException {
+        try {
+            return super.delete(p, recursive);
+        } finally {
+            invalidateStatusCache();
+        }
+    }
+
+    @Override
+    public boolean mkdirs(Path f) throws IOException {
+        try {
+            return super.mkdirs(f);
+        } finally {
+            invalidateStatusCache();
+        }
+    }
+
+    @Override
+    public boolean mkdirs(Path f, FsPermission permission) throws IOException {
+        try {
+            return super.mkdirs(f, permission);
+        } finally {
+            invalidateStatusCache();
+        }
+    }
+
+    @Override
+    public boolean truncate(Path f, long newLength) throws IOException {
+        try {
+            return super.truncate(f, newLength);
+        } finally {
+            invalidateStatusCache();
+        }
+    }
+
+    @Override
+    public void setOwner(Path p, String username, String groupname) throws IOException {
+        try {
+            super.setOwner(p, username, groupname);
+        } finally {
+            invalidateStatusCache();
+        }
+    }
+
+    @Override
+    public void setPermission(Path p, FsPermission permission) throws IOException {
+        try {
+            super.setPermission(p, permission);
+        } finally {
+            invalidateStatusCache();
+        }
+    }
+
+    @Override
+    public void setTimes(Path p, long mtime, long atime) throws IOException {
+        try {
+            super.setTimes(p, mtime, atime);
+        } finally {
+            invalidateStatusCache();
+        }
+    }
+
+    /**
+     * Drop all cached statuses and listings, the ones being read at the moment are not cached either.
+     */
+    void invalidateStatusCache() {
+        generation.incrementAndGet();
+        statusCache.clear();
+        listingCache.clear();
+    }
+
+    private FSDataOutputStream invalidateOnClose(FSDataOutputStream out, long startPosition) throws IOException {
+        // The length and modification time keep changing until the file is closed
+        return new FSDataOutputStream(out, null, startPosition) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    invalidateStatusCache();
+                }
             }
+        };
+    }
+
+    private <T> T getCached(Map<Path, Cached<T>> cache, Path path) {
+        Cached<T> cached = cache.get(path);
+        if (cached == null) {
+            return null;
+        }
+
+        if (cached.generation != generation.get() || cached.expireAt < System.currentTimeMillis()) {
+            cache.remove(path, cached);
+            return null;
         }
-        if (j == names.length) {
-            return results;
+
+        return cached.value;
+    }
+
+    private <T> void putCached(Map<Path, Cached<T>> cache, Path path, T value, long readGeneration) {
+        if (statusCacheTtlMs <= 0 || readGeneration != generation.get()) {
+            // written during reading, the value may be outdated already
+            return;
+        }
+
+        if (cache.size() >= MAX_CACHED_STATUSES) {
+            cache.clear();
+        }
+
+        cache.put(path, new Cached<>(value, readGeneration, System.currentTimeMillis() + statusCacheTtlMs));
+    }
+
+    private static class Cached<T> {
+        private final T value;
+        private final long generation;
+        private final long expireAt;
+
+        Cached(T value, long generation, long expireAt) {
+            this.value = value;
+            this.generation = generation;
+            this.expireAt = expireAt;
         }
-        return Arrays.copyOf(results, j);
     }
 
     @Override
@@ -78,6 +393,7 @@ class MockRawLocalFileSystem extends RawLocalFileSystem {
 
         this.authority = uri.getAuthority();
         this.scheme = uri.getScheme();
+        this.statusCacheTtlMs = conf.getLong(STATUS_CACHE_TTL_KEY, DEFAULT_STATUS_CACHE_TTL_MS);
 
         try {
             this.uri = new URI(scheme, authority, "/", null, null);
@@ -103,65 +419,99 @@ class MockRawLocalFileSystem extends RawLocalFileSystem {
     @Override
     protected void checkPath(Path path) { }
 
-    static class RawLocalFileStatus extends FileStatus {
+    /**
+     * The attributes of a local file, which can be shared by threads. The permission, owner and group are read along
+     * with the others by POSIX file attributes, or loaded on first use with `ls -ld` if not supported, since running
+     * it for each entry of a large directory costs much more than the listing itself.
+     */
+    static final class LocalFileAttributes {
+        final long length;
+        final boolean isDirectory;
+        final long modificationTime;
         private final File file;
-
-        /* We can add extra fields here. It breaks at least CopyFiles.FilePair().
-         * We recognize if the information is already loaded by check if
-         * onwer.equals("").
-         */
-        private boolean isPermissionLoaded() {
-            return !super.getOwner().isEmpty();
+        private volatile boolean isPermissionLoaded;
+        private short permission;
+        private String owner;
+        private String group;
+
+        private LocalFileAttributes(long length, boolean isDirectory, long modificationTime, File file) {
+            this.length = length;
+            this.isDirectory = isDirectory;
+            this.modificationTime = modificationTime;
+            this.file = file;
         }
 
-        RawLocalFileStatus(File f, long defaultBlockSize, Path p) {
-            super(f.length(), f.isDirectory(), 1, defaultBlockSize, f.lastModified(), p);
-            this.file = f;
+        FileStatus toFileStatus(long blockSize, Path path) {
+            if (isPermissionLoaded) {
+                return new FileStatus(length, isDirectory, 1, blockSize, modificationTime, 0,
+                                      new FsPermission(permission), owner, group, path);
+            }
+
+            return new LazyPermissionFileStatus(this, blockSize, path);
         }
 
-        @Override
-        public FsPermission getPermission() {
-            if (!isPermissionLoaded()) {
-                loadPermissionInfo();
+        /// reads the attributes by POSIX file attributes, or leaves the permissions to be loaded on first use if not
+        /// supported
+        static LocalFileAttributes read(File file) throws IOException {
+            if (IS_POSIX) {
+                try {
+                    PosixFileAttributes attributes = Files.readAttributes(file.toPath(), PosixFileAttributes.class);
+                    LocalFileAttributes localAttributes = new LocalFileAttributes(
+                            attributes.size(),
+                            attributes.isDirectory(),
+                            attributes.lastModifiedTime().toMillis(),
+                            file);
+                    localAttributes.setPermissionInfo(
+                            FsPermission.valueOf((attributes.isDirectory() ? "d" : "-")
+                                    + PosixFilePermissions.toString(attributes.permissions())),
+                            attributes.owner().getName(),
+                            attributes.group().getName());
+                    return localAttributes;
+                } catch (UnsupportedOperationException ignored) {
+                    // fall back to `ls -ld` on first use
+                }
             }
-            return super.getPermission();
+
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            return new LocalFileAttributes(
+                    attributes.size(),
+                    attributes.isDirectory(),
+                    attributes.lastModifiedTime().toMillis(),
+                    file);
         }
 
-        @Override
-        public String getOwner() {
-            if (!isPermissionLoaded()) {
-                loadPermissionInfo();
-            }
-            return super.getOwner();
+        private void setPermissionInfo(FsPermission permission, String owner, String group) {
+            this.permission = permission.toShort();
+            this.owner = owner;
+            this.group = group;
+            this.isPermissionLoaded = true;
         }
 
-        @Override
-        public String getGroup() {
-            if (!isPermissionLoaded()) {
-                loadPermissionInfo();
+        /// loads the permission, owner and group with `ls -ld` once, for all the statuses built from the attributes
+        synchronized void loadPermissionInfo() throws IOException {
+            if (isPermissionLoaded) {
+                return;
             }
-            return super.getGroup();
-        }
 
-        /// loads permissions, owner, and group from `ls -ld`
-        private void loadPermissionInfo() {
-            IOException e = null;
+            FsPermission permission = isDirectory ? FsPermission.getDirDefault() : FsPermission.getFileDefault();
+            String owner = null;
+            String group = null;
             try {
                 List<String> args = new ArrayList<>(Arrays.asList(Shell.getGetPermissionCommand()));
-                args.add(this.file.getCanonicalPath());
+                args.add(file.getCanonicalPath());
                 String output = Shell.execCommand(args.toArray(new String[0]));
 
                 StringTokenizer t = new StringTokenizer(output, Shell.TOKEN_SEPARATOR_REGEX);
                 //expected format
                 //-rw-------    1 username groupname ...
-                String permission = t.nextToken();
-                if (permission.length() > 10) { //files with ACLs might have a '+'
-                    permission = permission.substring(0, 10);
+                String permissionString = t.nextToken();
+                if (permissionString.length() > 10) { //files with ACLs might have a '+'
+                    permissionString = permissionString.substring(0, 10);
                 }
-                setPermission(FsPermission.valueOf(permission));
+                permission = FsPermission.valueOf(permissionString);
                 t.nextToken();
 
-                String owner = t.nextToken();
+                owner = t.nextToken();
                 // If on windows domain, token format is DOMAIN\\user and we want to
                 // extract only the user name
                 if (Shell.WINDOWS) {
@@ -169,33 +519,65 @@ class MockRawLocalFileSystem extends RawLocalFileSystem {
                     if (i != -1)
                         owner = owner.substring(i + 1);
                 }
-                setOwner(owner);
 
-                setGroup(t.nextToken());
+                group = t.nextToken();
             } catch (Shell.ExitCodeException ioe) {
                 if (ioe.getExitCode() != 1) {
-                    e = ioe;
-                } else {
-                    setPermission(null);
-                    setOwner(null);
-                    setGroup(null);
-                }
-            } catch (IOException ioe) {
-                e = ioe;
-            } finally {
-                if (e != null) {
-                    throw new RuntimeException("Error while running command to get file permissions : " +
-                            StringUtils.stringifyException(e));
+                    throw new IOException("Error while running command to get file permissions : " +
+                            StringUtils.stringifyException(ioe), ioe);
                 }
+                // the file is gone since its attributes were read, keep the default permission
             }
+
+            setPermissionInfo(permission, owner, group);
+        }
+    }
+
+    /**
+     * The status whose permission, owner and group are loaded on first use, like the one of {@link RawLocalFileSystem}.
+     */
+    private static final class LazyPermissionFileStatus extends FileStatus {
+        private final LocalFileAttributes attributes;
+        private boolean isPermissionLoaded;
+
+        private LazyPermissionFileStatus(LocalFileAttributes attributes, long blockSize, Path path) {
+            super(attributes.length, attributes.isDirectory, 1, blockSize, attributes.modificationTime, path);
+            this.attributes = attributes;
         }
 
         @Override
-        public void write(DataOutput out) throws IOException {
-            if (!isPermissionLoaded()) {
-                loadPermissionInfo();
+        public FsPermission getPermission() {
+            loadPermissionInfo();
+            return super.getPermission();
+        }
+
+        @Override
+        public String getOwner() {
+            loadPermissionInfo();
+            return super.getOwner();
+        }
+
+        @Override
+        public String getGroup() {
+            loadPermissionInfo();
+            return super.getGroup();
+        }
+
+        private void loadPermissionInfo() {
+            if (isPermissionLoaded) {
+                return;
             }
-            super.write(out);
+
+            try {
+                attributes.loadPermissionInfo();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+
+            setPermission(new FsPermission(attributes.permission));
+            setOwner(attributes.owner);
+            setGroup(attributes.group);
+            isPermissionLoaded = true;
         }
     }
 
@@ -22,16 +22,27 @@
 
 package com.microsoft.azure.hdinsight.spark.mock
 
+import io.cucumber.java.After
+import io.cucumber.java.en.And
 import io.cucumber.java.en.Given
 import io.cucumber.java.en.Then
 import org.apache.hadoop.conf.Configuration
+import org.apache.hadoop.fs.FileStatus
 import org.apache.hadoop.fs.Path
 import org.assertj.core.api.Assertions.assertThat
 import java.io.File
+import java.nio.file.Files
 import kotlin.test.assertNotNull
 
 class MockRawLocalFileSystemScenario {
     private var workDir = ""
+    private var tempDir: File? = null
+    private val fs = MockRawLocalFileSystem().apply { conf = Configuration() }
+
+    @After
+    fun cleanUp() {
+        tempDir?.deleteRecursively()
+    }
 
     @Given("^set mocked file system local working directory to '(.*)'")
     fun setWorkingDirectory(workDir: String) {
@@ -51,4 +62,91 @@ class MockRawLocalFileSystemScenario {
         fs.conf = Configuration()
         assertNotNull(fs.getFileStatus(Path(path)))
     }
-}
\ No newline at end of file
+
+    @Given("^create (\\d+) small files in (\\d+) sub-directories of a local temporary directory$")
+    fun createSmallFiles(fileCount: Int, dirCount: Int) {
+        val root = Files.createTempDirectory("mockfs").toFile()
+        tempDir = root
+
+        for (i in 0 until fileCount) {
+            val dir = if (dirCount == 0) root else File(root, "dir${i % dirCount}")
+            dir.mkdirs()
+            File(dir, "part-$i.txt").writeText("line $i")
+        }
+    }
+
+    @Then("^mocked file system should list (\\d+) entries in the temporary directory within (\\d+) milliseconds$")
+    fun verifyListingTime(count: Int, maxMillis: Long) {
+        val start = System.currentTimeMillis()
+        val statuses = fs.listStatus(Path(tempDir!!.toURI()))
+        val elapsed = System.currentTimeMillis() - start
+
+        assertThat(statuses).hasSize(count)
+        assertThat(elapsed).describedAs("listing $count entries took $elapsed ms").isLessThan(maxMillis)
+    }
+
+    @And("^mocked file system should list the temporary directory again from cache$")
+    fun verifyListingCached() {
+        val dir = Path(tempDir!!.toURI())
+        val first = fs.listStatus(dir)
+        // A file added behind the mocked file system is not seen until the cache expires, since the directory is
+        // not read a second time
+        val added = File(tempDir, "added-behind.txt").apply { writeText("added") }
+        val second = try {
+            fs.listStatus(dir)
+        } finally {
+            added.delete()
+        }
+
+        assertThat(second.map { it.path.name }).doesNotContain(added.name)
+        assertThat(second).isNotSameAs(first)
+        assertThat(second).containsExactly(*first)
+        second.zip(first).forEach { (actual, expected) -> assertSameValue(actual, expected) }
+
+        // The statuses returned are never shared, changing one doesn't affect the following calls
+        val status = fs.getFileStatus(first[0].path)
+        assertThat(status).isNotSameAs(first[0])
+        assertSameValue(status, first[0])
+        status.path = Path(dir, "renamed")
+        assertThat(fs.getFileStatus(first[0].path).path).isEqualTo(first[0].path)
+        assertThat(fs.listStatus(dir)[0].path).isEqualTo(first[0].path)
+    }
+
+    private fun assertSameValue(actual: FileStatus, expected: FileStatus) {
+        assertThat(actual).isNotSameAs(expected)
+        assertThat(actual.path).isEqualTo(expected.path)
+        assertThat(actual.len).isEqualTo(expected.len)
+        assertThat(actual.isDirectory).isEqualTo(expected.isDirectory)
+        assertThat(actual.modificationTime).isEqualTo(expected.modificationTime)
+        assertThat(actual.permission).isEqualTo(expected.permission)
+        assertThat(actual.owner).isEqualTo(expected.owner)
+        assertThat(actual.group).isEqualTo(expected.group)
+    }
+
+    @And("^mocked file system should see the file '(.*)' of (\\d+) bytes after writing it into the temporary directory$")
+    fun verifyListingAfterWrite(fileName: String, size: Int) {
+        val dir = Path(tempDir!!.toURI())
+        val countBefore = fs.listStatus(dir).size
+        val file = Path(dir, fileName)
+
+        fs.create(file).use { it.write(ByteArray(size)) }
+
+        assertThat(fs.listStatus(dir)).hasSize(countBefore + 1)
+        assertThat(fs.getFileStatus(file).len).isEqualTo(size.toLong())
+    }
+
+    @Then("^mocked file system should recursively list (\\d+) files in the temporary directory within (\\d+) milliseconds$")
+    fun verifyRecursiveListingTime(count: Int, maxMillis: Long) {
+        val start = System.currentTimeMillis()
+        val files = fs.listFiles(Path(tempDir!!.toURI()), true)
+        var listed = 0
+        while (files.hasNext()) {
+            assertThat(files.next().isFile).isTrue()
+            listed++
+        }
+        val elapsed = System.currentTimeMillis() - start
+
+        assertThat(listed).isEqualTo(count)
+        assertThat(elapsed).describedAs("recursively listing $count files took $elapsed ms").isLessThan(maxMillis)
+    }
+}
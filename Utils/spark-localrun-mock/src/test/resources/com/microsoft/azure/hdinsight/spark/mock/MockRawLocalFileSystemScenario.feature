@@ -26,3 +26,13 @@ Feature: Mock File System Unit Test
   Scenario: Resources file exists
     Given set mocked file system local working directory to 'src/test/resources/data/__default__/user/current'
     Then mocked file 'my_words.txt' should exists
+
+  Scenario: List large directory with bulk read and cached metadata
+    Given create 20000 small files in 0 sub-directories of a local temporary directory
+    Then mocked file system should list 20000 entries in the temporary directory within 5000 milliseconds
+    And mocked file system should list the temporary directory again from cache
+    And mocked file system should see the file 'new_file.txt' of 128 bytes after writing it into the temporary directory
+
+  Scenario: Recursively list large directory tree in parallel
+    Given create 20000 small files in 200 sub-directories of a local temporary directory
+    Then mocked file system should recursively list 20000 files in the temporary directory within 5000 milliseconds
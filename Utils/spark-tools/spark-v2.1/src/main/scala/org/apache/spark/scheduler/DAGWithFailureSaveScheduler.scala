@@ -23,7 +23,9 @@
 package org.apache.spark.scheduler
 
 import java.io._
+import java.nio.ByteBuffer
 import java.text.SimpleDateFormat
+import java.util.concurrent.ConcurrentLinkedQueue
 import java.util.{Base64, Date}
 
 import org.apache.commons.io.IOUtils
@@ -37,9 +39,10 @@ import org.apache.spark.storage.{BlockId, BlockManagerId, BlockManagerMaster, Sh
 import org.apache.spark.util.{Clock, SystemClock, ThreadUtils, Utils}
 import org.json4s.jackson.Serialization.write
 
+import scala.collection.JavaConverters._
 import scala.collection.mutable
-import scala.concurrent.Promise
 import scala.concurrent.duration.Duration
+import scala.concurrent.{ExecutionContext, Future, Promise}
 import scala.language.postfixOps
 import scala.reflect.ClassTag
 import scala.util.control.NonFatal
@@ -73,6 +76,9 @@ class DAGWithFailureSaveScheduler(
   val failedEvents: mutable.HashMap[Int, CompletionEvent] = new mutable.HashMap()
   val fs = org.apache.hadoop.fs.FileSystem.get(sc.hadoopConfiguration)
   private val serializer = SparkEnv.get.closureSerializer.newInstance()
+  private val shuffleFetchThreads = sc.conf.getInt("spark.failure.shuffle.fetchThreads", 8)
+  private val maxBlocksInFlightPerExecutor = sc.conf.getInt("spark.failure.shuffle.maxBlocksInFlightPerExecutor", 4)
+  private val ShuffleBlockName = "shuffle_([0-9]+)_([0-9]+)_([0-9]+)".r
 
   def getEncodedByteArray(buffer: Array[Byte]): String =
     Base64.getEncoder.encode(buffer)
@@ -136,6 +142,74 @@ class DAGWithFailureSaveScheduler(
     }
   }
 
+  /**
+   * Fetch the shuffle blocks and copy them into the failure saving folder concurrently. The blocks of an executor are
+   * fetched by at most `maxBlocksInFlightPerExecutor` workers, so that the executor isn't flooded with requests.
+   *
+   * @return whether each block is saved, in the order of `blocks`
+   */
+  def saveShuffleBlocks(blocks: Seq[(BlockManagerId, BlockId, Long)], getSavingPath: String => Path): Seq[Boolean] = {
+    val saved = new Array[Boolean](blocks.size)
+    val pool = ThreadUtils.newDaemonFixedThreadPool(shuffleFetchThreads, "failure-save-shuffle-fetcher")
+    implicit val executionContext: ExecutionContext = ExecutionContext.fromExecutorService(pool)
+
+    try {
+      val workers = blocks.zipWithIndex
+        .groupBy { case ((blockMgrId, _, _), _) => blockMgrId }
+        .values
+        .flatMap(executorBlocks => {
+          val pending = new ConcurrentLinkedQueue[((BlockManagerId, BlockId, Long), Int)](executorBlocks.asJava)
+
+          (1 to math.min(maxBlocksInFlightPerExecutor, executorBlocks.size)).map(_ => Future {
+            Iterator.continually(pending.poll())
+              .takeWhile(_ != null)
+              .foreach { case ((blockMgrId, blockId, blockSize), index) =>
+                saved(index) = saveShuffleBlock(blockMgrId, blockId, blockSize, getSavingPath)
+              }
+          })
+        })
+        .toSeq
+
+      ThreadUtils.awaitResult(Future.sequence(workers), Duration.Inf)
+    } finally {
+      pool.shutdownNow()
+    }
+
+    saved
+  }
+
+  def saveShuffleBlock(blockMgrId: BlockManagerId, blockId: BlockId, blockSize: Long, getSavingPath: String => Path): Boolean = {
+    getShuffleBuffer(blockMgrId, blockId)._2 match {
+      case Some(buffer: ManagedBuffer) =>
+        // Copy the shuffle partition data into a file
+        val shuffleFile = getSavingPath(blockId.toString())
+
+        logInfo(s"Generate shuffle files: $shuffleFile")
+        Utils.tryWithSafeFinally {
+          Utils.tryWithResource(buffer.createInputStream()) { shuffleIn =>
+            Utils.tryWithResource(fs.create(shuffleFile, true)) { shuffleOut =>
+              IOUtils.copyLarge(shuffleIn, shuffleOut)
+            }
+          }
+        } {
+          buffer.release()
+        }
+
+        // Need to prepare the index file for recovering
+        blockId.toString() match {
+          case ShuffleBlockName(shuffleId, mapId, reduceId) =>
+            val shuffleIndexId = ShuffleIndexBlockId(shuffleId.toInt, mapId.toInt, 0)
+            val idxFile = driverBlockManager.diskBlockManager.getFile(shuffleIndexId).getName
+
+            writeIndexFile(fs.create(getSavingPath(idxFile), true), Array.fill(reduceId.toInt)(0.toLong) :+ blockSize)
+          case _ =>
+        }
+
+        true
+      case _ => false
+    }
+  }
+
   def saveFailureTask(task: Task[_], stageId: Int, taskId: String, attemptId: Int, timestamp: String): Unit = {
     def getFailureSavingPath(fileName: String = null): Path = {
       val appFolderName = sc.applicationId + sc.applicationAttemptId.map(attemptId => s"[${attemptId}]@").getOrElse("@") + timestamp
@@ -170,56 +244,58 @@ class DAGWithFailureSaveScheduler(
     }
 
 
-    val shuffleDeps = shuffleMgrBlockIds.flatMap { case (shuffleId, mgrBlockIds) =>
-      mgrBlockIds
-        .map { case (blockMgrId, blockIds) =>
-          logInfo(blockMgrId.toString())
-
-          val mapStatus = mapOutputTracker.getSerializedMapOutputStatuses(shuffleId)
-
-          ShuffleDeps(
-            shuffleId,
-            blockIds
-              .filter(_._2 > 0)
-              .map { case (blockId, blockSize) =>
-                getShuffleBuffer(blockMgrId, blockId)._2 match {
-                  case Some(buffer: ManagedBuffer) =>
-                    // Copy the shuffle partition data into a file
-                    val shuffleFile = getFailureSavingPath(blockId.toString())
-                    val shuffleIn = buffer.createInputStream()
-
-                    logInfo(s"Generate shuffle files: $shuffleFile")
-                    val shuffleOut = fs.create(shuffleFile, true)
-
-                    IOUtils.copy(shuffleIn, shuffleOut)
-
-                    buffer.release()
-                    shuffleIn.close()
-                    shuffleOut.close()
-
-                    // Need to prepare the index file for recovering
-                    val SHUFFLE = "shuffle_([0-9]+)_([0-9]+)_([0-9]+)".r
-                    blockId.toString() match {
-                      case SHUFFLE(shuffleId, mapId, reduceId) =>
-                        val shuffleIndexId = ShuffleIndexBlockId(shuffleId.toInt, mapId.toInt, 0)
-                        val idxFile = driverBlockManager.diskBlockManager.getFile(shuffleIndexId).getName
-                        val idxFileOutput = fs.create(getFailureSavingPath(idxFile), true)
-
-                        writeIndexFile(idxFileOutput, Array.fill(reduceId.toInt)(0.toLong) :+ blockSize)
-                        idxFileOutput.close()
-                    }
-
-                    ShuffleData(blockId.toString, blockId.toString, blockMgrId.toString())
-                }
-              } toArray,
-            getEncodedByteArray(mapStatus))
-        }
-    } filter(_.shuffleData.nonEmpty) toArray
+    // Fetch the blocks of all parent shuffles together, so that they are fetched concurrently
+    val shuffleBlocks = for {
+      (shuffleId, mgrBlockIds) <- shuffleMgrBlockIds
+      (blockMgrId, blockIds) <- mgrBlockIds
+      (blockId, blockSize) <- blockIds if blockSize > 0
+    } yield (shuffleId, blockMgrId, blockId, blockSize)
+    val savedBlocks = shuffleBlocks
+      .zip(saveShuffleBlocks(shuffleBlocks.map { case (_, blockMgrId, blockId, blockSize) => (blockMgrId, blockId, blockSize) },
+        getFailureSavingPath(_)))
+      .collect { case ((shuffleId, blockMgrId, blockId, _), true) => (shuffleId, blockMgrId, blockId) }
+      .groupBy { case (shuffleId, blockMgrId, _) => (shuffleId, blockMgrId) }
+
+    // Stream the map statuses and broadcast values into the payload file in binary, the failure context file
+    // refers to them by offset and length
+    val payloadOut = fs.create(getFailureSavingPath(FailureTask.payloadFileName), true)
+    def writePayload(buffer: ByteBuffer): Payload = {
+      val offset = payloadOut.getPos
+      val length = buffer.remaining()
+      Utils.writeByteBuffer(buffer, payloadOut: OutputStream)
+
+      Payload(offset, length)
+    }
 
-    // Get broadcast values
-    val bcs = sc.bcIdMap.map { case (id, bc) =>
-      BroadcastValue(id, encodeObject(bc.value))
-    } toArray
+    val (shuffleDeps, bcs) = Utils.tryWithResource(payloadOut) { _ =>
+      // The map statuses of a shuffle are shared by all its block managers, save them once
+      val mapStatusPayloads = mutable.HashMap[Int, Payload]()
+      val shuffleDeps = shuffleMgrBlockIds.flatMap { case (shuffleId, mgrBlockIds) =>
+        mgrBlockIds
+          .filter { case (blockMgrId, _) => savedBlocks.contains((shuffleId, blockMgrId)) }
+          .map { case (blockMgrId, _) =>
+            logInfo(blockMgrId.toString())
+
+            val mapStatus = mapStatusPayloads.getOrElseUpdate(shuffleId, writePayload(ByteBuffer.wrap(
+              mapOutputTracker.getSerializedMapOutputStatuses(shuffleId))))
+
+            ShuffleDeps(
+              shuffleId,
+              savedBlocks((shuffleId, blockMgrId))
+                .map { case (_, _, blockId) => ShuffleData(blockId.toString, blockId.toString, blockMgrId.toString()) }
+                .toArray,
+              None,
+              Some(mapStatus))
+          }
+      }.toArray
+
+      // Get broadcast values
+      val bcs = sc.bcIdMap.map { case (id, bc) =>
+        BroadcastValue(id, None, Some(writePayload(serializer.serialize[Any](bc.value))))
+      }.toArray
+
+      (shuffleDeps, bcs)
+    }
 
     implicit val formats = org.json4s.DefaultFormats
 
@@ -237,17 +313,15 @@ class DAGWithFailureSaveScheduler(
       task.metrics,
       bcs,
       shuffleDeps,
-      task.isInstanceOf[ResultTask[Any, Any]]
+      task.isInstanceOf[ResultTask[Any, Any]],
+      payloadFile = Some(FailureTask.payloadFileName)
     )
 
     // Serialize to JSON
-    val json = write(failureTask)
-    val failureContextFile = getFailureSavingPath("failure_save.ftd")
-    val out = fs.create(failureContextFile, true)
-    val writer = new PrintWriter(out)
-
-    writer.write(json)
-    writer.close()
+    val failureContextFile = getFailureSavingPath(FailureTask.contextFileName)
+    Utils.tryWithResource(new PrintWriter(fs.create(failureContextFile, true))) { writer =>
+      write(failureTask, writer)
+    }
 
     val fullSavingFolderUri = new Path(fs.getWorkingDirectory, getFailureSavingPath())
     logInfo("Failure task has been saved into " + fullSavingFolderUri)
@@ -22,6 +22,9 @@
 
 package org.apache.spark.tools
 
+import java.io.File
+
+import org.apache.hadoop.fs.Path
 import org.apache.spark.{FailureTask, SparkConf, SparkContext, TaskRecovery}
 import org.json4s.jackson.Serialization.read
 
@@ -38,9 +41,11 @@ object FailureTaskRecoveryApp {
     val json = source.mkString
     source.close()
 
+    // The failure context of legacy layout has no payload file, and is still readable
     val failureTask = read[FailureTask](json)
+    val contextFolder = new Path(new File(failureTaskContextFile).getAbsoluteFile.getParentFile.toURI)
 
-    TaskRecovery.rerun(sc, failureTask)
+    TaskRecovery.rerun(sc, failureTask, Some(contextFolder))
   }
 
 }
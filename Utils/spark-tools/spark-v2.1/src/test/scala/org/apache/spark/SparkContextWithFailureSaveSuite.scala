@@ -22,7 +22,15 @@
 
 package org.apache.spark
 
+import java.io.File
+import java.util.Base64
+
+import org.apache.hadoop.fs.Path
+import org.apache.spark.network.util.JavaUtils
 import org.apache.spark.scheduler.DAGWithFailureSaveScheduler
+import org.apache.spark.serializer.JavaSerializer
+import org.apache.spark.util.Utils
+import org.json4s.jackson.Serialization.read
 import org.scalatest.concurrent.Eventually
 import org.scalatest.MustMatchers._
 
@@ -43,4 +51,66 @@ class SparkContextWithFailureSaveSuite extends SparkFunSuite with LocalSparkCont
     val bc = sc.broadcast("hello broadcast world!")
     mySC.bcIdMap must contain value bc
   }
+
+  test("SparkContextWithFailureSave should save shuffle blocks and binary payloads of the failure task") {
+    val conf = new SparkConf().setAppName("test").setMaster("local[2]")
+      .set("spark.failure.shuffle.maxBlocksInFlightPerExecutor", "2")
+    sc = new SparkContextWithFailureSave(conf)
+
+    val bc = sc.broadcast("hello broadcast world!")
+    intercept[SparkException] {
+      sc.parallelize(1 to 100, 4)
+        .map(i => (i % 10, i))
+        .reduceByKey(_ + _, 2)
+        .map { case (key, sum) => if (key == 3) throw new IllegalStateException(bc.value) else sum }
+        .collect()
+    }
+
+    // The failure context is saved into the working directory
+    val savedFolder = new File(".spark-failures").listFiles().find(_.getName.startsWith(sc.applicationId)).get
+    try {
+      implicit val formats = org.json4s.DefaultFormats
+      val source = scala.io.Source.fromFile(new File(savedFolder, FailureTask.contextFileName))
+      val failureTask = read[FailureTask](source.mkString)
+      source.close()
+
+      failureTask.payloadFile mustBe Some(FailureTask.payloadFileName)
+      failureTask.shuffleDeps must not be empty
+      // All the 4 map outputs of the failed reduce partition are saved
+      failureTask.shuffleDeps.flatMap(_.shuffleData) must have length 4
+      failureTask.shuffleDeps.flatMap(_.shuffleData).foreach(shuffleData =>
+        new File(savedFolder, shuffleData.path).exists() mustBe true)
+
+      val serializer = SparkEnv.get.closureSerializer.newInstance()
+      val payloadPath = new Path(new File(savedFolder, FailureTask.payloadFileName).toURI)
+      Utils.tryWithResource(payloadPath.getFileSystem(sc.hadoopConfiguration).open(payloadPath)) { in =>
+        val savedBc = failureTask.bcs.find(_.id == bc.id).get
+        savedBc.value mustBe None
+        TaskRecovery.deserializeObj[Any](serializer, TaskRecovery.readBytes(Some(in), savedBc.value, savedBc.payload)) mustBe
+          "hello broadcast world!"
+
+        failureTask.shuffleDeps.foreach(shuffleDep => {
+          shuffleDep.mapStatusEnc mustBe None
+          MapOutputTracker.deserializeMapStatuses(
+            TaskRecovery.readBytes(Some(in), shuffleDep.mapStatusEnc, shuffleDep.mapStatus)) must have length 4
+        })
+      }
+    } finally {
+      Utils.deleteRecursively(savedFolder)
+    }
+  }
+
+  test("TaskRecovery should read the Base64 encoded values of legacy failure context") {
+    val serializer = new JavaSerializer(new SparkConf()).newInstance()
+    val encoded = Base64.getEncoder.encodeToString(JavaUtils.bufferToArray(serializer.serialize[Any]("legacy value")))
+
+    implicit val formats = org.json4s.DefaultFormats
+    val bc = read[BroadcastValue](s"""{"id":1,"value":"$encoded"}""")
+    val shuffleDep = read[ShuffleDeps](s"""{"id":0,"shuffleData":[],"mapStatusEnc":"$encoded"}""")
+
+    bc.payload mustBe None
+    shuffleDep.mapStatus mustBe None
+    TaskRecovery.deserializeObj[Any](serializer, TaskRecovery.readBytes(None, bc.value, bc.payload)) mustBe "legacy value"
+    TaskRecovery.readBytes(None, shuffleDep.mapStatusEnc, shuffleDep.mapStatus) mustBe Base64.getDecoder.decode(encoded)
+  }
 }
@@ -26,9 +26,21 @@ import java.util.Properties
 
 import org.apache.spark.executor.TaskMetrics
 
+/**
+ * Location of a binary payload in the payload file of a failure context.
+ */
+case class Payload(
+  offset: Long,
+  length: Int
+)
+
+/**
+ * The value is either Base64 encoded in `value` (the legacy layout), or saved as a `payload`.
+ */
 case class BroadcastValue(
   id: Long,
-  value: String
+  value: Option[String],
+  payload: Option[Payload] = None
 )
 
 case class ShuffleData(
@@ -36,10 +48,16 @@ case class ShuffleData(
   path: String,
   location: String
 )
+
+/**
+ * The serialized map statuses are either Base64 encoded in `mapStatusEnc` (the legacy layout), or saved as a
+ * `mapStatus` payload.
+ */
 case class ShuffleDeps(
   id: Int,
   shuffleData: Array[ShuffleData],
-  mapStatusEnc: String
+  mapStatusEnc: Option[String],
+  mapStatus: Option[Payload] = None
 )
 
 case class FailureTask(
@@ -57,10 +75,14 @@ case class FailureTask(
   bcs: Array[BroadcastValue],
   shuffleDeps: Array[ShuffleDeps],
   isResult: Boolean,
+  // the payload file, relative to the folder of the failure context file
+  payloadFile: Option[String] = None,
   version: String = FailureTask.version
 )
 
 object FailureTask {
-  val version = "0.1"
+  // 0.2: payloads are saved in binary into the payload file instead of being Base64 encoded
+  val version = "0.2"
+  val contextFileName = "failure_save.ftd"
+  val payloadFileName = "failure_save.payload"
 }
-
@@ -28,7 +28,7 @@ import java.nio.file.{Files, Paths, StandardCopyOption}
 import java.util.Base64
 
 import com.google.common.io.ByteStreams
-import org.apache.hadoop.fs.Path
+import org.apache.hadoop.fs.{FSDataInputStream, Path}
 import org.apache.spark.broadcast.Broadcast
 import org.apache.spark.executor.TaskMetrics
 import org.apache.spark.internal.Logging
@@ -40,15 +40,24 @@ import org.apache.spark._
 
 import scala.reflect.ClassTag
 
-class TaskRecovery(sc: SparkContext, failureTask: FailureTask) extends Logging {
+/**
+ * @param contextFolder the folder of the failure context file, where the payload file is looked up
+ */
+class TaskRecovery(sc: SparkContext, failureTask: FailureTask, contextFolder: Option[Path] = None) extends Logging {
   import TaskRecovery._
 
   private val serializer = SparkEnv.get.closureSerializer.newInstance()
   private val fs = org.apache.hadoop.fs.FileSystem.get(sc.hadoopConfiguration)
+  // payloads are read by position, the failure context of legacy layout has no payload file
+  private val payloadIn: Option[FSDataInputStream] = failureTask.payloadFile.map(file => {
+    val payloadPath = contextFolder.map(new Path(_, file)).getOrElse(new Path(file))
+
+    payloadPath.getFileSystem(sc.hadoopConfiguration).open(payloadPath)
+  })
   private val bcMap: Map[Long, Broadcast[Any]] = failureTask.bcs
     .sortBy(_.id)
     .map(bc => {
-      val newBc = sc.broadcast(decodeObj[Any](serializer, bc.value))
+      val newBc = sc.broadcast(deserializeObj[Any](serializer, readBytes(payloadIn, bc.value, bc.payload)))
 
       bc.id -> newBc
     }) toMap
@@ -103,7 +112,7 @@ class TaskRecovery(sc: SparkContext, failureTask: FailureTask) extends Logging {
         }}
 
         val recoveryMapStatus = MapOutputTracker.deserializeMapStatuses(
-          Base64.getDecoder.decode(shuffleDep.mapStatusEnc))
+          readBytes(payloadIn, shuffleDep.mapStatusEnc, shuffleDep.mapStatus))
           .map(loc => loc.getClass.getDeclaredFields
             .find(_.getName.endsWith("$$loc"))
             .map(locationField => {
@@ -150,6 +159,8 @@ class TaskRecovery(sc: SparkContext, failureTask: FailureTask) extends Logging {
     )
   }
 
+  payloadIn.foreach(_.close())
+
   def rerun(): Unit = {
     val rerunTaskSet = new TaskSet(
       Array(recoveredTask),
@@ -166,9 +177,29 @@ object TaskRecovery {
   def decodeObj[T : ClassTag](serializer: SerializerInstance, code: String): T = {
     val objBytes = Base64.getDecoder.decode(code)
 
+    deserializeObj[T](serializer, objBytes)
+  }
+
+  def deserializeObj[T : ClassTag](serializer: SerializerInstance, objBytes: Array[Byte]): T = {
     serializer.deserialize[T](ByteBuffer.wrap(objBytes))
   }
 
+  /**
+   * Read the bytes of a payload from the payload file, or decode them from Base64 for the legacy layout
+   */
+  def readBytes(payloadIn: Option[FSDataInputStream], encoded: Option[String], payload: Option[Payload]): Array[Byte] = {
+    (payload, payloadIn) match {
+      case (Some(Payload(offset, length)), Some(in)) =>
+        val bytes = new Array[Byte](length)
+        in.readFully(offset, bytes)
+
+        bytes
+      case _ =>
+        Base64.getDecoder.decode(encoded.getOrElse(
+          throw new IllegalArgumentException("Neither the encoded value nor the payload file is found")))
+    }
+  }
+
   def importShuffleToLocal(offset: Long,
                            len: Long,
                            reduceId: Int,
@@ -183,8 +214,8 @@ object TaskRecovery {
     dataOut.close()
   }
 
-  def rerun(sc: SparkContext, failureTask: FailureTask): Unit = {
-    val recoveryTask = new TaskRecovery(sc, failureTask)
+  def rerun(sc: SparkContext, failureTask: FailureTask, contextFolder: Option[Path] = None): Unit = {
+    val recoveryTask = new TaskRecovery(sc, failureTask, contextFolder)
     recoveryTask.rerun()
 
     while (sc.taskScheduler.rootPool.schedulableQueue.size() != 0) {
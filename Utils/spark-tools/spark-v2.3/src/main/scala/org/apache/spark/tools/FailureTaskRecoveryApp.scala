@@ -22,6 +22,9 @@
 
 package org.apache.spark.tools
 
+import java.io.File
+
+import org.apache.hadoop.fs.Path
 import org.apache.spark.failure.{FailureTask, TaskRecovery}
 import org.apache.spark.{SparkConf, SparkContext}
 import org.json4s.jackson.Serialization.read
@@ -40,9 +43,11 @@ object FailureTaskRecoveryApp {
     val json = source.mkString
     source.close()
 
+    // The failure context of legacy layout has no payload file, and is still readable
     val failureTask = read[FailureTask](json)
+    val contextFolder = new Path(new File(failureTaskContextFile).getAbsoluteFile.getParentFile.toURI)
 
-    TaskRecovery.rerun(sc, failureTask)
+    TaskRecovery.rerun(sc, failureTask, Some(contextFolder))
   }
 
 }